@@ -0,0 +1,94 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import model.BugTrap;
+import model.LoadingMode;
+import model.bugreports.BugReport;
+import model.bugreports.IBugReport;
+import model.bugreports.builders.BugReportBuilder;
+import model.projects.IProject;
+import model.projects.ISubsystem;
+import model.users.IUser;
+
+/**
+ * Measures the heap used by bug reports before and after their bodies are mapped to a file,
+ * and the time it takes to read all descriptions from the mapping.
+ * Usage: BodyMemoryBenchmark [bugReports]
+ */
+public class BodyMemoryBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int bugReports = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+
+		File stateFile = File.createTempFile("BugTrapState", ".xml");
+		stateFile.deleteOnExit();
+		new StateFileGenerator(42).setBugReports(0).write(stateFile);
+		BugTrap bugTrap = new BugTrap();
+		bugTrap.initialize(stateFile, LoadingMode.STREAMING);
+
+		List<ISubsystem> subsystems = new ArrayList<>();
+		for (IProject project : bugTrap.getProjectManager().getProjects())
+			subsystems.addAll(project.getAllDirectOrIndirectSubsystems());
+		IUser issuer = bugTrap.getUserManager().getIssuers().get(0);
+		long empty = usedHeap();
+
+		Random random = new Random(42);
+		for (int i = 0; i < bugReports; i++) {
+			BugReport bugReport = new BugReportBuilder(bugTrap)
+					.setTitle("Generated bug " + i)
+					.setDescription(text(random, "Something goes wrong in case", 40))
+					.setSubsystem(subsystems.get(random.nextInt(subsystems.size())))
+					.setIssuer(issuer)
+					.setDependsOn(new ArrayList<IBugReport>())
+					.setImpactFactor(1 + random.nextInt(9))
+					.setCreationDate(new Date(i * 60000L))
+					.setStackTrace(text(random, "\tat model.Generated.method", 20))
+					.setErrorMessage(text(random, "Error", 4))
+					.setReproduction(text(random, "Step", 10))
+					.getBugReport();
+			bugTrap.getBugReportManager().addBugReport(bugReport);
+			for (int c = random.nextInt(3); c > 0; c--)
+				bugReport.addComment(text(random, "Comment", 10));
+		}
+		long resident = usedHeap() - empty;
+
+		File bodyFile = File.createTempFile("BugTrapBodies", ".map");
+		bodyFile.deleteOnExit();
+		long start = System.nanoTime();
+		bugTrap.getBugReportManager().mapBodies(bodyFile);
+		long mapping = (System.nanoTime() - start) / 1000000;
+		long mapped = usedHeap() - empty;
+
+		start = System.nanoTime();
+		long characters = 0;
+		for (IBugReport bugReport : bugTrap.getBugReportManager().getBugReportList())
+			characters += bugReport.getDescription().length();
+		long reading = (System.nanoTime() - start) / 1000000;
+
+		System.out.println(String.format("%d bug reports, bodies file %d MiB", bugReports, bodyFile.length() >> 20));
+		System.out.println(String.format("heap with resident bodies: %5d MiB", resident >> 20));
+		System.out.println(String.format("heap with mapped bodies:   %5d MiB (mapping took %d ms)", mapped >> 20, mapping));
+		System.out.println(String.format("reading %d description characters took %d ms", characters, reading));
+	}
+
+	// Text of the given number of numbered words.
+	private static String text(Random random, String word, int words) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < words; i++)
+			text.append(word).append(' ').append(random.nextInt(100000)).append('\n');
+		return text.toString();
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++)
+			System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,77 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import controllers.BugReportController;
+import controllers.exceptions.UnauthorizedAccessException;
+import model.BugTrap;
+import model.LoadingMode;
+import model.bugreports.IBugReport;
+import model.bugreports.forms.CommentCreationForm;
+
+/**
+ * Measures the throughput of journaled commands for several group sizes,
+ * and the time it takes to replay the journal on top of the snapshot.
+ * Usage: JournalBenchmark [bugReports] [commands]
+ */
+public class JournalBenchmark {
+
+	private static final int[] GROUP_SIZES = { 1, 16, 256 };
+
+	public static void main(String[] args) throws IOException, UnauthorizedAccessException {
+		int bugReports = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		int commands = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+
+		File stateFile = File.createTempFile("BugTrapState", ".xml");
+		stateFile.deleteOnExit();
+		new StateFileGenerator(42).setBugReports(bugReports).write(stateFile);
+		File snapshotFile = File.createTempFile("BugTrapState", ".snapshot");
+		snapshotFile.deleteOnExit();
+		BugTrap state = new BugTrap();
+		state.initialize(stateFile, LoadingMode.STREAMING);
+		state.save(snapshotFile);
+		System.out.println("Snapshot: " + bugReports + " bug reports, " + commands + " comments per run");
+
+		for (int groupSize : GROUP_SIZES) {
+			File journalFile = File.createTempFile("BugTrapState", ".journal");
+			journalFile.delete();
+			journalFile.deleteOnExit();
+
+			BugTrap bugTrap = new BugTrap();
+			bugTrap.initialize(snapshotFile, LoadingMode.SNAPSHOT);
+			bugTrap.openJournal(journalFile, groupSize);
+			long time = comment(bugTrap, commands);
+			bugTrap.closeJournal();
+
+			long start = System.nanoTime();
+			BugTrap recovered = new BugTrap();
+			recovered.initialize(snapshotFile, LoadingMode.SNAPSHOT);
+			int replayed = recovered.openJournal(journalFile, groupSize);
+			recovered.closeJournal();
+			long recovery = (System.nanoTime() - start) / 1000000;
+			if (replayed != commands)
+				throw new IllegalStateException("Replayed " + replayed + " of " + commands + " commands.");
+
+			System.out.println(String.format("group %4d: %8.0f commands/s, journal %5d KiB, snapshot + replay %5d ms",
+					groupSize, commands * 1e9 / time, journalFile.length() / 1024, recovery));
+		}
+	}
+
+	// Comments on the bug reports in turn, returns the time taken in nanoseconds.
+	private static long comment(BugTrap bugTrap, int commands) throws UnauthorizedAccessException {
+		bugTrap.getUserManager().loginAs(bugTrap.getUserManager().getIssuers().get(0));
+		BugReportController controller = new BugReportController(bugTrap);
+		List<IBugReport> bugReports = controller.getBugReportList();
+
+		long start = System.nanoTime();
+		for (int i = 0; i < commands; i++) {
+			CommentCreationForm form = controller.getCommentCreationForm();
+			form.setCommentable(bugReports.get(i % bugReports.size()));
+			form.setText("Comment " + i);
+			controller.createComment(form);
+		}
+		return System.nanoTime() - start;
+	}
+}
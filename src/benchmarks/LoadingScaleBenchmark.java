@@ -0,0 +1,44 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+
+import model.BugTrap;
+import model.LoadingMode;
+
+/**
+ * Measures how the streaming loader scales with the size of the state file, for shapes that used to be slow:
+ * many bug reports that each name their subsystem, and projects with many subsystems.
+ * Resolving every subsystem by scanning all subsystems took well over half a minute for the large state,
+ * labelling the whole tree again for every new subsystem is quadratic in the number of subsystems.
+ * Usage: LoadingScaleBenchmark [runs]
+ */
+public class LoadingScaleBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int runs = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+
+		measure("large state", new StateFileGenerator(11).setProjects(10).setSubsystemsPerProject(500).setBugReports(100000), runs);
+		measure("many subsystems", new StateFileGenerator(13).setProjects(2).setSubsystemsPerProject(20000).setBugReports(1000), runs);
+	}
+
+	private static void measure(String name, StateFileGenerator generator, int runs) throws IOException {
+		File stateFile = File.createTempFile("BugTrapState", ".xml");
+		try {
+			generator.write(stateFile);
+			long best = Long.MAX_VALUE;
+			for (int i = 0; i < runs; i++) {
+				System.gc();
+				long start = System.nanoTime();
+				BugTrap bugTrap = new BugTrap();
+				bugTrap.initialize(stateFile, LoadingMode.STREAMING);
+				best = Math.min(best, (System.nanoTime() - start) / 1000000);
+				if (bugTrap.getBugReportManager().getBugReportList().isEmpty())
+					throw new IllegalStateException("Nothing was loaded");
+			}
+			System.out.println(String.format("%-16s best %6d ms", name, best));
+		} finally {
+			stateFile.delete();
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import controllers.exceptions.UnauthorizedAccessException;
+import model.BugTrap;
+import model.bugreports.IBugReport;
+import model.bugreports.NearDuplicateIndex;
+
+/**
+ * Measures the recall and latency of finding near duplicates with the locality sensitive hashing index
+ * against comparing the shingles of a new bug report to those of every bug report in the list, for states built by StateGenerator.
+ * Every query is a bug report of the state of which a part of the words was replaced by new words, up to 60%.
+ * Recall is the part of the bug reports with an exact Jaccard similarity of at least the threshold that the index finds,
+ * precision the part of the bug reports the index finds that have it.
+ * Usage: NearDuplicateBenchmark [bugReports [queries]]
+ */
+public class NearDuplicateBenchmark {
+
+	private static final double[] THRESHOLDS = { 0.3, 0.4, 0.5, 0.6, 0.7, 0.8, 0.9 };
+	private static final int INDEX_RUNS = 5;
+
+	public static void main(String[] args) throws UnauthorizedAccessException {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		int queries = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+		BugTrap bugTrap = new StateGenerator(42).setBugReports(size).setCommentsPerBugReport(0).setRegistrations(0).generate();
+		bugTrap.getUserManager().loginAs(bugTrap.getUserManager().getIssuers().get(0));
+		List<IBugReport> bugReports = bugTrap.getBugReportManager().getBugReportList();
+
+		List<Set<Long>> shingles = new ArrayList<>();
+		for (IBugReport report : bugReports)
+			shingles.add(NearDuplicateIndex.shingles(report.getTitle(), report.getDescription()));
+
+		Random random = new Random(7);
+		String[] titles = new String[queries];
+		String[] descriptions = new String[queries];
+		for (int q = 0; q < queries; q++) {
+			IBugReport original = bugReports.get(random.nextInt(bugReports.size()));
+			double changed = 0.6 * q / queries;
+			titles[q] = reword(original.getTitle(), changed, random);
+			descriptions[q] = reword(original.getDescription(), changed, random);
+		}
+
+		System.out.println(String.format("%-10s %-10s %10s %8s %10s %12s %10s", "reports", "threshold", "duplicates", "recall", "precision", "brute ms", "index ms"));
+		for (double threshold : THRESHOLDS) {
+			int duplicates = 0;
+			int foundDuplicates = 0;
+			int found = 0;
+			long brute = 0;
+			long index = 0;
+			for (int q = 0; q < queries; q++) {
+				long start = System.nanoTime();
+				Set<Long> query = NearDuplicateIndex.shingles(titles[q], descriptions[q]);
+				List<IBugReport> exact = new ArrayList<>();
+				for (int i = 0; i < shingles.size(); i++)
+					if (NearDuplicateIndex.jaccard(query, shingles.get(i)) >= threshold)
+						exact.add(bugReports.get(i));
+				brute += System.nanoTime() - start;
+
+				long best = Long.MAX_VALUE;
+				List<IBugReport> indexed = null;
+				for (int run = 0; run < INDEX_RUNS; run++) {
+					start = System.nanoTime();
+					indexed = bugTrap.getBugReportManager().findNearDuplicates(titles[q], descriptions[q], threshold);
+					best = Math.min(best, System.nanoTime() - start);
+				}
+				index += best;
+
+				duplicates += exact.size();
+				found += indexed.size();
+				for (IBugReport report : indexed)
+					if (exact.contains(report))
+						foundDuplicates++;
+			}
+			System.out.println(String.format("%-10d %-10.1f %10d %8.3f %10.3f %12.3f %10.3f", size, threshold, duplicates,
+					duplicates == 0 ? 1.0 : (double) foundDuplicates / duplicates, found == 0 ? 1.0 : (double) foundDuplicates / found,
+					brute / 1e6 / queries, index / 1e6 / queries));
+		}
+	}
+
+	// Replaces every word of the text by a new word with the given chance.
+	private static String reword(String text, double chance, Random random) {
+		StringBuilder reworded = new StringBuilder();
+		for (String word : text.split(" ")) {
+			if (reworded.length() > 0)
+				reworded.append(' ');
+			reworded.append(random.nextDouble() < chance ? "w" + random.nextInt(1000000) : word);
+		}
+		return reworded.toString();
+	}
+}
@@ -0,0 +1,180 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.List;
+
+import controllers.BugReportController;
+import controllers.exceptions.UnauthorizedAccessException;
+import model.BugTrap;
+import model.LoadingMode;
+import model.bugreports.IBugReport;
+import model.bugreports.forms.CommentCreationForm;
+
+/**
+ * Measures load time, peak heap and steady-state heap of every way to restore a BugTrap state,
+ * on a state built by StateGenerator.
+ * The state files only hold users, projects, subsystems and bug reports, the other paths hold the full state.
+ * The store is a snapshot followed by a journal of the given number of commands.
+ * Afterwards it compares a full save of a segmented snapshot with a save after a change to one project.
+ * Usage: PersistenceBenchmark [bugReports] [projects] [commands] [runs]
+ */
+public class PersistenceBenchmark {
+
+	private interface Loader {
+		BugTrap load() throws IOException;
+	}
+
+	public static void main(String[] args) throws IOException, UnauthorizedAccessException {
+		int bugReports = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+		int projects = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		int commands = args.length > 2 ? Integer.parseInt(args[2]) : 5000;
+		int runs = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+
+		BugTrap state = new StateGenerator(42).setBugReports(bugReports).setProjects(projects).generate();
+		final File stateFile = File.createTempFile("BugTrapState", ".xml");
+		stateFile.deleteOnExit();
+		StateGenerator.writeStateFile(state, stateFile);
+		final File snapshotFile = File.createTempFile("BugTrapState", ".snapshot");
+		snapshotFile.deleteOnExit();
+		state.save(snapshotFile);
+		final File segmentDirectory = Files.createTempDirectory("BugTrapSegments").toFile();
+		state.saveSegments(segmentDirectory);
+		final File directory = Files.createTempDirectory("BugTrapStore").toFile();
+		state.openStore(directory, 256);
+		comment(state, commands);
+		state.closeStore();
+		state = null;
+
+		System.out.println(String.format("%d bug reports in %d projects: state file %d KiB, snapshot %d KiB, store %d KiB",
+				bugReports, projects, stateFile.length() / 1024, snapshotFile.length() / 1024, size(directory) / 1024));
+		System.out.println(String.format("%-10s %10s %10s %10s", "", "load ms", "peak MiB", "steady MiB"));
+
+		for (final LoadingMode mode : LoadingMode.values()) {
+			measure(mode.toString(), runs, new Loader() {
+				@Override
+				public BugTrap load() {
+					BugTrap bugTrap = new BugTrap();
+					bugTrap.initialize(mode == LoadingMode.SNAPSHOT ? snapshotFile : mode == LoadingMode.SEGMENTED ? segmentDirectory : stateFile, mode);
+					return bugTrap;
+				}
+			});
+		}
+		measure("STORE", runs, new Loader() {
+			@Override
+			public BugTrap load() throws IOException {
+				BugTrap bugTrap = new BugTrap();
+				bugTrap.openStore(directory, 256);
+				bugTrap.closeStore();
+				return bugTrap;
+			}
+		});
+
+		measureSaves(segmentDirectory, runs);
+
+		delete(segmentDirectory);
+		delete(directory);
+	}
+
+	// A full save writes every segment, a save after one comment only the segment of its project.
+	private static void measureSaves(File segmentDirectory, int runs) throws IOException, UnauthorizedAccessException {
+		BugTrap bugTrap = new BugTrap();
+		bugTrap.initialize(segmentDirectory, LoadingMode.SEGMENTED);
+
+		long full = Long.MAX_VALUE;
+		long incremental = Long.MAX_VALUE;
+		int rewritten = 0;
+		for (int i = 0; i <= runs; i++) {
+			// A new directory, so nothing of an earlier save is reused.
+			File directory = Files.createTempDirectory("BugTrapSegments").toFile();
+			long start = System.nanoTime();
+			bugTrap.saveSegments(directory);
+			long time = (System.nanoTime() - start) / 1000000;
+
+			comment(bugTrap, 1);
+			start = System.nanoTime();
+			rewritten = bugTrap.saveSegments(directory);
+			// The first run warms up the JIT and is not counted.
+			if (i > 0) {
+				full = Math.min(full, time);
+				incremental = Math.min(incremental, (System.nanoTime() - start) / 1000000);
+			}
+			delete(directory);
+		}
+		System.out.println(String.format("segmented save: full %d ms, after one comment %d ms (%d segments rewritten, %d projects)",
+				full, incremental, rewritten, bugTrap.getProjectManager().getProjects().size()));
+	}
+
+	private static void delete(File directory) {
+		for (File file : directory.listFiles())
+			file.delete();
+		directory.delete();
+	}
+
+	// The first run warms up the JIT and is not counted.
+	private static void measure(String name, int runs, Loader loader) throws IOException {
+		loader.load();
+
+		long best = Long.MAX_VALUE;
+		long peak = 0;
+		long steady = 0;
+		for (int i = 0; i < runs; i++) {
+			long before = usedHeap();
+			resetPeaks();
+			long start = System.nanoTime();
+			BugTrap bugTrap = loader.load();
+			best = Math.min(best, (System.nanoTime() - start) / 1000000);
+			peak = Math.max(peak, peakHeap() - before);
+			steady = Math.max(steady, usedHeap() - before);
+			if (bugTrap.getBugReportManager().getBugReportList().isEmpty())
+				throw new IllegalStateException("Nothing was loaded by " + name);
+		}
+		System.out.println(String.format("%-10s %10d %10d %10d", name, best, peak >> 20, steady >> 20));
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++)
+			System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static void resetPeaks() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+			if (pool.getType() == MemoryType.HEAP)
+				pool.resetPeakUsage();
+	}
+
+	// The pools do not peak at the same moment, so this is an upper bound.
+	private static long peakHeap() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+			if (pool.getType() == MemoryType.HEAP)
+				peak += pool.getPeakUsage().getUsed();
+		return peak;
+	}
+
+	private static long size(File directory) {
+		long size = 0;
+		for (File file : directory.listFiles())
+			size += file.length();
+		return size;
+	}
+
+	private static void comment(BugTrap bugTrap, int commands) throws UnauthorizedAccessException {
+		bugTrap.getUserManager().loginAs(bugTrap.getUserManager().getIssuers().get(0));
+		BugReportController controller = new BugReportController(bugTrap);
+		List<IBugReport> bugReports = controller.getBugReportList();
+		for (int i = 0; i < commands; i++) {
+			CommentCreationForm form = controller.getCommentCreationForm();
+			form.setCommentable(bugReports.get(i % bugReports.size()));
+			form.setText("Comment " + i);
+			controller.createComment(form);
+		}
+		bugTrap.getUserManager().logOff();
+	}
+}
@@ -0,0 +1,63 @@
+package benchmarks;
+
+import java.util.List;
+
+import controllers.exceptions.UnauthorizedAccessException;
+import model.BugTrap;
+import model.bugreports.IBugReport;
+import model.bugreports.filters.BugReportFilter;
+import model.bugreports.filters.FilterType;
+
+/**
+ * Measures the latency of searching bug reports by string, scanning the whole list against looking up the trigram index
+ * and against taking the first page of 20 results, for states of several sizes built by StateGenerator.
+ * The queries go from a common word to a string that is in no bug report.
+ * Usage: SearchBenchmark [bugReports...]
+ */
+public class SearchBenchmark {
+
+	private static final String[] QUERIES = { "crash", "zoom scroll", "macro template style", "Segfault" };
+	private static final int SCAN_RUNS = 3;
+	private static final int INDEX_RUNS = 20;
+	private static final int PAGE_SIZE = 20;
+
+	public static void main(String[] args) throws UnauthorizedAccessException {
+		int[] sizes = { 10000, 100000, 1000000 };
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++)
+				sizes[i] = Integer.parseInt(args[i]);
+		}
+
+		System.out.println(String.format("%-10s %-22s %8s %10s %10s %10s", "reports", "query", "found", "scan ms", "index ms", "page ms"));
+		for (int size : sizes) {
+			BugTrap bugTrap = new StateGenerator(42).setBugReports(size).setCommentsPerBugReport(0).setRegistrations(0).generate();
+			bugTrap.getUserManager().loginAs(bugTrap.getUserManager().getIssuers().get(0));
+			List<IBugReport> bugReports = bugTrap.getBugReportManager().getBugReportList();
+
+			for (String query : QUERIES) {
+				int found = 0;
+				long scan = Long.MAX_VALUE;
+				long index = Long.MAX_VALUE;
+				long page = Long.MAX_VALUE;
+				for (int run = 0; run < SCAN_RUNS; run++) {
+					long start = System.nanoTime();
+					found = new BugReportFilter(bugReports).filter(FilterType.CONTAINS_STRING, query).size();
+					scan = Math.min(scan, System.nanoTime() - start);
+				}
+				for (int run = 0; run < INDEX_RUNS; run++) {
+					long start = System.nanoTime();
+					int indexed = bugTrap.getBugReportManager().getOrderedList(new FilterType[] { FilterType.CONTAINS_STRING }, new String[] { query }).size();
+					index = Math.min(index, System.nanoTime() - start);
+					if (indexed != found)
+						throw new IllegalStateException("The index found " + indexed + " bug reports, the scan " + found + ".");
+
+					start = System.nanoTime();
+					bugTrap.getBugReportManager().getOrderedPage(new FilterType[] { FilterType.CONTAINS_STRING }, new String[] { query }, null, PAGE_SIZE);
+					page = Math.min(page, System.nanoTime() - start);
+				}
+				System.out.println(String.format("%-10d %-22s %8d %10.3f %10.3f %10.3f", size, "\"" + query + "\"", found, scan / 1e6, index / 1e6, page / 1e6));
+			}
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import model.BugTrap;
+import model.LoadingMode;
+
+/**
+ * Compares the startup time of the available loading modes on a synthetic state file.
+ * Usage: StartupBenchmark [bugReports] [subsystemsPerProject] [runs]
+ */
+public class StartupBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int bugReports = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		int subsystemsPerProject = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+		int runs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+		File stateFile = File.createTempFile("BugTrapState", ".xml");
+		stateFile.deleteOnExit();
+		new StateFileGenerator(42).setBugReports(bugReports).setSubsystemsPerProject(subsystemsPerProject).write(stateFile);
+		System.out.println("State file: " + bugReports + " bug reports, " + (stateFile.length() / 1024) + " KiB");
+
+		File snapshotFile = File.createTempFile("BugTrapState", ".snapshot");
+		snapshotFile.deleteOnExit();
+		BugTrap state = new BugTrap();
+		state.initialize(stateFile, LoadingMode.STREAMING);
+		state.save(snapshotFile);
+		System.out.println("Snapshot:   " + (snapshotFile.length() / 1024) + " KiB");
+		File segmentDirectory = Files.createTempDirectory("BugTrapSegments").toFile();
+		state.saveSegments(segmentDirectory);
+
+		for (LoadingMode mode : LoadingMode.values()) {
+			File file = mode == LoadingMode.SNAPSHOT ? snapshotFile : mode == LoadingMode.SEGMENTED ? segmentDirectory : stateFile;
+
+			// First run warms up the JIT and is not counted.
+			load(file, mode);
+
+			long best = Long.MAX_VALUE;
+			long total = 0;
+			for (int i = 0; i < runs; i++) {
+				long time = load(file, mode);
+				best = Math.min(best, time);
+				total += time;
+			}
+			System.out.println(String.format("%-10s best %6d ms, mean %6d ms", mode, best, total / runs));
+		}
+
+		for (File file : segmentDirectory.listFiles())
+			file.delete();
+		segmentDirectory.delete();
+	}
+
+	private static long load(File stateFile, LoadingMode mode) {
+		System.gc();
+		long start = System.nanoTime();
+		BugTrap bugTrap = new BugTrap();
+		bugTrap.initialize(stateFile, mode);
+		long time = (System.nanoTime() - start) / 1000000;
+		if (bugTrap.getBugReportManager().getBugReportList().isEmpty())
+			throw new IllegalStateException("Nothing was loaded in mode " + mode);
+		return time;
+	}
+}
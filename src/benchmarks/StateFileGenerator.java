@@ -0,0 +1,167 @@
+package benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import model.bugreports.bugtag.BugTag;
+
+/**
+ * Writes synthetic BugTrap state files in the format of BugTrapState.xml.
+ * The same seed and sizes always produce the same file.
+ */
+public class StateFileGenerator {
+
+	private final Random random;
+
+	private int issuers = 20;
+	private int developers = 20;
+	private int projects = 10;
+	private int subsystemsPerProject = 50;
+	private int bugReports = 10000;
+
+	/**
+	 * Constructor.
+	 * @param seed Seed for the random generator.
+	 */
+	public StateFileGenerator(long seed) {
+		this.random = new Random(seed);
+	}
+
+	public StateFileGenerator setIssuers(int issuers) {
+		this.issuers = issuers;
+		return this;
+	}
+
+	public StateFileGenerator setDevelopers(int developers) {
+		if (developers < 1) throw new IllegalArgumentException("At least one developer is needed to lead projects.");
+
+		this.developers = developers;
+		return this;
+	}
+
+	public StateFileGenerator setProjects(int projects) {
+		this.projects = projects;
+		return this;
+	}
+
+	public StateFileGenerator setSubsystemsPerProject(int subsystemsPerProject) {
+		if (subsystemsPerProject < 1) throw new IllegalArgumentException("Every project needs a subsystem to file bug reports in.");
+
+		this.subsystemsPerProject = subsystemsPerProject;
+		return this;
+	}
+
+	public StateFileGenerator setBugReports(int bugReports) {
+		this.bugReports = bugReports;
+		return this;
+	}
+
+	/**
+	 * Write a state file with the set sizes to the given file.
+	 * @param file The file to write to.
+	 * @throws IOException if the file can not be written.
+	 */
+	public void write(File file) throws IOException {
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+			out.write("<?xml version=\"1.0\"?>\n<BugTrap>\n");
+			writeUsers(out);
+			List<String> subsystems = writeProjects(out);
+			writeBugReports(out, subsystems);
+			out.write("</BugTrap>\n");
+		}
+	}
+
+	private void writeUsers(Writer out) throws IOException {
+		out.write("\t<users>\n");
+		out.write("\t\t<user first=\"Admin\" middle=\"\" last=\"Istrator\" username=\"admin\" type=\"ADMIN\" />\n");
+		for (int i = 0; i < issuers; i++)
+			out.write("\t\t<user first=\"Issuer\" middle=\"\" last=\"" + i + "\" username=\"issuer" + i + "\" type=\"ISSUER\" />\n");
+		for (int i = 0; i < developers; i++)
+			out.write("\t\t<user first=\"Developer\" middle=\"\" last=\"" + i + "\" username=\"dev" + i + "\" type=\"DEVELOPER\" />\n");
+		out.write("\t</users>\n");
+	}
+
+	// Returns the names of all written subsystems.
+	private List<String> writeProjects(Writer out) throws IOException {
+		List<String> names = new ArrayList<>();
+		out.write("\t<projects>\n");
+		for (int p = 0; p < projects; p++) {
+			out.write("\t\t<project name=\"Project" + p + "\" budgetEstimate=\"" + (1000 + random.nextInt(100000))
+					+ "\" description=\"Generated project " + p + ".\" creationDate=\"01/01/2015\" startDate=\"01/02/2015\">\n");
+
+			out.write("\t\t\t<roles>\n");
+			String lead = "dev" + random.nextInt(developers);
+			out.write("\t\t\t\t<role user=\"" + lead + "\" role=\"LEAD\"></role>\n");
+			for (int i = 0; i < 3; i++) {
+				out.write("\t\t\t\t<role user=\"dev" + random.nextInt(developers) + "\" role=\"PROGRAMMER\"></role>\n");
+				out.write("\t\t\t\t<role user=\"dev" + random.nextInt(developers) + "\" role=\"TESTER\"></role>\n");
+			}
+			out.write("\t\t\t</roles>\n");
+
+			// Random tree: every subsystem hangs under the project or an earlier subsystem.
+			int[] parent = new int[subsystemsPerProject];
+			for (int s = 0; s < subsystemsPerProject; s++) {
+				parent[s] = random.nextInt(3) == 0 ? -1 : random.nextInt(s + 1) - 1;
+				names.add(subsystemName(p, s));
+			}
+			writeSubsystems(out, p, parent, -1, "\t\t\t");
+			out.write("\t\t</project>\n");
+		}
+		out.write("\t</projects>\n");
+		return names;
+	}
+
+	private void writeSubsystems(Writer out, int project, int[] parent, int of, String indent) throws IOException {
+		out.write(indent + "<subsystems>\n");
+		for (int s = 0; s < parent.length; s++) {
+			if (parent[s] != of)
+				continue;
+
+			out.write(indent + "\t<subsystem name=\"" + subsystemName(project, s) + "\" description=\"Generated subsystem.\">\n");
+			writeSubsystems(out, project, parent, s, indent + "\t\t");
+			out.write(indent + "\t</subsystem>\n");
+		}
+		out.write(indent + "</subsystems>\n");
+	}
+
+	private void writeBugReports(Writer out, List<String> subsystems) throws IOException {
+		out.write("\t<bugreports>\n");
+		for (int b = 0; b < bugReports; b++) {
+			String issuer = random.nextInt(4) == 0 || issuers == 0 ? "dev" + random.nextInt(developers) : "issuer" + random.nextInt(issuers);
+			BugTag tag = randomTag(random);
+			out.write("\t\t<bugreport title=\"Generated bug " + b + "\" description=\"Something goes wrong in case " + random.nextInt(1000000)
+					+ "\" creationDate=\"" + (1 + random.nextInt(28)) + "/" + (1 + random.nextInt(12)) + "/2016\" subsystem=\""
+					+ subsystems.get(random.nextInt(subsystems.size())) + "\" tag=\"" + tag + "\" issuer=\"" + issuer + "\">\n");
+			out.write("\t\t\t<assignees>\n");
+			if (tag != BugTag.NEW)
+				out.write("\t\t\t\t<assignee user=\"dev" + random.nextInt(developers) + "\" />\n");
+			out.write("\t\t\t</assignees>\n");
+			out.write("\t\t</bugreport>\n");
+		}
+		out.write("\t</bugreports>\n");
+	}
+
+	// Most reports in a long running installation are closed.
+	static BugTag randomTag(Random random) {
+		int r = random.nextInt(100);
+		if (r < 45) return BugTag.CLOSED;
+		if (r < 55) return BugTag.NOTABUG;
+		if (r < 60) return BugTag.DUPLICATE;
+		if (r < 70) return BugTag.RESOLVED;
+		if (r < 80) return BugTag.NEW;
+		if (r < 92) return BugTag.ASSIGNED;
+		return BugTag.UNDERREVIEW;
+	}
+
+	private static String subsystemName(int project, int subsystem) {
+		return "Subsystem" + project + "." + subsystem;
+	}
+}
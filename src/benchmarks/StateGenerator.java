@@ -0,0 +1,429 @@
+package benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import model.BugTrap;
+import model.bugreports.BugReport;
+import model.bugreports.IBugReport;
+import model.bugreports.bugtag.BugTag;
+import model.bugreports.builders.BugReportBuilder;
+import model.bugreports.comments.Comment;
+import model.notifications.NotificationType;
+import model.notifications.Observable;
+import model.projects.AchievedMilestone;
+import model.projects.IProject;
+import model.projects.ISubsystem;
+import model.projects.Project;
+import model.projects.Subsystem;
+import model.projects.builders.SubsystemBuilder;
+import model.users.IUser;
+
+/**
+ * Builds synthetic BugTrap states in memory, with everything a long running installation has:
+ * deep subsystem trees, bug reports with a realistic tag distribution, stack traces that recur,
+ * comment threads, dependencies between bug reports and notification registrations.
+ * The same seed and sizes always produce the same state.
+ *
+ * BugTrapState.xml can not hold comments, dependencies or registrations, so writeStateFile
+ * only writes the users, projects, subsystems and bug reports of a generated state.
+ */
+public class StateGenerator {
+
+	private static final long DAY = 24L * 60 * 60 * 1000;
+	private static final Date START = new Date(1420070400000L);	//01/01/2015
+
+	private static final String[] WORDS = { "crash", "freeze", "save", "open", "print", "render", "font", "table",
+			"chart", "cell", "formula", "import", "export", "slide", "animation", "toolbar", "menu", "window",
+			"document", "paste", "copy", "undo", "redo", "zoom", "scroll", "spell", "check", "macro", "template",
+			"style", "border", "image", "resize", "layout", "page", "header", "footer", "network", "login", "sync",
+			"slow", "memory", "leak", "error", "dialog", "button", "shortcut", "keyboard", "mouse", "file" };
+	private static final String[] PACKAGES = { "model", "view", "io", "render", "net", "util", "ui" };
+	private static final String[] CLASSES = { "Document", "Renderer", "Parser", "Cache", "Session", "Canvas",
+			"Table", "Cell", "Formula", "Slide", "Printer", "Font", "Layout", "Clipboard", "Window" };
+	private static final String[] ERRORS = { "java.lang.NullPointerException", "java.lang.IllegalStateException",
+			"java.lang.ArrayIndexOutOfBoundsException", "java.io.IOException", "java.lang.OutOfMemoryError",
+			"java.util.ConcurrentModificationException" };
+
+	private final Random random;
+
+	private int issuers = 20;
+	private int developers = 20;
+	private int projects = 10;
+	private int subsystemsPerProject = 50;
+	private int subsystemDepth = 8;
+	private int bugReports = 10000;
+	private int commentsPerBugReport = 2;
+	private int dependenciesPerBugReport = 1;
+	private int registrations = 1000;
+	private int causes = 200;
+
+	/**
+	 * Constructor.
+	 * @param seed Seed for the random generator.
+	 */
+	public StateGenerator(long seed) {
+		this.random = new Random(seed);
+	}
+
+	public StateGenerator setIssuers(int issuers) {
+		this.issuers = issuers;
+		return this;
+	}
+
+	public StateGenerator setDevelopers(int developers) {
+		if (developers < 1) throw new IllegalArgumentException("At least one developer is needed to lead projects.");
+
+		this.developers = developers;
+		return this;
+	}
+
+	public StateGenerator setProjects(int projects) {
+		this.projects = projects;
+		return this;
+	}
+
+	public StateGenerator setSubsystemsPerProject(int subsystemsPerProject) {
+		if (subsystemsPerProject < 1) throw new IllegalArgumentException("Every project needs a subsystem to file bug reports in.");
+
+		this.subsystemsPerProject = subsystemsPerProject;
+		return this;
+	}
+
+	/**
+	 * @param subsystemDepth The maximum number of subsystems between a project and a leaf subsystem, inclusive.
+	 */
+	public StateGenerator setSubsystemDepth(int subsystemDepth) {
+		if (subsystemDepth < 1) throw new IllegalArgumentException("Subsystems are at least one level deep.");
+
+		this.subsystemDepth = subsystemDepth;
+		return this;
+	}
+
+	public StateGenerator setBugReports(int bugReports) {
+		this.bugReports = bugReports;
+		return this;
+	}
+
+	/**
+	 * @param commentsPerBugReport The mean number of comments per bug report, replies included.
+	 */
+	public StateGenerator setCommentsPerBugReport(int commentsPerBugReport) {
+		this.commentsPerBugReport = commentsPerBugReport;
+		return this;
+	}
+
+	/**
+	 * @param dependenciesPerBugReport The mean number of earlier bug reports of the same project a bug report depends on.
+	 */
+	public StateGenerator setDependenciesPerBugReport(int dependenciesPerBugReport) {
+		this.dependenciesPerBugReport = dependenciesPerBugReport;
+		return this;
+	}
+
+	public StateGenerator setRegistrations(int registrations) {
+		this.registrations = registrations;
+		return this;
+	}
+
+	/**
+	 * @param causes The number of distinct causes the stack traces of bug reports are drawn from.
+	 */
+	public StateGenerator setCauses(int causes) {
+		if (causes < 1) throw new IllegalArgumentException("At least one cause is needed for stack traces.");
+
+		this.causes = causes;
+		return this;
+	}
+
+	/**
+	 * Build a new BugTrap system holding a state with the set sizes.
+	 * @return The generated BugTrap system.
+	 */
+	public BugTrap generate() {
+		BugTrap bugTrap = new BugTrap();
+		List<IUser> issuerList = new ArrayList<>();
+		List<IUser> developerList = new ArrayList<>();
+		bugTrap.getUserManager().createAdmin("Admin", "", "Istrator", "admin");
+		for (int i = 0; i < issuers; i++)
+			issuerList.add(bugTrap.getUserManager().createIssuer("Issuer", "", "" + i, "issuer" + i));
+		for (int i = 0; i < developers; i++)
+			developerList.add(bugTrap.getUserManager().createDeveloper("Developer", "", "" + i, "dev" + i));
+
+		List<List<Subsystem>> subsystems = new ArrayList<>();
+		for (int p = 0; p < projects; p++)
+			subsystems.add(createProject(bugTrap, p, developerList));
+
+		List<List<BugReport>> reportsPerProject = new ArrayList<>();
+		for (int p = 0; p < projects; p++)
+			reportsPerProject.add(new ArrayList<BugReport>());
+		List<List<String>> traces = createCauses();
+		for (int b = 0; b < bugReports; b++) {
+			int p = random.nextInt(projects);
+			BugReport report = createBugReport(bugTrap, b, subsystems.get(p), reportsPerProject.get(p),
+					issuerList, developerList, traces);
+			reportsPerProject.get(p).add(report);
+			bugTrap.getBugReportManager().addBugReport(report);
+			createComments(bugTrap, report);
+		}
+		bugTrap.setCurrentDate(null);
+
+		for (int r = 0; r < registrations; r++)
+			createRegistration(bugTrap, issuerList, developerList, subsystems);
+		return bugTrap;
+	}
+
+	private List<Subsystem> createProject(BugTrap bugTrap, int p, List<IUser> developerList) {
+		Date creation = new Date(START.getTime() + random.nextInt(365) * DAY);
+		Project project = bugTrap.getProjectManager().buildProject("Project" + p, "Generated project " + p + ".",
+				creation, new Date(creation.getTime() + random.nextInt(60) * DAY), 1000 + random.nextInt(100000), null, null);
+		project.setLeadDeveloper(developerList.get(random.nextInt(developerList.size())));
+		for (int i = 0; i < 3; i++) {
+			project.addProgrammer(developerList.get(random.nextInt(developerList.size())));
+			project.addTester(developerList.get(random.nextInt(developerList.size())));
+		}
+
+		// Half of the subsystems continue the chain of the previous one, which makes the trees deep.
+		List<Subsystem> created = new ArrayList<>();
+		List<Integer> depths = new ArrayList<>();
+		for (int s = 0; s < subsystemsPerProject; s++) {
+			int parent = -1;
+			int r = random.nextInt(4);
+			if (s > 0 && r >= 2 && depths.get(s - 1) < subsystemDepth)
+				parent = s - 1;
+			else if (s > 0 && r == 1)
+				parent = random.nextInt(s);
+			if (parent >= 0 && depths.get(parent) >= subsystemDepth)
+				parent = -1;
+
+			created.add(new SubsystemBuilder(bugTrap)
+					.setName("Subsystem" + p + "." + s)
+					.setDescription(text(6))
+					.setParent(parent < 0 ? project : created.get(parent))
+					.getSubsystem());
+			depths.add(parent < 0 ? 1 : depths.get(parent) + 1);
+		}
+		bugTrap.getProjectManager().addProject(project);
+		return created;
+	}
+
+	// A few frames per cause, the frames of different causes overlap.
+	private List<List<String>> createCauses() {
+		List<List<String>> traces = new ArrayList<>();
+		for (int c = 0; c < causes; c++) {
+			List<String> frames = new ArrayList<>();
+			frames.add(ERRORS[random.nextInt(ERRORS.length)] + ": " + text(3));
+			for (int f = 3 + random.nextInt(8); f > 0; f--) {
+				String name = CLASSES[random.nextInt(CLASSES.length)];
+				frames.add("\tat " + PACKAGES[random.nextInt(PACKAGES.length)] + "." + name + "."
+						+ WORDS[random.nextInt(WORDS.length)] + "(" + name + ".java:" + (1 + random.nextInt(900)) + ")");
+			}
+			traces.add(frames);
+		}
+		return traces;
+	}
+
+	private BugReport createBugReport(BugTrap bugTrap, int b, List<Subsystem> subsystems, List<BugReport> earlier,
+			List<IUser> issuerList, List<IUser> developerList, List<List<String>> traces) {
+		BugTag tag = StateFileGenerator.randomTag(random);
+		List<IUser> assignees = new ArrayList<>();
+		if (tag != BugTag.NEW)
+			for (int i = 1 + random.nextInt(2); i > 0; i--)
+				assignees.add(developerList.get(random.nextInt(developerList.size())));
+
+		// Only earlier bug reports, so there are no cycles.
+		List<IBugReport> dependsOn = new ArrayList<>();
+		if (!earlier.isEmpty())
+			for (int i = poisson(dependenciesPerBugReport); i > 0; i--) {
+				BugReport dependency = earlier.get(earlier.size() - 1 - random.nextInt(Math.min(earlier.size(), 100)));
+				if (!dependsOn.contains(dependency))
+					dependsOn.add(dependency);
+			}
+
+		IUser issuer = random.nextInt(4) == 0 || issuerList.isEmpty()
+				? developerList.get(random.nextInt(developerList.size()))
+				: issuerList.get(random.nextInt(issuerList.size()));
+		BugReportBuilder builder = new BugReportBuilder(bugTrap)
+				.setTitle(capitalize(text(2 + random.nextInt(5))))
+				.setDescription(text(10 + random.nextInt(40)))
+				.setSubsystem(subsystems.get(random.nextInt(subsystems.size())))
+				.setIssuer(issuer)
+				.setDependsOn(dependsOn)
+				.setCreationDate(new Date(START.getTime() + (365 + b * 730L / Math.max(bugReports, 1)) * DAY))
+				.setAssignees(assignees)
+				.setBugTag(tag)
+				.setImpactFactor(1 + random.nextInt(10));
+
+		// Most traces come from a few common causes.
+		if (random.nextInt(3) != 0) {
+			List<String> frames = traces.get((int) (traces.size() * Math.pow(random.nextDouble(), 3)));
+			StringBuilder trace = new StringBuilder();
+			for (String frame : frames)
+				trace.append(frame).append('\n');
+			builder.setStackTrace(trace.toString())
+					.setErrorMessage(frames.get(0))
+					.setReproduction(text(5 + random.nextInt(15)));
+		}
+		return builder.getBugReport();
+	}
+
+	private void createComments(BugTrap bugTrap, BugReport report) {
+		List<Comment> thread = new ArrayList<>();
+		for (int i = poisson(commentsPerBugReport); i > 0; i--) {
+			bugTrap.setCurrentDate(new Date(report.getCreationDate().getTime() + random.nextInt(30 * 24 * 60) * 60000L));
+			if (thread.isEmpty() || random.nextInt(3) != 0) {
+				report.addComment(text(5 + random.nextInt(20)));
+				thread.add(report.getComments().get(report.getComments().size() - 1));
+			} else {
+				Comment comment = thread.get(random.nextInt(thread.size()));
+				comment.addComment(text(5 + random.nextInt(20)));
+				thread.add(comment.getComments().get(comment.getComments().size() - 1));
+			}
+		}
+	}
+
+	private void createRegistration(BugTrap bugTrap, List<IUser> issuerList, List<IUser> developerList, List<List<Subsystem>> subsystems) {
+		IUser user = random.nextBoolean() && !issuerList.isEmpty()
+				? issuerList.get(random.nextInt(issuerList.size()))
+				: developerList.get(random.nextInt(developerList.size()));
+
+		Observable observes;
+		NotificationType type;
+		int kind = random.nextInt(3);
+		List<IBugReport> reports = bugTrap.getBugReportManager().getBugReportList();
+		if (kind == 0 && !reports.isEmpty()) {
+			observes = (BugReport) reports.get(random.nextInt(reports.size()));
+			type = pick(NotificationType.BUGREPORT_CHANGE, NotificationType.BUGREPORT_SPECIFIC_TAG, NotificationType.CREATE_COMMENT);
+		} else if (kind == 1) {
+			List<Subsystem> ofProject = subsystems.get(random.nextInt(subsystems.size()));
+			observes = ofProject.get(random.nextInt(ofProject.size()));
+			type = pick(NotificationType.BUGREPORT_CHANGE, NotificationType.CREATE_BUGREPORT, NotificationType.ACHIEVED_SPECIFIC_MILESTONE);
+		} else {
+			List<IProject> projectList = bugTrap.getProjectManager().getProjects();
+			observes = (Project) projectList.get(random.nextInt(projectList.size()));
+			type = pick(NotificationType.CREATE_BUGREPORT, NotificationType.PROJECT_VERSION_UPDATE, NotificationType.PROJECT_FORK);
+		}
+
+		BugTag tag = BugTag.values()[random.nextInt(BugTag.values().length)];
+		AchievedMilestone milestone = new AchievedMilestone(Arrays.asList(random.nextInt(3), random.nextInt(10)));
+		bugTrap.getNotificationManager().addObserver(
+				type.createObserver(bugTrap.getNotificationManager().getMailboxForUser(user), observes, tag, milestone));
+	}
+
+	/**
+	 * Write the users, projects, subsystems and bug reports of a BugTrap system as a state file
+	 * in the format of BugTrapState.xml. Dates are written as days.
+	 * @param bugTrap The BugTrap system to write.
+	 * @param file The file to write to.
+	 * @throws IOException if the file can not be written.
+	 */
+	public static void writeStateFile(BugTrap bugTrap, File file) throws IOException {
+		SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+			out.write("<?xml version=\"1.0\"?>\n<BugTrap>\n");
+
+			out.write("\t<users>\n");
+			for (IUser user : bugTrap.getUserManager().getUserList()) {
+				String type = user.isDeveloper() ? "DEVELOPER" : user.isIssuer() ? "ISSUER" : "ADMIN";
+				out.write("\t\t<user first=\"" + escape(user.getFirstName()) + "\" middle=\"" + escape(user.getMiddleName())
+						+ "\" last=\"" + escape(user.getLastName()) + "\" username=\"" + escape(user.getUserName())
+						+ "\" type=\"" + type + "\" />\n");
+			}
+			out.write("\t</users>\n");
+
+			out.write("\t<projects>\n");
+			for (IProject project : bugTrap.getProjectManager().getProjects()) {
+				out.write("\t\t<project name=\"" + escape(project.getName()) + "\" budgetEstimate=\"" + project.getBudgetEstimate()
+						+ "\" description=\"" + escape(project.getDescription()) + "\" creationDate=\""
+						+ dateFormat.format(project.getCreationDate()) + "\" startDate=\"" + dateFormat.format(project.getStartDate()) + "\">\n");
+				out.write("\t\t\t<roles>\n");
+				if (project.getLeadDeveloper() != null)
+					writeRole(out, project.getLeadDeveloper(), "LEAD");
+				for (IUser programmer : project.getProgrammers())
+					writeRole(out, programmer, "PROGRAMMER");
+				for (IUser tester : project.getTesters())
+					writeRole(out, tester, "TESTER");
+				out.write("\t\t\t</roles>\n");
+				writeSubsystems(out, project.getSubsystems(), "\t\t\t");
+				out.write("\t\t</project>\n");
+			}
+			out.write("\t</projects>\n");
+
+			out.write("\t<bugreports>\n");
+			for (IBugReport report : bugTrap.getBugReportManager().getBugReportList()) {
+				out.write("\t\t<bugreport title=\"" + escape(report.getTitle()) + "\" description=\"" + escape(report.getDescription())
+						+ "\" creationDate=\"" + dateFormat.format(report.getCreationDate()) + "\" subsystem=\""
+						+ escape(report.getSubsystem().getName()) + "\" tag=\"" + report.getBugTag() + "\" issuer=\""
+						+ escape(report.getIssuedBy().getUserName()) + "\">\n");
+				out.write("\t\t\t<assignees>\n");
+				for (IUser assignee : report.getAssignees())
+					out.write("\t\t\t\t<assignee user=\"" + escape(assignee.getUserName()) + "\" />\n");
+				out.write("\t\t\t</assignees>\n");
+				out.write("\t\t</bugreport>\n");
+			}
+			out.write("\t</bugreports>\n");
+			out.write("</BugTrap>\n");
+		}
+	}
+
+	private static void writeRole(Writer out, IUser user, String role) throws IOException {
+		out.write("\t\t\t\t<role user=\"" + escape(user.getUserName()) + "\" role=\"" + role + "\"></role>\n");
+	}
+
+	private static void writeSubsystems(Writer out, List<ISubsystem> subsystems, String indent) throws IOException {
+		out.write(indent + "<subsystems>\n");
+		for (ISubsystem subsystem : subsystems) {
+			out.write(indent + "\t<subsystem name=\"" + escape(subsystem.getName()) + "\" description=\""
+					+ escape(subsystem.getDescription()) + "\">\n");
+			writeSubsystems(out, subsystem.getSubsystems(), indent + "\t\t");
+			out.write(indent + "\t</subsystem>\n");
+		}
+		out.write(indent + "</subsystems>\n");
+	}
+
+	private static String escape(String text) {
+		return text.replace("&", "&amp;").replace("\"", "&quot;").replace("<", "&lt;").replace(">", "&gt;")
+				.replace("\n", "&#10;").replace("\t", "&#9;");
+	}
+
+	private NotificationType pick(NotificationType... types) {
+		return types[random.nextInt(types.length)];
+	}
+
+	private String text(int words) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < words; i++) {
+			if (i > 0)
+				text.append(' ');
+			// Low indices are more common, like words in real reports.
+			text.append(WORDS[(int) (WORDS.length * Math.pow(random.nextDouble(), 2))]);
+		}
+		return text.toString();
+	}
+
+	private static String capitalize(String text) {
+		return text.isEmpty() ? text : Character.toUpperCase(text.charAt(0)) + text.substring(1);
+	}
+
+	private int poisson(int mean) {
+		double limit = Math.exp(-mean);
+		double product = random.nextDouble();
+		int count = 0;
+		while (product > limit) {
+			product *= random.nextDouble();
+			count++;
+		}
+		return count;
+	}
+}
@@ -5,19 +5,25 @@ import java.util.List;
 import controllers.exceptions.UnauthorizedAccessException;
 import model.BugTrap;
 import model.bugreports.IBugReport;
+import model.bugreports.NearDuplicateIndex;
+import model.bugreports.commands.ArchiveBugReportsCommand;
 import model.bugreports.commands.AssignBugReportCommand;
 import model.bugreports.commands.CreateBugReportCommand;
 import model.bugreports.commands.CreateCommentCommand;
 import model.bugreports.commands.ProposePatchCommand;
 import model.bugreports.commands.ProposeTestCommand;
 import model.bugreports.commands.UpdateBugReportCommand;
+import model.bugreports.filters.BugReportOrder;
+import model.bugreports.filters.BugReportPage;
 import model.bugreports.filters.FilterType;
+import model.bugreports.forms.ArchiveBugReportsForm;
 import model.bugreports.forms.BugReportAssignForm;
 import model.bugreports.forms.BugReportCreationForm;
 import model.bugreports.forms.BugReportUpdateForm;
 import model.bugreports.forms.CommentCreationForm;
 import model.bugreports.forms.ProposePatchForm;
 import model.bugreports.forms.ProposeTestForm;
+import model.projects.IProject;
 
 /**
  * Controller for all BugReport related things.
@@ -54,6 +60,10 @@ public class BugReportController extends Controller {
 		return getBugTrap().getFormFactory().makeProposePatchForm();
 	}
 
+	public ArchiveBugReportsForm getArchiveBugReportsForm() throws UnauthorizedAccessException {
+		return getBugTrap().getFormFactory().makeArchiveBugReportsForm();
+	}
+
 	/**
 	 * Returns a list of all bug reports
 	 * @return bug report list
@@ -63,6 +73,14 @@ public class BugReportController extends Controller {
 		return getBugTrap().getBugReportManager().getBugReportList();
 	}
 
+	/**
+	 * Returns a list of the archived bug reports, which are not in the bug report list
+	 * @return archived bug report list
+	 */
+	public List<IBugReport> getArchivedBugReports() {
+		return getBugTrap().getBugReportManager().getArchivedBugReports();
+	}
+
 	/**
 	 * Returns a list of all filter types
 	 * @return filter type list
@@ -83,13 +101,126 @@ public class BugReportController extends Controller {
 		return getBugTrap().getBugReportManager().getOrderedList(types, arguments);
 	}
 
+	/**
+	 * Returns one page of a filtered list of bug reports
+	 * @param types filter types
+	 * @param arguments optional arguments for the filter(s)
+	 * @param cursor the cursor of the previous page, null for the first page
+	 * @param pageSize the maximum number of bug reports on the page
+	 * @return the page of bug reports, with the cursor of the next page
+	 * @throws UnauthorizedAccessException
+	 */
+	public BugReportPage getOrderedPage(FilterType[] types, String[] arguments, String cursor, int pageSize) throws UnauthorizedAccessException {
+		return getBugTrap().getBugReportManager().getOrderedPage(types, arguments, cursor, pageSize);
+	}
+
+	/**
+	 * Returns the bug reports that pass the filters and rank highest in the given order
+	 * @param types filter types
+	 * @param arguments optional arguments for the filter(s)
+	 * @param order the order to rank by
+	 * @param k the maximum number of bug reports
+	 * @return the top list of bug reports, highest first
+	 * @throws UnauthorizedAccessException
+	 */
+	public List<IBugReport> getTopList(FilterType[] types, String[] arguments, BugReportOrder order, int k) throws UnauthorizedAccessException {
+		return getBugTrap().getBugReportManager().getTopList(types, arguments, order, k);
+	}
+
+	/**
+	 * Returns the bug reports that are most relevant to the words of a query,
+	 * searching titles, descriptions, stack traces, error messages, reproductions and comments
+	 * @param query the words to search for
+	 * @param k the maximum number of bug reports
+	 * @return the most relevant bug reports, most relevant first
+	 * @throws UnauthorizedAccessException
+	 */
+	public List<IBugReport> searchBugReports(String query, int k) throws UnauthorizedAccessException {
+		return getBugTrap().getBugReportManager().search(query, k);
+	}
+
+	/**
+	 * Returns the bug reports with the same stack trace, ignoring line numbers and memory addresses,
+	 * the candidate duplicates of a bug report with that stack trace
+	 * @param stackTrace the stack trace
+	 * @return the candidate duplicates
+	 * @throws UnauthorizedAccessException
+	 */
+	public List<IBugReport> findDuplicates(String stackTrace) throws UnauthorizedAccessException {
+		return getBugTrap().getBugReportManager().findDuplicates(stackTrace);
+	}
+
+	/**
+	 * Returns the candidate duplicates of a batch of crash reports
+	 * @param stackTraces the stack traces of the crash reports
+	 * @return for every stack trace, in the same order, the candidate duplicates
+	 * @throws UnauthorizedAccessException
+	 */
+	public List<List<IBugReport>> findDuplicates(List<String> stackTraces) throws UnauthorizedAccessException {
+		return getBugTrap().getBugReportManager().findDuplicates(stackTraces);
+	}
+
+	/**
+	 * Returns the bug reports with a title and description like those of a bug report that is being created,
+	 * the candidate duplicates of that bug report
+	 * @param form the form of the bug report, with its title and description filled in
+	 * @param threshold the minimum similarity, between 0 and 1
+	 * @return the candidate duplicates, most similar first
+	 * @throws UnauthorizedAccessException
+	 */
+	public List<IBugReport> findNearDuplicates(BugReportCreationForm form, double threshold) throws UnauthorizedAccessException {
+		return getBugTrap().getBugReportManager().findNearDuplicates(form.getTitle(), form.getDescription(), threshold);
+	}
+
+	/**
+	 * Returns the candidate duplicates of a bug report that is being created, with the default similarity threshold
+	 * @param form the form of the bug report, with its title and description filled in
+	 * @return the candidate duplicates, most similar first
+	 * @throws UnauthorizedAccessException
+	 */
+	public List<IBugReport> findNearDuplicates(BugReportCreationForm form) throws UnauthorizedAccessException {
+		return findNearDuplicates(form, NearDuplicateIndex.DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Returns the bug reports of a project with the highest impact product
+	 * @param project the project
+	 * @param k the maximum number of bug reports
+	 * @return the top list of bug reports, highest first
+	 */
+	public List<IBugReport> getTopBugReports(IProject project, int k) {
+		return getBugTrap().getBugReportManager().getTopBugReports(project, k);
+	}
+
+	/**
+	 * Returns the bug reports that match a query, e.g. tag:ASSIGNED AND assignee:maria AND (text:"NPE" OR subsystem:Word)
+	 * The fields are text, filedby, assignee, tag, subsystem, milestone and created; filters combine with AND, OR, NOT and parentheses.
+	 * @param query the query
+	 * @return the matching bug reports, in the order of the list
+	 * @throws UnauthorizedAccessException
+	 */
+	public List<IBugReport> queryBugReports(String query) throws UnauthorizedAccessException {
+		return getBugTrap().getBugReportManager().query(query);
+	}
+
+	/**
+	 * Explains how a filtered list of bug reports would be computed
+	 * @param types filter types
+	 * @param arguments optional arguments for the filter(s)
+	 * @return the order of the filters, how each is applied and their estimated costs
+	 * @throws UnauthorizedAccessException
+	 */
+	public String explainOrderedList(FilterType[] types, String[] arguments) throws UnauthorizedAccessException {
+		return getBugTrap().getBugReportManager().getQueryPlan(types, arguments).explain();
+	}
+
 	/**
 	 * Creates a bug report with the information provided in the form.
 	 * @param form BugReportCreationForm containing all the details about the creation.
 	 * @throws UnauthorizedAccessException 
 	 */
 	public void createBugReport(BugReportCreationForm form) throws UnauthorizedAccessException {
-		new CreateBugReportCommand(getBugTrap(), form).execute();
+		getBugTrap().execute(new CreateBugReportCommand(getBugTrap(), form));
 	}
 
 	/**
@@ -98,7 +229,7 @@ public class BugReportController extends Controller {
 	 * @throws UnauthorizedAccessException 
 	 */
 	public void createComment(CommentCreationForm form) throws UnauthorizedAccessException {
-		new CreateCommentCommand(getBugTrap(), form).execute();
+		getBugTrap().execute(new CreateCommentCommand(getBugTrap(), form));
 	}
 
 	/**
@@ -107,7 +238,7 @@ public class BugReportController extends Controller {
 	 * @throws UnauthorizedAccessException 
 	 */
 	public void updateBugReport(BugReportUpdateForm form) throws UnauthorizedAccessException {
-		new UpdateBugReportCommand(getBugTrap(), form).execute();
+		getBugTrap().execute(new UpdateBugReportCommand(getBugTrap(), form));
 	}
 
 	/**
@@ -116,7 +247,7 @@ public class BugReportController extends Controller {
 	 * @throws UnauthorizedAccessException 
 	 */
 	public void assignToBugReport(BugReportAssignForm form) throws UnauthorizedAccessException {
-		new AssignBugReportCommand(getBugTrap(), form).execute();
+		getBugTrap().execute(new AssignBugReportCommand(getBugTrap(), form));
 	}
 
 	/**
@@ -125,7 +256,7 @@ public class BugReportController extends Controller {
 	 * @throws UnauthorizedAccessException
      */
 	public void proposeTest(ProposeTestForm form) throws UnauthorizedAccessException {
-		new ProposeTestCommand(getBugTrap(), form).execute();
+		getBugTrap().execute(new ProposeTestCommand(getBugTrap(), form));
 	}
 
 	/**
@@ -134,6 +265,16 @@ public class BugReportController extends Controller {
 	 * @throws UnauthorizedAccessException
      */
 	public void proposePatch(ProposePatchForm form) throws UnauthorizedAccessException {
-		new ProposePatchCommand(getBugTrap(), form).execute();
+		getBugTrap().execute(new ProposePatchCommand(getBugTrap(), form));
+	}
+
+	/**
+	 * Archive the closed bug reports that are at least as old as given in the form.
+	 * Archived bug reports are left out of bug report lists and filters, until they change again.
+	 * @param form ArchiveBugReportsForm containing the minimum age.
+	 * @throws UnauthorizedAccessException
+	 */
+	public void archiveBugReports(ArchiveBugReportsForm form) throws UnauthorizedAccessException {
+		getBugTrap().execute(new ArchiveBugReportsCommand(getBugTrap(), form));
 	}
 }
\ No newline at end of file
@@ -41,7 +41,7 @@ public class NotificationController extends Controller{
 	 * @throws UnauthorizedAccessException
 	 */
 	public void registerNotification(RegisterNotificationForm form) throws UnauthorizedAccessException {
-		new RegisterForNotificationCommand(getBugTrap(), form).execute();
+		getBugTrap().execute(new RegisterForNotificationCommand(getBugTrap(), form));
 	}
 
 	/**
@@ -50,7 +50,7 @@ public class NotificationController extends Controller{
 	 * @throws UnauthorizedAccessException
 	 */
 	public void unregisterNotification(UnregisterNotificationForm form) throws UnauthorizedAccessException {
-		new UnregisterForNotificationCommand(getBugTrap(), form).execute();
+		getBugTrap().execute(new UnregisterForNotificationCommand(getBugTrap(), form));
 	}
 
 	/**
@@ -92,7 +92,7 @@ public class ProjectController extends Controller {
 	 * @throws UnauthorizedAccessException 
 	 */
 	public void createProject(ProjectCreationForm form) throws UnauthorizedAccessException {
-		new CreateProjectCommand(getBugTrap(), form).execute();
+		getBugTrap().execute(new CreateProjectCommand(getBugTrap(), form));
 	}
 
 	/**
@@ -101,7 +101,7 @@ public class ProjectController extends Controller {
 	 * @throws UnauthorizedAccessException 
 	 */
 	public void forkProject(ProjectForkForm form) throws UnauthorizedAccessException {
-		new ForkProjectCommand(getBugTrap(), form).execute();
+		getBugTrap().execute(new ForkProjectCommand(getBugTrap(), form));
 	}
 
 	/**
@@ -110,7 +110,7 @@ public class ProjectController extends Controller {
 	 * @throws UnauthorizedAccessException 
 	 */
 	public void updateProject(ProjectUpdateForm form) throws UnauthorizedAccessException {
-		new UpdateProjectCommand(getBugTrap(), form).execute();
+		getBugTrap().execute(new UpdateProjectCommand(getBugTrap(), form));
 	}
 
 	/**
@@ -120,7 +120,7 @@ public class ProjectController extends Controller {
 	 * @throws UnsupportedOperationException If trying to assign a lead to a projec that already has a lead.
 	 */
 	public void assignToProject(ProjectAssignForm form) throws UnauthorizedAccessException {
-		new AssignProjectCommand(getBugTrap(), form).execute();
+		getBugTrap().execute(new AssignProjectCommand(getBugTrap(), form));
 	}
 
 	/**
@@ -129,7 +129,7 @@ public class ProjectController extends Controller {
 	 * @throws UnauthorizedAccessException 
 	 */
 	public void deleteProject(ProjectDeleteForm form) throws UnauthorizedAccessException {
-		new DeleteProjectCommand(getBugTrap(), form).execute();
+		getBugTrap().execute(new DeleteProjectCommand(getBugTrap(), form));
 	}
 	
 	/**
@@ -138,7 +138,7 @@ public class ProjectController extends Controller {
 	 * @throws UnauthorizedAccessException 
 	 */
 	public void createSubsystem(SubsystemCreationForm form) throws UnauthorizedAccessException {
-		new CreateSubsystemCommand(getBugTrap(), form).execute();
+		getBugTrap().execute(new CreateSubsystemCommand(getBugTrap(), form));
 	}
 
 	/**
@@ -147,7 +147,7 @@ public class ProjectController extends Controller {
 	 * @throws UnauthorizedAccessException 
      */
 	public void declareAchievedMilestone(DeclareAchievedMilestoneForm form) throws UnauthorizedAccessException {
-		new DeclareAchievedMilestoneCommand(getBugTrap(), form).execute();
+		getBugTrap().execute(new DeclareAchievedMilestoneCommand(getBugTrap(), form));
 	}
 	
 	/**
@@ -156,7 +156,7 @@ public class ProjectController extends Controller {
 	 * @throws UnauthorizedAccessException 
      */
 	public void splitSubsystem(SplitSubsystemForm form) throws UnauthorizedAccessException {
-		new SplitSubsystemCommand(getBugTrap(), form).execute();
+		getBugTrap().execute(new SplitSubsystemCommand(getBugTrap(), form));
 	}
 	
 	/**
@@ -165,6 +165,6 @@ public class ProjectController extends Controller {
 	 * @throws UnauthorizedAccessException 
      */
 	public void mergeSubsystem(MergeSubsystemForm form) throws UnauthorizedAccessException {
-		new MergeSubsystemCommand(getBugTrap(), form).execute();
+		getBugTrap().execute(new MergeSubsystemCommand(getBugTrap(), form));
 	}
 }
\ No newline at end of file
@@ -1,7 +1,16 @@
 package model;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+
+import controllers.exceptions.UnauthorizedAccessException;
 import model.bugreports.BugReportManager;
 import model.notifications.NotificationManager;
+import model.persistence.Journal;
+import model.persistence.PersistentStore;
+import model.persistence.SegmentedSnapshot;
+import model.persistence.SnapshotWriter;
 import model.projects.ProjectManager;
 import model.users.IUser;
 import model.users.UserManager;
@@ -17,6 +26,11 @@ public class BugTrap {
 	private final BugReportManager bugReportManager;
 	private final NotificationManager notificationManager;
 	private final FormFactory formFactory;
+
+	private Journal journal;	//Journal of executed commands, if journaling.
+	private PersistentStore store;	//Store the journal belongs to, if any.
+	private SegmentedSnapshot segments;	//Segmented snapshot last saved or loaded, if any.
+	private Date fixedDate;		//Current date while a command is executed or replayed, null otherwise.
 	
 	/**
 	 * Constructor. Initializes managers.
@@ -83,6 +97,55 @@ public class BugTrap {
 	public IUser getLoggedInUser() {
 		return getUserManager().getLoggedInUser();
 	}
+
+	/**
+	 * The current date. While a journaled command is executed or replayed,
+	 * this is the date on which that command was first executed.
+	 * @return The current date.
+	 */
+	public Date getCurrentDate() {
+		if (fixedDate != null)
+			return new Date(fixedDate.getTime());
+		return new Date();
+	}
+
+	/**
+	 * Fix the current date, e.g. while replaying a journal.
+	 * @param date The date to use as current date, null to use the system clock.
+	 */
+	public void setCurrentDate(Date date) {
+		this.fixedDate = date == null ? null : new Date(date.getTime());
+	}
+
+	/**
+	 * Execute the given command. If journaling, the command is appended to the journal once it succeeded.
+	 * @param command The command to execute.
+	 * @throws UnauthorizedAccessException if the logged in User is not allowed to execute the command.
+	 */
+	public void execute(Command command) throws UnauthorizedAccessException {
+		if (journal == null) {
+			command.execute();
+			return;
+		}
+
+		// The entry refers to the state before the command, so it is encoded first.
+		Date date = getCurrentDate();
+		byte[] entry = journal.encode(command, date);
+		setCurrentDate(date);
+		try {
+			command.execute();
+		} finally {
+			setCurrentDate(null);
+		}
+
+		try {
+			journal.append(entry);
+			if (store != null)
+				store.commandJournaled();
+		} catch (IOException e) {
+			throw new IllegalStateException("The command was executed, but could not be journaled.", e);
+		}
+	}
 	
 	/**
 	 * Determines if the logged in User is an Administrator.
@@ -119,7 +182,143 @@ public class BugTrap {
 	 * Initialize the BugTrap system with some data.
 	 */
 	public void initialize() {
-		BugTrapInitializer initializer = new BugTrapInitializer(this);
-		initializer.init();
+		initialize(new File("BugTrapState.xml"), LoadingMode.DOM);
+	}
+	
+	/**
+	 * Initialize the BugTrap system with the data in the given state file.
+	 * @param stateFile The XML file holding the state.
+	 * @param mode The way the state file is loaded.
+	 */
+	public void initialize(File stateFile, LoadingMode mode) {
+		mode.load(this, stateFile);
+	}
+
+	/**
+	 * Save the complete state of the BugTrap system as a binary snapshot.
+	 * The snapshot can be loaded again with LoadingMode.SNAPSHOT.
+	 * @param snapshotFile The file to write the snapshot to.
+	 * @throws IOException if the snapshot can not be written.
+	 */
+	public void save(File snapshotFile) throws IOException {
+		new SnapshotWriter(this).write(snapshotFile);
+	}
+
+	/**
+	 * Save the state of the BugTrap system as a segmented snapshot, with one segment per project.
+	 * Saving again to the same directory only rewrites the segments of projects that changed.
+	 * The snapshot can be loaded again with LoadingMode.SEGMENTED.
+	 * @param directory The directory to keep the segmented snapshot in.
+	 * @return The number of rewritten segments.
+	 * @throws IOException if the snapshot can not be written.
+	 */
+	public int saveSegments(File directory) throws IOException {
+		if (segments == null || !segments.getDirectory().equals(directory))
+			segments = new SegmentedSnapshot(this, directory);
+		return segments.save();
+	}
+
+	void loadSegments(File directory) throws IOException {
+		SegmentedSnapshot loaded = new SegmentedSnapshot(this, directory);
+		loaded.load();
+		segments = loaded;
+	}
+
+	/**
+	 * Start journaling executed commands to the given journal file.
+	 * Commands already in the journal are replayed first, on top of the current state,
+	 * which should be the snapshot the journal was started on.
+	 * @param journalFile The journal file, created if it does not exist.
+	 * @param groupSize The number of commands that are written to disk together.
+	 * @return The number of replayed commands.
+	 * @throws IOException if the journal can not be read or written.
+	 */
+	public int openJournal(File journalFile, int groupSize) throws IOException {
+		if (journal != null)
+			throw new IllegalStateException("A journal is already open.");
+
+		Journal opened = new Journal(this, journalFile, groupSize);
+		int replayed;
+		try {
+			replayed = opened.replay();
+		} catch (IOException e) {
+			opened.close();
+			throw e;
+		}
+		journal = opened;
+		return replayed;
+	}
+
+	/**
+	 * Write all journaled commands to disk and stop journaling.
+	 * @throws IOException if the journal can not be written.
+	 */
+	public void closeJournal() throws IOException {
+		if (journal == null)
+			return;
+
+		try {
+			journal.close();
+		} finally {
+			journal = null;
+		}
+	}
+
+	/**
+	 * 
+	 * @return The journal of executed commands, null if not journaling.
+	 */
+	public Journal getJournal() {
+		return journal;
+	}
+
+	/**
+	 * Restore the state kept in the given directory and keep journaling executed commands to it.
+	 * If the directory holds no state yet, the current state is written to it.
+	 * @param directory The directory holding the snapshots and journal segments.
+	 * @param groupSize The number of commands that are written to disk together.
+	 * @return The number of replayed commands.
+	 * @throws IOException if the state can not be read or written.
+	 */
+	public int openStore(File directory, int groupSize) throws IOException {
+		return openStore(new PersistentStore(this, directory, groupSize));
+	}
+
+	/**
+	 * Restore the state kept in the given store and keep journaling executed commands to it.
+	 * @param store The store, made for this BugTrap system.
+	 * @return The number of replayed commands.
+	 * @throws IOException if the state can not be read or written.
+	 */
+	public int openStore(PersistentStore store) throws IOException {
+		if (this.store != null || journal != null)
+			throw new IllegalStateException("A journal is already open.");
+
+		int replayed = store.open();
+		this.store = store;
+		return replayed;
+	}
+
+	/**
+	 * Wait for a running compaction and stop journaling to the store.
+	 * @throws IOException if the journal can not be written.
+	 */
+	public void closeStore() throws IOException {
+		if (store == null)
+			return;
+
+		try {
+			store.close();
+		} finally {
+			store = null;
+		}
+	}
+
+	/**
+	 * 
+	 * @return The store the state is kept in, null if none.
+	 */
+	public PersistentStore getStore() {
+		return store;
 	}
 }
\ No newline at end of file
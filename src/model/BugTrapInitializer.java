@@ -24,14 +24,15 @@ import model.users.UserCategory;
 
 class BugTrapInitializer {
 	private BugTrap bugTrap;
+	private File stateFile;
 	
-	BugTrapInitializer(BugTrap bugTrap) {
+	BugTrapInitializer(BugTrap bugTrap, File stateFile) {
 		this.bugTrap = bugTrap;
+		this.stateFile = stateFile;
 	}
 	
 	void init() {
 		try {
-			File stateFile = new File("BugTrapState.xml");
 			DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
 			Document doc = builder.parse(stateFile);
 			
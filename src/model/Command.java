@@ -5,6 +5,7 @@ import controllers.exceptions.UnauthorizedAccessException;
 public abstract class Command {
 	
     private BugTrap bugTrap; //BugTrap system
+    private Form form; //Input of this command
 
     /**
      * Command to do this with the System.
@@ -14,6 +15,7 @@ public abstract class Command {
         this.bugTrap = bugTrap;
         if (form == null)
             throw new IllegalArgumentException("Form cannot be null");
+        this.form = form;
     }
 
     /**
@@ -29,4 +31,12 @@ public abstract class Command {
     public BugTrap getBugTrap() {
         return this.bugTrap;
     }
+
+    /**
+     * 
+     * @return The Form holding the input of this command.
+     */
+    public Form getForm() {
+        return this.form;
+    }
 }
@@ -1,6 +1,7 @@
 package model;
 
 import controllers.exceptions.UnauthorizedAccessException;
+import model.bugreports.forms.ArchiveBugReportsForm;
 import model.bugreports.forms.BugReportAssignForm;
 import model.bugreports.forms.BugReportCreationForm;
 import model.bugreports.forms.BugReportUpdateForm;
@@ -195,6 +196,18 @@ public class FormFactory {
 		return new ProposePatchForm();
 	}
 	
+	/**
+	 * Creates and returns an archive bug reports form
+	 * @return archive bug reports form
+	 * @throws UnauthorizedAccessException if the logged in user is not admin
+	 */
+	public ArchiveBugReportsForm makeArchiveBugReportsForm() throws UnauthorizedAccessException {
+		if (!getBugTrap().isAdminLoggedIn())
+			throw new UnauthorizedAccessException("You need to be logged in as an administrator to perform this action.");
+		
+		return new ArchiveBugReportsForm();
+	}
+	
 	/**
 	 * Creates and returns a declare achieved milestone form
 	 * @return propose patch form
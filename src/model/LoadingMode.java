@@ -0,0 +1,57 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+
+import model.persistence.SnapshotLoader;
+
+/**
+ * Enumeration of the ways a BugTrap state file can be loaded.
+ */
+public enum LoadingMode {
+	DOM {	//Parse the whole state file into a DOM tree first.
+		@Override
+		void load(BugTrap bugTrap, File stateFile) {
+			new BugTrapInitializer(bugTrap, stateFile).init();
+		}
+	},
+	STREAMING {	//Build the state in one forward pass over the state file.
+		@Override
+		void load(BugTrap bugTrap, File stateFile) {
+			new StreamingBugTrapInitializer(bugTrap, stateFile).init();
+		}
+	},
+	PARALLEL {	//Build the projects of the state file in parallel.
+		@Override
+		void load(BugTrap bugTrap, File stateFile) {
+			new ParallelBugTrapInitializer(bugTrap, stateFile).init();
+		}
+	},
+	SNAPSHOT {	//Restore a binary snapshot written by BugTrap.save.
+		@Override
+		void load(BugTrap bugTrap, File stateFile) {
+			try {
+				new SnapshotLoader(bugTrap).load(stateFile);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	},
+	SEGMENTED {	//Restore a segmented snapshot written by BugTrap.saveSegments, the state file is its directory.
+		@Override
+		void load(BugTrap bugTrap, File stateFile) {
+			try {
+				bugTrap.loadSegments(stateFile);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	};
+
+	/**
+	 * Load the given state file into the given BugTrap system.
+	 * @param bugTrap The BugTrap system to initialize.
+	 * @param stateFile The file holding the state.
+	 */
+	abstract void load(BugTrap bugTrap, File stateFile);
+}
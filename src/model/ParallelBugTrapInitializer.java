@@ -0,0 +1,489 @@
+package model;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import model.bugreports.BugReport;
+import model.bugreports.IBugReport;
+import model.bugreports.bugtag.BugTag;
+import model.bugreports.builders.BugReportBuilder;
+import model.projects.Project;
+import model.projects.Role;
+import model.projects.Subsystem;
+import model.projects.builders.SubsystemBuilder;
+import model.users.IUser;
+import model.users.UserCategory;
+import model.users.exceptions.NoUserWithUserNameException;
+
+/**
+ * Initializer that parses and builds the projects and bug reports of the state file in parallel.
+ * A scan over the bytes of the state file finds where the users, every project and every bug report start.
+ * After the users are created, every project is parsed and built with its subsystems by its own task,
+ * while other tasks parse the bug reports in chunks. Then the bug reports of every project are created by a task for that project.
+ * The tasks build into their own lists and indexes. Projects and bug reports are only added to their managers at the end,
+ * on one thread and in the order of the state file, so the result is the same as with the other initializers.
+ *
+ * A project that is not managed yet does not index its subsystems or signal the result cache,
+ * so the tasks only change objects of their own project and only read the shared structures,
+ * e.g. a new bug report looks for itself in the archive.
+ * State files that are not in an ASCII compatible encoding, or too large to map, are loaded like LoadingMode.STREAMING.
+ */
+class ParallelBugTrapInitializer {
+	private static final int CHUNKS_PER_THREAD = 4;	//Bug report chunks per thread of the pool, so the chunks even out.
+
+	private final BugTrap bugTrap;
+	private final File stateFile;
+	private final ForkJoinPool pool;
+
+	private final Map<String, IUser> users = new HashMap<>();	//Users by user name, only read by the tasks.
+
+	//Found by the scan, positions in the state file.
+	private ByteBuffer bytes;
+	private String encoding;
+	private int usersStart = -1;
+	private int usersEnd = -1;
+	private final List<int[]> projectRanges = new ArrayList<>();	//Start and end of every project.
+	private int[] bugReportStarts = new int[1024];
+	private int bugReportCount;
+	private int bugReportsEnd = -1;
+
+	ParallelBugTrapInitializer(BugTrap bugTrap, File stateFile) {
+		this(bugTrap, stateFile, ForkJoinPool.commonPool());
+	}
+
+	ParallelBugTrapInitializer(BugTrap bugTrap, File stateFile, ForkJoinPool pool) {
+		this.bugTrap = bugTrap;
+		this.stateFile = stateFile;
+		this.pool = pool;
+	}
+
+	void init() {
+		try {
+			if (!map()) {
+				new StreamingBugTrapInitializer(bugTrap, stateFile).init();
+				return;
+			}
+			scan();
+			if (usersStart >= 0)
+				createUsers();
+			for (IUser user : bugTrap.getUserManager().getUserList())
+				users.put(user.getUserName(), user);
+
+			// Parse and build every project, and parse the bug reports in chunks.
+			List<Callable<ProjectPart>> projectTasks = new ArrayList<>();
+			for (final int[] range : projectRanges) {
+				projectTasks.add(new Callable<ProjectPart>() {
+					@Override
+					public ProjectPart call() throws Exception {
+						return buildProject(range[0], range[1]);
+					}
+				});
+			}
+			List<Callable<List<BugReportElement>>> chunkTasks = new ArrayList<>();
+			int chunkSize = Math.max(1, (bugReportCount + pool.getParallelism() * CHUNKS_PER_THREAD - 1) / (pool.getParallelism() * CHUNKS_PER_THREAD));
+			for (int first = 0; first < bugReportCount; first += chunkSize) {
+				final int from = first;
+				final int to = Math.min(first + chunkSize, bugReportCount);
+				chunkTasks.add(new Callable<List<BugReportElement>>() {
+					@Override
+					public List<BugReportElement> call() throws Exception {
+						return readBugReports(from, to);
+					}
+				});
+			}
+			List<Future<ProjectPart>> projectFutures = new ArrayList<>();
+			for (Callable<ProjectPart> task : projectTasks)
+				projectFutures.add(pool.submit(task));
+			List<Future<List<BugReportElement>>> chunkFutures = pool.invokeAll(chunkTasks);
+
+			// Bug reports name their subsystem. The first project in the file that has it wins, like getSubsystemWithName.
+			List<ProjectPart> parts = new ArrayList<>();
+			Map<String, Subsystem> subsystems = new HashMap<>();
+			for (Future<ProjectPart> future : projectFutures) {
+				ProjectPart part = future.get();
+				parts.add(part);
+				for (Map.Entry<String, Subsystem> entry : part.subsystems.entrySet())
+					if (!subsystems.containsKey(entry.getKey()))
+						subsystems.put(entry.getKey(), entry.getValue());
+			}
+			Map<Project, List<BugReportElement>> byProject = new IdentityHashMap<>();
+			for (Future<List<BugReportElement>> future : chunkFutures) {
+				for (BugReportElement element : future.get()) {
+					element.subsystem = subsystems.get(element.subsystemName);
+					if (element.subsystem == null) throw new IllegalArgumentException("No subsystem " + element.subsystemName);
+
+					Project project = (Project) element.subsystem.getProject();
+					List<BugReportElement> elements = byProject.get(project);
+					if (elements == null) {
+						elements = new ArrayList<>();
+						byProject.put(project, elements);
+					}
+					elements.add(element);
+				}
+			}
+
+			// Create the bug reports of every project, the projects are still not managed.
+			List<Callable<List<BugReport>>> bugReportTasks = new ArrayList<>();
+			final List<List<BugReportElement>> groups = new ArrayList<>(byProject.values());
+			for (final List<BugReportElement> elements : groups) {
+				bugReportTasks.add(new Callable<List<BugReport>>() {
+					@Override
+					public List<BugReport> call() throws Exception {
+						List<BugReport> created = new ArrayList<>();
+						for (BugReportElement element : elements)
+							created.add(createBugReport(element));
+						return created;
+					}
+				});
+			}
+			BugReport[] bugReports = new BugReport[bugReportCount];
+			List<Future<List<BugReport>>> bugReportFutures = pool.invokeAll(bugReportTasks);
+			for (int i = 0; i < groups.size(); i++) {
+				List<BugReport> created = bugReportFutures.get(i).get();
+				for (int j = 0; j < created.size(); j++)
+					bugReports[groups.get(i).get(j).index] = created.get(j);
+			}
+
+			// Merge in file order.
+			for (ProjectPart part : parts)
+				bugTrap.getProjectManager().addProject(part.project);
+			for (BugReport bugReport : bugReports)
+				bugTrap.getBugReportManager().addBugReport(bugReport);
+
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	// Maps the state file and finds its encoding, false if it can not be scanned byte by byte.
+	private boolean map() throws Exception {
+		try (RandomAccessFile file = new RandomAccessFile(stateFile, "r")) {
+			FileChannel channel = file.getChannel();
+			if (channel.size() > Integer.MAX_VALUE)
+				return false;
+			bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(new BufferInputStream(bytes, 0, bytes.limit()));
+		try {
+			encoding = reader.getEncoding() == null ? "UTF-8" : reader.getEncoding();
+		} finally {
+			reader.close();
+		}
+		String markup = "<!?/-[]>abcdefghijklmnopqrstuvwxyz";
+		return Arrays.equals(markup.getBytes(Charset.forName(encoding)), markup.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	// Finds the elements by their tags. A '<' in the state file always starts markup,
+	// so only comments, CDATA sections and processing instructions need to be skipped.
+	private void scan() {
+		int limit = bytes.limit();
+		int projectStart = -1;
+		int i = 0;
+		while (i < limit) {
+			if (bytes.get(i) != '<') {
+				i++;
+			} else if (startsWith(i, "<!--")) {
+				i = skipPast(i, "-->");
+			} else if (startsWith(i, "<![CDATA[")) {
+				i = skipPast(i, "]]>");
+			} else if (startsWith(i, "<?")) {
+				i = skipPast(i, "?>");
+			} else {
+				if (isStartTag(i, "<users"))
+					usersStart = i;
+				else if (startsWith(i, "</users>"))
+					usersEnd = i + "</users>".length();
+				else if (isStartTag(i, "<project"))
+					projectStart = i;
+				else if (startsWith(i, "</project>"))
+					projectRanges.add(new int[] { projectStart, i + "</project>".length() });
+				else if (isStartTag(i, "<bugreport"))
+					addBugReportStart(i);
+				else if (startsWith(i, "</bugreports>"))
+					bugReportsEnd = i;
+				i++;
+			}
+		}
+	}
+
+	private boolean startsWith(int position, String markup) {
+		if (position + markup.length() > bytes.limit())
+			return false;
+		for (int i = 0; i < markup.length(); i++)
+			if (bytes.get(position + i) != markup.charAt(i))
+				return false;
+		return true;
+	}
+
+	// The tag name is followed by white space, '>' or '/', so <project does not match <projects.
+	private boolean isStartTag(int position, String markup) {
+		if (!startsWith(position, markup) || position + markup.length() >= bytes.limit())
+			return false;
+		byte next = bytes.get(position + markup.length());
+		return next == ' ' || next == '\t' || next == '\r' || next == '\n' || next == '>' || next == '/';
+	}
+
+	private int skipPast(int position, String end) {
+		int i = position;
+		while (i < bytes.limit() && !startsWith(i, end))
+			i++;
+		return i + end.length();
+	}
+
+	private void addBugReportStart(int position) {
+		if (bugReportCount == bugReportStarts.length)
+			bugReportStarts = Arrays.copyOf(bugReportStarts, bugReportCount * 2);
+		bugReportStarts[bugReportCount++] = position;
+	}
+
+	private XMLStreamReader open(InputStream in) throws Exception {
+		return XMLInputFactory.newInstance().createXMLStreamReader(in, encoding);
+	}
+
+	private void createUsers() throws Exception {
+		XMLStreamReader reader = open(new BufferInputStream(bytes, usersStart, usersEnd));
+		try {
+			while (reader.hasNext())
+				if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("user"))
+					createUser(reader);
+		} finally {
+			reader.close();
+		}
+	}
+
+	private void createUser(XMLStreamReader reader) {
+		String first = attribute(reader, "first");
+		String middle = attribute(reader, "middle");
+		String last = attribute(reader, "last");
+		String username = attribute(reader, "username");
+		UserCategory type = UserCategory.valueOf(attribute(reader, "type"));
+
+		switch (type) {
+			case ADMIN:
+				bugTrap.getUserManager().createAdmin(first, middle, last, username);
+				break;
+
+			case ISSUER:
+				bugTrap.getUserManager().createIssuer(first, middle, last, username);
+				break;
+
+			case DEVELOPER:
+				bugTrap.getUserManager().createDeveloper(first, middle, last, username);
+				break;
+
+			default:
+				break;
+		}
+	}
+
+	// Runs on the pool. The project is not managed yet, so nothing outside it is changed.
+	private ProjectPart buildProject(int start, int end) throws Exception {
+		SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
+		Deque<model.projects.System> parents = new ArrayDeque<>();	//Systems that are currently open, innermost first.
+		Map<String, Subsystem> subsystems = new HashMap<>();	//The first subsystem with every name, in pre-order.
+		Project project = null;
+
+		XMLStreamReader reader = open(new BufferInputStream(bytes, start, end));
+		try {
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					switch (reader.getLocalName()) {
+						case "project":
+							project = bugTrap.getProjectManager().buildProject(attribute(reader, "name"), attribute(reader, "description"),
+									dateFormat.parse(attribute(reader, "creationDate")), dateFormat.parse(attribute(reader, "startDate")),
+									Double.parseDouble(attribute(reader, "budgetEstimate")), null, null);
+							parents.push(project);
+							break;
+						case "role":
+							addRole(project, getUser(attribute(reader, "user")), Role.valueOf(attribute(reader, "role")));
+							break;
+						case "subsystem":
+							String name = attribute(reader, "name");
+							Subsystem subsystem = new SubsystemBuilder(bugTrap)
+									.setName(name)
+									.setDescription(attribute(reader, "description"))
+									.setParent(parents.peek())
+									.getSubsystem();
+							if (!subsystems.containsKey(name))
+								subsystems.put(name, subsystem);
+							parents.push(subsystem);
+							break;
+						default:
+							break;
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("subsystem")) {
+					parents.pop();
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return new ProjectPart(project, subsystems);
+	}
+
+	private static void addRole(Project project, IUser user, Role role) {
+		switch (role) {
+			case PROGRAMMER:
+				project.addProgrammer(user);
+				break;
+			case TESTER:
+				project.addTester(user);
+				break;
+			case LEAD:
+				project.setLeadDeveloper(user);
+				break;
+		}
+	}
+
+	// Runs on the pool. Reads the bug reports from the first up to the last given one.
+	private List<BugReportElement> readBugReports(int from, int to) throws Exception {
+		SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
+		List<BugReportElement> elements = new ArrayList<>();
+		BugReportElement bugReport = null;
+
+		// The bug reports are read as one document, so they get an element around them.
+		int end = to < bugReportCount ? bugReportStarts[to] : bugReportsEnd;
+		InputStream in = new SequenceInputStream(new ByteArrayInputStream("<bugreports>".getBytes(encoding)),
+				new SequenceInputStream(new BufferInputStream(bytes, bugReportStarts[from], end),
+						new ByteArrayInputStream("</bugreports>".getBytes(encoding))));
+		XMLStreamReader reader = open(in);
+		try {
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					switch (reader.getLocalName()) {
+						case "bugreport":
+							bugReport = new BugReportElement(reader, from + elements.size(), getUser(attribute(reader, "issuer")), dateFormat);
+							elements.add(bugReport);
+							break;
+						case "assignee":
+							if (bugReport != null)
+								bugReport.assignees.add(getUser(attribute(reader, "user")));
+							break;
+						default:
+							break;
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("bugreport")) {
+					bugReport = null;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return elements;
+	}
+
+	// Runs on the pool, for the bug reports of one project. The project is not managed yet, so nothing outside it is changed.
+	private BugReport createBugReport(BugReportElement element) {
+		return new BugReportBuilder(bugTrap).setTitle(element.title)
+				.setDescription(element.description)
+				.setSubsystem(element.subsystem)
+				.setIssuer(element.issuer)
+				.setDependsOn(new ArrayList<IBugReport>())
+				.setCreationDate(element.creationDate)
+				.setAssignees(element.assignees)
+				.setBugTag(element.tag)
+				.setImpactFactor(6)
+				.getBugReport();
+	}
+
+	private IUser getUser(String userName) {
+		IUser user = users.get(userName);
+		if (user == null)
+			throw new NoUserWithUserNameException();
+		return user;
+	}
+
+	// -- XML Helpers --
+	// Same contract as Element.getAttribute: missing attributes are empty strings.
+	private static String attribute(XMLStreamReader reader, String name) {
+		String value = reader.getAttributeValue(null, name);
+		return value == null ? "" : value;
+	}
+
+	// Reads the bytes of the state file between two positions, every stream has its own view on the mapped file.
+	private static class BufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		private BufferInputStream(ByteBuffer bytes, int start, int end) {
+			this.buffer = bytes.duplicate();
+			this.buffer.limit(end);
+			this.buffer.position(start);
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0)
+				return 0;
+			if (!buffer.hasRemaining())
+				return -1;
+			len = Math.min(len, buffer.remaining());
+			buffer.get(b, off, len);
+			return len;
+		}
+	}
+
+	// -- Parts built by the tasks --
+	private static class ProjectPart {
+		private final Project project;
+		private final Map<String, Subsystem> subsystems;	//The first subsystem of the project with every name.
+
+		private ProjectPart(Project project, Map<String, Subsystem> subsystems) {
+			this.project = project;
+			this.subsystems = subsystems;
+		}
+	}
+
+	private static class BugReportElement {
+		private final int index;	//Position in the state file.
+		private final String title;
+		private final String description;
+		private final Date creationDate;
+		private final String subsystemName;
+		private final BugTag tag;
+		private final IUser issuer;
+		private final ArrayList<IUser> assignees = new ArrayList<>();
+		private Subsystem subsystem;	//Looked up after the projects are built.
+
+		private BugReportElement(XMLStreamReader reader, int index, IUser issuer, SimpleDateFormat dateFormat) throws Exception {
+			this.index = index;
+			this.title = attribute(reader, "title");
+			this.description = attribute(reader, "description");
+			this.creationDate = dateFormat.parse(attribute(reader, "creationDate"));
+			this.subsystemName = attribute(reader, "subsystem");
+			this.tag = BugTag.valueOf(attribute(reader, "tag"));
+			this.issuer = issuer;
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import model.bugreports.bugtag.BugTag;
+import model.projects.Project;
+import model.projects.Role;
+import model.projects.Subsystem;
+import model.users.IUser;
+import model.users.Issuer;
+import model.users.UserCategory;
+
+/**
+ * Initializer that reads the state file with a StAX reader.
+ * Users, projects, subsystems and bug reports are created in one forward pass,
+ * so no document tree of the whole state file is kept in memory.
+ */
+class StreamingBugTrapInitializer {
+	private final BugTrap bugTrap;
+	private final File stateFile;
+	private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
+
+	//Systems that are currently open in the state file, innermost first.
+	private final Deque<model.projects.System> parents = new ArrayDeque<>();
+
+	//Bug report that is currently open in the state file, if any.
+	private String title;
+	private String description;
+	private Date creation;
+	private Subsystem subsystem;
+	private BugTag tag;
+	private Issuer issuer;
+	private ArrayList<IUser> assigned;
+
+	StreamingBugTrapInitializer(BugTrap bugTrap, File stateFile) {
+		this.bugTrap = bugTrap;
+		this.stateFile = stateFile;
+	}
+
+	void init() {
+		try (InputStream in = new BufferedInputStream(new FileInputStream(stateFile))) {
+			XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(in);
+			try {
+				while (reader.hasNext()) {
+					int event = reader.next();
+					if (event == XMLStreamConstants.START_ELEMENT)
+						startElement(reader);
+					else if (event == XMLStreamConstants.END_ELEMENT)
+						endElement(reader);
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void startElement(XMLStreamReader reader) throws Exception {
+		switch (reader.getLocalName()) {
+			case "user":
+				createUser(reader);
+				break;
+			case "project":
+				parents.push(createProject(reader));
+				break;
+			case "role":
+				addRole(reader);
+				break;
+			case "subsystem":
+				parents.push(createSubsystem(reader));
+				break;
+			case "bugreport":
+				startBugReport(reader);
+				break;
+			case "assignee":
+				if (assigned != null)
+					assigned.add(bugTrap.getUserManager().getUser(attribute(reader, "user")));
+				break;
+			default:
+				break;
+		}
+	}
+
+	private void endElement(XMLStreamReader reader) {
+		switch (reader.getLocalName()) {
+			case "project":
+			case "subsystem":
+				parents.pop();
+				break;
+			case "bugreport":
+				createBugReport();
+				break;
+			default:
+				break;
+		}
+	}
+
+	private void createUser(XMLStreamReader reader) {
+		String first = attribute(reader, "first");
+		String middle = attribute(reader, "middle");
+		String last = attribute(reader, "last");
+		String username = attribute(reader, "username");
+		UserCategory type = UserCategory.valueOf(attribute(reader, "type"));
+
+		switch (type) {
+			case ADMIN:
+				bugTrap.getUserManager().createAdmin(first, middle, last, username);
+				break;
+
+			case ISSUER:
+				bugTrap.getUserManager().createIssuer(first, middle, last, username);
+				break;
+
+			case DEVELOPER:
+				bugTrap.getUserManager().createDeveloper(first, middle, last, username);
+				break;
+
+			default:
+				break;
+		}
+	}
+
+	private Project createProject(XMLStreamReader reader) throws Exception {
+		String name = attribute(reader, "name");
+		double budgetEstimate = Double.parseDouble(attribute(reader, "budgetEstimate"));
+		String descr = attribute(reader, "description");
+		Date start = dateFormat.parse(attribute(reader, "startDate"));
+		Date creation = dateFormat.parse(attribute(reader, "creationDate"));
+
+		bugTrap.getProjectManager().createProject(name, descr, creation, start, budgetEstimate, null, null);
+		return (Project) bugTrap.getProjectManager().getProjects().get(bugTrap.getProjectManager().getProjects().size() - 1);
+	}
+
+	private void addRole(XMLStreamReader reader) {
+		Project project = (Project) parents.peekLast();
+		IUser user = bugTrap.getUserManager().getUser(attribute(reader, "user"));
+		Role r = Role.valueOf(attribute(reader, "role"));
+		switch (r) {
+			case PROGRAMMER:
+				project.addProgrammer(user);
+				break;
+			case TESTER:
+				project.addTester(user);
+				break;
+			case LEAD:
+				project.setLeadDeveloper(user);
+				break;
+		}
+	}
+
+	private Subsystem createSubsystem(XMLStreamReader reader) {
+		String name = attribute(reader, "name");
+		String descr = attribute(reader, "description");
+
+		parents.peek().createSubsystem(name, descr);
+		return (Subsystem) bugTrap.getProjectManager().getSubsystemWithName(name);
+	}
+
+	private void startBugReport(XMLStreamReader reader) throws Exception {
+		title = attribute(reader, "title");
+		description = attribute(reader, "description");
+		creation = dateFormat.parse(attribute(reader, "creationDate"));
+		subsystem = (Subsystem) bugTrap.getProjectManager().getSubsystemWithName(attribute(reader, "subsystem"));
+		tag = BugTag.valueOf(attribute(reader, "tag"));
+		issuer = (Issuer) bugTrap.getUserManager().getUser(attribute(reader, "issuer"));
+		assigned = new ArrayList<>();
+	}
+
+	private void createBugReport() {
+		bugTrap.getBugReportManager().addBugReport(title, description, creation, subsystem, issuer, new ArrayList<>(), assigned, tag, null, 6);
+		assigned = null;
+	}
+
+	// -- XML Helpers --
+	// Same contract as Element.getAttribute: missing attributes are empty strings.
+	private static String attribute(XMLStreamReader reader, String name) {
+		String value = reader.getAttributeValue(null, name);
+		return value == null ? "" : value;
+	}
+}
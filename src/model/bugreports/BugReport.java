@@ -1,5 +1,7 @@
 package model.bugreports;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -30,23 +32,20 @@ public class BugReport implements IBugReport, Commentable {
 	private IUser issuedBy;		//The Issuer who issued this BugReport.
 	private ISubsystem subsystem;	//Subsystem to which this BugReport is attached.
 	private final String title;			//Title of the BugReport.
-	private final String description;	//Description of the BugReport.
-	private final List<Comment> comments;		//Comments on this BugReport.
 	private final List<IUser> assignees;	//List of Developers assigned to this BugReport.
 	private final List<IBugReport> dependsOn;	//List of BugReports on which this BugReport depends.
 	private final TargetMilestone milestone; //target milestone.
-	private final String stackTrace;
-	private final String errorMessage;
-	private final String reproduction;
 	private final List<Observer> observers; //list of observers.
 	
-	private final TestSection testSection;
-	private final PatchSection patchSection; //list of patches.
-	
 	//Mutable
 	private BugTagState bugTag;			//BugTag that is attached to this BugReport.
+	private Date terminalDate;			//When the BugReport got a terminal tag, null while it has none.
+	private BugReportBody body;			//Texts, comments, tests and patches. Null while mapped.
+	private MappedBodies mappedBodies;	//Holds the body while it is mapped.
+	private long mappedOffset;			//Offset of the body in the mapped bodies.
 	
 	private double impactFactor; 		//Impact Factor of the bug report
+	private long listNumber;			//Sort key of the BugReport in the bug report list of the manager.
 	
 	/**
 	 * BugReport Constructor.
@@ -75,18 +74,13 @@ public class BugReport implements IBugReport, Commentable {
 		this.issuedBy 		= issuedBy;
 		this.subsystem		= subsystem;
 		this.title			= title;
-		this.description 	= description;
 		this.assignees 		= assignees;
-		this.comments 		= comments;	
 		this.creationDate 	= creationDate;
 		this.observers		= observers;
 		this.bugTag 		= bugTag.createState(this);
-		this.errorMessage	= errorMessage;
-		this.stackTrace 	= stackTrace;
-		this.reproduction	= reproduction;
+		this.terminalDate	= bugTag.isTerminal() ? creationDate : null;
 		this.milestone		= milestone;
-		this.testSection 	= testSection;
-		this.patchSection	= patchSection;
+		this.body			= new BugReportBody(description, stackTrace, errorMessage, reproduction, comments, testSection, patchSection);
 		
 		setImpactFactor(impactFactor);
 
@@ -96,10 +90,31 @@ public class BugReport implements IBugReport, Commentable {
 	/**********************************************
 	 * GETTERS
 	 **********************************************/
+
+	/**
+	 * The BugReportManager numbers its bug reports in the order they enter its bug report list.
+	 * Numbers only grow, so they are a stable sort key for paging through the list.
+	 * @return The number of this BugReport in the bug report list.
+	 */
+	public long getListNumber() {
+		return listNumber;
+	}
+
+	void setListNumber(long listNumber) {
+		this.listNumber = listNumber;
+	}
+
+	/**
+	 * 
+	 * @return The BugTrap system this BugReport belongs to.
+	 */
+	public BugTrap getBugTrap() {
+		return bugTrap;
+	}
 	
 	@Override
 	public String getDescription() {
-		return description;
+		return text(MappedBodies.DESCRIPTION);
 	}
 
 	@Override
@@ -112,6 +127,25 @@ public class BugReport implements IBugReport, Commentable {
 		return creationDate;
 	}
 
+	/**
+	 * A BugReport that is created under a terminal tag got it at its creation date.
+	 * @return The date this BugReport got a terminal tag, null if its tag is not terminal.
+	 */
+	public Date getTerminalDate() {
+		return terminalDate;
+	}
+
+	/**
+	 * Set the date this BugReport got its terminal tag, e.g. when restoring a snapshot.
+	 * @param terminalDate The date, null if the tag is not terminal.
+	 */
+	public void setTerminalDate(Date terminalDate) {
+		if ((terminalDate != null) != getBugTag().isTerminal())
+			throw new IllegalArgumentException("Only a BugReport with a terminal tag has a terminal date.");
+
+		this.terminalDate = terminalDate;
+	}
+
 	@Override
 	public ISubsystem getSubsystem() {
 		return subsystem;
@@ -157,7 +191,7 @@ public class BugReport implements IBugReport, Commentable {
 	public List<Comment> getComments() {
 		List<Comment> returnList = new ArrayList<>(); 
 		
-		returnList.addAll(comments);
+		returnList.addAll(body().getComments());
 		
 		return returnList;
 	}
@@ -169,27 +203,118 @@ public class BugReport implements IBugReport, Commentable {
 
 	@Override
 	public List<ITest> getTests() {
-		return testSection.getTests();
+		return body().getTestSection().getTests();
 	}
 
 	@Override
 	public List<IPatch> getPatches() {
-		return patchSection.getPatches();
+		return body().getPatchSection().getPatches();
+	}
+
+	/**
+	 * Tests proposed for this BugReport.
+	 * @return The TestSection of this BugReport.
+	 */
+	public TestSection getTestSection() {
+		return body().getTestSection();
+	}
+
+	/**
+	 * Patches proposed for this BugReport, with the accepted patch and satisfaction.
+	 * @return The PatchSection of this BugReport.
+	 */
+	public PatchSection getPatchSection() {
+		return body().getPatchSection();
 	}
 
 	@Override
 	public String getStackTrace() {
-		return stackTrace;
+		return text(MappedBodies.STACK_TRACE);
 	}
 
 	@Override
 	public String getReproduction() {
-		return reproduction;
+		return text(MappedBodies.REPRODUCTION);
 	}
 
 	@Override
 	public String getErrorMessage() {
-		return errorMessage;
+		return text(MappedBodies.ERROR_MESSAGE);
+	}
+
+	/**
+	 * Determines if the body of this BugReport is on the heap.
+	 * @return <tt>false</tt> if the body is only in a mapped file.
+	 */
+	public boolean isBodyResident() {
+		return body != null;
+	}
+
+	// A mapped body is decoded and kept once it is needed as a whole.
+	private BugReportBody body() {
+		if (body == null) {
+			body = mappedBodies.read(mappedOffset, this);
+			mappedBodies = null;
+		}
+		return body;
+	}
+
+	/**
+	 * The body of this BugReport, decoded without keeping it if it is mapped, e.g. to save it.
+	 * Changes to the comments, tests and patches of a mapped body are lost, use the other methods to change them.
+	 * @return The body of this BugReport.
+	 */
+	public BugReportBody readBody() {
+		return body == null ? mappedBodies.read(mappedOffset, this) : body;
+	}
+
+	private String text(int text) {
+		if (body == null)
+			return mappedBodies.readText(mappedOffset, text);
+
+		switch (text) {
+			case MappedBodies.DESCRIPTION:
+				return body.getDescription();
+			case MappedBodies.STACK_TRACE:
+				return body.getStackTrace();
+			case MappedBodies.ERROR_MESSAGE:
+				return body.getErrorMessage();
+			default:
+				return body.getReproduction();
+		}
+	}
+
+	/**
+	 * The texts of the comments and their replies, read from the mapped file without decoding the body if it is mapped.
+	 * @return The texts of the comments, each comment before its replies.
+	 */
+	List<String> getCommentTexts() {
+		if (body == null)
+			return mappedBodies.readCommentTexts(mappedOffset);
+
+		List<String> texts = new ArrayList<>();
+		addCommentTexts(body.getComments(), texts);
+		return texts;
+	}
+
+	private static void addCommentTexts(List<Comment> comments, List<String> texts) {
+		for (Comment comment : comments) {
+			texts.add(comment.getText());
+			addCommentTexts(comment.getComments(), texts);
+		}
+	}
+
+	void writeBody(DataOutputStream out) throws IOException {
+		if (body == null)
+			mappedBodies.copy(mappedOffset, out);
+		else
+			MappedBodies.write(body, out);
+	}
+
+	void mapBody(MappedBodies mappedBodies, long offset) {
+		this.mappedBodies = mappedBodies;
+		this.mappedOffset = offset;
+		this.body = null;
 	}
 
 	private void setImpactFactor(int impactFactor) {
@@ -242,7 +367,8 @@ public class BugReport implements IBugReport, Commentable {
 		if (!bugTag.canAddTests())
 			throw new IllegalArgumentException("Can only add Tests when ASSIGNED");
 		
-		testSection.addTest(test);
+		body().getTestSection().addTest(test);
+		markDirty();
 	}
 
 	/**
@@ -258,7 +384,8 @@ public class BugReport implements IBugReport, Commentable {
 		if (!this.getSubsystem().getProject().isLead(user))
 			throw new UnauthorizedAccessException("Only lead Developer can accept Tests.");
 		
-		testSection.acceptTest(test);
+		body().getTestSection().acceptTest(test);
+		markDirty();
 	}
 
 	/**
@@ -274,7 +401,8 @@ public class BugReport implements IBugReport, Commentable {
 		if (!this.getSubsystem().getProject().isLead(user))
 			throw new UnauthorizedAccessException("Only lead Developer can accept Tests.");
 		
-		testSection.removeTest(test);
+		body().getTestSection().removeTest(test);
+		markDirty();
 	}
 	
 	/**********************************************
@@ -290,7 +418,7 @@ public class BugReport implements IBugReport, Commentable {
 		if (patch == null)
 			throw new IllegalArgumentException("Patch should not be null.");
 
-		if (testSection.noTestsSubmitted())
+		if (body().getTestSection().noTestsSubmitted())
 			throw new IllegalArgumentException("Can't propose patches when there are no tests.");
 		
 		IUser user = bugTrap.getUserManager().getLoggedInUser();
@@ -304,7 +432,7 @@ public class BugReport implements IBugReport, Commentable {
 		if (!assignees.contains(user))
 			throw new UnauthorizedAccessException("Must be assigned to BugReport to propose patch");
 		
-		patchSection.addPatch(patch);
+		body().getPatchSection().addPatch(patch);
 		
 		updateBugTag(BugTag.UNDERREVIEW);
 	}
@@ -317,15 +445,15 @@ public class BugReport implements IBugReport, Commentable {
 		if (!bugTag.canRevert())
 			throw new IllegalArgumentException("Must be ASSIGNED or UNDERREVIEW to revert.");
 		
-		testSection.clear();
-		patchSection.clear();
+		body().getTestSection().clear();
+		body().getPatchSection().clear();
 		
 		updateBugTag(BugTag.ASSIGNED);
 	}
 	
 	@Override
 	public IPatch getAcceptedPatch() {
-		return patchSection.getAcceptedPatch();
+		return body().getPatchSection().getAcceptedPatch();
 	}
 	
 	/**
@@ -341,7 +469,7 @@ public class BugReport implements IBugReport, Commentable {
 		if(!this.getSubsystem().getProject().isLead(user))
 			throw new UnauthorizedAccessException("Only Lead can accept Patches.");
 		
-		patchSection.acceptPatch(patch);
+		body().getPatchSection().acceptPatch(patch);
 		updateBugTag(BugTag.RESOLVED);
 	}
 	
@@ -358,7 +486,8 @@ public class BugReport implements IBugReport, Commentable {
 		if(!this.getSubsystem().getProject().isLead(user))
 			throw new UnauthorizedAccessException("Only Lead can reject Patches.");
 		
-		patchSection.removePatch(patch);	
+		body().getPatchSection().removePatch(patch);	
+		markDirty();
 	}
 	
 	public void close(int satisfaction) throws UnauthorizedAccessException {
@@ -366,7 +495,7 @@ public class BugReport implements IBugReport, Commentable {
 		if(user != issuedBy)
 			throw new UnauthorizedAccessException("Only the Issuer who created this BugReport can close it.");
 		
-		patchSection.updateSatisfaction(satisfaction);
+		body().getPatchSection().updateSatisfaction(satisfaction);
 		updateBugTag(BugTag.CLOSED);
 	}
 	
@@ -388,6 +517,7 @@ public class BugReport implements IBugReport, Commentable {
 
 	@Override
 	public void notifyObservers(Signalisation s) {
+		restoreIfArchived();
 		for (Observer observer : this.observers)
 			observer.signal(s);
 		
@@ -407,6 +537,23 @@ public class BugReport implements IBugReport, Commentable {
 		subsystem.getBugReports().contains(this);
 		
 		this.subsystem = subsystem;
+		markDirty();
+	}
+
+	/**
+	 * Mark the project of this BugReport as changed since it was last saved.
+	 * Changes that notify observers mark it already.
+	 */
+	public void markDirty() {
+		restoreIfArchived();
+		if (subsystem != null)
+			((Subsystem) subsystem).markDirty();
+	}
+
+	// A bug report that changes is taken out of the archive again.
+	private void restoreIfArchived() {
+		if (bugTrap != null)
+			bugTrap.getBugReportManager().restoreBugReport(this);
 	}
 
 	@Override
@@ -414,7 +561,9 @@ public class BugReport implements IBugReport, Commentable {
 		if (commentText == null)
 			throw new IllegalArgumentException("Comment should not be null.");
 		
-		comments.add(new Comment(this, commentText));
+		if (bugTrap != null)
+			bugTrap.getBugReportManager().commentAdded(this, commentText);
+		body().getComments().add(new Comment(this, commentText));
 	
 		notifyObservers(new Signalisation(NotificationType.CREATE_COMMENT, this));
 	}
@@ -439,6 +588,8 @@ public class BugReport implements IBugReport, Commentable {
 		if (!developer.isDeveloper()) throw new IllegalArgumentException();
 		
 		assignees.add(developer);
+		if (bugTrap != null)
+			bugTrap.getBugReportManager().developerAssigned(this, developer);
 		updateBugTag(BugTag.ASSIGNED);
 	}
 
@@ -452,7 +603,16 @@ public class BugReport implements IBugReport, Commentable {
 		if (bugTag.hasToBeLeadToSet() && !(getProject().getLeadDeveloper() == bugTrap.getUserManager().getLoggedInUser()))
 			throw new UnauthorizedAccessException();
 	
+		double impactProduct = getImpactProduct();
+		boolean wasTerminal = getBugTag().isTerminal();
 		this.bugTag = this.bugTag.confirmBugTag(bugTag.createState(this));
+		if (!getBugTag().isTerminal())
+			terminalDate = null;
+		else if (!wasTerminal)
+			terminalDate = bugTrap.getCurrentDate();
+		if (subsystem != null && !bugTrap.getBugReportManager().isArchived(this))
+			((Subsystem) subsystem).bugImpactChanged(getImpactProduct() - impactProduct);
+		bugTrap.getBugReportManager().bugTagChanged(this);
 		
 		notifyObservers(new Signalisation(NotificationType.BUGREPORT_CHANGE, this));
 	}
@@ -469,11 +629,18 @@ public class BugReport implements IBugReport, Commentable {
 		assignees.clear();
 		dependsOn.clear();
 		observers.clear();
-		testSection.clear();
-		patchSection.clear();
-		for (Comment comment : comments) 
+		if (body == null) {
+			// A mapped body keeps its texts, its comments, tests and patches are not decoded only to be cleared.
+			body = new BugReportBody(text(MappedBodies.DESCRIPTION), text(MappedBodies.STACK_TRACE), text(MappedBodies.ERROR_MESSAGE),
+					text(MappedBodies.REPRODUCTION), new ArrayList<Comment>(), new TestSection(), new PatchSection());
+			mappedBodies = null;
+			return;
+		}
+		body.getTestSection().clear();
+		body.getPatchSection().clear();
+		for (Comment comment : body.getComments()) 
 			comment.terminate();
-		comments.clear();
+		body.getComments().clear();
 	}
 
 	@Override
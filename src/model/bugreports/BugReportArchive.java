@@ -0,0 +1,126 @@
+package model.bugreports;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import model.projects.ISubsystem;
+
+/**
+ * Cold tier of the BugReportManager, holding closed bug reports that were archived.
+ * Archived bug reports are not in the bug report list of the manager, nor in the list of their subsystem,
+ * so filters, bug report lists and health computations do not walk them.
+ * They are only reachable through the archive queries of the BugReportManager.
+ */
+public class BugReportArchive {
+
+	private final List<BugReport> bugReports = new ArrayList<>();	//Archived bug reports, in the order they were archived.
+	private final Map<ISubsystem, List<BugReport>> bySubsystem = new IdentityHashMap<>();
+	private final Map<BugReport, Long> archived = new IdentityHashMap<>();	//Archived bug reports with the number of their archiving.
+	private long nextNumber;	//Number of the next archiving, so the bug reports are sorted by it.
+
+	/**
+	 * Add a bug report to the archive.
+	 * @param report The bug report to add.
+	 */
+	void add(BugReport report) {
+		if (archived.containsKey(report))
+			return;
+
+		archived.put(report, nextNumber++);
+
+		bugReports.add(report);
+		List<BugReport> reports = bySubsystem.get(report.getSubsystem());
+		if (reports == null) {
+			reports = new ArrayList<>();
+			bySubsystem.put(report.getSubsystem(), reports);
+		}
+		reports.add(report);
+	}
+
+	/**
+	 * Remove a bug report from the archive.
+	 * @param report The bug report to remove.
+	 * @return true if the bug report was archived.
+	 */
+	boolean remove(BugReport report) {
+		if (archived.remove(report) == null)
+			return false;
+
+		removeIdentity(bugReports, report);
+		List<BugReport> reports = bySubsystem.get(report.getSubsystem());
+		removeIdentity(reports, report);
+		if (reports.isEmpty())
+			bySubsystem.remove(report.getSubsystem());
+		return true;
+	}
+
+	private static void removeIdentity(List<BugReport> reports, BugReport report) {
+		for (int i = reports.size() - 1; i >= 0; i--)
+			if (reports.get(i) == report) {
+				reports.remove(i);
+				return;
+			}
+	}
+
+	/**
+	 *
+	 * @param report A bug report.
+	 * @return true if the bug report is archived.
+	 */
+	public boolean contains(IBugReport report) {
+		return archived.containsKey(report);
+	}
+
+	/**
+	 * Find an archived bug report by binary search on the number of its archiving.
+	 * @param report An archived bug report.
+	 * @return The index of the bug report in getBugReports, -1 if it is not archived.
+	 */
+	int indexOf(BugReport report) {
+		Long number = archived.get(report);
+		if (number == null)
+			return -1;
+
+		int low = 0;
+		int high = bugReports.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (archived.get(bugReports.get(middle)) < number)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 *
+	 * @return The archived bug reports, in the order they were archived.
+	 */
+	public List<BugReport> getBugReports() {
+		return Collections.unmodifiableList(bugReports);
+	}
+
+	/**
+	 *
+	 * @param subsystem A subsystem.
+	 * @return The archived bug reports of the given subsystem, in the order they were archived.
+	 */
+	public List<BugReport> getBugReports(ISubsystem subsystem) {
+		List<BugReport> reports = bySubsystem.get(subsystem);
+		if (reports == null)
+			return Collections.emptyList();
+		return Collections.unmodifiableList(reports);
+	}
+
+	/**
+	 *
+	 * @return The number of archived bug reports.
+	 */
+	public int size() {
+		return bugReports.size();
+	}
+}
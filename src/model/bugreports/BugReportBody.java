@@ -0,0 +1,59 @@
+package model.bugreports;
+
+import java.util.List;
+
+import model.bugreports.comments.Comment;
+
+/**
+ * The large parts of a BugReport: its texts, comments, tests and patches.
+ * While a BugReport is mapped, its body is not resident and only read from the MappedBodies when needed.
+ */
+public class BugReportBody {
+
+	private final String description;	//Description of the BugReport.
+	private final String stackTrace;
+	private final String errorMessage;
+	private final String reproduction;
+	private final List<Comment> comments;	//Comments on the BugReport.
+	private final TestSection testSection;
+	private final PatchSection patchSection;
+
+	BugReportBody(String description, String stackTrace, String errorMessage, String reproduction,
+			List<Comment> comments, TestSection testSection, PatchSection patchSection) {
+		this.description = description;
+		this.stackTrace = stackTrace;
+		this.errorMessage = errorMessage;
+		this.reproduction = reproduction;
+		this.comments = comments;
+		this.testSection = testSection;
+		this.patchSection = patchSection;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public String getStackTrace() {
+		return stackTrace;
+	}
+
+	public String getErrorMessage() {
+		return errorMessage;
+	}
+
+	public String getReproduction() {
+		return reproduction;
+	}
+
+	public List<Comment> getComments() {
+		return comments;
+	}
+
+	public TestSection getTestSection() {
+		return testSection;
+	}
+
+	public PatchSection getPatchSection() {
+		return patchSection;
+	}
+}
@@ -1,17 +1,29 @@
 package model.bugreports;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import controllers.exceptions.UnauthorizedAccessException;
 import model.BugTrap;
+import model.Milestone;
 import model.bugreports.bugtag.BugTag;
 import model.bugreports.builders.BugReportBuilder;
-import model.bugreports.filters.BugReportFilter;
+import model.bugreports.filters.BugReportOrder;
+import model.bugreports.filters.BugReportPage;
+import model.bugreports.filters.BugReportQuery;
 import model.bugreports.filters.FilterType;
+import model.bugreports.filters.QueryPlan;
+import model.projects.IProject;
 import model.projects.ISubsystem;
 import model.projects.ISystem;
+import model.projects.Subsystem;
 import model.users.IUser;
 
 /**
@@ -20,6 +32,28 @@ import model.users.IUser;
 public class BugReportManager {
 
 	private final List<BugReport> bugReportList; //List that keeps BugReports.
+	private final BugReportArchive archive = new BugReportArchive(); //Closed BugReports that were archived.
+	private final TrigramIndex textIndex = new TrigramIndex(); //Trigrams of the BugReports in the list.
+	private final UserIndex userIndex = new UserIndex(); //Issuers and assignees of the BugReports in the list.
+	private final ImpactRanking impactRanking = new ImpactRanking(); //BugReports in the list by impact product.
+	private final TagIndex tagIndex = new TagIndex(); //BugReports in the list by tag.
+	private final RangeIndex<Milestone> milestoneIndex = new RangeIndex<>(); //BugReports in the list by target milestone.
+	private final RangeIndex<Date> dateIndex = new RangeIndex<>(); //BugReports in the list by creation date.
+	private final FullTextIndex fullTextIndex = new FullTextIndex(); //Words of the texts and comments of the BugReports in the list.
+	private final FingerprintIndex fingerprintIndex = new FingerprintIndex(); //Stack trace fingerprints of the BugReports in the list.
+	private final NearDuplicateIndex nearDuplicateIndex = new NearDuplicateIndex(); //MinHash signatures of the titles and descriptions of the BugReports in the list.
+	private long nextListNumber; //Number of the next BugReport that enters the list.
+	private static final int COMPILED_QUERIES = 256; //Number of compiled queries that are kept.
+	private final QueryResultCache resultCache = new QueryResultCache(this, 128, 100000); //Results of getOrderedList.
+	//Compiled queries by their text, the least recently used is dropped first.
+	private final Map<String, BugReportQuery> compiledQueries = new LinkedHashMap<String, BugReportQuery>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, BugReportQuery> eldest) {
+			return size() > COMPILED_QUERIES;
+		}
+	};
 	private final BugTrap bugTrap;
 	/**
 	 * Constructor.
@@ -39,7 +73,7 @@ public class BugReportManager {
 	}
 
 	/**
-	 * returns an ordered list of bug reports
+	 * returns an ordered list of bug reports, from the result cache if the same filters were asked for since the last change that affects them
 	 * @param types Filter Types to filter by.
 	 * @param arguments Filter arguments.
 	 * @return an ordered list of bug reports
@@ -49,15 +83,168 @@ public class BugReportManager {
 		if (bugTrap.getUserManager().getLoggedInUser() == null || 
 				!bugTrap.getUserManager().getLoggedInUser().isIssuer())
 			throw new UnauthorizedAccessException("Must be Issuer");
-		
-		List<IBugReport> filteredList = getBugReportList();
-		
-		BugReportFilter filter = new BugReportFilter(filteredList);
 
-		for (int index = 0; index < types.length; index++)
-			filter.filter(types[index], arguments[index]);
-		
-		return filter.getFilteredList();
+		List<IBugReport> result = resultCache.get(types, arguments);
+		if (result == null) {
+			result = getQueryPlan(types, arguments).execute();
+			resultCache.put(types, arguments, result);
+		}
+		return result;
+	}
+
+	/**
+	 * returns one page of the ordered list of bug reports, sorted by list number
+	 * @param types Filter Types to filter by.
+	 * @param arguments Filter arguments.
+	 * @param cursor The cursor of the previous page, null for the first page.
+	 * @param pageSize The maximum number of bug reports on the page.
+	 * @return the page, with the cursor of the next page
+	 * @throws UnauthorizedAccessException 
+	 */
+	public BugReportPage getOrderedPage(FilterType[] types, String[] arguments, String cursor, int pageSize) throws UnauthorizedAccessException {
+		return getQueryPlan(types, arguments).page(cursor, pageSize);
+	}
+
+	/**
+	 * returns the k bug reports that pass the filters and rank highest in the given order
+	 * @param types Filter Types to filter by.
+	 * @param arguments Filter arguments.
+	 * @param order The order to rank by.
+	 * @param k The maximum number of bug reports.
+	 * @return the top list of bug reports, highest first
+	 * @throws UnauthorizedAccessException 
+	 */
+	public List<IBugReport> getTopList(FilterType[] types, String[] arguments, BugReportOrder order, int k) throws UnauthorizedAccessException {
+		QueryPlan plan = getQueryPlan(types, arguments);
+		if (types.length == 0 && order == BugReportOrder.IMPACT) {
+			if (k < 1)
+				throw new IllegalArgumentException("At least one bug report should be asked for.");
+			return impactRanking.getTop(k);
+		}
+		return plan.top(order, k);
+	}
+
+	/**
+	 * returns the k bug reports of the given project with the highest impact product
+	 * @param project The project.
+	 * @param k The maximum number of bug reports.
+	 * @return the top list of bug reports, highest first
+	 */
+	public List<IBugReport> getTopBugReports(IProject project, int k) {
+		if (project == null)
+			throw new IllegalArgumentException("Project should not be null.");
+		if (k < 1)
+			throw new IllegalArgumentException("At least one bug report should be asked for.");
+
+		return impactRanking.getTop(project, k);
+	}
+
+	/**
+	 * returns the k bug reports that are most relevant to the words of the query, ranked by BM25
+	 * @param query The words to search for.
+	 * @param k The maximum number of bug reports.
+	 * @return the most relevant bug reports, most relevant first
+	 * @throws UnauthorizedAccessException 
+	 */
+	public List<IBugReport> search(String query, int k) throws UnauthorizedAccessException {
+		if (bugTrap.getUserManager().getLoggedInUser() == null || 
+				!bugTrap.getUserManager().getLoggedInUser().isIssuer())
+			throw new UnauthorizedAccessException("Must be Issuer");
+
+		return fullTextIndex.search(query, k);
+	}
+
+	/**
+	 * returns the bug reports with the same stack trace fingerprint as the given stack trace, candidate duplicates of a new bug report
+	 * @param stackTrace The stack trace.
+	 * @return the bug reports with the same fingerprint, in the order of the list
+	 * @throws UnauthorizedAccessException 
+	 */
+	public List<IBugReport> findDuplicates(String stackTrace) throws UnauthorizedAccessException {
+		if (bugTrap.getUserManager().getLoggedInUser() == null || 
+				!bugTrap.getUserManager().getLoggedInUser().isIssuer())
+			throw new UnauthorizedAccessException("Must be Issuer");
+
+		return fingerprintIndex.getDuplicates(stackTrace);
+	}
+
+	/**
+	 * returns the candidate duplicates of a batch of stack traces
+	 * @param stackTraces The stack traces.
+	 * @return for every stack trace, in the same order, the bug reports with the same fingerprint
+	 * @throws UnauthorizedAccessException 
+	 */
+	public List<List<IBugReport>> findDuplicates(List<String> stackTraces) throws UnauthorizedAccessException {
+		if (bugTrap.getUserManager().getLoggedInUser() == null || 
+				!bugTrap.getUserManager().getLoggedInUser().isIssuer())
+			throw new UnauthorizedAccessException("Must be Issuer");
+		if (stackTraces == null)
+			throw new IllegalArgumentException("Stack traces should not be null.");
+
+		return fingerprintIndex.getDuplicates(stackTraces);
+	}
+
+	/**
+	 * returns the bug reports whose title and description are near duplicates of the given ones, candidate duplicates of a new bug report
+	 * @param title The title.
+	 * @param description The description.
+	 * @param threshold The minimum similarity, between 0 and 1.
+	 * @return the near duplicates, most similar first
+	 * @throws UnauthorizedAccessException 
+	 */
+	public List<IBugReport> findNearDuplicates(String title, String description, double threshold) throws UnauthorizedAccessException {
+		if (bugTrap.getUserManager().getLoggedInUser() == null || 
+				!bugTrap.getUserManager().getLoggedInUser().isIssuer())
+			throw new UnauthorizedAccessException("Must be Issuer");
+
+		return nearDuplicateIndex.getNearDuplicates(title, description, threshold);
+	}
+
+	/**
+	 * returns the bug reports that match a query of the query language, e.g. tag:ASSIGNED AND (text:"NPE" OR subsystem:Word)
+	 * Queries are compiled once, running the same query again reuses the compiled query.
+	 * @param query The query.
+	 * @return the matching bug reports, in the order of the list
+	 * @throws UnauthorizedAccessException 
+	 */
+	public List<IBugReport> query(String query) throws UnauthorizedAccessException {
+		return compileQuery(query).execute(Collections.unmodifiableList(bugReportList), this, bugTrap.getProjectManager());
+	}
+
+	/**
+	 * returns the compiled query for the given query text, from the cache of compiled queries if it was compiled before
+	 * @param query The query.
+	 * @return the compiled query
+	 * @throws UnauthorizedAccessException 
+	 */
+	public BugReportQuery compileQuery(String query) throws UnauthorizedAccessException {
+		if (bugTrap.getUserManager().getLoggedInUser() == null || 
+				!bugTrap.getUserManager().getLoggedInUser().isIssuer())
+			throw new UnauthorizedAccessException("Must be Issuer");
+		if (query == null)
+			throw new IllegalArgumentException("Query should not be null.");
+
+		BugReportQuery compiled = compiledQueries.get(query);
+		if (compiled == null) {
+			compiled = BugReportQuery.compile(query);
+			compiledQueries.put(query, compiled);
+		}
+		return compiled;
+	}
+
+	/**
+	 * returns the plan that getOrderedList follows for the given filters
+	 * @param types Filter Types to filter by.
+	 * @param arguments Filter arguments.
+	 * @return the query plan
+	 * @throws UnauthorizedAccessException 
+	 */
+	public QueryPlan getQueryPlan(FilterType[] types, String[] arguments) throws UnauthorizedAccessException {
+		if (bugTrap.getUserManager().getLoggedInUser() == null || 
+				!bugTrap.getUserManager().getLoggedInUser().isIssuer())
+			throw new UnauthorizedAccessException("Must be Issuer");
+
+		return new QueryPlan(Collections.unmodifiableList(bugReportList), this, bugTrap.getProjectManager(), types, arguments);
 	}
 
 	/**
@@ -75,7 +262,13 @@ public class BugReportManager {
 	 * @param system The System for which to delete the BugReports
 	 */
 	public void deleteBugReportsForSystem(ISystem system) {
+		if (system instanceof ISubsystem)
+			restoreArchivedBugReports((ISubsystem) system);
+		for (ISubsystem subsystem : system.getAllDirectOrIndirectSubsystems())
+			restoreArchivedBugReports(subsystem);
 		for (IBugReport report : system.getAllBugReports()){
+			unindex((BugReport) report);
+			resultCache.bugReportRemoved(report);
 			((BugReport)report).terminate();
 			bugReportList.remove(report);
 		}
@@ -93,12 +286,30 @@ public class BugReportManager {
 	 * @param tag Tag of the BugReport
 	 */
 	public void addBugReport(String title, String description, Date creationDate, ISubsystem subsystem, IUser issuer, List<IBugReport> dependencies, List<IUser> assignees, BugTag tag, TargetMilestone milestone, int impactFactor) {
+		addBugReport(title, description, null, null, null, creationDate, subsystem, issuer, dependencies, assignees, tag, milestone, impactFactor);
+	}
+
+	/**
+	 * adds a bug report with the optional stack trace, error message and reproduction
+	 * @param title Title of the BugReport
+	 * @param description Description of the BugReport
+	 * @param stackTrace Stack trace of the BugReport, null to leave it empty
+	 * @param errorMessage Error message of the BugReport, null to leave it empty
+	 * @param reproduction How to reproduce the BugReport, null to leave it empty
+	 * @param creationDate Creation Date of the BugReport
+	 * @param subsystem Subsystem of the BugReport
+	 * @param issuer Issuer of the BugReport
+	 * @param dependencies Dependencies of the BugReport
+	 * @param assignees Assignees of the BugReport
+	 * @param tag Tag of the BugReport
+	 */
+	public void addBugReport(String title, String description, String stackTrace, String errorMessage, String reproduction, Date creationDate, ISubsystem subsystem, IUser issuer, List<IBugReport> dependencies, List<IUser> assignees, BugTag tag, TargetMilestone milestone, int impactFactor) {
 		if (milestone != null) {
 			if (milestone.compareTo(subsystem.getAchievedMilestone()) <= 0)
 				throw new IllegalArgumentException("The target milestone should be strict higher than the achieved milestone of the subsystem");
 		}
 
-		BugReport report = new BugReportBuilder(bugTrap).setTitle(title)
+		BugReportBuilder builder = new BugReportBuilder(bugTrap).setTitle(title)
 				.setDescription(description)
 				.setSubsystem(subsystem)
 				.setIssuer(issuer)
@@ -107,8 +318,339 @@ public class BugReportManager {
 				.setAssignees(assignees)
 				.setBugTag(tag)
 				.setImpactFactor(impactFactor)
-				.setMilestone(milestone)
-				.getBugReport();
+				.setMilestone(milestone);
+		if (stackTrace != null)
+			builder.setStackTrace(stackTrace);
+		if (errorMessage != null)
+			builder.setErrorMessage(errorMessage);
+		if (reproduction != null)
+			builder.setReproduction(reproduction);
+		addBugReport(builder.getBugReport());
+	}
+
+	/**
+	 * Adds an already built bug report, e.g. one restored from a snapshot.
+	 * @param report The BugReport to add.
+	 */
+	public void addBugReport(BugReport report) {
+		if (report == null)
+			throw new IllegalArgumentException("BugReport should not be null.");
+
+		report.setListNumber(nextListNumber++);
 		bugReportList.add(report);
+		index(report);
+		resultCache.bugReportChanged(report);
+	}
+
+	// Registers the bug report in every index, keep this in line with unindex.
+	private void index(BugReport report) {
+		textIndex.add(report);
+		userIndex.add(report);
+		impactRanking.add(report);
+		tagIndex.add(report);
+		milestoneIndex.add(report, report.getTargetMilestone());
+		dateIndex.add(report, report.getCreationDate());
+		fullTextIndex.add(report);
+		fingerprintIndex.add(report);
+		nearDuplicateIndex.add(report);
+	}
+
+	// Takes the bug report out of every index, keep this in line with index.
+	private void unindex(BugReport report) {
+		textIndex.remove(report);
+		userIndex.remove(report);
+		impactRanking.remove(report);
+		tagIndex.remove(report);
+		milestoneIndex.remove(report);
+		dateIndex.remove(report);
+		fullTextIndex.remove(report);
+		fingerprintIndex.remove(report);
+		nearDuplicateIndex.remove(report);
+	}
+
+	/**
+	 * Keeps the user index up to date with a developer that was assigned to a bug report.
+	 * @param report The bug report.
+	 * @param developer The assigned developer.
+	 */
+	void developerAssigned(BugReport report, IUser developer) {
+		userIndex.assign(report, developer);
+	}
+
+	/**
+	 * Keeps the full text index up to date with a comment that is being added to a bug report.
+	 * Call it before the comment is added, adding it may restore an archived bug report with all its comments.
+	 * @param report The bug report.
+	 * @param text The text of the comment.
+	 */
+	public void commentAdded(BugReport report, String text) {
+		fullTextIndex.addText(report, text);
+	}
+
+	/**
+	 * Keeps the impact ranking and tag index up to date with the new tag of a bug report.
+	 * @param report The bug report.
+	 */
+	void bugTagChanged(BugReport report) {
+		impactRanking.update(report);
+		tagIndex.update(report);
+	}
+
+	/**********************************************
+	 * ARCHIVE
+	 **********************************************/
+
+	/**
+	 * Move closed bug reports that are at least the given age out of the bug report lists, into the archive.
+	 * The age of a bug report is counted from the date it got its terminal tag to the current date of the BugTrap system.
+	 * @param age The minimum age in milliseconds.
+	 * @return The number of archived bug reports.
+	 */
+	public int archiveClosedBugReports(long age) {
+		if (age < 0)
+			throw new IllegalArgumentException("Age can not be negative.");
+
+		//Only the bug reports under a terminal tag are looked at.
+		long now = bugTrap.getCurrentDate().getTime();
+		Map<IBugReport, Boolean> closed = new IdentityHashMap<>();
+		for (BugTag tag : BugTag.values()) {
+			if (!tag.isTerminal())
+				continue;
+			for (IBugReport report : tagIndex.getBugReports(tag))
+				if (now - ((BugReport) report).getTerminalDate().getTime() >= age)
+					closed.put(report, Boolean.TRUE);
+		}
+		if (closed.isEmpty())
+			return 0;
+
+		List<BugReport> hot = new ArrayList<>();
+		for (BugReport report : bugReportList) {
+			if (closed.containsKey(report))
+				archiveBugReport(report);
+			else
+				hot.add(report);
+		}
+		bugReportList.clear();
+		bugReportList.addAll(hot);
+		return closed.size();
+	}
+
+	/**
+	 * Adds an already built bug report to the archive, e.g. one restored from a snapshot.
+	 * @param report The BugReport to archive.
+	 */
+	public void addArchivedBugReport(BugReport report) {
+		if (report == null)
+			throw new IllegalArgumentException("BugReport should not be null.");
+
+		archiveBugReport(report);
+	}
+
+	// Takes the bug report out of the list of its subsystem, the caller takes it out of the bug report list.
+	private void archiveBugReport(BugReport report) {
+		((Subsystem) report.getSubsystem()).removeBugReport(report);
+		unindex(report);
+		archive.add(report);
+		resultCache.bugReportChanged(report);
+	}
+
+	/**
+	 * Move an archived bug report back into the bug report lists.
+	 * Bug reports are restored when they change, so callers only need this to work on an archived bug report directly.
+	 * The bug report gets a new list number and comes after the other bug reports, as if it were added again.
+	 * The indexes hand out their ids in list order and pages resume after a list number, so it can not take its old place.
+	 * A snapshot does not keep the list numbers of archived bug reports either, only the order of the list.
+	 * @param report The bug report to restore.
+	 * @return true if the bug report was archived.
+	 */
+	public boolean restoreBugReport(IBugReport report) {
+		if (!archive.remove((BugReport) report))
+			return false;
+
+		((Subsystem) report.getSubsystem()).restoreBugReport((BugReport) report);
+		((BugReport) report).setListNumber(nextListNumber++);
+		bugReportList.add((BugReport) report);
+		index((BugReport) report);
+		resultCache.bugReportChanged(report);
+		return true;
+	}
+
+	/**
+	 * Restore the archived bug reports of the given subsystem, before it is split, merged or deleted.
+	 * @param subsystem The subsystem.
+	 */
+	public void restoreArchivedBugReports(ISubsystem subsystem) {
+		for (BugReport report : new ArrayList<>(archive.getBugReports(subsystem)))
+			restoreBugReport(report);
+	}
+
+	/**
+	 * 
+	 * @param report A bug report.
+	 * @return true if the bug report is archived.
+	 */
+	public boolean isArchived(IBugReport report) {
+		return archive.contains(report);
+	}
+
+	/**
+	 * The position of a bug report in the bug report list followed by the archive, e.g. to refer to it in the journal.
+	 * The bug report list is sorted by list number and the archive by archiving order, so both are searched by binary search.
+	 * @param report A bug report.
+	 * @return The position of the bug report, -1 if it is neither in the bug report list nor archived.
+	 */
+	public int positionOf(IBugReport report) {
+		if (archive.contains(report))
+			return bugReportList.size() + archive.indexOf((BugReport) report);
+
+		long number = ((BugReport) report).getListNumber();
+		int low = 0;
+		int high = bugReportList.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (bugReportList.get(middle).getListNumber() < number)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low < bugReportList.size() && bugReportList.get(low) == report ? low : -1;
+	}
+
+	/**
+	 * 
+	 * @param position A position in the bug report list followed by the archive, as given by positionOf.
+	 * @return The bug report at that position, null if there is none.
+	 */
+	public IBugReport getBugReportAt(int position) {
+		if (position < 0)
+			return null;
+		if (position < bugReportList.size())
+			return bugReportList.get(position);
+		position -= bugReportList.size();
+		return position < archive.size() ? archive.getBugReports().get(position) : null;
+	}
+
+	/**
+	 * returns a copy of the list of archived bug reports
+	 * @return list of archived bug reports, in the order they were archived
+	 */
+	public List<IBugReport> getArchivedBugReports() {
+		return new ArrayList<IBugReport>(archive.getBugReports());
+	}
+
+	/**
+	 * returns the archived bug reports of the given system and all its subsystems
+	 * @param system The system.
+	 * @return list of archived bug reports
+	 */
+	public List<IBugReport> getArchivedBugReports(ISystem system) {
+		List<IBugReport> reports = new ArrayList<>();
+		if (system instanceof ISubsystem)
+			reports.addAll(archive.getBugReports((ISubsystem) system));
+		for (ISubsystem subsystem : system.getAllDirectOrIndirectSubsystems())
+			reports.addAll(archive.getBugReports(subsystem));
+		return reports;
+	}
+
+	/**
+	 * 
+	 * @return The trigram index over the titles and descriptions of the bug reports in the list.
+	 */
+	public TrigramIndex getTextIndex() {
+		return textIndex;
+	}
+
+	/**
+	 * 
+	 * @return The index from user names to the bug reports in the list that the users filed or are assigned to.
+	 */
+	public UserIndex getUserIndex() {
+		return userIndex;
+	}
+
+	/**
+	 * 
+	 * @return The ranking of the bug reports in the list by impact product.
+	 */
+	public ImpactRanking getImpactRanking() {
+		return impactRanking;
+	}
+
+	/**
+	 * 
+	 * @return The bitmaps from every tag to the bug reports in the list with that tag.
+	 */
+	public TagIndex getTagIndex() {
+		return tagIndex;
+	}
+
+	/**
+	 * 
+	 * @return The sorted index from target milestones to the bug reports in the list.
+	 */
+	public RangeIndex<Milestone> getMilestoneIndex() {
+		return milestoneIndex;
+	}
+
+	/**
+	 * 
+	 * @return The sorted index from creation dates to the bug reports in the list.
+	 */
+	public RangeIndex<Date> getDateIndex() {
+		return dateIndex;
+	}
+
+	/**
+	 * 
+	 * @return The full text index over the texts and comments of the bug reports in the list.
+	 */
+	public FullTextIndex getFullTextIndex() {
+		return fullTextIndex;
+	}
+
+	/**
+	 * 
+	 * @return The index from stack trace fingerprints to the bug reports in the list.
+	 */
+	public FingerprintIndex getFingerprintIndex() {
+		return fingerprintIndex;
+	}
+
+	/**
+	 * 
+	 * @return The locality sensitive hashing index over the titles and descriptions of the bug reports in the list.
+	 */
+	public NearDuplicateIndex getNearDuplicateIndex() {
+		return nearDuplicateIndex;
+	}
+
+	/**
+	 * 
+	 * @return The cache of the results of getOrderedList.
+	 */
+	public QueryResultCache getResultCache() {
+		return resultCache;
+	}
+
+	/**
+	 * 
+	 * @return The archive of this manager.
+	 */
+	public BugReportArchive getArchive() {
+		return archive;
+	}
+
+	/**
+	 * Move the bodies of all bug reports to a memory-mapped file.
+	 * Only the small fields of the bug reports stay on the heap, the texts are read from the file when asked for.
+	 * Bodies that were decoded again since an earlier call are mapped to the new file as well.
+	 * @param file The file to map the bodies to, its contents are replaced.
+	 * @return The mapped bodies.
+	 * @throws IOException if the file can not be written or mapped.
+	 */
+	public MappedBodies mapBodies(File file) throws IOException {
+		List<BugReport> reports = new ArrayList<BugReport>(bugReportList);
+		reports.addAll(archive.getBugReports());
+		return MappedBodies.map(file, reports);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,154 @@
+package model.bugreports;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Index from stack trace fingerprints to the bug reports with that stack trace, to find duplicate crashes in constant time.
+ * A fingerprint hashes the exception type and the top frames of a stack trace, without line numbers and memory addresses,
+ * so the same crash in another build or run gets the same fingerprint.
+ * The BugReportManager keeps it over the bug reports in its bug report list, bug reports without a stack trace are not indexed.
+ */
+public class FingerprintIndex {
+
+	//Number of frames from the top of the stack that make up a fingerprint.
+	private static final int FRAMES = 5;
+
+	private static final Pattern FRAME = Pattern.compile("\\bat\\s+([\\w$.<>/]+)\\s*\\(([^)]*)\\)");
+	private static final Pattern EXCEPTION = Pattern.compile("[\\w$.]*(Exception|Error|Throwable)\\b");
+	private static final Pattern ADDRESS = Pattern.compile("(/?0x[0-9a-fA-F]+|@[0-9a-fA-F]{4,})");
+	private static final Pattern LINE_NUMBER = Pattern.compile(":\\d+");
+
+	private final Map<Long, TreeMap<Long, BugReport>> postings = new HashMap<>();
+	private final Map<BugReport, long[]> entries = new IdentityHashMap<>();	//Fingerprint and list number of the indexed bug reports.
+
+	/**
+	 * Normalise a stack trace: the exception type and the top frames, without line numbers and memory addresses.
+	 * A stack trace without frames is kept as a whole, without line numbers and memory addresses.
+	 * @param stackTrace The stack trace.
+	 * @return The normalised stack trace, null if the stack trace is empty.
+	 */
+	public static String normalize(String stackTrace) {
+		if (stackTrace == null || stackTrace.trim().isEmpty())
+			return null;
+
+		String stripped = ADDRESS.matcher(stackTrace).replaceAll("");
+		Matcher frame = FRAME.matcher(stripped);
+		StringBuilder normalized = new StringBuilder();
+		int frames = 0;
+		while (frames < FRAMES && frame.find()) {
+			if (frames == 0) {
+				Matcher exception = EXCEPTION.matcher(stripped.substring(0, frame.start()));
+				String type = null;
+				while (exception.find())
+					type = exception.group();
+				if (type != null)
+					normalized.append(type);
+			}
+			normalized.append('|').append(frame.group(1)).append('(').append(LINE_NUMBER.matcher(frame.group(2)).replaceAll("")).append(')');
+			frames++;
+		}
+		if (frames == 0)
+			normalized.append(LINE_NUMBER.matcher(stripped).replaceAll("").trim().replaceAll("\\s+", " "));
+		return normalized.toString();
+	}
+
+	/**
+	 * Fingerprint a stack trace, a 64 bit FNV-1a hash of the normalised stack trace.
+	 * @param stackTrace The stack trace.
+	 * @return The fingerprint, null if the stack trace is empty.
+	 */
+	public static Long fingerprint(String stackTrace) {
+		String normalized = normalize(stackTrace);
+		if (normalized == null)
+			return null;
+
+		long hash = 0xcbf29ce484222325L;
+		for (int index = 0; index < normalized.length(); index++) {
+			hash ^= normalized.charAt(index);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Add a bug report, after it got its list number.
+	 * @param report The bug report to add.
+	 */
+	void add(BugReport report) {
+		Long fingerprint = fingerprint(report.getStackTrace());
+		if (fingerprint == null || entries.containsKey(report))
+			return;
+
+		entries.put(report, new long[] { fingerprint, report.getListNumber() });
+		TreeMap<Long, BugReport> posting = postings.get(fingerprint);
+		if (posting == null) {
+			posting = new TreeMap<>();
+			postings.put(fingerprint, posting);
+		}
+		posting.put(report.getListNumber(), report);
+	}
+
+	/**
+	 * Remove a bug report from the index.
+	 * @param report The bug report to remove.
+	 */
+	void remove(BugReport report) {
+		long[] entry = entries.remove(report);
+		if (entry == null)
+			return;
+
+		TreeMap<Long, BugReport> posting = postings.get(entry[0]);
+		posting.remove(entry[1]);
+		if (posting.isEmpty())
+			postings.remove(entry[0]);
+	}
+
+	/**
+	 *
+	 * @param stackTrace A stack trace.
+	 * @return The bug reports with the same fingerprint, in the order of the list.
+	 */
+	public List<IBugReport> getDuplicates(String stackTrace) {
+		return lookup(fingerprint(stackTrace));
+	}
+
+	/**
+	 * Look up a batch of stack traces at once.
+	 * @param stackTraces The stack traces.
+	 * @return For every stack trace, in the same order, the bug reports with the same fingerprint.
+	 */
+	public List<List<IBugReport>> getDuplicates(List<String> stackTraces) {
+		//Stack traces in a batch often repeat, each fingerprint is looked up once.
+		Map<Long, List<IBugReport>> found = new HashMap<>();
+		List<List<IBugReport>> duplicates = new ArrayList<>();
+		for (String stackTrace : stackTraces) {
+			Long fingerprint = fingerprint(stackTrace);
+			if (!found.containsKey(fingerprint))
+				found.put(fingerprint, lookup(fingerprint));
+			duplicates.add(new ArrayList<>(found.get(fingerprint)));
+		}
+		return duplicates;
+	}
+
+	private List<IBugReport> lookup(Long fingerprint) {
+		TreeMap<Long, BugReport> posting = fingerprint == null ? null : postings.get(fingerprint);
+		if (posting == null)
+			return new ArrayList<>();
+		return new ArrayList<IBugReport>(posting.values());
+	}
+
+	/**
+	 *
+	 * @return The number of indexed bug reports.
+	 */
+	public int size() {
+		return entries.size();
+	}
+}
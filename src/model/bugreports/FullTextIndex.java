@@ -0,0 +1,216 @@
+package model.bugreports;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Inverted index from words to the bug reports they occur in, with how often they occur, to rank bug reports with BM25.
+ * Titles, descriptions, stack traces, error messages, reproductions and comments are indexed, without regard to case.
+ * The BugReportManager keeps it over the bug reports in its bug report list and adds comments as they are written.
+ */
+public class FullTextIndex {
+
+	//BM25 parameters: how fast repeated words stop counting and how much the length of a bug report counts.
+	private static final double K1 = 1.2;
+	private static final double B = 0.75;
+
+	/**
+	 * An indexed bug report with how often each of its words occurs and its length in words.
+	 * Removing uses the words kept here, the texts of the bug report may have changed by then.
+	 */
+	private static class Entry {
+		private final BugReport report;
+		private final long number;
+		private final Map<String, int[]> frequencies = new HashMap<>();
+		private int length;
+
+		private Entry(BugReport report) {
+			this.report = report;
+			this.number = report.getListNumber();
+		}
+	}
+
+	/**
+	 * A bug report with its score for a query.
+	 */
+	private static class Hit {
+		private final Entry entry;
+		private final double score;
+
+		private Hit(Entry entry, double score) {
+			this.entry = entry;
+			this.score = score;
+		}
+	}
+
+	//Highest score first, bug reports with the same score keep the order of the list.
+	private static final Comparator<Hit> RANK = new Comparator<Hit>() {
+		@Override
+		public int compare(Hit a, Hit b) {
+			int c = Double.compare(b.score, a.score);
+			if (c != 0)
+				return c;
+			return Long.compare(a.entry.number, b.entry.number);
+		}
+	};
+
+	private final Map<String, Set<Entry>> postings = new HashMap<>();
+	private final Map<BugReport, Entry> entries = new IdentityHashMap<>();
+	private long totalLength;	//Number of words of all indexed bug reports.
+
+	/**
+	 * Split a text in words: runs of letters and digits, in lower case.
+	 * @param text The text.
+	 * @return The words of the text, in order.
+	 */
+	public static List<String> tokenize(String text) {
+		List<String> words = new ArrayList<>();
+		if (text == null)
+			return words;
+
+		int start = -1;
+		for (int index = 0; index <= text.length(); index++) {
+			boolean inWord = index < text.length() && Character.isLetterOrDigit(text.charAt(index));
+			if (inWord && start < 0)
+				start = index;
+			else if (!inWord && start >= 0) {
+				words.add(text.substring(start, index).toLowerCase());
+				start = -1;
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * Add a bug report with all its texts and comments, after it got its list number.
+	 * @param report The bug report to add.
+	 */
+	void add(BugReport report) {
+		if (entries.containsKey(report))
+			return;
+
+		Entry entry = new Entry(report);
+		entries.put(report, entry);
+		index(entry, report.getTitle());
+		index(entry, report.getDescription());
+		index(entry, report.getStackTrace());
+		index(entry, report.getErrorMessage());
+		index(entry, report.getReproduction());
+		for (String text : report.getCommentTexts())
+			index(entry, text);
+	}
+
+	/**
+	 * Add the words of a new comment to an indexed bug report.
+	 * Bug reports that are not in the index are indexed with all their comments when they are added.
+	 * @param report The bug report.
+	 * @param text The text of the comment.
+	 */
+	void addText(BugReport report, String text) {
+		Entry entry = entries.get(report);
+		if (entry != null)
+			index(entry, text);
+	}
+
+	private void index(Entry entry, String text) {
+		for (String word : tokenize(text)) {
+			int[] frequency = entry.frequencies.get(word);
+			if (frequency == null) {
+				frequency = new int[1];
+				entry.frequencies.put(word, frequency);
+				Set<Entry> posting = postings.get(word);
+				if (posting == null) {
+					posting = new HashSet<>();
+					postings.put(word, posting);
+				}
+				posting.add(entry);
+			}
+			frequency[0]++;
+			entry.length++;
+			totalLength++;
+		}
+	}
+
+	/**
+	 * Remove a bug report from the index.
+	 * @param report The bug report to remove.
+	 */
+	void remove(BugReport report) {
+		Entry entry = entries.remove(report);
+		if (entry == null)
+			return;
+
+		for (String word : entry.frequencies.keySet()) {
+			Set<Entry> posting = postings.get(word);
+			posting.remove(entry);
+			if (posting.isEmpty())
+				postings.remove(word);
+		}
+		totalLength -= entry.length;
+	}
+
+	/**
+	 * Rank the bug reports by their BM25 score for the words of a query.
+	 * Only the bug reports that contain a word of the query are scored, the k best are kept in a heap.
+	 * @param query The query.
+	 * @param k The maximum number of bug reports.
+	 * @return The k bug reports with the highest score, highest first; bug reports without any of the words are left out.
+	 */
+	public List<IBugReport> search(String query, int k) {
+		if (query == null)
+			throw new IllegalArgumentException("Query should not be null.");
+		if (k < 1)
+			throw new IllegalArgumentException("At least one bug report should be asked for.");
+
+		Map<Entry, double[]> scores = new IdentityHashMap<>();
+		double averageLength = entries.isEmpty() ? 0 : (double) totalLength / entries.size();
+		for (String word : new LinkedHashSet<>(tokenize(query))) {
+			Set<Entry> posting = postings.get(word);
+			if (posting == null)
+				continue;
+
+			double idf = Math.log(1 + (entries.size() - posting.size() + 0.5) / (posting.size() + 0.5));
+			for (Entry entry : posting) {
+				int frequency = entry.frequencies.get(word)[0];
+				double norm = K1 * (1 - B + B * entry.length / averageLength);
+				double[] score = scores.get(entry);
+				if (score == null) {
+					score = new double[1];
+					scores.put(entry, score);
+				}
+				score[0] += idf * frequency * (K1 + 1) / (frequency + norm);
+			}
+		}
+
+		//The head of the heap is the lowest ranking hit kept so far.
+		PriorityQueue<Hit> heap = new PriorityQueue<>(k + 1, Collections.reverseOrder(RANK));
+		for (Map.Entry<Entry, double[]> score : scores.entrySet()) {
+			heap.add(new Hit(score.getKey(), score.getValue()[0]));
+			if (heap.size() > k)
+				heap.poll();
+		}
+		List<Hit> hits = new ArrayList<>(heap);
+		Collections.sort(hits, RANK);
+		List<IBugReport> ranked = new ArrayList<>();
+		for (Hit hit : hits)
+			ranked.add(hit.entry.report);
+		return ranked;
+	}
+
+	/**
+	 *
+	 * @return The number of indexed bug reports.
+	 */
+	public int size() {
+		return entries.size();
+	}
+}
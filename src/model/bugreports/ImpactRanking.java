@@ -0,0 +1,153 @@
+package model.bugreports;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import model.projects.IProject;
+import model.projects.ISubsystem;
+
+/**
+ * Bug reports of the bug report list ranked by impact product, over all projects and per project.
+ * The BugReportManager keeps it up to date when bug reports enter or leave the list and when their tag changes,
+ * so the highest-impact bug reports are read from the front of the ranking instead of sorting all bug reports.
+ * Bug reports with the same impact product keep the order of the list.
+ */
+public class ImpactRanking {
+
+	/**
+	 * A ranked bug report, with the impact product and project it was ranked by.
+	 */
+	private static class Entry {
+		private final BugReport report;
+		private final double impact;
+		private final long listNumber;
+		private final IProject project;
+
+		private Entry(BugReport report) {
+			this.report = report;
+			this.impact = report.getImpactProduct();
+			this.listNumber = report.getListNumber();
+			this.project = report.getProject();
+		}
+	}
+
+	private static final Comparator<Entry> RANK = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry a, Entry b) {
+			int c = Double.compare(b.impact, a.impact);
+			if (c != 0)
+				return c;
+			return Long.compare(a.listNumber, b.listNumber);
+		}
+	};
+
+	private final TreeSet<Entry> all = new TreeSet<>(RANK);
+	private final Map<IProject, TreeSet<Entry>> byProject = new IdentityHashMap<>();
+	private final Map<BugReport, Entry> entries = new IdentityHashMap<>();
+
+	/**
+	 * Rank a bug report, after it got its list number.
+	 * @param report The bug report.
+	 */
+	void add(BugReport report) {
+		if (entries.containsKey(report))
+			return;
+
+		Entry entry = new Entry(report);
+		entries.put(report, entry);
+		all.add(entry);
+		TreeSet<Entry> ranking = byProject.get(entry.project);
+		if (ranking == null) {
+			ranking = new TreeSet<>(RANK);
+			byProject.put(entry.project, ranking);
+		}
+		ranking.add(entry);
+	}
+
+	/**
+	 * Remove a bug report from the ranking.
+	 * @param report The bug report.
+	 */
+	void remove(BugReport report) {
+		Entry entry = entries.remove(report);
+		if (entry == null)
+			return;
+
+		all.remove(entry);
+		TreeSet<Entry> ranking = byProject.get(entry.project);
+		ranking.remove(entry);
+		if (ranking.isEmpty())
+			byProject.remove(entry.project);
+	}
+
+	/**
+	 * Rank a bug report again after its impact product changed.
+	 * @param report The bug report.
+	 */
+	void update(BugReport report) {
+		if (!entries.containsKey(report))
+			return;
+
+		remove(report);
+		add(report);
+	}
+
+	/**
+	 *
+	 * @param k The maximum number of bug reports.
+	 * @return The k bug reports with the highest impact product, highest first.
+	 */
+	public List<IBugReport> getTop(int k) {
+		return top(all, k);
+	}
+
+	/**
+	 * Bug reports are ranked under the project of their subsystem.
+	 * A fork shares the subsystems of the project it was forked from, so it gets the ranking of that project.
+	 * @param project A project.
+	 * @param k The maximum number of bug reports.
+	 * @return The k bug reports of the project with the highest impact product, highest first.
+	 */
+	public List<IBugReport> getTop(IProject project, int k) {
+		Map<IProject, Boolean> owners = new IdentityHashMap<>();
+		for (ISubsystem subsystem : project.getSubsystems())
+			owners.put(subsystem.getProject(), Boolean.TRUE);
+
+		List<Entry> candidates = new ArrayList<>();
+		for (IProject owner : owners.keySet()) {
+			TreeSet<Entry> ranking = byProject.get(owner);
+			if (ranking == null)
+				continue;
+			Iterator<Entry> iterator = ranking.iterator();
+			for (int i = 0; i < k && iterator.hasNext(); i++)
+				candidates.add(iterator.next());
+		}
+		Collections.sort(candidates, RANK);
+		List<IBugReport> top = new ArrayList<>();
+		for (int i = 0; i < k && i < candidates.size(); i++)
+			top.add(candidates.get(i).report);
+		return top;
+	}
+
+	private static List<IBugReport> top(TreeSet<Entry> ranking, int k) {
+		List<IBugReport> top = new ArrayList<>();
+		Iterator<Entry> iterator = ranking.iterator();
+		for (int i = 0; i < k && iterator.hasNext(); i++)
+			top.add(iterator.next().report);
+		return top;
+	}
+
+	/**
+	 *
+	 * @return The number of ranked bug reports.
+	 */
+	public int size() {
+		return entries.size();
+	}
+}
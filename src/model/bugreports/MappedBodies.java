@@ -0,0 +1,274 @@
+package model.bugreports;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import model.bugreports.comments.Comment;
+
+/**
+ * Bodies of bug reports kept in a memory-mapped file instead of on the heap.
+ * A mapped BugReport decodes its texts from the file each time they are asked for.
+ * Its comments, tests and patches are decoded and kept once they are asked for or changed.
+ *
+ * The file is mapped in regions of 1 GiB, a body never crosses the border of a region.
+ */
+public class MappedBodies {
+
+	// Texts of a body, in the order they are written.
+	static final int DESCRIPTION = 0;
+	static final int STACK_TRACE = 1;
+	static final int ERROR_MESSAGE = 2;
+	static final int REPRODUCTION = 3;
+
+	private static final int REGION_BITS = 30;
+	private static final int REGION_SIZE = 1 << REGION_BITS;
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	private final File file;
+	private final ByteBuffer[] regions;
+
+	private MappedBodies(File file, long size) throws IOException {
+		this.file = file;
+		this.regions = new ByteBuffer[(int) ((size + REGION_SIZE - 1) >>> REGION_BITS)];
+		try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+			FileChannel channel = in.getChannel();
+			for (int i = 0; i < regions.length; i++) {
+				long start = (long) i << REGION_BITS;
+				regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(REGION_SIZE, size - start));
+			}
+		}
+	}
+
+	/**
+	 * Write the bodies of the given bug reports to the given file and map it.
+	 * The bug reports drop their bodies from the heap and read them from the file from then on.
+	 * The bodies are written to a temporary file next to it that then replaces the file,
+	 * so the file may be the one the bodies are mapped from now.
+	 * @param file The file to write to, its contents are replaced.
+	 * @param bugReports The bug reports to map.
+	 * @return The mapped bodies.
+	 * @throws IOException if the file can not be written or mapped.
+	 */
+	public static MappedBodies map(File file, List<BugReport> bugReports) throws IOException {
+		File temporary = new File(file.getAbsoluteFile().getParentFile(), file.getName() + TEMPORARY_SUFFIX);
+		long[] offsets = new long[bugReports.size()];
+		long position;
+		try {
+			position = write(temporary, bugReports, offsets);
+			Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			temporary.delete();
+		}
+
+		MappedBodies bodies = new MappedBodies(file, position);
+		for (int i = 0; i < offsets.length; i++)
+			bugReports.get(i).mapBody(bodies, offsets[i]);
+		return bodies;
+	}
+
+	// Writes the bodies to the file and fills in their offsets, returns the size of the file.
+	private static long write(File file, List<BugReport> bugReports, long[] offsets) throws IOException {
+		long position = 0;
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			ByteArrayOutputStream body = new ByteArrayOutputStream();
+			DataOutputStream bodyOut = new DataOutputStream(body);
+			for (int i = 0; i < offsets.length; i++) {
+				body.reset();
+				bugReports.get(i).writeBody(bodyOut);
+				int length = 4 + body.size();
+				if (length > REGION_SIZE) throw new IOException("The body of a bug report is too large to map.");
+
+				long room = REGION_SIZE - (position & (REGION_SIZE - 1));
+				if (length > room) {
+					out.write(new byte[(int) room]);
+					position += room;
+				}
+				offsets[i] = position;
+				out.writeInt(body.size());
+				body.writeTo(out);
+				position += length;
+			}
+		}
+		return position;
+	}
+
+	/**
+	 *
+	 * @return The file the bodies are mapped from.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	static void write(BugReportBody body, DataOutputStream out) throws IOException {
+		writeString(body.getDescription(), out);
+		writeString(body.getStackTrace(), out);
+		writeString(body.getErrorMessage(), out);
+		writeString(body.getReproduction(), out);
+		writeComments(body.getComments(), out);
+
+		List<ITest> tests = body.getTestSection().getTests();
+		out.writeInt(tests.size());
+		for (ITest test : tests) {
+			writeString(test.getTest(), out);
+			out.writeBoolean(test.isAccepted());
+		}
+
+		PatchSection patchSection = body.getPatchSection();
+		List<IPatch> patches = patchSection.getPatches();
+		out.writeInt(patches.size());
+		for (IPatch patch : patches)
+			writeString(patch.getPatch(), out);
+		out.writeInt(patchSection.hasAcceptedPatch() ? patches.indexOf(patchSection.getAcceptedPatch()) : -1);
+		out.writeInt(patchSection.hasSatisfaction() ? patchSection.getSatisfaction() : -1);
+	}
+
+	private static void writeComments(List<Comment> comments, DataOutputStream out) throws IOException {
+		out.writeInt(comments.size());
+		for (Comment comment : comments) {
+			writeString(comment.getText(), out);
+			out.writeLong(comment.getCreationDate().getTime());
+			writeComments(comment.getComments(), out);
+		}
+	}
+
+	private static void writeString(String string, DataOutputStream out) throws IOException {
+		if (string == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	// Copy a mapped body as it is, e.g. when the bodies are mapped to a new file.
+	void copy(long offset, DataOutputStream out) throws IOException {
+		ByteBuffer body = body(offset);
+		byte[] bytes = new byte[body.remaining()];
+		body.get(bytes);
+		out.write(bytes);
+	}
+
+	/**
+	 * Decode one of the texts of a mapped body.
+	 * @param offset The offset of the body.
+	 * @param text DESCRIPTION, STACK_TRACE, ERROR_MESSAGE or REPRODUCTION.
+	 * @return The decoded text.
+	 */
+	String readText(long offset, int text) {
+		ByteBuffer body = body(offset);
+		for (int i = 0; i < text; i++) {
+			int length = body.getInt();
+			if (length > 0)
+				body.position(body.position() + length);
+		}
+		return readString(body);
+	}
+
+	/**
+	 * Decode the texts of the comments of a mapped body, replies included, without building the comments.
+	 * @param offset The offset of the body.
+	 * @return The texts of the comments, each comment before its replies.
+	 */
+	List<String> readCommentTexts(long offset) {
+		ByteBuffer body = body(offset);
+		for (int i = 0; i < REPRODUCTION + 1; i++) {
+			int length = body.getInt();
+			if (length > 0)
+				body.position(body.position() + length);
+		}
+		List<String> texts = new ArrayList<>();
+		readCommentTexts(body, texts);
+		return texts;
+	}
+
+	private static void readCommentTexts(ByteBuffer body, List<String> texts) {
+		int count = body.getInt();
+		for (int i = 0; i < count; i++) {
+			texts.add(readString(body));
+			body.getLong();
+			readCommentTexts(body, texts);
+		}
+	}
+
+	/**
+	 * Decode a mapped body completely.
+	 * @param offset The offset of the body.
+	 * @param bugReport The bug report the body belongs to.
+	 * @return The decoded body.
+	 */
+	BugReportBody read(long offset, BugReport bugReport) {
+		ByteBuffer body = body(offset);
+		String description = readString(body);
+		String stackTrace = readString(body);
+		String errorMessage = readString(body);
+		String reproduction = readString(body);
+		List<Comment> comments = readComments(body, bugReport);
+
+		TestSection testSection = new TestSection();
+		int tests = body.getInt();
+		for (int i = 0; i < tests; i++) {
+			testSection.addTest(readString(body));
+			if (body.get() != 0)
+				testSection.acceptTest(testSection.getTests().get(i));
+		}
+
+		PatchSection patchSection = new PatchSection();
+		int patches = body.getInt();
+		for (int i = 0; i < patches; i++)
+			patchSection.addPatch(readString(body));
+		int accepted = body.getInt();
+		int satisfaction = body.getInt();
+		if (accepted >= 0) {
+			patchSection.acceptPatch(patchSection.getPatches().get(accepted));
+			if (satisfaction > 0)
+				patchSection.updateSatisfaction(satisfaction);
+		}
+
+		return new BugReportBody(description, stackTrace, errorMessage, reproduction, comments, testSection, patchSection);
+	}
+
+	private static List<Comment> readComments(ByteBuffer body, BugReport bugReport) {
+		int count = body.getInt();
+		List<Comment> comments = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			String text = readString(body);
+			Date creationDate = new Date(body.getLong());
+			comments.add(new Comment(bugReport, text, creationDate, readComments(body, bugReport)));
+		}
+		return comments;
+	}
+
+	private static String readString(ByteBuffer body) {
+		int length = body.getInt();
+		if (length < 0)
+			return null;
+		byte[] bytes = new byte[length];
+		body.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	// A view on the body at the given offset, with its own position.
+	private ByteBuffer body(long offset) {
+		ByteBuffer region = regions[(int) (offset >>> REGION_BITS)].duplicate();
+		int start = (int) (offset & (REGION_SIZE - 1));
+		int length = region.getInt(start);
+		region.position(start + 4);
+		region.limit(start + 4 + length);
+		return region.slice();
+	}
+}
@@ -0,0 +1,277 @@
+package model.bugreports;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Locality sensitive hashing index over the titles and descriptions of bug reports, to find near duplicates
+ * without comparing a new bug report to every bug report in the list.
+ * A text is cut in shingles of two words; its MinHash signature estimates the Jaccard similarity of the shingles of two texts.
+ * The signature is split in bands, bug reports that agree on all rows of a band share a bucket and are candidates.
+ * With 40 bands of 3 rows a pair with similarity 0.5 becomes a candidate with a chance of 99.5%, with similarity 0.3 of 67%.
+ * The BugReportManager keeps it over the bug reports in its bug report list.
+ * Signatures and buckets are only computed at the first lookup, so loading a large state does not pay for them.
+ */
+public class NearDuplicateIndex {
+
+	/**
+	 * The similarity above which bug reports are near duplicates, when no other threshold is given.
+	 */
+	public static final double DEFAULT_THRESHOLD = 0.5;
+
+	private static final int BANDS = 40;
+	private static final int ROWS = 3;
+	private static final int HASHES = BANDS * ROWS;
+
+	//Seeds of the hash functions, the same for every index so signatures can be compared.
+	private static final long[] SEEDS = new long[HASHES];
+	static {
+		Random random = new Random(0x5eedL);
+		for (int i = 0; i < HASHES; i++)
+			SEEDS[i] = random.nextLong();
+	}
+
+	/**
+	 * An indexed bug report with its signature, null until the buckets are built or if the bug report has no words.
+	 * Removing uses the signature kept here, the texts of the bug report may have changed by then.
+	 * The entries of a bucket are chained, every entry keeps the next entry of its bucket in every band.
+	 */
+	private static class Entry {
+		private final BugReport report;
+		private final long number;
+		private int[] signature;
+		private Entry[] next;
+
+		private Entry(BugReport report) {
+			this.report = report;
+			this.number = report.getListNumber();
+		}
+	}
+
+	/**
+	 * A candidate with its estimated similarity.
+	 */
+	private static class Hit {
+		private final Entry entry;
+		private final double similarity;
+
+		private Hit(Entry entry, double similarity) {
+			this.entry = entry;
+			this.similarity = similarity;
+		}
+	}
+
+	//Most similar first, bug reports that are as similar keep the order of the list.
+	private static final Comparator<Hit> RANK = new Comparator<Hit>() {
+		@Override
+		public int compare(Hit a, Hit b) {
+			int c = Double.compare(b.similarity, a.similarity);
+			if (c != 0)
+				return c;
+			return Long.compare(a.entry.number, b.entry.number);
+		}
+	};
+
+	private List<Map<Long, Entry>> buckets;	//For every band, the first entry of every bucket by the hash of its rows; null until the first lookup.
+	private final Map<BugReport, Entry> entries = new IdentityHashMap<>();
+
+	/**
+	 * Cut the title and description of a bug report in shingles: hashes of every two consecutive words, without regard to case.
+	 * A text of one word is a single shingle.
+	 * @param title The title.
+	 * @param description The description.
+	 * @return The shingles, empty if there are no words.
+	 */
+	public static Set<Long> shingles(String title, String description) {
+		List<String> words = FullTextIndex.tokenize(title);
+		words.addAll(FullTextIndex.tokenize(description));
+
+		Set<Long> shingles = new HashSet<>();
+		if (words.size() == 1)
+			shingles.add(hash(words.get(0)));
+		for (int i = 1; i < words.size(); i++)
+			shingles.add(hash(words.get(i - 1) + " " + words.get(i)));
+		return shingles;
+	}
+
+	/**
+	 * The exact Jaccard similarity of two sets of shingles: the size of their intersection over the size of their union.
+	 * @param a The first set of shingles.
+	 * @param b The second set of shingles.
+	 * @return The similarity, between 0 and 1; 0 if both sets are empty.
+	 */
+	public static double jaccard(Set<Long> a, Set<Long> b) {
+		if (a.isEmpty() && b.isEmpty())
+			return 0;
+
+		int common = 0;
+		for (Long shingle : a)
+			if (b.contains(shingle))
+				common++;
+		return (double) common / (a.size() + b.size() - common);
+	}
+
+	// 64 bit FNV-1a.
+	private static long hash(String shingle) {
+		long hash = 0xcbf29ce484222325L;
+		for (int index = 0; index < shingle.length(); index++) {
+			hash ^= shingle.charAt(index);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	// Final mix of SplitMix64, spreads the bits of a shingle xor a seed into an independent looking hash.
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	// The MinHash signature of a set of shingles, null if it is empty.
+	private static int[] signature(Set<Long> shingles) {
+		if (shingles.isEmpty())
+			return null;
+
+		long[] minimum = new long[HASHES];
+		for (int i = 0; i < HASHES; i++)
+			minimum[i] = Long.MAX_VALUE;
+		for (Long shingle : shingles) {
+			for (int i = 0; i < HASHES; i++) {
+				long hash = mix(shingle ^ SEEDS[i]);
+				if (hash < minimum[i])
+					minimum[i] = hash;
+			}
+		}
+		int[] signature = new int[HASHES];
+		for (int i = 0; i < HASHES; i++)
+			signature[i] = (int) (minimum[i] ^ (minimum[i] >>> 32));
+		return signature;
+	}
+
+	private static long bandKey(int[] signature, int band) {
+		long key = band;
+		for (int row = band * ROWS; row < (band + 1) * ROWS; row++)
+			key = key * 0x100000001b3L + signature[row];
+		return key;
+	}
+
+	private static double estimate(int[] a, int[] b) {
+		int equal = 0;
+		for (int i = 0; i < HASHES; i++)
+			if (a[i] == b[i])
+				equal++;
+		return (double) equal / HASHES;
+	}
+
+	/**
+	 * Add a bug report, after it got its list number.
+	 * @param report The bug report to add.
+	 */
+	void add(BugReport report) {
+		if (entries.containsKey(report))
+			return;
+
+		Entry entry = new Entry(report);
+		entries.put(report, entry);
+		if (buckets != null)
+			hash(entry);
+	}
+
+	// Computes the signature of an entry and puts it in front of its buckets.
+	private void hash(Entry entry) {
+		entry.signature = signature(shingles(entry.report.getTitle(), entry.report.getDescription()));
+		if (entry.signature == null)
+			return;
+
+		entry.next = new Entry[BANDS];
+		for (int band = 0; band < BANDS; band++)
+			entry.next[band] = buckets.get(band).put(bandKey(entry.signature, band), entry);
+	}
+
+	private void build() {
+		buckets = new ArrayList<>();
+		for (int band = 0; band < BANDS; band++)
+			buckets.add(new HashMap<Long, Entry>());
+		for (Entry entry : entries.values())
+			hash(entry);
+	}
+
+	/**
+	 * Remove a bug report from the index.
+	 * @param report The bug report to remove.
+	 */
+	void remove(BugReport report) {
+		Entry entry = entries.remove(report);
+		if (entry == null || entry.signature == null)
+			return;
+
+		for (int band = 0; band < BANDS; band++) {
+			long key = bandKey(entry.signature, band);
+			Entry first = buckets.get(band).get(key);
+			if (first == entry) {
+				if (entry.next[band] == null)
+					buckets.get(band).remove(key);
+				else
+					buckets.get(band).put(key, entry.next[band]);
+				continue;
+			}
+			Entry previous = first;
+			while (previous.next[band] != entry)
+				previous = previous.next[band];
+			previous.next[band] = entry.next[band];
+		}
+	}
+
+	/**
+	 * Find the bug reports whose title and description are near duplicates of the given ones.
+	 * Only the bug reports that share a bucket with the given text are compared, by the estimate of their signatures;
+	 * with a threshold below 0.3 near duplicates are more and more likely to be missed.
+	 * @param title The title.
+	 * @param description The description.
+	 * @param threshold The minimum estimated similarity, between 0 and 1.
+	 * @return The near duplicates, most similar first.
+	 */
+	public List<IBugReport> getNearDuplicates(String title, String description, double threshold) {
+		if (threshold < 0 || threshold > 1)
+			throw new IllegalArgumentException("The threshold should be between 0 and 1.");
+
+		List<IBugReport> found = new ArrayList<>();
+		int[] signature = signature(shingles(title, description));
+		if (signature == null)
+			return found;
+
+		if (buckets == null)
+			build();
+		Set<Entry> candidates = Collections.newSetFromMap(new IdentityHashMap<Entry, Boolean>());
+		for (int band = 0; band < BANDS; band++)
+			for (Entry entry = buckets.get(band).get(bandKey(signature, band)); entry != null; entry = entry.next[band])
+				candidates.add(entry);
+		List<Hit> hits = new ArrayList<>();
+		for (Entry candidate : candidates) {
+			double similarity = estimate(signature, candidate.signature);
+			if (similarity >= threshold)
+				hits.add(new Hit(candidate, similarity));
+		}
+		Collections.sort(hits, RANK);
+		for (Hit hit : hits)
+			found.add(hit.entry.report);
+		return found;
+	}
+
+	/**
+	 *
+	 * @return The number of indexed bug reports, with or without words.
+	 */
+	public int size() {
+		return entries.size();
+	}
+}
@@ -3,8 +3,6 @@ package model.bugreports;
 import java.util.ArrayList;
 import java.util.List;
 
-import controllers.exceptions.UnauthorizedAccessException;
-
 public class PatchSection {
 	
 	private Patch acceptedPatch;
@@ -16,7 +14,7 @@ public class PatchSection {
 		this.patches = new ArrayList<Patch>();
 	}
 	
-	public void acceptPatch(IPatch patch) throws UnauthorizedAccessException {
+	public void acceptPatch(IPatch patch) {
 		if (patch == null) throw new IllegalArgumentException("Patch is null");
 		if (!contains(patch)) throw new IllegalArgumentException("Patch not found.");
 			
@@ -44,6 +42,10 @@ public class PatchSection {
 		
 		return acceptedPatch;
 	}
+
+	public boolean hasAcceptedPatch() {
+		return acceptedPatch != null;
+	}
 	
 	public void updateSatisfaction(int satisfaction) {
 		if (acceptedPatch == null) throw new IllegalArgumentException("No Patch yet accepted");
@@ -57,6 +59,10 @@ public class PatchSection {
 		
 		return satisfaction;
 	}
+
+	public boolean hasSatisfaction() {
+		return satisfaction != -1;
+	}
 	
 	public List<IPatch> getPatches() {
 		List<IPatch> returnPatches = new ArrayList<>();
@@ -0,0 +1,239 @@
+package model.bugreports;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import model.bugreports.filters.BugReportFilter;
+import model.bugreports.filters.FilterType;
+import model.notifications.Signalisation;
+import model.notifications.observers.Observer;
+
+/**
+ * Cache of the results of getOrderedList, by the set of filters: the order of the filters and duplicate filters do not matter.
+ * The least recently used results are evicted when there are more results than the maximum,
+ * or when they hold more bug reports together than the maximum.
+ *
+ * A result is only invalidated when a change can alter it. Every Signalisation of a project passes the cache:
+ * when a bug report is created, changed or commented on, the results it enters or leaves are dropped, the others are kept.
+ * The BugReportManager tells the cache about bug reports that are archived, restored or terminated,
+ * and the subsystems about changes of their tree or names, which drop the results with a subsystem filter.
+ */
+public class QueryResultCache implements Observer {
+
+	/**
+	 * A cached result with the filters it was computed for.
+	 */
+	private static class Entry {
+		private final FilterType[] types;
+		private final String[] arguments;
+		private final List<IBugReport> result;
+		private final Map<IBugReport, Boolean> members = new IdentityHashMap<>();
+		private final boolean bySubsystem;
+
+		private Entry(FilterType[] types, String[] arguments, List<IBugReport> result) {
+			this.types = types;
+			this.arguments = arguments;
+			this.result = result;
+			boolean bySubsystem = false;
+			for (FilterType type : types)
+				bySubsystem |= type == FilterType.IN_SUBSYSTEM;
+			this.bySubsystem = bySubsystem;
+			for (IBugReport bugReport : result)
+				members.put(bugReport, Boolean.TRUE);
+		}
+
+		private boolean matches(IBugReport bugReport) {
+			for (int index = 0; index < types.length; index++)
+				if (!BugReportFilter.matches(types[index], arguments[index], bugReport))
+					return false;
+			return true;
+		}
+	}
+
+	private final BugReportManager bugReportManager;
+	private final int maxResults;
+	private final int maxBugReports;
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);	//In order of use, least recent first.
+	private long cachedBugReports;	//Number of bug reports in all cached results.
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long invalidations;
+
+	/**
+	 * Constructor.
+	 * @param bugReportManager The manager whose results are cached.
+	 * @param maxResults The maximum number of cached results.
+	 * @param maxBugReports The maximum number of bug reports in all cached results together.
+	 */
+	public QueryResultCache(BugReportManager bugReportManager, int maxResults, int maxBugReports) {
+		if (maxResults < 0 || maxBugReports < 0)
+			throw new IllegalArgumentException("The size of the cache can not be negative.");
+
+		this.bugReportManager = bugReportManager;
+		this.maxResults = maxResults;
+		this.maxBugReports = maxBugReports;
+	}
+
+	// The filters sorted by type and argument, without duplicates, as one string.
+	private static String key(FilterType[] types, String[] arguments) {
+		List<String> filters = new ArrayList<>();
+		for (int index = 0; index < types.length; index++) {
+			String filter = types[index].name() + '\u0000' + arguments[index];
+			if (!filters.contains(filter))
+				filters.add(filter);
+		}
+		Collections.sort(filters);
+		StringBuilder key = new StringBuilder();
+		for (String filter : filters)
+			key.append(filter).append('\u0001');
+		return key.toString();
+	}
+
+	/**
+	 * Look up the result of a set of filters.
+	 * @param types Filter Types.
+	 * @param arguments Filter arguments.
+	 * @return A copy of the cached result, null if it is not cached.
+	 */
+	public List<IBugReport> get(FilterType[] types, String[] arguments) {
+		Entry entry = entries.get(key(types, arguments));
+		if (entry == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return new ArrayList<>(entry.result);
+	}
+
+	/**
+	 * Cache the result of a set of filters, evicting the least recently used results if the cache is full.
+	 * @param types Filter Types.
+	 * @param arguments Filter arguments.
+	 * @param result The bug reports that pass the filters, in the order of the list.
+	 */
+	public void put(FilterType[] types, String[] arguments, List<IBugReport> result) {
+		if (result.size() > maxBugReports || maxResults == 0)
+			return;
+
+		Entry old = entries.put(key(types, arguments), new Entry(Arrays.copyOf(types, types.length), Arrays.copyOf(arguments, arguments.length), new ArrayList<>(result)));
+		if (old != null)
+			cachedBugReports -= old.result.size();
+		cachedBugReports += result.size();
+
+		Iterator<Entry> leastRecent = entries.values().iterator();
+		while (entries.size() > maxResults || cachedBugReports > maxBugReports) {
+			cachedBugReports -= leastRecent.next().result.size();
+			leastRecent.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * Drop the results that the given bug report enters or leaves.
+	 * Creating, changing and commenting on a bug report is signalled, commenting may restore an archived bug report.
+	 * @param signalisation The signalled change.
+	 */
+	@Override
+	public void signal(Signalisation signalisation) {
+		if (signalisation.getBugReport() != null)
+			bugReportChanged(signalisation.getBugReport());
+	}
+
+	/**
+	 * Drop the results that the given bug report enters or leaves, after it was created, added, changed, archived or restored.
+	 * @param bugReport The bug report.
+	 */
+	void bugReportChanged(IBugReport bugReport) {
+		boolean inList = bugReport.getSubsystem() != null && !bugReportManager.isArchived(bugReport);
+		for (Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext();) {
+			Entry entry = iterator.next();
+			if (entry.members.containsKey(bugReport) != (inList && entry.matches(bugReport)))
+				invalidate(iterator, entry);
+		}
+	}
+
+	/**
+	 * Drop the results that hold the given bug report, before it is terminated.
+	 * @param bugReport The bug report.
+	 */
+	void bugReportRemoved(IBugReport bugReport) {
+		for (Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext();) {
+			Entry entry = iterator.next();
+			if (entry.members.containsKey(bugReport))
+				invalidate(iterator, entry);
+		}
+	}
+
+	/**
+	 * Drop the results with a subsystem filter, after subsystems were added, split, merged, renamed or terminated.
+	 */
+	public void subsystemsChanged() {
+		for (Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext();) {
+			Entry entry = iterator.next();
+			if (entry.bySubsystem)
+				invalidate(iterator, entry);
+		}
+	}
+
+	private void invalidate(Iterator<Entry> iterator, Entry entry) {
+		iterator.remove();
+		cachedBugReports -= entry.result.size();
+		invalidations++;
+	}
+
+	/**
+	 * Drop all cached results.
+	 */
+	public void clear() {
+		invalidations += entries.size();
+		entries.clear();
+		cachedBugReports = 0;
+	}
+
+	/**
+	 *
+	 * @return The number of lookups that found a cached result.
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 *
+	 * @return The number of lookups that found no cached result.
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 *
+	 * @return The number of results that were evicted to make room.
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 *
+	 * @return The number of results that were dropped because of a change.
+	 */
+	public long getInvalidations() {
+		return invalidations;
+	}
+
+	/**
+	 *
+	 * @return The number of cached results.
+	 */
+	public int size() {
+		return entries.size();
+	}
+}
@@ -0,0 +1,190 @@
+package model.bugreports;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Sorted index from a key of the bug reports, like their target milestone or creation date, to the bug reports.
+ * The BugReportManager keeps it over the bug reports in its bug report list,
+ * a range of keys is found in logarithmic time and its postings are merged in the order of the list as they are walked.
+ * Bug reports without a key are not indexed.
+ * @param <K> The type of the keys.
+ */
+public class RangeIndex<K extends Comparable<? super K>> {
+
+	/**
+	 * The key and list number an indexed bug report is posted under.
+	 */
+	private static class Entry<K> {
+		private final K key;
+		private final long number;
+
+		private Entry(K key, long number) {
+			this.key = key;
+			this.number = number;
+		}
+	}
+
+	/**
+	 * The next bug report of the posting of one key, with the rest of that posting.
+	 */
+	private static class Head {
+		private Map.Entry<Long, BugReport> next;
+		private final Iterator<Map.Entry<Long, BugReport>> rest;
+
+		private Head(Iterator<Map.Entry<Long, BugReport>> rest) {
+			this.next = rest.next();
+			this.rest = rest;
+		}
+	}
+
+	private static final Comparator<Head> LIST_ORDER = new Comparator<Head>() {
+		@Override
+		public int compare(Head a, Head b) {
+			return Long.compare(a.next.getKey(), b.next.getKey());
+		}
+	};
+
+	/**
+	 * Walks the postings of a range of keys in the order of the list, with a heap of the next bug report of every posting.
+	 * Each bug report costs a logarithmic step when it is walked, a page does not sort the whole range.
+	 */
+	private static class Merge<K> implements Iterator<IBugReport> {
+		private final PriorityQueue<Head> heap;
+
+		private Merge(NavigableMap<K, TreeMap<Long, BugReport>> range, long after) {
+			heap = new PriorityQueue<>(Math.max(1, range.size()), LIST_ORDER);
+			for (TreeMap<Long, BugReport> posting : range.values()) {
+				Iterator<Map.Entry<Long, BugReport>> rest = posting.tailMap(after, false).entrySet().iterator();
+				if (rest.hasNext())
+					heap.add(new Head(rest));
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !heap.isEmpty();
+		}
+
+		@Override
+		public IBugReport next() {
+			Head head = heap.poll();
+			if (head == null)
+				throw new NoSuchElementException();
+			BugReport report = head.next.getValue();
+			if (head.rest.hasNext()) {
+				head.next = head.rest.next();
+				heap.add(head);
+			}
+			return report;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private final TreeMap<K, TreeMap<Long, BugReport>> postings = new TreeMap<>();
+	private final Map<BugReport, Entry<K>> entries = new IdentityHashMap<>();
+
+	/**
+	 * Add a bug report under the given key, after it got its list number.
+	 * @param report The bug report to add.
+	 * @param key The key of the bug report, null to leave it out of the index.
+	 */
+	void add(BugReport report, K key) {
+		if (key == null || entries.containsKey(report))
+			return;
+
+		Entry<K> entry = new Entry<>(key, report.getListNumber());
+		entries.put(report, entry);
+		TreeMap<Long, BugReport> posting = postings.get(key);
+		if (posting == null) {
+			posting = new TreeMap<>();
+			postings.put(key, posting);
+		}
+		posting.put(entry.number, report);
+	}
+
+	/**
+	 * Remove a bug report from the index.
+	 * @param report The bug report to remove.
+	 */
+	void remove(BugReport report) {
+		Entry<K> entry = entries.remove(report);
+		if (entry == null)
+			return;
+
+		TreeMap<Long, BugReport> posting = postings.get(entry.key);
+		posting.remove(entry.number);
+		if (posting.isEmpty())
+			postings.remove(entry.key);
+	}
+
+	// The postings of the keys between the bounds, both included, a null bound is open.
+	private NavigableMap<K, TreeMap<Long, BugReport>> range(K from, K to) {
+		if (from != null && to != null && from.compareTo(to) > 0)
+			return new TreeMap<>();
+		NavigableMap<K, TreeMap<Long, BugReport>> range = postings;
+		if (from != null)
+			range = range.tailMap(from, true);
+		if (to != null)
+			range = range.headMap(to, true);
+		return range;
+	}
+
+	/**
+	 *
+	 * @param from The lowest key, null for no lower bound.
+	 * @param to The highest key, null for no upper bound.
+	 * @return The bug reports with a key between the bounds, both included, in the order of the list.
+	 */
+	public List<IBugReport> getBetween(K from, K to) {
+		List<IBugReport> found = new ArrayList<>(countBetween(from, to));
+		Iterator<IBugReport> merge = iterateBetween(from, to, Long.MIN_VALUE);
+		while (merge.hasNext())
+			found.add(merge.next());
+		return found;
+	}
+
+	/**
+	 *
+	 * @param from The lowest key, null for no lower bound.
+	 * @param to The highest key, null for no upper bound.
+	 * @param after A list number.
+	 * @return The bug reports with a key between the bounds and a higher list number, in the order of the list.
+	 */
+	public Iterator<IBugReport> iterateBetween(K from, K to, long after) {
+		return new Merge<>(range(from, to), after);
+	}
+
+	/**
+	 *
+	 * @param from The lowest key, null for no lower bound.
+	 * @param to The highest key, null for no upper bound.
+	 * @return The number of bug reports with a key between the bounds, both included.
+	 */
+	public int countBetween(K from, K to) {
+		int count = 0;
+		for (TreeMap<Long, BugReport> posting : range(from, to).values())
+			count += posting.size();
+		return count;
+	}
+
+	/**
+	 *
+	 * @return The number of indexed bug reports.
+	 */
+	public int size() {
+		return entries.size();
+	}
+}
@@ -0,0 +1,176 @@
+package model.bugreports;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import model.bugreports.bugtag.BugTag;
+
+/**
+ * Bitmaps from every BugTag to the bug reports with that tag.
+ * The BugReportManager keeps it over the bug reports in its bug report list and updates it when a tag changes.
+ * Bug reports get dense ids in the order of the list, so a bitmap is a bit per bug report and walks in list order.
+ * Ids of removed bug reports are only reused once more than half of the ids are removed, then all ids are handed out again.
+ */
+public class TagIndex {
+
+	private final Map<BugTag, BitSet> bitmaps = new EnumMap<>(BugTag.class);
+	private final int[] counts = new int[BugTag.values().length];
+	private final Map<BugReport, Integer> ids = new IdentityHashMap<>();
+	private BugReport[] reports = new BugReport[16];	//Bug reports by id, null once removed.
+	private BugTag[] tags = new BugTag[16];				//Tags the bug reports are indexed under, by id.
+	private long[] numbers = new long[16];				//List numbers of the bug reports by id, kept once removed.
+	private int end;	//Next free id.
+
+	/**
+	 * Constructor.
+	 */
+	public TagIndex() {
+		for (BugTag tag : BugTag.values())
+			bitmaps.put(tag, new BitSet());
+	}
+
+	/**
+	 * Add a bug report after the bug reports already in the index, after it got its list number.
+	 * @param report The bug report to add.
+	 */
+	void add(BugReport report) {
+		if (ids.containsKey(report))
+			return;
+
+		if (end == reports.length) {
+			reports = Arrays.copyOf(reports, end * 2);
+			tags = Arrays.copyOf(tags, end * 2);
+			numbers = Arrays.copyOf(numbers, end * 2);
+		}
+		int id = end++;
+		ids.put(report, id);
+		reports[id] = report;
+		numbers[id] = report.getListNumber();
+		tags[id] = report.getBugTag();
+		bitmaps.get(tags[id]).set(id);
+		counts[tags[id].ordinal()]++;
+	}
+
+	/**
+	 * Move a bug report to the bitmap of its new tag.
+	 * @param report The bug report.
+	 */
+	void update(BugReport report) {
+		Integer id = ids.get(report);
+		if (id == null || tags[id] == report.getBugTag())
+			return;
+
+		bitmaps.get(tags[id]).clear(id);
+		counts[tags[id].ordinal()]--;
+		tags[id] = report.getBugTag();
+		bitmaps.get(tags[id]).set(id);
+		counts[tags[id].ordinal()]++;
+	}
+
+	/**
+	 * Remove a bug report from the index.
+	 * @param report The bug report to remove.
+	 */
+	void remove(BugReport report) {
+		Integer id = ids.remove(report);
+		if (id == null)
+			return;
+
+		bitmaps.get(tags[id]).clear(id);
+		counts[tags[id].ordinal()]--;
+		reports[id] = null;
+		tags[id] = null;
+		if (ids.size() < end / 2)
+			renumber();
+	}
+
+	private void renumber() {
+		List<BugReport> live = new ArrayList<>();
+		for (int id = 0; id < end; id++)
+			if (reports[id] != null)
+				live.add(reports[id]);
+
+		for (BitSet bitmap : bitmaps.values())
+			bitmap.clear();
+		Arrays.fill(counts, 0);
+		ids.clear();
+		int size = Math.max(16, live.size());
+		reports = new BugReport[size];
+		tags = new BugTag[size];
+		numbers = new long[size];
+		end = 0;
+		for (BugReport report : live)
+			add(report);
+	}
+
+	/**
+	 *
+	 * @param tag A BugTag.
+	 * @return The number of bug reports with the tag.
+	 */
+	public int count(BugTag tag) {
+		return counts[tag.ordinal()];
+	}
+
+	/**
+	 *
+	 * @param tag A BugTag.
+	 * @return The bug reports with the tag, in the order of the list.
+	 */
+	public List<IBugReport> getBugReports(BugTag tag) {
+		List<IBugReport> found = new ArrayList<>(count(tag));
+		BitSet bitmap = bitmaps.get(tag);
+		for (int id = bitmap.nextSetBit(0); id >= 0; id = bitmap.nextSetBit(id + 1))
+			found.add(reports[id]);
+		return found;
+	}
+
+	/**
+	 *
+	 * @param tag A BugTag.
+	 * @param after A list number.
+	 * @return The bug reports with the tag with a higher list number, in the order of the list.
+	 */
+	public Iterator<IBugReport> iterate(BugTag tag, long after) {
+		final BitSet bitmap = bitmaps.get(tag);
+		int from = Arrays.binarySearch(numbers, 0, end, after);
+		final int start = from >= 0 ? from + 1 : -from - 1;
+		return new Iterator<IBugReport>() {
+			private int next = bitmap.nextSetBit(start);
+
+			@Override
+			public boolean hasNext() {
+				return next >= 0;
+			}
+
+			@Override
+			public IBugReport next() {
+				if (next < 0)
+					throw new NoSuchElementException();
+				BugReport report = reports[next];
+				next = bitmap.nextSetBit(next + 1);
+				return report;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 *
+	 * @return The number of bug reports in the index.
+	 */
+	public int size() {
+		return ids.size();
+	}
+}
@@ -0,0 +1,271 @@
+package model.bugreports;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Inverted index from the trigrams in the title and description of bug reports to the bug reports holding them.
+ * The BugReportManager keeps it over the bug reports in its bug report list, in the same order,
+ * so a search for a string only verifies the bug reports holding every trigram of that string.
+ * Titles and descriptions never change, so a bug report only has to be added and removed.
+ */
+public class TrigramIndex {
+
+	/**
+	 * Bug reports with the same trigram, by ascending position in the index.
+	 */
+	private static class Postings {
+		private int[] positions = new int[4];
+		private int size;
+
+		private void add(int position) {
+			if (size == positions.length)
+				positions = Arrays.copyOf(positions, size * 2);
+			positions[size++] = position;
+		}
+	}
+
+	private final Map<Long, Postings> postings = new HashMap<>();
+	private final Map<BugReport, Integer> positions = new IdentityHashMap<>();
+	private BugReport[] reports = new BugReport[16];	//Bug reports by position, null once removed.
+	private int end;	//Next free position.
+
+	/**
+	 * Add a bug report after the bug reports already in the index.
+	 * @param report The bug report to add.
+	 */
+	void add(BugReport report) {
+		if (positions.containsKey(report))
+			return;
+
+		if (end == reports.length)
+			reports = Arrays.copyOf(reports, end * 2);
+		int position = end++;
+		reports[position] = report;
+		positions.put(report, position);
+
+		Set<Long> trigrams = new HashSet<>();
+		trigrams(report.getTitle(), trigrams);
+		trigrams(report.getDescription(), trigrams);
+		for (Long trigram : trigrams) {
+			Postings list = postings.get(trigram);
+			if (list == null) {
+				list = new Postings();
+				postings.put(trigram, list);
+			}
+			list.add(position);
+		}
+	}
+
+	/**
+	 * Remove a bug report from the index.
+	 * Its positions stay in the postings until more than half of the positions are removed, then the index is rebuilt.
+	 * @param report The bug report to remove.
+	 */
+	void remove(BugReport report) {
+		Integer position = positions.remove(report);
+		if (position == null)
+			return;
+
+		reports[position] = null;
+		if (positions.size() < end / 2)
+			rebuild();
+	}
+
+	private void rebuild() {
+		BugReport[] live = new BugReport[positions.size()];
+		int i = 0;
+		for (int position = 0; position < end; position++)
+			if (reports[position] != null)
+				live[i++] = reports[position];
+
+		postings.clear();
+		positions.clear();
+		reports = new BugReport[Math.max(16, live.length)];
+		end = 0;
+		for (BugReport report : live)
+			add(report);
+	}
+
+	/**
+	 * Find the bug reports with the given string in their title or description.
+	 * Strings shorter than a trigram hold no trigram to look up, all bug reports are verified for those.
+	 * @param string The string to search for.
+	 * @return The bug reports holding the string, in the order they were added.
+	 */
+	public List<IBugReport> search(String string) {
+		return search(string, null);
+	}
+
+	/**
+	 * Find the bug reports among the given ones with the given string in their title or description.
+	 * Only the bug reports that hold every trigram of the string and are among the given ones are verified.
+	 * @param string The string to search for.
+	 * @param among The bug reports to search among, null to search all bug reports.
+	 * @return The bug reports holding the string, in the order they were added.
+	 */
+	public List<IBugReport> search(String string, Collection<? extends IBugReport> among) {
+		Map<IBugReport, Boolean> allowed = null;
+		if (among != null) {
+			allowed = new IdentityHashMap<>();
+			for (IBugReport report : among)
+				allowed.put(report, Boolean.TRUE);
+		}
+
+		List<IBugReport> found = new ArrayList<>();
+		for (int position : candidates(string)) {
+			BugReport report = reports[position];
+			if (report != null && (allowed == null || allowed.containsKey(report))
+					&& (report.getTitle().contains(string) || report.getDescription().contains(string)))
+				found.add(report);
+		}
+		return found;
+	}
+
+	/**
+	 * Iterate over the bug reports with the given string in their title or description that come after a list number.
+	 * The candidates are verified as the iterator reaches them, so taking a few bug reports only verifies a few.
+	 * @param string The string to search for.
+	 * @param after A list number.
+	 * @return The bug reports holding the string with a higher list number, in the order they were added.
+	 */
+	public Iterator<IBugReport> iterate(final String string, final long after) {
+		final int[] candidates = candidates(string);
+		return new Iterator<IBugReport>() {
+			private int index;
+			private BugReport next = advance();
+
+			private BugReport advance() {
+				while (index < candidates.length) {
+					BugReport report = reports[candidates[index++]];
+					if (report != null && report.getListNumber() > after
+							&& (report.getTitle().contains(string) || report.getDescription().contains(string)))
+						return report;
+				}
+				return null;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public IBugReport next() {
+				if (next == null)
+					throw new NoSuchElementException();
+				BugReport report = next;
+				next = advance();
+				return report;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Estimate how many bug reports a search for the given string finds, without searching.
+	 * @param string The string to search for.
+	 * @return The length of the shortest postings list of the trigrams of the string,
+	 *         the number of bug reports in the index if the string holds no trigram.
+	 */
+	public int estimate(String string) {
+		Set<Long> trigrams = new HashSet<>();
+		trigrams(string, trigrams);
+		if (trigrams.isEmpty())
+			return size();
+
+		int estimate = size();
+		for (Long trigram : trigrams) {
+			Postings list = postings.get(trigram);
+			if (list == null)
+				return 0;
+			estimate = Math.min(estimate, list.size);
+		}
+		return estimate;
+	}
+
+	// Positions of the bug reports holding every trigram of the string.
+	private int[] candidates(String string) {
+		Set<Long> trigrams = new HashSet<>();
+		trigrams(string, trigrams);
+		if (trigrams.isEmpty()) {
+			int[] all = new int[end];
+			for (int position = 0; position < end; position++)
+				all[position] = position;
+			return all;
+		}
+
+		List<Postings> lists = new ArrayList<>();
+		for (Long trigram : trigrams) {
+			Postings list = postings.get(trigram);
+			if (list == null)
+				return new int[0];
+			lists.add(list);
+		}
+		Collections.sort(lists, new Comparator<Postings>() {
+			@Override
+			public int compare(Postings a, Postings b) {
+				return Integer.compare(a.size, b.size);
+			}
+		});
+
+		int[] candidates = Arrays.copyOf(lists.get(0).positions, lists.get(0).size);
+		int size = candidates.length;
+		for (int l = 1; l < lists.size() && size > 0; l++)
+			size = intersect(candidates, size, lists.get(l));
+		return Arrays.copyOf(candidates, size);
+	}
+
+	// Keeps the candidates that are in the postings, returns how many are left.
+	// Gallops through the postings, so a short candidate list does not walk a long postings list.
+	private static int intersect(int[] candidates, int size, Postings list) {
+		int kept = 0;
+		int low = 0;
+		for (int c = 0; c < size && low < list.size; c++) {
+			int candidate = candidates[c];
+			int step = 1;
+			int high = low;
+			while (high < list.size && list.positions[high] < candidate) {
+				low = high + 1;
+				high += step;
+				step *= 2;
+			}
+			int index = Arrays.binarySearch(list.positions, low, Math.min(high + 1, list.size), candidate);
+			if (index >= 0) {
+				candidates[kept++] = candidate;
+				low = index + 1;
+			} else {
+				low = -index - 1;
+			}
+		}
+		return kept;
+	}
+
+	private static void trigrams(String text, Set<Long> trigrams) {
+		for (int i = 0; i + 3 <= text.length(); i++)
+			trigrams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+	}
+
+	/**
+	 *
+	 * @return The number of bug reports in the index.
+	 */
+	public int size() {
+		return positions.size();
+	}
+}
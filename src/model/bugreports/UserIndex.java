@@ -0,0 +1,188 @@
+package model.bugreports;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import model.users.IUser;
+
+/**
+ * Posting lists from user names to the bug reports the users filed or are assigned to.
+ * The BugReportManager keeps it over the bug reports in its bug report list,
+ * the postings are keyed by the list numbers of the bug reports so they keep the order of the list.
+ */
+public class UserIndex {
+
+	/**
+	 * The list number of an indexed bug report and the user names it is posted under.
+	 * Removing uses these, the bug report may have lost its issuer and assignees by then.
+	 */
+	private static class Entry {
+		private final long number;
+		private final String issuer;
+		private final List<String> assignees = new ArrayList<>();
+
+		private Entry(long number, String issuer) {
+			this.number = number;
+			this.issuer = issuer;
+		}
+	}
+
+	private final Map<String, TreeMap<Long, BugReport>> filedBy = new HashMap<>();
+	private final Map<String, TreeMap<Long, BugReport>> assignedTo = new HashMap<>();
+	private final Map<BugReport, Entry> entries = new IdentityHashMap<>();
+
+	/**
+	 * Add a bug report, after it got its list number.
+	 * @param report The bug report to add.
+	 */
+	void add(BugReport report) {
+		if (entries.containsKey(report))
+			return;
+
+		Entry entry = new Entry(report.getListNumber(), report.getIssuedBy().getUserName());
+		entries.put(report, entry);
+		post(filedBy, entry.issuer, entry.number, report);
+		for (IUser assignee : report.getAssignees())
+			assign(entry, assignee, report);
+	}
+
+	/**
+	 * Add a developer that was assigned to a bug report in the index.
+	 * Bug reports that are not in the index are indexed with all their assignees when they are added.
+	 * @param report The bug report.
+	 * @param developer The assigned developer.
+	 */
+	void assign(BugReport report, IUser developer) {
+		Entry entry = entries.get(report);
+		if (entry != null)
+			assign(entry, developer, report);
+	}
+
+	private void assign(Entry entry, IUser developer, BugReport report) {
+		if (entry.assignees.contains(developer.getUserName()))
+			return;
+		entry.assignees.add(developer.getUserName());
+		post(assignedTo, developer.getUserName(), entry.number, report);
+	}
+
+	/**
+	 * Remove a bug report from the index.
+	 * @param report The bug report to remove.
+	 */
+	void remove(BugReport report) {
+		Entry entry = entries.remove(report);
+		if (entry == null)
+			return;
+
+		unpost(filedBy, entry.issuer, entry.number);
+		for (String assignee : entry.assignees)
+			unpost(assignedTo, assignee, entry.number);
+	}
+
+	private static void post(Map<String, TreeMap<Long, BugReport>> postings, String userName, long number, BugReport report) {
+		TreeMap<Long, BugReport> reports = postings.get(userName);
+		if (reports == null) {
+			reports = new TreeMap<>();
+			postings.put(userName, reports);
+		}
+		reports.put(number, report);
+	}
+
+	private static void unpost(Map<String, TreeMap<Long, BugReport>> postings, String userName, long number) {
+		TreeMap<Long, BugReport> reports = postings.get(userName);
+		if (reports == null)
+			return;
+		reports.remove(number);
+		if (reports.isEmpty())
+			postings.remove(userName);
+	}
+
+	/**
+	 *
+	 * @param userName The user name of a user.
+	 * @return The bug reports filed by the user, in the order of the list.
+	 */
+	public List<IBugReport> getFiledBy(String userName) {
+		return lookup(filedBy, userName);
+	}
+
+	/**
+	 *
+	 * @param userName The user name of a user.
+	 * @param after A list number.
+	 * @return The bug reports filed by the user with a higher list number, in the order of the list.
+	 */
+	public Iterator<? extends IBugReport> iterateFiledBy(String userName, long after) {
+		return iterate(filedBy, userName, after);
+	}
+
+	/**
+	 *
+	 * @param userName The user name of a user.
+	 * @return The bug reports the user is assigned to, in the order of the list.
+	 */
+	public List<IBugReport> getAssignedTo(String userName) {
+		return lookup(assignedTo, userName);
+	}
+
+	/**
+	 *
+	 * @param userName The user name of a user.
+	 * @param after A list number.
+	 * @return The bug reports the user is assigned to with a higher list number, in the order of the list.
+	 */
+	public Iterator<? extends IBugReport> iterateAssignedTo(String userName, long after) {
+		return iterate(assignedTo, userName, after);
+	}
+
+	/**
+	 *
+	 * @param userName The user name of a user.
+	 * @return The number of bug reports filed by the user.
+	 */
+	public int countFiledBy(String userName) {
+		return count(filedBy, userName);
+	}
+
+	/**
+	 *
+	 * @param userName The user name of a user.
+	 * @return The number of bug reports the user is assigned to.
+	 */
+	public int countAssignedTo(String userName) {
+		return count(assignedTo, userName);
+	}
+
+	private static int count(Map<String, TreeMap<Long, BugReport>> postings, String userName) {
+		TreeMap<Long, BugReport> reports = postings.get(userName);
+		return reports == null ? 0 : reports.size();
+	}
+
+	private static Iterator<? extends IBugReport> iterate(Map<String, TreeMap<Long, BugReport>> postings, String userName, long after) {
+		TreeMap<Long, BugReport> reports = postings.get(userName);
+		if (reports == null)
+			return Collections.<BugReport>emptyIterator();
+		return reports.tailMap(after, false).values().iterator();
+	}
+
+	private static List<IBugReport> lookup(Map<String, TreeMap<Long, BugReport>> postings, String userName) {
+		TreeMap<Long, BugReport> reports = postings.get(userName);
+		if (reports == null)
+			return new ArrayList<>();
+		return new ArrayList<IBugReport>(reports.values());
+	}
+
+	/**
+	 *
+	 * @return The number of bug reports in the index.
+	 */
+	public int size() {
+		return entries.size();
+	}
+}
@@ -13,6 +13,11 @@ public enum BugTag {
         public boolean hasToBeLeadToSet() {
         	return false;
         }
+        
+        @Override
+        public boolean isTerminal() {
+        	return false;
+        }
     },
     CLOSED {
         @Override
@@ -24,6 +29,11 @@ public enum BugTag {
         public boolean hasToBeLeadToSet() {
         	return true;
         }
+        
+        @Override
+        public boolean isTerminal() {
+        	return true;
+        }
     },
     DUPLICATE {
         @Override
@@ -35,6 +45,11 @@ public enum BugTag {
         public boolean hasToBeLeadToSet() {
         	return true;
         }
+        
+        @Override
+        public boolean isTerminal() {
+        	return true;
+        }
     },
     NEW {
         @Override
@@ -46,6 +61,11 @@ public enum BugTag {
         public boolean hasToBeLeadToSet() {
         	return false;
         }
+        
+        @Override
+        public boolean isTerminal() {
+        	return false;
+        }
     },
     NOTABUG {
         @Override
@@ -57,6 +77,11 @@ public enum BugTag {
         public boolean hasToBeLeadToSet() {
         	return true;
         }
+        
+        @Override
+        public boolean isTerminal() {
+        	return true;
+        }
     },
     RESOLVED {
         @Override
@@ -68,6 +93,11 @@ public enum BugTag {
         public boolean hasToBeLeadToSet() {
         	return true;
         }
+        
+        @Override
+        public boolean isTerminal() {
+        	return false;
+        }
     },
     UNDERREVIEW {
         @Override
@@ -79,6 +109,11 @@ public enum BugTag {
         public boolean hasToBeLeadToSet() {
         	return false;
         }
+        
+        @Override
+        public boolean isTerminal() {
+        	return false;
+        }
     };
 
     /**
@@ -87,4 +122,9 @@ public enum BugTag {
      */
     public abstract BugTagState createState(BugReport bugReport);
     public abstract boolean hasToBeLeadToSet();
+    /**
+     * A BugReport under a terminal tag is done with and will not be worked on again.
+     * Matches BugTagState.isTerminal() of the state this Enum creates.
+     */
+    public abstract boolean isTerminal();
 }
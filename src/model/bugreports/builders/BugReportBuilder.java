@@ -189,6 +189,16 @@ public class BugReportBuilder {
 		this.milestone = new TargetMilestone(milestone);
 		return this;
 	}
+
+	public BugReportBuilder setTestSection(TestSection testSection) {
+		this.testSection = testSection;
+		return this;
+	}
+
+	public BugReportBuilder setPatchSection(PatchSection patchSection) {
+		this.patchSection = patchSection;
+		return this;
+	}
 	
 	/**
 	 * Build and return a BugReport with set variables.
@@ -213,6 +223,8 @@ public class BugReportBuilder {
 		if (comments == null) 		throw new NullPointerException("Comments is null");
 		if (assignees == null)		throw new NullPointerException("Assignees is null");
 		if (observers == null)		throw new NullPointerException("Observers is null");
+		if (testSection == null)	throw new NullPointerException("TestSection is null");
+		if (patchSection == null)	throw new NullPointerException("PatchSection is null");
 		if (impactFactor == 0)		throw new IllegalArgumentException("the impact factor is 0");
 	}
 
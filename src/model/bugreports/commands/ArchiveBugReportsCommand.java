@@ -0,0 +1,24 @@
+package model.bugreports.commands;
+
+import controllers.exceptions.UnauthorizedAccessException;
+import model.BugTrap;
+import model.Command;
+import model.bugreports.forms.ArchiveBugReportsForm;
+
+public class ArchiveBugReportsCommand extends Command {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    private ArchiveBugReportsForm form;
+
+    public ArchiveBugReportsCommand(BugTrap bugTrap, ArchiveBugReportsForm form) {
+        super(bugTrap, form);
+        this.form = form;
+    }
+
+    @Override
+    public void execute() throws UnauthorizedAccessException {
+        form.allVarsFilledIn();
+        getBugTrap().getBugReportManager().archiveClosedBugReports(form.getDays() * DAY);
+    }
+}
@@ -1,7 +1,6 @@
 package model.bugreports.commands;
 
 import java.util.ArrayList;
-import java.util.Date;
 
 import controllers.exceptions.UnauthorizedAccessException;
 import model.BugTrap;
@@ -23,6 +22,6 @@ public class CreateBugReportCommand extends Command {
     @Override
     public void execute() throws UnauthorizedAccessException {
         form.allVarsFilledIn();
-        getBugTrap().getBugReportManager().addBugReport(form.getTitle(), form.getDescription(), new Date(), form.getSubsystem(), form.getIssuer(), form.getDependsOn(), new ArrayList<IUser>(), BugTag.NEW, form.getTargetMilestone(), form.getImpactFactor());
+        getBugTrap().getBugReportManager().addBugReport(form.getTitle(), form.getDescription(), form.getStackTrace(), form.getErrorMessage(), form.getReproduction(), getBugTrap().getCurrentDate(), form.getSubsystem(), form.getIssuer(), form.getDependsOn(), new ArrayList<IUser>(), BugTag.NEW, form.getTargetMilestone(), form.getImpactFactor());
     }
 }
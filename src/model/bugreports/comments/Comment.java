@@ -23,8 +23,19 @@ public class Comment implements Commentable { //A Comment can be commented on.
 	 * @param text The text of this Comment.
 	 */  
 	public Comment(BugReport bugReport, String text) {
-		this.creationDate = new Date();
-		this.comments 	  = new ArrayList<Comment>();
+		this(bugReport, text, bugReport.getBugTrap() != null ? bugReport.getBugTrap().getCurrentDate() : new Date(), new ArrayList<Comment>());
+	}
+
+	/**
+	 * Constructor for an existing Comment, e.g. when restoring a snapshot.
+	 * @param bugReport The BugReport this Comment belongs to.
+	 * @param text The text of this Comment.
+	 * @param creationDate The creation Date of this Comment.
+	 * @param comments The Comments on this Comment.
+	 */
+	public Comment(BugReport bugReport, String text, Date creationDate, List<Comment> comments) {
+		this.creationDate = creationDate;
+		this.comments 	  = comments;
 		this.text 		  = text;
 		this.bugReport	  = bugReport;
 	}
@@ -34,7 +45,10 @@ public class Comment implements Commentable { //A Comment can be commented on.
 		if (commentText == null)
 			throw new IllegalArgumentException("Comment should not be null.");
 		
+		if (bugReport.getBugTrap() != null)
+			bugReport.getBugTrap().getBugReportManager().commentAdded(bugReport, commentText);
 		comments.add(new Comment(bugReport, commentText));
+		bugReport.markDirty();
 	}
 
 	/**
@@ -45,6 +59,14 @@ public class Comment implements Commentable { //A Comment can be commented on.
 		return text;
 	}
 	
+	/**
+	 * 
+	 * @return The BugReport this Comment belongs to.
+	 */
+	public BugReport getBugReport() {
+		return bugReport;
+	}
+
 	/**
 	 * 
 	 * @return creation Date of this Comment.
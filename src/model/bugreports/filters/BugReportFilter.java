@@ -2,14 +2,16 @@ package model.bugreports.filters;
 
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 import model.bugreports.IBugReport;
+import model.projects.ISubsystem;
+import model.projects.ISystem;
 import model.users.IUser;
 
 /**  
  * Class dedicated to filtering BugReport lists according to FilterTypes.  
+ * It checks every BugReport of the list, the QueryPlan looks BugReports up in the indexes of the BugReportManager instead.
  */  
 public class BugReportFilter {
 
@@ -33,51 +35,80 @@ public class BugReportFilter {
 	public List<IBugReport> filter(FilterType type, String string) {
 		switch (type) {
 		case CONTAINS_STRING:
-			inTitleOrDesc(string);
-			break;
 		case FILED_BY_USER:
-			issuedByUser(string);
-			break;
 		case ASSIGNED_TO_USER:
-			assignedByUser(string);
+		case HAS_TAG:
+		case IN_SUBSYSTEM:
+		case MILESTONE_BETWEEN:
+		case CREATED_BETWEEN:
 			break;
 		default: throw new IllegalArgumentException();
 		}
 		
+		//Keeps the matching BugReports in a new list, removing from the ArrayList one by one is quadratic.
+		List<IBugReport> kept = new ArrayList<IBugReport>();
+		for (IBugReport bugReport : getFilteredList())
+			if (matches(type, string, bugReport))
+				kept.add(bugReport);
+		getFilteredList().clear();
+		getFilteredList().addAll(kept);
+
 		return getFilteredList();
 	}
-	
-	private void inTitleOrDesc(String string) {
-		Iterator<IBugReport> iter = getFilteredList().iterator();
-		while (iter.hasNext()) {
-			IBugReport bugReport = iter.next();
-			if (!bugReport.getTitle().contains(string) && !bugReport.getDescription().contains(string))
-				iter.remove();
+
+	/**
+	 * Check one BugReport against a FilterType and argument.
+	 * @param type FilterType to filter by.
+	 * @param string Argument to filter by.
+	 * @param bugReport The BugReport to check.
+	 * @return true if the BugReport passes the filter.
+	 */
+	public static boolean matches(FilterType type, String string, IBugReport bugReport) {
+		switch (type) {
+		case CONTAINS_STRING:
+			return inTitleOrDesc(string, bugReport);
+		case FILED_BY_USER:
+			return issuedByUser(string, bugReport);
+		case ASSIGNED_TO_USER:
+			return assignedByUser(string, bugReport);
+		case HAS_TAG:
+			return hasTag(string, bugReport);
+		case IN_SUBSYSTEM:
+			return inSubsystem(string, bugReport);
+		case MILESTONE_BETWEEN:
+			return BugReportRange.milestones(string).contains(bugReport.getTargetMilestone());
+		case CREATED_BETWEEN:
+			return BugReportRange.dates(string).contains(bugReport.getCreationDate());
+		default: throw new IllegalArgumentException();
 		}
 	}
-	
-	private void issuedByUser(String string) {
-		Iterator<IBugReport> iter = getFilteredList().iterator();
-		while (iter.hasNext()) {
-			IBugReport bugReport = iter.next();
-			if (!bugReport.getIssuedBy().getUserName().equals(string))
-				iter.remove();
+
+	private static boolean inTitleOrDesc(String string, IBugReport bugReport) {
+		return bugReport.getTitle().contains(string) || bugReport.getDescription().contains(string);
+	}
+
+	private static boolean issuedByUser(String string, IBugReport bugReport) {
+		return bugReport.getIssuedBy().getUserName().equals(string);
+	}
+
+	private static boolean assignedByUser(String string, IBugReport bugReport) {
+		for (IUser assignee : bugReport.getAssignees()) {
+			if (assignee.getUserName().equals(string))
+				return true;
 		}
+		return false;
+	}
+
+	private static boolean hasTag(String string, IBugReport bugReport) {
+		return bugReport.getBugTag().name().equals(string);
 	}
-	
-	private void assignedByUser(String string) {
-		Iterator<IBugReport> iter = getFilteredList().iterator();
-		while (iter.hasNext()) {
-			IBugReport bugReport = iter.next();
-			
-			boolean remove = true;
-			for (IUser assignee : bugReport.getAssignees()) {
-				if (assignee.getUserName().equals(string))
-					remove = false;
-			}
-			
-			if (remove) iter.remove();
+
+	private static boolean inSubsystem(String string, IBugReport bugReport) {
+		for (ISystem system = bugReport.getSubsystem(); system instanceof ISubsystem; system = system.getParent()) {
+			if (system.getName().equals(string))
+				return true;
 		}
+		return false;
 	}
 
 	public List<IBugReport> getFilteredList() {
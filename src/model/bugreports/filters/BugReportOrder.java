@@ -0,0 +1,47 @@
+package model.bugreports.filters;
+
+import java.util.Comparator;
+
+import model.bugreports.BugReport;
+import model.bugreports.IBugReport;
+
+/**
+ * Enumeration of the orders a top list of BugReports can be ranked by.
+ * BugReports that rank the same keep the order of the bug report list.
+ */
+public enum BugReportOrder implements Comparator<IBugReport> {
+	IMPACT {	//Highest impact product first.
+		@Override
+		protected int rank(IBugReport a, IBugReport b) {
+			return Double.compare(((BugReport) b).getImpactProduct(), ((BugReport) a).getImpactProduct());
+		}
+	},
+	NEWEST {	//Latest creation date first.
+		@Override
+		protected int rank(IBugReport a, IBugReport b) {
+			return b.getCreationDate().compareTo(a.getCreationDate());
+		}
+	},
+	TITLE {		//Alphabetically by title.
+		@Override
+		protected int rank(IBugReport a, IBugReport b) {
+			return a.getTitle().compareTo(b.getTitle());
+		}
+	};
+
+	/**
+	 * Compare two BugReports by this order only.
+	 * @param a A BugReport.
+	 * @param b Another BugReport.
+	 * @return A negative number if a ranks higher than b, a positive number if it ranks lower, 0 if they rank the same.
+	 */
+	protected abstract int rank(IBugReport a, IBugReport b);
+
+	@Override
+	public int compare(IBugReport a, IBugReport b) {
+		int c = rank(a, b);
+		if (c != 0)
+			return c;
+		return Long.compare(((BugReport) a).getListNumber(), ((BugReport) b).getListNumber());
+	}
+}
@@ -0,0 +1,80 @@
+package model.bugreports.filters;
+
+import java.util.Collections;
+import java.util.List;
+
+import model.bugreports.IBugReport;
+
+/**
+ * One page of a paginated bug report query.
+ * Bug reports are sorted by their list number, the order in which they entered the bug report list.
+ * The cursor of the next page continues after the last bug report of this page,
+ * so bug reports that are added in between show up at the end instead of shifting the pages.
+ */
+public class BugReportPage {
+
+	private final List<IBugReport> bugReports;
+	private final String nextCursor;
+
+	/**
+	 * Constructor.
+	 * @param bugReports The bug reports on the page.
+	 * @param nextCursor The cursor of the next page, null if this is the last page.
+	 */
+	BugReportPage(List<IBugReport> bugReports, String nextCursor) {
+		this.bugReports = bugReports;
+		this.nextCursor = nextCursor;
+	}
+
+	/**
+	 *
+	 * @return The bug reports on this page.
+	 */
+	public List<IBugReport> getBugReports() {
+		return Collections.unmodifiableList(bugReports);
+	}
+
+	/**
+	 * The cursor is opaque, it should only be handed back to ask for the next page.
+	 * @return The cursor of the next page, null if this is the last page.
+	 */
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	/**
+	 *
+	 * @return true if there is a page after this one.
+	 */
+	public boolean hasNext() {
+		return nextCursor != null;
+	}
+
+	/**
+	 * Make the cursor that continues after the given list number.
+	 * @param listNumber The list number of the last bug report of a page.
+	 * @return The cursor.
+	 */
+	static String cursor(long listNumber) {
+		return Long.toString(listNumber, Character.MAX_RADIX);
+	}
+
+	/**
+	 * Read a cursor.
+	 * @param cursor The cursor, null for the first page.
+	 * @return The list number to continue after.
+	 */
+	static long after(String cursor) {
+		if (cursor == null)
+			return -1;
+
+		try {
+			long after = Long.parseLong(cursor, Character.MAX_RADIX);
+			if (after < 0)
+				throw new IllegalArgumentException("Invalid cursor.");
+			return after;
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid cursor.");
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package model.bugreports.filters;
+
+import java.util.Collections;
+import java.util.List;
+
+import model.bugreports.BugReportManager;
+import model.bugreports.IBugReport;
+import model.projects.ProjectManager;
+
+/**
+ * A compiled query of the bug report query language, for example
+ * tag:ASSIGNED AND assignee:maria AND (text:"NPE" OR subsystem:SubsystemA3).
+ * Compiling parses the query and optimises it once: constants are folded, nested operators flattened,
+ * duplicate filters dropped and the filters of every AND ordered so the cheapest checks come first.
+ * Running the query pushes the filters of every AND down to a QueryPlan over the indexes of the BugReportManager;
+ * OR and NOT are answered from the indexes as well when that is estimated to be cheaper than checking every bug report.
+ * A compiled query only reads its syntax tree, so it can be run any number of times.
+ */
+public class BugReportQuery {
+
+	private final String text;
+	private final QueryNode root;
+
+	private BugReportQuery(String text, QueryNode root) {
+		this.text = text;
+		this.root = root;
+	}
+
+	/**
+	 * Parse and optimise a query.
+	 * @param text The query; see QueryParser for the grammar. An empty query keeps all bug reports.
+	 * @return The compiled query.
+	 * @throws IllegalArgumentException if the query is null, does not follow the grammar or holds an invalid range.
+	 */
+	public static BugReportQuery compile(String text) {
+		return new BugReportQuery(text, QueryParser.parse(text).optimize());
+	}
+
+	/**
+	 * Run the query over a list that holds exactly the bug reports of the indexes of the given manager, in the same order.
+	 * @param bugReports The bug report list to filter.
+	 * @param indexes The bug report manager that keeps the indexes over the bug reports of the list.
+	 * @param projectManager The project manager to find the subsystems of subsystem filters in.
+	 * @return The bug reports that match the query, in the order of the list.
+	 */
+	public List<IBugReport> execute(List<? extends IBugReport> bugReports, BugReportManager indexes, ProjectManager projectManager) {
+		return root.evaluate(new QueryNode.Context(bugReports, indexes, projectManager));
+	}
+
+	/**
+	 * Check one bug report against the query, the same way execute checks it.
+	 * @param bugReport The bug report.
+	 * @param projectManager The project manager to find the subsystems of subsystem filters in.
+	 * @return true if the bug report matches the query.
+	 */
+	public boolean matches(IBugReport bugReport, ProjectManager projectManager) {
+		return root.matches(bugReport, new QueryNode.Context(Collections.<IBugReport>emptyList(), null, projectManager));
+	}
+
+	/**
+	 *
+	 * @return The query as it was written.
+	 */
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * @return The optimised query, with every operator in parentheses.
+	 */
+	@Override
+	public String toString() {
+		return root.toString();
+	}
+}
@@ -0,0 +1,127 @@
+package model.bugreports.filters;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+import model.Milestone;
+import model.bugreports.TargetMilestone;
+
+/**
+ * Range of target milestones or creation dates that a range filter keeps, both bounds included.
+ * The argument of a range filter is written as "from..to", a bound that is left out is open.
+ * Milestones are written like M1.2, dates like 31/12/2015; the upper date includes the whole day.
+ * @param <K> The type of the bounds.
+ */
+class BugReportRange<K extends Comparable<? super K>> {
+
+	private static final String SEPARATOR = "..";
+
+	private final K from;	//Lowest key, null if open.
+	private final K to;		//Highest key, null if open.
+
+	private BugReportRange(K from, K to) {
+		this.from = from;
+		this.to = to;
+	}
+
+	/**
+	 * Read a range of target milestones.
+	 * @param argument The argument of the filter.
+	 * @return The range.
+	 */
+	static BugReportRange<Milestone> milestones(String argument) {
+		String[] bounds = bounds(argument);
+		return new BugReportRange<Milestone>(milestone(bounds[0]), milestone(bounds[1]));
+	}
+
+	/**
+	 * Read a range of creation dates.
+	 * @param argument The argument of the filter.
+	 * @return The range.
+	 */
+	static BugReportRange<Date> dates(String argument) {
+		String[] bounds = bounds(argument);
+		Date to = date(bounds[1]);
+		if (to != null) {
+			Calendar calendar = Calendar.getInstance();
+			calendar.setTime(to);
+			calendar.add(Calendar.DAY_OF_MONTH, 1);
+			to = new Date(calendar.getTimeInMillis() - 1);
+		}
+		return new BugReportRange<Date>(date(bounds[0]), to);
+	}
+
+	private static String[] bounds(String argument) {
+		int separator = argument == null ? -1 : argument.indexOf(SEPARATOR);
+		if (separator < 0)
+			throw new IllegalArgumentException("A range should be written as from..to.");
+		return new String[] { argument.substring(0, separator).trim(), argument.substring(separator + SEPARATOR.length()).trim() };
+	}
+
+	private static Milestone milestone(String bound) {
+		if (bound.isEmpty())
+			return null;
+
+		String numbers = bound.startsWith("M") ? bound.substring(1) : bound;
+		List<Integer> parsed = new ArrayList<>();
+		try {
+			for (String number : numbers.split("\\.", -1))
+				parsed.add(Integer.parseInt(number));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid milestone: " + bound);
+		}
+		return new TargetMilestone(parsed);
+	}
+
+	private static Date date(String bound) {
+		if (bound.isEmpty())
+			return null;
+
+		SimpleDateFormat format = new SimpleDateFormat("dd/MM/yyyy");
+		format.setLenient(false);
+		try {
+			return format.parse(bound);
+		} catch (ParseException e) {
+			throw new IllegalArgumentException("Invalid date: " + bound);
+		}
+	}
+
+	/**
+	 *
+	 * @param key A key, null if the bug report has none.
+	 * @return true if the key lies in the range.
+	 */
+	boolean contains(K key) {
+		if (key == null)
+			return false;
+		return (from == null || from.compareTo(key) <= 0) && (to == null || key.compareTo(to) <= 0);
+	}
+
+	/**
+	 *
+	 * @return true if no key lies in the range, because the lowest key is higher than the highest.
+	 */
+	boolean isEmpty() {
+		return from != null && to != null && from.compareTo(to) > 0;
+	}
+
+	/**
+	 *
+	 * @return The lowest key, null if open.
+	 */
+	K getFrom() {
+		return from;
+	}
+
+	/**
+	 *
+	 * @return The highest key, null if open.
+	 */
+	K getTo() {
+		return to;
+	}
+}
@@ -7,5 +7,9 @@ package model.bugreports.filters;
 public enum FilterType {
 	CONTAINS_STRING,	//Search for BugReports by Strings.
 	FILED_BY_USER,		//Search for BugReports files by User.
-	ASSIGNED_TO_USER	//Search for BugReports assigned by User.
+	ASSIGNED_TO_USER,	//Search for BugReports assigned by User.
+	HAS_TAG,			//Search for BugReports by the name of their BugTag.
+	IN_SUBSYSTEM,		//Search for BugReports in a Subsystem or its direct or indirect Subsystems, by name.
+	MILESTONE_BETWEEN,	//Search for BugReports by a range of Target Milestones, written as M1.0..M2.5.
+	CREATED_BETWEEN		//Search for BugReports by a range of creation dates, written as 01/01/2015..31/01/2015.
 }
\ No newline at end of file
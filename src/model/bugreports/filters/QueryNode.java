@@ -0,0 +1,491 @@
+package model.bugreports.filters;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import model.Milestone;
+import model.bugreports.BugReport;
+import model.bugreports.BugReportManager;
+import model.bugreports.IBugReport;
+import model.bugreports.bugtag.BugTag;
+import model.projects.ProjectManager;
+
+/**
+ * Node of the syntax tree of a bug report query, also the compiled predicate that checks bug reports against it.
+ * The tree is optimised once when the query is compiled and is then only read, so one compiled query can be run many times.
+ */
+abstract class QueryNode {
+
+	//Order in which the children of an AND are checked: cheap and selective checks first.
+	private static final Comparator<QueryNode> CHECK_ORDER = new Comparator<QueryNode>() {
+		@Override
+		public int compare(QueryNode a, QueryNode b) {
+			return Integer.compare(a.checkCost(), b.checkCost());
+		}
+	};
+
+	/**
+	 * The bug report list and indexes a query runs against.
+	 */
+	static class Context {
+		private final List<? extends IBugReport> bugReports;
+		private final BugReportManager indexes;
+		private final ProjectManager projectManager;
+		private final Map<String, SubsystemScope> scopes = new HashMap<>();	//Subsystems of the subsystem filters, by name.
+
+		Context(List<? extends IBugReport> bugReports, BugReportManager indexes, ProjectManager projectManager) {
+			this.bugReports = bugReports;
+			this.indexes = indexes;
+			this.projectManager = projectManager;
+		}
+
+		// The plan of the QueryPlan for a conjunction of filters, it picks the lookups and checks from the sizes of the indexes.
+		private QueryPlan plan(List<Filter> filters) {
+			FilterType[] types = new FilterType[filters.size()];
+			String[] arguments = new String[filters.size()];
+			for (int index = 0; index < filters.size(); index++) {
+				types[index] = filters.get(index).type;
+				arguments[index] = filters.get(index).argument;
+			}
+			return new QueryPlan(bugReports, indexes, projectManager, types, arguments);
+		}
+
+		// The subsystems of a subsystem filter, found once per run of the query.
+		private SubsystemScope scope(String name) {
+			SubsystemScope scope = scopes.get(name);
+			if (scope == null) {
+				scope = new SubsystemScope(projectManager, name);
+				scopes.put(name, scope);
+			}
+			return scope;
+		}
+	}
+
+	/**
+	 * Check one bug report, the same way the QueryPlan checks it.
+	 * @param bugReport The bug report.
+	 * @param context The context to find the subsystems of subsystem filters in.
+	 * @return true if the bug report matches this node.
+	 */
+	abstract boolean matches(IBugReport bugReport, Context context);
+
+	/**
+	 * Find the bug reports of the list that match this node, in the order of the list.
+	 * @param context The list and indexes to run against.
+	 * @return The matching bug reports.
+	 */
+	abstract List<IBugReport> evaluate(Context context);
+
+	/**
+	 * @param context The list and indexes to run against.
+	 * @return The estimated number of bug reports that match this node.
+	 */
+	abstract long estimate(Context context);
+
+	/**
+	 * @return The relative cost of checking one bug report against this node.
+	 */
+	abstract int checkCost();
+
+	/**
+	 * Fold constants and flatten nested operators.
+	 * @return The optimised node, this node if nothing changed.
+	 */
+	QueryNode optimize() {
+		return this;
+	}
+
+	/**
+	 * @return The node as query text, with every operator in parentheses; equal nodes have equal text.
+	 */
+	@Override
+	public abstract String toString();
+
+	// Keeps the bug reports of the list that match the node, by checking every one of them.
+	private static List<IBugReport> scan(QueryNode node, List<? extends IBugReport> bugReports, Context context) {
+		List<IBugReport> kept = new ArrayList<>();
+		for (IBugReport bugReport : bugReports)
+			if (node.matches(bugReport, context))
+				kept.add(bugReport);
+		return kept;
+	}
+
+	/**
+	 * Constant TRUE or FALSE, what filters that keep all bug reports or none fold to.
+	 */
+	static class Constant extends QueryNode {
+		static final Constant TRUE = new Constant(true);
+		static final Constant FALSE = new Constant(false);
+
+		private final boolean value;
+
+		private Constant(boolean value) {
+			this.value = value;
+		}
+
+		@Override
+		boolean matches(IBugReport bugReport, Context context) {
+			return value;
+		}
+
+		@Override
+		List<IBugReport> evaluate(Context context) {
+			return value ? new ArrayList<IBugReport>(context.bugReports) : new ArrayList<IBugReport>();
+		}
+
+		@Override
+		long estimate(Context context) {
+			return value ? context.bugReports.size() : 0;
+		}
+
+		@Override
+		int checkCost() {
+			return 0;
+		}
+
+		@Override
+		public String toString() {
+			return value ? "TRUE" : "FALSE";
+		}
+	}
+
+	/**
+	 * A field and a value, one of the filters of a FilterType.
+	 */
+	static class Filter extends QueryNode {
+		private final FilterType type;
+		private final String argument;
+		private final BugReportRange<Milestone> milestones;
+		private final BugReportRange<Date> dates;
+
+		Filter(FilterType type, String argument) {
+			this.type = type;
+			this.argument = argument;
+			//Ranges are parsed when the query is compiled, an invalid range fails then.
+			this.milestones = type == FilterType.MILESTONE_BETWEEN ? BugReportRange.milestones(argument) : null;
+			this.dates = type == FilterType.CREATED_BETWEEN ? BugReportRange.dates(argument) : null;
+		}
+
+		@Override
+		QueryNode optimize() {
+			if (type == FilterType.CONTAINS_STRING && argument.isEmpty())
+				return Constant.TRUE;
+			if (type == FilterType.HAS_TAG && !isTag(argument))
+				return Constant.FALSE;
+			if (milestones != null && milestones.isEmpty() || dates != null && dates.isEmpty())
+				return Constant.FALSE;
+			return this;
+		}
+
+		private static boolean isTag(String name) {
+			for (BugTag tag : BugTag.values())
+				if (tag.name().equals(name))
+					return true;
+			return false;
+		}
+
+		@Override
+		boolean matches(IBugReport bugReport, Context context) {
+			if (type == FilterType.IN_SUBSYSTEM)
+				return context.scope(argument).contains(bugReport);
+			if (type == FilterType.MILESTONE_BETWEEN)
+				return milestones.contains(bugReport.getTargetMilestone());
+			if (type == FilterType.CREATED_BETWEEN)
+				return dates.contains(bugReport.getCreationDate());
+			return BugReportFilter.matches(type, argument, bugReport);
+		}
+
+		@Override
+		List<IBugReport> evaluate(Context context) {
+			return context.plan(Collections.singletonList(this)).execute();
+		}
+
+		@Override
+		long estimate(Context context) {
+			return context.plan(Collections.singletonList(this)).estimate();
+		}
+
+		@Override
+		int checkCost() {
+			switch (type) {
+			case CONTAINS_STRING:
+				return 8;
+			case IN_SUBSYSTEM:
+				return 4;
+			case FILED_BY_USER:
+			case ASSIGNED_TO_USER:
+				return 2;
+			default:
+				return 1;
+			}
+		}
+
+		@Override
+		public String toString() {
+			return QueryParser.field(type) + ":\"" + argument.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+		}
+	}
+
+	/**
+	 * Negation of a node.
+	 */
+	static class Not extends QueryNode {
+		private final QueryNode child;
+
+		Not(QueryNode child) {
+			this.child = child;
+		}
+
+		@Override
+		QueryNode optimize() {
+			QueryNode optimized = child.optimize();
+			if (optimized == Constant.TRUE)
+				return Constant.FALSE;
+			if (optimized == Constant.FALSE)
+				return Constant.TRUE;
+			if (optimized instanceof Not)
+				return ((Not) optimized).child;
+			return optimized == child ? this : new Not(optimized);
+		}
+
+		@Override
+		boolean matches(IBugReport bugReport, Context context) {
+			return !child.matches(bugReport, context);
+		}
+
+		// The complement of the bug reports of the child, which may be looked up in the indexes.
+		@Override
+		List<IBugReport> evaluate(Context context) {
+			if (child.estimate(context) >= context.bugReports.size())
+				return scan(this, context.bugReports, context);
+			Map<IBugReport, Boolean> excluded = new IdentityHashMap<>();
+			for (IBugReport bugReport : child.evaluate(context))
+				excluded.put(bugReport, Boolean.TRUE);
+			List<IBugReport> kept = new ArrayList<>();
+			for (IBugReport bugReport : context.bugReports)
+				if (!excluded.containsKey(bugReport))
+					kept.add(bugReport);
+			return kept;
+		}
+
+		@Override
+		long estimate(Context context) {
+			return context.bugReports.size() - child.estimate(context);
+		}
+
+		@Override
+		int checkCost() {
+			return child.checkCost();
+		}
+
+		@Override
+		public String toString() {
+			return "NOT " + child;
+		}
+	}
+
+	/**
+	 * Conjunction or disjunction of nodes.
+	 */
+	abstract static class Operator extends QueryNode {
+		final List<QueryNode> children;
+
+		Operator(List<QueryNode> children) {
+			this.children = children;
+		}
+
+		abstract Operator create(List<QueryNode> children);
+
+		// The constant that decides the operator on its own, FALSE for AND and TRUE for OR.
+		abstract Constant absorbing();
+
+		/**
+		 * Optimise the children, pull up the children of nested operators of the same kind,
+		 * drop neutral constants and duplicate children and fold the operator if a child decides it.
+		 */
+		@Override
+		QueryNode optimize() {
+			Map<String, QueryNode> optimized = new LinkedHashMap<>();
+			for (QueryNode child : children)
+				add(optimized, child.optimize());
+			if (optimized.containsKey(absorbing().toString()))
+				return absorbing();
+			optimized.remove(absorbing() == Constant.TRUE ? "FALSE" : "TRUE");
+			if (optimized.isEmpty())
+				return absorbing() == Constant.TRUE ? Constant.FALSE : Constant.TRUE;
+			if (optimized.size() == 1)
+				return optimized.values().iterator().next();
+			List<QueryNode> ordered = new ArrayList<>(optimized.values());
+			Collections.sort(ordered, CHECK_ORDER);
+			return create(ordered);
+		}
+
+		private void add(Map<String, QueryNode> optimized, QueryNode child) {
+			if (child.getClass() == getClass()) {
+				for (QueryNode grandChild : ((Operator) child).children)
+					add(optimized, grandChild);
+			} else {
+				optimized.put(child.toString(), child);
+			}
+		}
+
+		@Override
+		int checkCost() {
+			int cost = 0;
+			for (QueryNode child : children)
+				cost += child.checkCost();
+			return cost;
+		}
+
+		String toString(String operator) {
+			StringBuilder text = new StringBuilder("(");
+			for (QueryNode child : children) {
+				if (text.length() > 1)
+					text.append(' ').append(operator).append(' ');
+				text.append(child);
+			}
+			return text.append(')').toString();
+		}
+	}
+
+	/**
+	 * Conjunction: the filters among the children are pushed down to a QueryPlan together,
+	 * the other children are checked on the bug reports it finds.
+	 */
+	static class And extends Operator {
+
+		And(List<QueryNode> children) {
+			super(children);
+		}
+
+		@Override
+		Operator create(List<QueryNode> children) {
+			return new And(children);
+		}
+
+		@Override
+		Constant absorbing() {
+			return Constant.FALSE;
+		}
+
+		@Override
+		boolean matches(IBugReport bugReport, Context context) {
+			for (QueryNode child : children)
+				if (!child.matches(bugReport, context))
+					return false;
+			return true;
+		}
+
+		@Override
+		List<IBugReport> evaluate(final Context context) {
+			List<Filter> filters = new ArrayList<>();
+			List<QueryNode> others = new ArrayList<>();
+			for (QueryNode child : children) {
+				if (child instanceof Filter)
+					filters.add((Filter) child);
+				else
+					others.add(child);
+			}
+
+			//Without filters the child that keeps the fewest bug reports is evaluated, the others are checked.
+			List<IBugReport> candidates;
+			if (!filters.isEmpty()) {
+				candidates = context.plan(filters).execute();
+			} else {
+				QueryNode seed = Collections.min(others, new Comparator<QueryNode>() {
+					@Override
+					public int compare(QueryNode a, QueryNode b) {
+						return Long.compare(a.estimate(context), b.estimate(context));
+					}
+				});
+				others.remove(seed);
+				candidates = seed.evaluate(context);
+			}
+			for (QueryNode other : others)
+				candidates = scan(other, candidates, context);
+			return candidates;
+		}
+
+		@Override
+		long estimate(Context context) {
+			//Children are assumed to be independent, like the QueryPlan does.
+			long size = context.bugReports.size();
+			double estimate = size;
+			for (QueryNode child : children)
+				estimate = size == 0 ? 0 : estimate * child.estimate(context) / size;
+			return (long) estimate;
+		}
+
+		@Override
+		public String toString() {
+			return toString("AND");
+		}
+	}
+
+	/**
+	 * Disjunction: the union of the bug reports of the children if they are found in fewer steps than a scan of the list.
+	 */
+	static class Or extends Operator {
+
+		Or(List<QueryNode> children) {
+			super(children);
+		}
+
+		@Override
+		Operator create(List<QueryNode> children) {
+			return new Or(children);
+		}
+
+		@Override
+		Constant absorbing() {
+			return Constant.TRUE;
+		}
+
+		@Override
+		boolean matches(IBugReport bugReport, Context context) {
+			for (QueryNode child : children)
+				if (child.matches(bugReport, context))
+					return true;
+			return false;
+		}
+
+		@Override
+		List<IBugReport> evaluate(Context context) {
+			if (estimate(context) >= context.bugReports.size())
+				return scan(this, context.bugReports, context);
+
+			Map<IBugReport, Boolean> found = new IdentityHashMap<>();
+			for (QueryNode child : children)
+				for (IBugReport bugReport : child.evaluate(context))
+					found.put(bugReport, Boolean.TRUE);
+			List<IBugReport> union = new ArrayList<>(found.keySet());
+			Collections.sort(union, new Comparator<IBugReport>() {
+				@Override
+				public int compare(IBugReport a, IBugReport b) {
+					return Long.compare(((BugReport) a).getListNumber(), ((BugReport) b).getListNumber());
+				}
+			});
+			return union;
+		}
+
+		@Override
+		long estimate(Context context) {
+			long estimate = 0;
+			for (QueryNode child : children)
+				estimate += child.estimate(context);
+			return Math.min(estimate, context.bugReports.size());
+		}
+
+		@Override
+		public String toString() {
+			return toString("OR");
+		}
+	}
+}
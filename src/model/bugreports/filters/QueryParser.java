@@ -0,0 +1,168 @@
+package model.bugreports.filters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parser of the bug report query language, into a syntax tree of QueryNodes.
+ *
+ *   query   := or
+ *   or      := and ("OR" and)*
+ *   and     := not ("AND" not)*
+ *   not     := "NOT" not | "(" or ")" | field ":" value
+ *   value   := word | "quoted text"
+ *
+ * The fields are text, filedby, assignee, tag, subsystem, milestone and created, each the filter of a FilterType.
+ * Operators are case insensitive; NOT binds stronger than AND, AND stronger than OR.
+ * A quoted value may hold spaces, parentheses and quotes escaped with a backslash.
+ */
+class QueryParser {
+
+	private static final String[] FIELDS = { "text", "filedby", "assignee", "tag", "subsystem", "milestone", "created" };
+	private static final FilterType[] TYPES = { FilterType.CONTAINS_STRING, FilterType.FILED_BY_USER, FilterType.ASSIGNED_TO_USER,
+			FilterType.HAS_TAG, FilterType.IN_SUBSYSTEM, FilterType.MILESTONE_BETWEEN, FilterType.CREATED_BETWEEN };
+
+	private final String query;
+	private int position;
+
+	private QueryParser(String query) {
+		this.query = query;
+	}
+
+	/**
+	 * Parse a query.
+	 * @param query The query text.
+	 * @return The syntax tree, not yet optimised; TRUE for an empty query.
+	 */
+	static QueryNode parse(String query) {
+		if (query == null)
+			throw new IllegalArgumentException("Query should not be null.");
+		if (query.trim().isEmpty())
+			return QueryNode.Constant.TRUE;
+
+		QueryParser parser = new QueryParser(query);
+		QueryNode node = parser.or();
+		parser.skipSpaces();
+		if (parser.position < query.length())
+			throw parser.error("Unexpected " + query.charAt(parser.position));
+		return node;
+	}
+
+	/**
+	 * @param type A FilterType.
+	 * @return The field of the query language for the FilterType.
+	 */
+	static String field(FilterType type) {
+		for (int index = 0; index < TYPES.length; index++)
+			if (TYPES[index] == type)
+				return FIELDS[index];
+		throw new IllegalArgumentException();
+	}
+
+	private QueryNode or() {
+		List<QueryNode> children = new ArrayList<>();
+		children.add(and());
+		while (keyword("OR"))
+			children.add(and());
+		return children.size() == 1 ? children.get(0) : new QueryNode.Or(children);
+	}
+
+	private QueryNode and() {
+		List<QueryNode> children = new ArrayList<>();
+		children.add(not());
+		while (keyword("AND"))
+			children.add(not());
+		return children.size() == 1 ? children.get(0) : new QueryNode.And(children);
+	}
+
+	private QueryNode not() {
+		if (keyword("NOT"))
+			return new QueryNode.Not(not());
+
+		skipSpaces();
+		if (position < query.length() && query.charAt(position) == '(') {
+			position++;
+			QueryNode node = or();
+			skipSpaces();
+			if (position >= query.length() || query.charAt(position) != ')')
+				throw error("Missing )");
+			position++;
+			return node;
+		}
+
+		int start = position;
+		String field = field();
+		if (field.isEmpty())
+			throw error("Expected a filter");
+		if (position >= query.length() || query.charAt(position) != ':')
+			throw error("Expected : after " + field);
+		position++;
+		for (int index = 0; index < FIELDS.length; index++)
+			if (FIELDS[index].equalsIgnoreCase(field))
+				return new QueryNode.Filter(TYPES[index], value());
+		position = start;
+		throw error("Unknown field " + field);
+	}
+
+	private String value() {
+		if (position >= query.length() || query.charAt(position) != '"') {
+			String value = word();
+			if (value.isEmpty())
+				throw error("Expected a value");
+			return value;
+		}
+
+		StringBuilder value = new StringBuilder();
+		for (position++; position < query.length(); position++) {
+			char c = query.charAt(position);
+			if (c == '"') {
+				position++;
+				return value.toString();
+			}
+			if (c == '\\' && position + 1 < query.length())
+				c = query.charAt(++position);
+			value.append(c);
+		}
+		throw error("Missing closing quote");
+	}
+
+	// A run of characters up to a space, parenthesis or quote.
+	private String word() {
+		int start = position;
+		while (position < query.length()) {
+			char c = query.charAt(position);
+			if (Character.isWhitespace(c) || c == '(' || c == ')' || c == '"')
+				break;
+			position++;
+		}
+		return query.substring(start, position);
+	}
+
+	private String field() {
+		int start = position;
+		while (position < query.length() && Character.isLetter(query.charAt(position)))
+			position++;
+		return query.substring(start, position);
+	}
+
+	// Consumes the keyword if it comes next, as a whole word.
+	private boolean keyword(String keyword) {
+		skipSpaces();
+		int end = position + keyword.length();
+		if (end > query.length() || !query.regionMatches(true, position, keyword, 0, keyword.length()))
+			return false;
+		if (end < query.length() && !Character.isWhitespace(query.charAt(end)) && query.charAt(end) != '(')
+			return false;
+		position = end;
+		return true;
+	}
+
+	private void skipSpaces() {
+		while (position < query.length() && Character.isWhitespace(query.charAt(position)))
+			position++;
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " at position " + position + " of the query: " + query);
+	}
+}
@@ -0,0 +1,363 @@
+package model.bugreports.filters;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import model.Milestone;
+import model.bugreports.BugReport;
+import model.bugreports.BugReportManager;
+import model.bugreports.IBugReport;
+import model.bugreports.RangeIndex;
+import model.bugreports.TagIndex;
+import model.bugreports.TrigramIndex;
+import model.bugreports.UserIndex;
+import model.bugreports.bugtag.BugTag;
+import model.projects.ProjectManager;
+
+/**
+ * Plan to apply a list of filters to the bug reports of the BugReportManager.
+ * The filter that is estimated to keep the fewest bug reports is looked up in the indexes first, to seed the candidates.
+ * Each other filter is then either looked up as well and intersected with the candidates,
+ * or checked on the candidates one by one, whichever is estimated to be cheaper.
+ * Estimates come from the sizes of the postings in the indexes, filters are assumed to be independent.
+ * A subsystem filter is a check of the subtree labels of the subsystems, it only seeds the candidates if it is the only filter.
+ */
+public class QueryPlan {
+
+	//Cost of checking one bug report against a filter, relative to a step through postings.
+	private static final int TEXT_CHECK_COST = 8;
+	private static final int USER_CHECK_COST = 2;
+	private static final int RANGE_CHECK_COST = 1;
+
+	/**
+	 * One filter of the plan.
+	 */
+	private class Step {
+		private final FilterType type;
+		private final String argument;
+		private final SubsystemScope subsystems;	//Subsystems of a subsystem filter.
+		private final BugReportRange<Milestone> milestones;	//Range of a target milestone filter.
+		private final BugReportRange<Date> dates;			//Range of a creation date filter.
+		private final int estimate;	//Number of bug reports the filter keeps on its own.
+		private boolean lookup;		//Whether the filter is looked up, rather than checked on the candidates.
+		private long candidates;	//Estimated number of candidates after the filter.
+		private long cost;
+
+		private Step(FilterType type, String argument) {
+			this.type = type;
+			this.argument = argument;
+			this.subsystems = type == FilterType.IN_SUBSYSTEM ? new SubsystemScope(projectManager, argument) : null;
+			this.milestones = type == FilterType.MILESTONE_BETWEEN ? BugReportRange.milestones(argument) : null;
+			this.dates = type == FilterType.CREATED_BETWEEN ? BugReportRange.dates(argument) : null;
+			this.estimate = estimate(this);
+		}
+	}
+
+	private final List<? extends IBugReport> bugReports;
+	private final TrigramIndex textIndex;
+	private final UserIndex userIndex;
+	private final TagIndex tagIndex;
+	private final RangeIndex<Milestone> milestoneIndex;
+	private final RangeIndex<Date> dateIndex;
+	private final ProjectManager projectManager;
+	private final List<Step> steps = new ArrayList<>();
+
+	/**
+	 * Plan the given filters over a list that holds exactly the bug reports of the indexes of the given manager, in the same order.
+	 * @param bugReports The bug report list to filter.
+	 * @param indexes The bug report manager that keeps the indexes over the bug reports of the list.
+	 * @param projectManager The project manager to find the subsystems of subsystem filters in.
+	 * @param types Filter Types to filter by.
+	 * @param arguments Filter arguments.
+	 */
+	public QueryPlan(List<? extends IBugReport> bugReports, BugReportManager indexes, ProjectManager projectManager, FilterType[] types, String[] arguments) {
+		this.bugReports = bugReports;
+		this.textIndex = indexes.getTextIndex();
+		this.userIndex = indexes.getUserIndex();
+		this.tagIndex = indexes.getTagIndex();
+		this.milestoneIndex = indexes.getMilestoneIndex();
+		this.dateIndex = indexes.getDateIndex();
+		this.projectManager = projectManager;
+
+		for (int index = 0; index < types.length; index++)
+			steps.add(new Step(types[index], arguments[index]));
+		Collections.sort(steps, new Comparator<Step>() {
+			@Override
+			public int compare(Step a, Step b) {
+				return Integer.compare(a.estimate, b.estimate);
+			}
+		});
+		for (int index = 0; index < steps.size() && steps.get(0).type == FilterType.IN_SUBSYSTEM; index++)
+			if (steps.get(index).type != FilterType.IN_SUBSYSTEM)
+				steps.add(0, steps.remove(index));
+
+		long size = bugReports.size();
+		long candidates = size;
+		for (int index = 0; index < steps.size(); index++) {
+			Step step = steps.get(index);
+			long kept = size == 0 ? 0 : candidates * step.estimate / size;
+			long checkCost = candidates * checkCost(step.type);
+			long lookupCost = lookupCost(step, size, candidates, kept);
+			step.lookup = index == 0 || lookupCost < checkCost;
+			step.cost = step.lookup ? lookupCost : checkCost;
+			step.candidates = kept;
+			candidates = kept;
+		}
+	}
+
+	// Cost of looking up a filter and intersecting it with the candidates.
+	// A string search walks its postings and only verifies the bug reports that are candidates as well.
+	// A subsystem filter has no postings, it checks every bug report of the list.
+	private static long lookupCost(Step step, long size, long candidates, long kept) {
+		if (step.type == FilterType.IN_SUBSYSTEM)
+			return size * RANGE_CHECK_COST;
+		if (step.type == FilterType.CONTAINS_STRING)
+			return step.estimate + candidates + kept * TEXT_CHECK_COST;
+		return step.estimate + candidates;
+	}
+
+	private int estimate(Step step) {
+		switch (step.type) {
+		case CONTAINS_STRING:
+			return textIndex.estimate(step.argument);
+		case FILED_BY_USER:
+			return userIndex.countFiledBy(step.argument);
+		case ASSIGNED_TO_USER:
+			return userIndex.countAssignedTo(step.argument);
+		case HAS_TAG:
+			return tag(step.argument) == null ? 0 : tagIndex.count(tag(step.argument));
+		case IN_SUBSYSTEM:
+			return step.subsystems.countBugReports();
+		case MILESTONE_BETWEEN:
+			return milestoneIndex.countBetween(step.milestones.getFrom(), step.milestones.getTo());
+		case CREATED_BETWEEN:
+			return dateIndex.countBetween(step.dates.getFrom(), step.dates.getTo());
+		default: throw new IllegalArgumentException();
+		}
+	}
+
+	// Cost of checking a bug report, a string search verifies every bug report it finds as well.
+	private static int checkCost(FilterType type) {
+		if (type == FilterType.IN_SUBSYSTEM)
+			return RANGE_CHECK_COST;
+		return type == FilterType.CONTAINS_STRING ? TEXT_CHECK_COST : USER_CHECK_COST;
+	}
+
+	private List<IBugReport> lookup(Step step) {
+		switch (step.type) {
+		case CONTAINS_STRING:
+			return textIndex.search(step.argument);
+		case FILED_BY_USER:
+			return userIndex.getFiledBy(step.argument);
+		case ASSIGNED_TO_USER:
+			return userIndex.getAssignedTo(step.argument);
+		case HAS_TAG:
+			return tag(step.argument) == null ? new ArrayList<IBugReport>() : tagIndex.getBugReports(tag(step.argument));
+		case IN_SUBSYSTEM:
+			List<IBugReport> found = new ArrayList<>();
+			for (IBugReport bugReport : bugReports)
+				if (check(step, bugReport))
+					found.add(bugReport);
+			return found;
+		case MILESTONE_BETWEEN:
+			return milestoneIndex.getBetween(step.milestones.getFrom(), step.milestones.getTo());
+		case CREATED_BETWEEN:
+			return dateIndex.getBetween(step.dates.getFrom(), step.dates.getTo());
+		default: throw new IllegalArgumentException();
+		}
+	}
+
+	/**
+	 * Apply the filters.
+	 * @return The bug reports that pass all filters, in the order of the list.
+	 */
+	public List<IBugReport> execute() {
+		if (steps.isEmpty())
+			return new ArrayList<IBugReport>(bugReports);
+
+		List<IBugReport> candidates = lookup(steps.get(0));
+		for (int index = 1; index < steps.size() && !candidates.isEmpty(); index++) {
+			Step step = steps.get(index);
+			List<IBugReport> kept = new ArrayList<>();
+			if (step.lookup && step.type == FilterType.CONTAINS_STRING) {
+				kept = textIndex.search(step.argument, candidates);
+			} else if (step.lookup) {
+				Map<IBugReport, Boolean> found = new IdentityHashMap<>();
+				for (IBugReport bugReport : lookup(step))
+					found.put(bugReport, Boolean.TRUE);
+				for (IBugReport bugReport : candidates)
+					if (found.containsKey(bugReport))
+						kept.add(bugReport);
+			} else {
+				for (IBugReport bugReport : candidates)
+					if (check(step, bugReport))
+						kept.add(bugReport);
+			}
+			candidates = kept;
+		}
+		return candidates;
+	}
+
+	/**
+	 * Apply the filters to one page of bug reports, in the order of their list numbers.
+	 * The seed filter streams its bug reports from the index and the other filters are checked on each of them,
+	 * so only the bug reports up to the end of the page are looked at.
+	 * @param cursor The cursor of a previous page, null for the first page.
+	 * @param pageSize The maximum number of bug reports on the page.
+	 * @return The page.
+	 */
+	public BugReportPage page(String cursor, int pageSize) {
+		if (pageSize < 1)
+			throw new IllegalArgumentException("The page size should be at least 1.");
+
+		long after = BugReportPage.after(cursor);
+		Iterator<? extends IBugReport> seed = seed(after);
+		List<IBugReport> page = new ArrayList<>();
+		boolean more = false;
+		while (seed.hasNext()) {
+			IBugReport bugReport = seed.next();
+			if (!matches(bugReport))
+				continue;
+			if (page.size() == pageSize) {
+				more = true;
+				break;
+			}
+			page.add(bugReport);
+		}
+
+		String nextCursor = more ? BugReportPage.cursor(((BugReport) page.get(page.size() - 1)).getListNumber()) : null;
+		return new BugReportPage(page, nextCursor);
+	}
+
+	/**
+	 * Apply the filters and keep the k bug reports that rank highest in the given order.
+	 * The filtered bug reports stream through a heap of k bug reports, they are never sorted as a whole.
+	 * @param order The order to rank by.
+	 * @param k The maximum number of bug reports.
+	 * @return The k highest ranking bug reports that pass all filters, highest first.
+	 */
+	public List<IBugReport> top(BugReportOrder order, int k) {
+		if (k < 1)
+			throw new IllegalArgumentException("At least one bug report should be asked for.");
+
+		//The head of the heap is the lowest ranking bug report kept so far.
+		PriorityQueue<IBugReport> heap = new PriorityQueue<>(k + 1, Collections.reverseOrder(order));
+		Iterator<? extends IBugReport> seed = seed(-1);
+		while (seed.hasNext()) {
+			IBugReport bugReport = seed.next();
+			if (heap.size() == k && order.compare(bugReport, heap.peek()) >= 0)
+				continue;
+			if (!matches(bugReport))
+				continue;
+			heap.add(bugReport);
+			if (heap.size() > k)
+				heap.poll();
+		}
+
+		List<IBugReport> top = new ArrayList<>(heap);
+		Collections.sort(top, order);
+		return top;
+	}
+
+	// The bug reports of the first filter, or all bug reports if there is no filter to look up.
+	private Iterator<? extends IBugReport> seed(long after) {
+		if (steps.isEmpty() || steps.get(0).type == FilterType.IN_SUBSYSTEM)
+			return iterate(after);
+		return iterate(steps.get(0), after);
+	}
+
+	// Whether the bug report passes the filters the seed did not apply.
+	private boolean matches(IBugReport bugReport) {
+		int first = !steps.isEmpty() && steps.get(0).type == FilterType.IN_SUBSYSTEM ? 0 : 1;
+		for (int index = first; index < steps.size(); index++)
+			if (!check(steps.get(index), bugReport))
+				return false;
+		return true;
+	}
+
+	// Check one bug report against a filter, a subsystem filter compares the subtree labels.
+	// The ranges are read once for the plan, the filter would read them again for every bug report.
+	private static boolean check(Step step, IBugReport bugReport) {
+		if (step.type == FilterType.IN_SUBSYSTEM)
+			return step.subsystems.contains(bugReport);
+		if (step.type == FilterType.MILESTONE_BETWEEN)
+			return step.milestones.contains(bugReport.getTargetMilestone());
+		if (step.type == FilterType.CREATED_BETWEEN)
+			return step.dates.contains(bugReport.getCreationDate());
+		return BugReportFilter.matches(step.type, step.argument, bugReport);
+	}
+
+	private Iterator<? extends IBugReport> iterate(Step step, long after) {
+		switch (step.type) {
+		case CONTAINS_STRING:
+			return textIndex.iterate(step.argument, after);
+		case FILED_BY_USER:
+			return userIndex.iterateFiledBy(step.argument, after);
+		case ASSIGNED_TO_USER:
+			return userIndex.iterateAssignedTo(step.argument, after);
+		case HAS_TAG:
+			return tag(step.argument) == null ? Collections.<IBugReport>emptyIterator() : tagIndex.iterate(tag(step.argument), after);
+		case MILESTONE_BETWEEN:
+			return milestoneIndex.iterateBetween(step.milestones.getFrom(), step.milestones.getTo(), after);
+		case CREATED_BETWEEN:
+			return dateIndex.iterateBetween(step.dates.getFrom(), step.dates.getTo(), after);
+		default: throw new IllegalArgumentException();
+		}
+	}
+
+	// The BugTag with the given name, null if there is none, like the filter that keeps no bug reports then.
+	private static BugTag tag(String name) {
+		for (BugTag tag : BugTag.values())
+			if (tag.name().equals(name))
+				return tag;
+		return null;
+	}
+
+	// All bug reports after the given list number, found by binary search since the list is sorted by list number.
+	private Iterator<? extends IBugReport> iterate(long after) {
+		int low = 0;
+		int high = bugReports.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (((BugReport) bugReports.get(middle)).getListNumber() <= after)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return bugReports.subList(low, bugReports.size()).iterator();
+	}
+
+	/**
+	 *
+	 * @return The estimated number of bug reports that pass all filters.
+	 */
+	long estimate() {
+		return steps.isEmpty() ? bugReports.size() : steps.get(steps.size() - 1).candidates;
+	}
+
+	/**
+	 * Describe the plan, one line per filter in the order they are applied.
+	 * @return The filters with how they are applied, the estimated number of bug reports each keeps on its own,
+	 *         the estimated number of candidates after it and the estimated cost.
+	 */
+	public String explain() {
+		StringBuilder explain = new StringBuilder();
+		explain.append("Plan over ").append(bugReports.size()).append(" bug reports");
+		if (steps.isEmpty())
+			explain.append(", no filters: all bug reports");
+		for (int index = 0; index < steps.size(); index++) {
+			Step step = steps.get(index);
+			explain.append(String.format("%n%d. %s \"%s\": %s, estimate %d, candidates %d, cost %d", index + 1, step.type, step.argument,
+					index == 0 ? (step.type == FilterType.IN_SUBSYSTEM ? "seed by check" : "seed by lookup") : step.lookup ? "lookup and intersect" : "check candidates",
+					step.estimate, step.candidates, step.cost));
+		}
+		return explain.toString();
+	}
+}
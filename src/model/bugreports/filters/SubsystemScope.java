@@ -0,0 +1,62 @@
+package model.bugreports.filters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import model.bugreports.IBugReport;
+import model.projects.ISubsystem;
+import model.projects.ProjectManager;
+import model.projects.Subsystem;
+
+/**
+ * The subsystems a subsystem filter keeps the bug reports of: every subsystem with the name, in any project,
+ * like BugReportFilter keeps the bug reports of which the subsystem or one of its parents has the name.
+ * A bug report is checked by comparing the subtree labels of its subsystem with those of each of them.
+ */
+class SubsystemScope {
+
+	private final List<Subsystem> subsystems = new ArrayList<>();	//Subsystems with the name that do not lie in the subtree of another one.
+
+	/**
+	 * Constructor.
+	 * @param projectManager The project manager to find the subsystems in.
+	 * @param name The name of the subsystems.
+	 */
+	SubsystemScope(ProjectManager projectManager, String name) {
+		List<ISubsystem> named = projectManager.getSubsystemsWithName(name);
+		for (ISubsystem subsystem : named) {
+			boolean nested = false;
+			for (ISubsystem other : named)
+				nested |= other != subsystem && ((Subsystem) other).isInSubtree(subsystem);
+			if (!nested)
+				subsystems.add((Subsystem) subsystem);
+		}
+	}
+
+	/**
+	 * @param bugReport A bug report.
+	 * @return true if the subsystem of the bug report lies in the subtree of one of the subsystems.
+	 */
+	boolean contains(IBugReport bugReport) {
+		ISubsystem subsystem = bugReport.getSubsystem();
+		if (subsystem == null)
+			return false;
+		for (Subsystem s : subsystems)
+			if (s.isInSubtree(subsystem))
+				return true;
+		return false;
+	}
+
+	/**
+	 * @return The number of bug reports in the subtrees of the subsystems.
+	 */
+	int countBugReports() {
+		int count = 0;
+		for (Subsystem s : subsystems) {
+			count += s.getBugReportCount();
+			for (ISubsystem sub : s.getAllDirectOrIndirectSubsystems())
+				count += ((Subsystem) sub).getBugReportCount();
+		}
+		return count;
+	}
+}
@@ -0,0 +1,33 @@
+package model.bugreports.forms;
+
+import model.Form;
+
+/**
+ * Form used to store temporary data to archive closed bug reports.
+ */
+public class ArchiveBugReportsForm implements Form {
+
+	private int days;	//Minimum age in days of the bug reports to archive.
+
+	public ArchiveBugReportsForm() {
+		//Explicitly setting this to -1, 0 is a valid age.
+		this.days = -1;
+	}
+
+	//Getters and Setters
+
+	@Override
+	public void allVarsFilledIn() {
+		if (getDays() < 0) throw new NullPointerException("Age is not set");
+	}
+
+	public void setDays(int days) {
+		if (days < 0) throw new IllegalArgumentException("The age should not be negative.");
+
+		this.days = days;
+	}
+
+	public int getDays() {
+		return days;
+	}
+}
@@ -75,6 +75,26 @@ public class NotificationManager {
         return regs;
     }
 
+    /**
+     * Returns all registrations for notifications, in the order they were made.
+     * @return a list of all registrations
+     */
+    public List<IRegistration> getRegistrations() {
+        List<IRegistration> regs = new ArrayList<>();
+        regs.addAll(observers);
+        return regs;
+    }
+
+    /**
+     * Returns all mailboxes, in the order they were created.
+     * @return a list of all mailboxes
+     */
+    public List<Mailbox> getMailboxes() {
+        List<Mailbox> boxes = new ArrayList<>();
+        boxes.addAll(mailboxes);
+        return boxes;
+    }
+
     public void addObserver(ObserverWithMailbox observerWithMailbox) {
         observers.add(observerWithMailbox);
     }
@@ -23,6 +23,10 @@ public class BugReportSpecificTagObserver extends BugReportChangeObserver {
 		}
 	}
 
+	public BugTag getBugTag() {
+		return bugTag;
+	}
+
 	@Override
 	public NotificationType getNotificationType() {
 		return NotificationType.BUGREPORT_SPECIFIC_TAG;
@@ -22,6 +22,10 @@ public class SpecificMilestoneObserver extends MilestoneObserver{
         }
     }
 
+    public AchievedMilestone getMilestone() {
+        return milestone;
+    }
+
     @Override
     public NotificationType getNotificationType() {
         return NotificationType.ACHIEVED_SPECIFIC_MILESTONE;
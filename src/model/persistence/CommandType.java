@@ -0,0 +1,432 @@
+package model.persistence;
+
+import java.io.IOException;
+import java.util.List;
+
+import model.BugTrap;
+import model.Command;
+import model.Form;
+import model.bugreports.TargetMilestone;
+import model.bugreports.bugtag.BugTag;
+import model.bugreports.commands.ArchiveBugReportsCommand;
+import model.bugreports.commands.AssignBugReportCommand;
+import model.bugreports.commands.CreateBugReportCommand;
+import model.bugreports.commands.CreateCommentCommand;
+import model.bugreports.commands.ProposePatchCommand;
+import model.bugreports.commands.ProposeTestCommand;
+import model.bugreports.commands.UpdateBugReportCommand;
+import model.bugreports.forms.ArchiveBugReportsForm;
+import model.bugreports.forms.BugReportAssignForm;
+import model.bugreports.forms.BugReportCreationForm;
+import model.bugreports.forms.BugReportUpdateForm;
+import model.bugreports.forms.CommentCreationForm;
+import model.bugreports.forms.ProposePatchForm;
+import model.bugreports.forms.ProposeTestForm;
+import model.notifications.NotificationType;
+import model.notifications.commands.RegisterForNotificationCommand;
+import model.notifications.commands.UnregisterForNotificationCommand;
+import model.notifications.forms.RegisterNotificationForm;
+import model.notifications.forms.UnregisterNotificationForm;
+import model.projects.AchievedMilestone;
+import model.projects.Role;
+import model.projects.commands.AssignProjectCommand;
+import model.projects.commands.CreateProjectCommand;
+import model.projects.commands.CreateSubsystemCommand;
+import model.projects.commands.DeclareAchievedMilestoneCommand;
+import model.projects.commands.DeleteProjectCommand;
+import model.projects.commands.ForkProjectCommand;
+import model.projects.commands.MergeSubsystemCommand;
+import model.projects.commands.SplitSubsystemCommand;
+import model.projects.commands.UpdateProjectCommand;
+import model.projects.forms.DeclareAchievedMilestoneForm;
+import model.projects.forms.MergeSubsystemForm;
+import model.projects.forms.ProjectAssignForm;
+import model.projects.forms.ProjectCreationForm;
+import model.projects.forms.ProjectDeleteForm;
+import model.projects.forms.ProjectForkForm;
+import model.projects.forms.ProjectUpdateForm;
+import model.projects.forms.SplitSubsystemForm;
+import model.projects.forms.SubsystemCreationForm;
+
+/**
+ * Enumeration of the commands that can be journaled, with the encoding of their form.
+ * Only commands that executed successfully are journaled, so their forms were completely filled in.
+ */
+enum CommandType {
+	CREATE_BUGREPORT(CreateBugReportCommand.class) {
+		@Override
+		void writeForm(JournalOutput out, Form f) throws IOException {
+			BugReportCreationForm form = (BugReportCreationForm) f;
+			out.writeUser(form.getIssuer());
+			out.writeString(form.getTitle());
+			out.writeString(form.getDescription());
+			out.writeSubsystem(form.getSubsystem());
+			out.writeBugReports(form.getDependsOn());
+			out.writeVarInt(form.getImpactFactor());
+			out.writeString(form.getErrorMessage());
+			out.writeString(form.getStackTrace());
+			out.writeString(form.getReproduction());
+			out.writeMilestone(form.getTargetMilestone());
+		}
+
+		@Override
+		Command readCommand(JournalInput in, BugTrap bugTrap) throws IOException {
+			BugReportCreationForm form = new BugReportCreationForm();
+			form.setIssuer(in.readUser());
+			form.setTitle(in.readString());
+			form.setDescription(in.readString());
+			form.setSubsystem(in.readSubsystem());
+			form.setDependsOn(in.readBugReports());
+			form.setImpactFactor(in.readVarInt());
+			form.setErrorMessage(in.readString());
+			form.setStackTrace(in.readString());
+			form.setReproduction(in.readString());
+			List<Integer> milestone = in.readMilestoneNumbers();
+			form.setTargetMilestone(milestone == null ? null : new TargetMilestone(milestone));
+			return new CreateBugReportCommand(bugTrap, form);
+		}
+	},
+	CREATE_COMMENT(CreateCommentCommand.class) {
+		@Override
+		void writeForm(JournalOutput out, Form f) throws IOException {
+			CommentCreationForm form = (CommentCreationForm) f;
+			out.writeCommentable(form.getCommentable());
+			out.writeString(form.getText());
+		}
+
+		@Override
+		Command readCommand(JournalInput in, BugTrap bugTrap) throws IOException {
+			CommentCreationForm form = new CommentCreationForm();
+			form.setCommentable(in.readCommentable());
+			form.setText(in.readString());
+			return new CreateCommentCommand(bugTrap, form);
+		}
+	},
+	UPDATE_BUGREPORT(UpdateBugReportCommand.class) {
+		@Override
+		void writeForm(JournalOutput out, Form f) throws IOException {
+			BugReportUpdateForm form = (BugReportUpdateForm) f;
+			out.writeBugReport(form.getBugReport());
+			out.writeEnum(form.getBugTag());
+		}
+
+		@Override
+		Command readCommand(JournalInput in, BugTrap bugTrap) throws IOException {
+			BugReportUpdateForm form = new BugReportUpdateForm();
+			form.setBugReport(in.readBugReport());
+			form.setBugTag(in.readEnum(BugTag.class));
+			return new UpdateBugReportCommand(bugTrap, form);
+		}
+	},
+	ASSIGN_BUGREPORT(AssignBugReportCommand.class) {
+		@Override
+		void writeForm(JournalOutput out, Form f) throws IOException {
+			BugReportAssignForm form = (BugReportAssignForm) f;
+			out.writeBugReport(form.getBugReport());
+			out.writeUser(form.getDeveloper());
+		}
+
+		@Override
+		Command readCommand(JournalInput in, BugTrap bugTrap) throws IOException {
+			BugReportAssignForm form = new BugReportAssignForm();
+			form.setBugReport(in.readBugReport());
+			form.setDeveloper(in.readUser());
+			return new AssignBugReportCommand(bugTrap, form);
+		}
+	},
+	PROPOSE_TEST(ProposeTestCommand.class) {
+		@Override
+		void writeForm(JournalOutput out, Form f) throws IOException {
+			ProposeTestForm form = (ProposeTestForm) f;
+			out.writeBugReport(form.getBugReport());
+			out.writeString(form.getTest());
+		}
+
+		@Override
+		Command readCommand(JournalInput in, BugTrap bugTrap) throws IOException {
+			ProposeTestForm form = new ProposeTestForm();
+			form.setBugReport(in.readBugReport());
+			form.setTest(in.readString());
+			return new ProposeTestCommand(bugTrap, form);
+		}
+	},
+	PROPOSE_PATCH(ProposePatchCommand.class) {
+		@Override
+		void writeForm(JournalOutput out, Form f) throws IOException {
+			ProposePatchForm form = (ProposePatchForm) f;
+			out.writeBugReport(form.getBugReport());
+			out.writeString(form.getPatch());
+		}
+
+		@Override
+		Command readCommand(JournalInput in, BugTrap bugTrap) throws IOException {
+			ProposePatchForm form = new ProposePatchForm();
+			form.setBugReport(in.readBugReport());
+			form.setPatch(in.readString());
+			return new ProposePatchCommand(bugTrap, form);
+		}
+	},
+	REGISTER_NOTIFICATION(RegisterForNotificationCommand.class) {
+		@Override
+		void writeForm(JournalOutput out, Form f) throws IOException {
+			RegisterNotificationForm form = (RegisterNotificationForm) f;
+			out.writeObservable(form.getObservable());
+			out.writeEnum(form.getRegistrationType());
+			out.writeEnum(form.getTag());
+			out.writeMilestone(form.getMilestone());
+		}
+
+		@Override
+		Command readCommand(JournalInput in, BugTrap bugTrap) throws IOException {
+			RegisterNotificationForm form = new RegisterNotificationForm();
+			form.setObservable(in.readObservable());
+			form.setNotificationType(in.readEnum(NotificationType.class));
+			BugTag tag = in.readEnum(BugTag.class);
+			if (tag != null)
+				form.setTag(tag);
+			List<Integer> milestone = in.readMilestoneNumbers();
+			if (milestone != null)
+				form.setMilestone(new AchievedMilestone(milestone));
+			return new RegisterForNotificationCommand(bugTrap, form);
+		}
+	},
+	UNREGISTER_NOTIFICATION(UnregisterForNotificationCommand.class) {
+		@Override
+		void writeForm(JournalOutput out, Form f) throws IOException {
+			out.writeRegistration(((UnregisterNotificationForm) f).getRegistration());
+		}
+
+		@Override
+		Command readCommand(JournalInput in, BugTrap bugTrap) throws IOException {
+			UnregisterNotificationForm form = new UnregisterNotificationForm();
+			form.setRegistration(in.readRegistration());
+			return new UnregisterForNotificationCommand(bugTrap, form);
+		}
+	},
+	CREATE_PROJECT(CreateProjectCommand.class) {
+		@Override
+		void writeForm(JournalOutput out, Form f) throws IOException {
+			ProjectCreationForm form = (ProjectCreationForm) f;
+			out.writeString(form.getName());
+			out.writeString(form.getDescription());
+			out.writeDouble(form.getBudgetEstimate());
+			out.writeNullableDate(form.getStartDate());
+			out.writeUser(form.getLeadDeveloper());
+		}
+
+		@Override
+		Command readCommand(JournalInput in, BugTrap bugTrap) throws IOException {
+			ProjectCreationForm form = new ProjectCreationForm();
+			form.setName(in.readString());
+			form.setDescription(in.readString());
+			form.setBudgetEstimate(in.readDouble());
+			form.setStartDate(in.readNullableDate());
+			form.setLeadDeveloper(in.readUser());
+			return new CreateProjectCommand(bugTrap, form);
+		}
+	},
+	FORK_PROJECT(ForkProjectCommand.class) {
+		@Override
+		void writeForm(JournalOutput out, Form f) throws IOException {
+			ProjectForkForm form = (ProjectForkForm) f;
+			out.writeProject(form.getProject());
+			out.writeDouble(form.getBudgetEstimate());
+			out.writeNullableDate(form.getStartDate());
+			out.writeVersion(form.getVersion());
+			out.writeUser(form.getLeadDeveloper());
+		}
+
+		@Override
+		Command readCommand(JournalInput in, BugTrap bugTrap) throws IOException {
+			ProjectForkForm form = new ProjectForkForm();
+			form.setProject(in.readProject());
+			form.setBudgetEstimate(in.readDouble());
+			form.setStartDate(in.readNullableDate());
+			form.setVersion(in.readVersion());
+			form.setLeadDeveloper(in.readUser());
+			return new ForkProjectCommand(bugTrap, form);
+		}
+	},
+	UPDATE_PROJECT(UpdateProjectCommand.class) {
+		@Override
+		void writeForm(JournalOutput out, Form f) throws IOException {
+			ProjectUpdateForm form = (ProjectUpdateForm) f;
+			out.writeProject(form.getProject());
+			out.writeString(form.getName());
+			out.writeString(form.getDescription());
+			out.writeDouble(form.getBudgetEstimate());
+			out.writeNullableDate(form.getStartDate());
+			out.writeVersion(form.getVersion());
+		}
+
+		@Override
+		Command readCommand(JournalInput in, BugTrap bugTrap) throws IOException {
+			ProjectUpdateForm form = new ProjectUpdateForm();
+			form.setProject(in.readProject());
+			form.setName(in.readString());
+			form.setDescription(in.readString());
+			form.setBudgetEstimate(in.readDouble());
+			form.setStartDate(in.readNullableDate());
+			form.setVersion(in.readVersion());
+			return new UpdateProjectCommand(bugTrap, form);
+		}
+	},
+	ASSIGN_PROJECT(AssignProjectCommand.class) {
+		@Override
+		void writeForm(JournalOutput out, Form f) throws IOException {
+			ProjectAssignForm form = (ProjectAssignForm) f;
+			out.writeProject(form.getProject());
+			out.writeUser(form.getDeveloper());
+			out.writeEnum(form.getRole());
+		}
+
+		@Override
+		Command readCommand(JournalInput in, BugTrap bugTrap) throws IOException {
+			ProjectAssignForm form = new ProjectAssignForm();
+			form.setProject(in.readProject());
+			form.setDeveloper(in.readUser());
+			form.setRole(in.readEnum(Role.class));
+			return new AssignProjectCommand(bugTrap, form);
+		}
+	},
+	DELETE_PROJECT(DeleteProjectCommand.class) {
+		@Override
+		void writeForm(JournalOutput out, Form f) throws IOException {
+			out.writeProject(((ProjectDeleteForm) f).getProject());
+		}
+
+		@Override
+		Command readCommand(JournalInput in, BugTrap bugTrap) throws IOException {
+			ProjectDeleteForm form = new ProjectDeleteForm();
+			form.setProject(in.readProject());
+			return new DeleteProjectCommand(bugTrap, form);
+		}
+	},
+	CREATE_SUBSYSTEM(CreateSubsystemCommand.class) {
+		@Override
+		void writeForm(JournalOutput out, Form f) throws IOException {
+			SubsystemCreationForm form = (SubsystemCreationForm) f;
+			out.writeString(form.getName());
+			out.writeString(form.getDescription());
+			out.writeSystem(form.getParent());
+		}
+
+		@Override
+		Command readCommand(JournalInput in, BugTrap bugTrap) throws IOException {
+			SubsystemCreationForm form = new SubsystemCreationForm();
+			form.setName(in.readString());
+			form.setDescription(in.readString());
+			form.setParent(in.readSystem());
+			return new CreateSubsystemCommand(bugTrap, form);
+		}
+	},
+	DECLARE_MILESTONE(DeclareAchievedMilestoneCommand.class) {
+		@Override
+		void writeForm(JournalOutput out, Form f) throws IOException {
+			DeclareAchievedMilestoneForm form = (DeclareAchievedMilestoneForm) f;
+			out.writeSystem(form.getSystem());
+			out.writeNumbers(form.getNumbers());
+		}
+
+		@Override
+		Command readCommand(JournalInput in, BugTrap bugTrap) throws IOException {
+			DeclareAchievedMilestoneForm form = new DeclareAchievedMilestoneForm();
+			form.setSystem(in.readSystem());
+			form.setNumbers(in.readNumbers());
+			return new DeclareAchievedMilestoneCommand(bugTrap, form);
+		}
+	},
+	SPLIT_SUBSYSTEM(SplitSubsystemCommand.class) {
+		@Override
+		void writeForm(JournalOutput out, Form f) throws IOException {
+			SplitSubsystemForm form = (SplitSubsystemForm) f;
+			out.writeSubsystem(form.getSubsystem());
+			out.writeString(form.getName1());
+			out.writeString(form.getDescription1());
+			out.writeString(form.getName2());
+			out.writeString(form.getDescription2());
+			out.writeBugReports(form.getBugReports1());
+			out.writeSubsystems(form.getSubsystems1());
+		}
+
+		@Override
+		Command readCommand(JournalInput in, BugTrap bugTrap) throws IOException {
+			SplitSubsystemForm form = new SplitSubsystemForm();
+			form.setSubsystem(in.readSubsystem());
+			form.setName1(in.readString());
+			form.setDescription1(in.readString());
+			form.setName2(in.readString());
+			form.setDescription2(in.readString());
+			form.setBugReports1(in.readBugReports());
+			form.setSubsystems1(in.readSubsystems());
+			return new SplitSubsystemCommand(bugTrap, form);
+		}
+	},
+	MERGE_SUBSYSTEM(MergeSubsystemCommand.class) {
+		@Override
+		void writeForm(JournalOutput out, Form f) throws IOException {
+			MergeSubsystemForm form = (MergeSubsystemForm) f;
+			out.writeString(form.getName());
+			out.writeString(form.getDescription());
+			out.writeSubsystem(form.getSubsystem1());
+			out.writeSubsystem(form.getSubsystem2());
+		}
+
+		@Override
+		Command readCommand(JournalInput in, BugTrap bugTrap) throws IOException {
+			MergeSubsystemForm form = new MergeSubsystemForm();
+			form.setName(in.readString());
+			form.setDescription(in.readString());
+			form.setSubsystem1(in.readSubsystem());
+			form.setSubsystem2(in.readSubsystem());
+			return new MergeSubsystemCommand(bugTrap, form);
+		}
+	},
+	ARCHIVE_BUGREPORTS(ArchiveBugReportsCommand.class) {
+		@Override
+		void writeForm(JournalOutput out, Form f) throws IOException {
+			out.writeVarInt(((ArchiveBugReportsForm) f).getDays());
+		}
+
+		@Override
+		Command readCommand(JournalInput in, BugTrap bugTrap) throws IOException {
+			ArchiveBugReportsForm form = new ArchiveBugReportsForm();
+			form.setDays(in.readVarInt());
+			return new ArchiveBugReportsCommand(bugTrap, form);
+		}
+	};
+
+	private final Class<? extends Command> commandClass;
+
+	CommandType(Class<? extends Command> commandClass) {
+		this.commandClass = commandClass;
+	}
+
+	/**
+	 * Write the input of a command of this type.
+	 * @param out The journal entry to write to.
+	 * @param form The form of the command.
+	 */
+	abstract void writeForm(JournalOutput out, Form form) throws IOException;
+
+	/**
+	 * Read the input of a command of this type and recreate the command.
+	 * @param in The journal entry to read from.
+	 * @param bugTrap The BugTrap system to execute the command on.
+	 * @return The recreated command.
+	 */
+	abstract Command readCommand(JournalInput in, BugTrap bugTrap) throws IOException;
+
+	/**
+	 * Return the type of the given command.
+	 * @param command The command.
+	 * @return The type of the command.
+	 * @throws IllegalArgumentException if the command can not be journaled.
+	 */
+	static CommandType of(Command command) {
+		for (CommandType type : values())
+			if (type.commandClass == command.getClass())
+				return type;
+		throw new IllegalArgumentException("Commands of type " + command.getClass().getSimpleName() + " can not be journaled.");
+	}
+}
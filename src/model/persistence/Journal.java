@@ -0,0 +1,249 @@
+package model.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.zip.CRC32;
+
+import controllers.exceptions.UnauthorizedAccessException;
+import model.BugTrap;
+import model.Command;
+import model.users.IUser;
+
+/**
+ * Write-ahead journal of the commands executed on a BugTrap system.
+ * Each entry holds the date, the logged in user and the input of one command,
+ * so replaying the journal on top of the snapshot it was started on restores the state.
+ *
+ * Entries are written to disk in groups: the journal is only forced to disk
+ * once every group size entries, and when it is synced or closed.
+ * A crash loses at most the entries of the last, unfinished group.
+ * A torn entry at the end of the journal is detected by its checksum and dropped on replay.
+ */
+public class Journal {
+
+	static final byte[] MAGIC = { 'B', 'T', 'J', 'N' };
+	static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = MAGIC.length + 1;	//Magic followed by the version in one byte.
+	private static final int ENTRY_HEADER_SIZE = 8;				//Length and checksum of the entry.
+
+	private final BugTrap bugTrap;
+	private final File file;
+	private final int groupSize;
+	private final FileChannel channel;
+
+	private final ByteArrayOutputStream group = new ByteArrayOutputStream();	//Entries of the current group.
+	private int groupEntries;
+	private int entries;
+
+	/**
+	 * Open the given journal file. The entries in it are only replayed by replay.
+	 * @param bugTrap The BugTrap system the journaled commands are executed on.
+	 * @param file The journal file, created if it does not exist.
+	 * @param groupSize The number of entries that are written to disk together.
+	 * @throws IOException if the file can not be opened.
+	 */
+	public Journal(BugTrap bugTrap, File file, int groupSize) throws IOException {
+		if (groupSize < 1) throw new IllegalArgumentException("The group size should be at least 1.");
+
+		this.bugTrap = bugTrap;
+		this.file = file;
+		this.groupSize = groupSize;
+		this.channel = new RandomAccessFile(file, "rw").getChannel();
+	}
+
+	/**
+	 * Encode the given command, before it is executed.
+	 * @param command The command to encode.
+	 * @param date The date on which the command is executed.
+	 * @return The encoded entry.
+	 * @throws IllegalArgumentException if the command can not be journaled.
+	 */
+	public byte[] encode(Command command, Date date) {
+		CommandType type = CommandType.of(command);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		JournalOutput out = new JournalOutput(bytes, bugTrap);
+		try {
+			out.writeDate(date);
+			out.writeUser(bugTrap.getLoggedInUser());
+			out.writeEnum(type);
+			type.writeForm(out, command.getForm());
+			out.flush();
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not encode the command.", e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Append an encoded entry to the journal. The entry is written to disk when its group is full.
+	 * @param entry The entry, as returned by encode.
+	 * @throws IOException if the journal can not be written.
+	 */
+	public void append(byte[] entry) throws IOException {
+		CRC32 checksum = new CRC32();
+		checksum.update(entry);
+
+		DataOutputStream out = new DataOutputStream(group);
+		out.writeInt(entry.length);
+		out.writeInt((int) checksum.getValue());
+		out.write(entry);
+		groupEntries++;
+		entries++;
+
+		if (groupEntries >= groupSize)
+			sync();
+	}
+
+	/**
+	 * Write all appended entries to disk.
+	 * @throws IOException if the journal can not be written.
+	 */
+	public void sync() throws IOException {
+		if (groupEntries == 0)
+			return;
+
+		ByteBuffer buffer = ByteBuffer.wrap(group.toByteArray());
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		channel.force(false);
+		group.reset();
+		groupEntries = 0;
+	}
+
+	/**
+	 * Write all appended entries to disk and close the journal file.
+	 * @throws IOException if the journal can not be written.
+	 */
+	public void close() throws IOException {
+		try {
+			sync();
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Execute the commands in the journal again, in order.
+	 * Each command is executed as the user that was logged in and with the date on which it was first executed.
+	 * A torn entry at the end of the journal is removed.
+	 * @return The number of replayed commands.
+	 * @throws IOException if the journal can not be read, or a command in it can not be executed again.
+	 */
+	public int replay() throws IOException {
+		long size = channel.size();
+		if (size < HEADER_SIZE) {
+			// New journal, or one that was torn before its header was complete.
+			channel.truncate(0);
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.put(MAGIC).put((byte) VERSION).flip();
+			while (header.hasRemaining())
+				channel.write(header, header.position());
+			channel.force(false);
+			channel.position(HEADER_SIZE);
+			return 0;
+		}
+
+		channel.position(0);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+		byte[] magic = new byte[MAGIC.length];
+		in.readFully(magic);
+		if (!Arrays.equals(magic, MAGIC))
+			throw new IOException("Not a BugTrap journal.");
+		int version = in.readUnsignedByte();
+		if (version != VERSION)
+			throw new IOException("Unsupported journal version " + version + ".");
+
+		long offset = HEADER_SIZE;
+		int replayed = 0;
+		while (offset < size) {
+			if (size - offset < ENTRY_HEADER_SIZE)
+				break;
+			int length = in.readInt();
+			int expected = in.readInt();
+			if (length < 0 || length > size - offset - ENTRY_HEADER_SIZE)
+				break;
+			byte[] entry = new byte[length];
+			in.readFully(entry);
+			CRC32 checksum = new CRC32();
+			checksum.update(entry);
+			if ((int) checksum.getValue() != expected)
+				break;
+
+			execute(entry, offset);
+			offset += ENTRY_HEADER_SIZE + length;
+			replayed++;
+		}
+
+		if (offset < size) {
+			channel.truncate(offset);
+			channel.force(false);
+		}
+		channel.position(offset);
+		entries = replayed;
+		return replayed;
+	}
+
+	private void execute(byte[] entry, long offset) throws IOException {
+		IUser previous = bugTrap.getLoggedInUser();
+		try {
+			JournalInput in = new JournalInput(new ByteArrayInputStream(entry), bugTrap);
+			Date date = in.readDate();
+			IUser user = in.readUser();
+			CommandType type = in.readEnum(CommandType.class);
+			if (type == null) throw new IOException("Malformed journal: entry without command.");
+			Command command = type.readCommand(in, bugTrap);
+
+			logInAs(user);
+			bugTrap.setCurrentDate(date);
+			command.execute();
+		} catch (UnauthorizedAccessException | RuntimeException e) {
+			throw new IOException("The journal entry at " + offset + " could not be replayed.", e);
+		} finally {
+			bugTrap.setCurrentDate(null);
+			logInAs(previous);
+		}
+	}
+
+	private void logInAs(IUser user) {
+		if (user == null)
+			bugTrap.getUserManager().logOff();
+		else
+			bugTrap.getUserManager().loginAs(user);
+	}
+
+	/**
+	 *
+	 * @return The journal file.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 *
+	 * @return The number of entries that are written to disk together.
+	 */
+	public int getGroupSize() {
+		return groupSize;
+	}
+
+	/**
+	 *
+	 * @return The number of entries in the journal, including those not yet written to disk.
+	 */
+	public int getEntryCount() {
+		return entries;
+	}
+}
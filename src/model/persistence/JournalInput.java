@@ -0,0 +1,161 @@
+package model.persistence;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import model.BugTrap;
+import model.bugreports.IBugReport;
+import model.bugreports.comments.Comment;
+import model.bugreports.comments.ICommentable;
+import model.notifications.IRegistration;
+import model.notifications.Observable;
+import model.projects.IProject;
+import model.projects.ISubsystem;
+import model.projects.ISystem;
+import model.projects.Version;
+import model.users.IUser;
+import model.users.exceptions.NoUserWithUserNameException;
+
+/**
+ * Decoding of a single journal entry written by JournalOutput,
+ * against the same state of the BugTrap system it was written on.
+ */
+class JournalInput extends SnapshotInput {
+
+	private final BugTrap bugTrap;
+
+	JournalInput(InputStream in, BugTrap bugTrap) {
+		super(in);
+		this.bugTrap = bugTrap;
+	}
+
+	IUser readUser() throws IOException {
+		String userName = readString();
+		if (userName == null)
+			return null;
+		try {
+			return bugTrap.getUserManager().getUser(userName);
+		} catch (NoUserWithUserNameException e) {
+			throw new IOException("Malformed journal: unknown user " + userName);
+		}
+	}
+
+	IProject readProject() throws IOException {
+		return readReference(bugTrap.getProjectManager().getProjects());
+	}
+
+	ISubsystem readSubsystem() throws IOException {
+		IProject project = readProject();
+		if (project == null)
+			return null;
+
+		int index = readVarInt();
+		List<ISubsystem> subsystems = project.getAllDirectOrIndirectSubsystems();
+		if (index >= subsystems.size()) throw new IOException("Malformed journal: unknown subsystem " + index);
+
+		return subsystems.get(index);
+	}
+
+	ISystem readSystem() throws IOException {
+		int kind = readVarInt();
+		switch (kind) {
+			case 0:
+				return null;
+			case JournalOutput.SYSTEM_PROJECT:
+				return readProject();
+			case JournalOutput.SYSTEM_SUBSYSTEM:
+				return readSubsystem();
+			default:
+				throw new IOException("Malformed journal: unknown system kind " + kind);
+		}
+	}
+
+	IBugReport readBugReport() throws IOException {
+		int code = readVarInt();
+		if (code == 0)
+			return null;
+		IBugReport bugReport = bugTrap.getBugReportManager().getBugReportAt(code - 1);
+		if (bugReport == null) throw new IOException("Malformed journal: unknown reference " + (code - 1));
+
+		return bugReport;
+	}
+
+	ICommentable readCommentable() throws IOException {
+		int kind = readVarInt();
+		switch (kind) {
+			case 0:
+				return null;
+			case JournalOutput.COMMENTABLE_BUGREPORT:
+				return readBugReport();
+			case JournalOutput.COMMENTABLE_COMMENT:
+				IBugReport bugReport = readBugReport();
+				if (bugReport == null) throw new IOException("Malformed journal: comment without bug report.");
+
+				ICommentable commentable = bugReport;
+				int depth = readVarInt();
+				for (int i = 0; i < depth; i++) {
+					int index = readVarInt();
+					List<Comment> comments = commentable.getComments();
+					if (index >= comments.size()) throw new IOException("Malformed journal: unknown comment " + index);
+
+					commentable = comments.get(index);
+				}
+				return commentable;
+			default:
+				throw new IOException("Malformed journal: unknown commentable kind " + kind);
+		}
+	}
+
+	Observable readObservable() throws IOException {
+		int kind = readVarInt();
+		switch (kind) {
+			case SnapshotWriter.OBSERVES_PROJECT:
+				return readProject();
+			case SnapshotWriter.OBSERVES_SUBSYSTEM:
+				return readSubsystem();
+			case SnapshotWriter.OBSERVES_BUGREPORT:
+				return readBugReport();
+			default:
+				throw new IOException("Malformed journal: unknown observable kind " + kind);
+		}
+	}
+
+	IRegistration readRegistration() throws IOException {
+		return readReference(bugTrap.getNotificationManager().getRegistrations());
+	}
+
+	List<IBugReport> readBugReports() throws IOException {
+		int count = readVarInt();
+		List<IBugReport> bugReports = new ArrayList<>();
+		for (int i = 0; i < count; i++)
+			bugReports.add(readBugReport());
+		return bugReports;
+	}
+
+	List<ISubsystem> readSubsystems() throws IOException {
+		int count = readVarInt();
+		List<ISubsystem> subsystems = new ArrayList<>();
+		for (int i = 0; i < count; i++)
+			subsystems.add(readSubsystem());
+		return subsystems;
+	}
+
+	List<Integer> readNumbers() throws IOException {
+		int count = readVarInt();
+		List<Integer> numbers = new ArrayList<>();
+		for (int i = 0; i < count; i++)
+			numbers.add((int) readVarLong());
+		return numbers;
+	}
+
+	Date readNullableDate() throws IOException {
+		return readBoolean() ? readDate() : null;
+	}
+
+	Version readVersion() throws IOException {
+		return readBoolean() ? new Version(readVarInt(), readVarInt(), readVarInt()) : null;
+	}
+}
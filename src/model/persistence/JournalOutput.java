@@ -0,0 +1,206 @@
+package model.persistence;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import model.BugTrap;
+import model.bugreports.BugReport;
+import model.bugreports.IBugReport;
+import model.bugreports.comments.Comment;
+import model.bugreports.comments.ICommentable;
+import model.notifications.IRegistration;
+import model.notifications.Observable;
+import model.projects.IProject;
+import model.projects.ISubsystem;
+import model.projects.ISystem;
+import model.projects.Subsystem;
+import model.projects.Version;
+import model.users.IUser;
+
+/**
+ * Encoding of a single journal entry.
+ * Objects of the BugTrap system are written as references into its current state,
+ * so an entry can only be decoded against the state it was encoded on.
+ */
+class JournalOutput extends SnapshotOutput {
+
+	// Kinds of systems and commentables a reference can refer to.
+	static final int SYSTEM_PROJECT = 1;
+	static final int SYSTEM_SUBSYSTEM = 2;
+	static final int COMMENTABLE_BUGREPORT = 1;
+	static final int COMMENTABLE_COMMENT = 2;
+
+	private final BugTrap bugTrap;
+
+	JournalOutput(OutputStream out, BugTrap bugTrap) {
+		super(out);
+		this.bugTrap = bugTrap;
+	}
+
+	void writeUser(IUser user) throws IOException {
+		writeString(user == null ? null : user.getUserName());
+	}
+
+	void writeProject(IProject project) throws IOException {
+		if (project == null) {
+			writeReference(null);
+			return;
+		}
+		writeReference(indexOf(bugTrap.getProjectManager().getProjects(), project));
+	}
+
+	// The project that holds the subsystem, followed by the index of the subsystem in that project.
+	// The pre-order number of a subsystem is its index, so only a subsystem whose project is gone is looked for.
+	void writeSubsystem(ISubsystem subsystem) throws IOException {
+		if (subsystem == null) {
+			writeReference(null);
+			return;
+		}
+
+		List<IProject> projects = bugTrap.getProjectManager().getProjects();
+		IProject owner = subsystem.getProject();
+		int index = owner == null || indexOfIdentity(projects, owner) == -1 ? -1 : ((Subsystem) subsystem).getPreorderNumber() - 1;
+		if (index == -1) {
+			for (IProject project : projects) {
+				index = indexOfIdentity(project.getAllDirectOrIndirectSubsystems(), subsystem);
+				if (index != -1) {
+					owner = project;
+					break;
+				}
+			}
+		}
+		if (index == -1) throw new IllegalArgumentException("The subsystem is not part of the BugTrap system.");
+
+		writeReference(indexOf(projects, owner));
+		writeVarInt(index);
+	}
+
+	void writeSystem(ISystem system) throws IOException {
+		if (system == null) {
+			writeVarInt(0);
+		} else if (system instanceof IProject) {
+			writeVarInt(SYSTEM_PROJECT);
+			writeProject((IProject) system);
+		} else {
+			writeVarInt(SYSTEM_SUBSYSTEM);
+			writeSubsystem((ISubsystem) system);
+		}
+	}
+
+	// Archived bug reports are referred to after the bug report list, so commands can still refer to them.
+	void writeBugReport(IBugReport bugReport) throws IOException {
+		if (bugReport == null) {
+			writeReference(null);
+			return;
+		}
+		int position = bugTrap.getBugReportManager().positionOf(bugReport);
+		if (position == -1) throw new IllegalArgumentException("The object is not part of the BugTrap system.");
+
+		writeReference(position);
+	}
+
+	// A comment is written as the bug report it belongs to, followed by its path in the comment tree.
+	void writeCommentable(ICommentable commentable) throws IOException {
+		if (commentable == null) {
+			writeVarInt(0);
+		} else if (commentable instanceof IBugReport) {
+			writeVarInt(COMMENTABLE_BUGREPORT);
+			writeBugReport((IBugReport) commentable);
+		} else {
+			Comment comment = (Comment) commentable;
+			List<Integer> path = new ArrayList<>();
+			// A comment can only be part of a body that is on the heap, a mapped body is not decoded to look for it.
+			BugReport bugReport = comment.getBugReport();
+			if (!bugReport.isBodyResident() || !findPath(bugReport.getComments(), comment, path))
+				throw new IllegalArgumentException("The comment is not part of its bug report.");
+
+			writeVarInt(COMMENTABLE_COMMENT);
+			writeBugReport(comment.getBugReport());
+			writeVarInt(path.size());
+			for (Integer index : path)
+				writeVarInt(index);
+		}
+	}
+
+	private static boolean findPath(List<Comment> comments, Comment comment, List<Integer> path) {
+		for (int i = 0; i < comments.size(); i++) {
+			path.add(i);
+			if (comments.get(i) == comment || findPath(comments.get(i).getComments(), comment, path))
+				return true;
+			path.remove(path.size() - 1);
+		}
+		return false;
+	}
+
+	void writeObservable(Observable observable) throws IOException {
+		if (observable instanceof IProject) {
+			writeVarInt(SnapshotWriter.OBSERVES_PROJECT);
+			writeProject((IProject) observable);
+		} else if (observable instanceof ISubsystem) {
+			writeVarInt(SnapshotWriter.OBSERVES_SUBSYSTEM);
+			writeSubsystem((ISubsystem) observable);
+		} else {
+			writeVarInt(SnapshotWriter.OBSERVES_BUGREPORT);
+			writeBugReport((IBugReport) observable);
+		}
+	}
+
+	void writeRegistration(IRegistration registration) throws IOException {
+		if (registration == null) {
+			writeReference(null);
+			return;
+		}
+		writeReference(indexOf(bugTrap.getNotificationManager().getRegistrations(), registration));
+	}
+
+	void writeBugReports(List<IBugReport> bugReports) throws IOException {
+		writeVarInt(bugReports.size());
+		for (IBugReport bugReport : bugReports)
+			writeBugReport(bugReport);
+	}
+
+	void writeSubsystems(List<ISubsystem> subsystems) throws IOException {
+		writeVarInt(subsystems.size());
+		for (ISubsystem subsystem : subsystems)
+			writeSubsystem(subsystem);
+	}
+
+	void writeNumbers(List<Integer> numbers) throws IOException {
+		writeVarInt(numbers.size());
+		for (Integer number : numbers)
+			writeVarLong(number);
+	}
+
+	void writeNullableDate(Date date) throws IOException {
+		writeBoolean(date != null);
+		if (date != null)
+			writeDate(date);
+	}
+
+	void writeVersion(Version version) throws IOException {
+		writeBoolean(version != null);
+		if (version != null) {
+			writeVarInt(version.getMajor());
+			writeVarInt(version.getMinor());
+			writeVarInt(version.getRevision());
+		}
+	}
+
+	private static int indexOf(List<?> list, Object element) {
+		int index = indexOfIdentity(list, element);
+		if (index == -1) throw new IllegalArgumentException("The object is not part of the BugTrap system.");
+
+		return index;
+	}
+
+	// Projects and subsystems compare by value, references have to be exact.
+	private static int indexOfIdentity(List<?> list, Object element) {
+		for (int i = 0; i < list.size(); i++)
+			if (list.get(i) == element)
+				return i;
+		return -1;
+	}
+}
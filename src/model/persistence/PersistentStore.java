@@ -0,0 +1,377 @@
+package model.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import model.BugTrap;
+
+/**
+ * Keeps the state of a BugTrap system in a directory, as a snapshot followed by journal segments.
+ * Every executed command is journaled in the current segment. Compaction starts a new segment and
+ * writes a snapshot of the state at the start of that segment, after which the older segments and
+ * snapshots are removed. Startup loads the newest snapshot and only replays the segments after it.
+ * A background compaction builds the state at the start of the new segment the same way, from the newest snapshot and
+ * the segments after it, on a BugTrap system of its own. So commands keep changing the state while the snapshot is written.
+ *
+ * A snapshot is first written to a temporary file, forced to disk and then renamed,
+ * so a crash during compaction leaves either the old or the new snapshot, together with all the
+ * segments that have to be replayed on top of it.
+ */
+public class PersistentStore {
+
+	/**
+	 * The stages of a compaction, in order.
+	 */
+	public enum Stage {
+		JOURNAL_ROLLED,		//A new journal segment was started.
+		SNAPSHOT_WRITTEN,	//The snapshot was written to its temporary file.
+		SNAPSHOT_INSTALLED,	//The snapshot was renamed to its final name.
+		FILE_DELETED		//An older segment or snapshot was deleted.
+	}
+
+	private static final String SNAPSHOT_PREFIX = "snapshot-";
+	private static final String SNAPSHOT_SUFFIX = ".bts";
+	private static final String SEGMENT_PREFIX = "journal-";
+	private static final String SEGMENT_SUFFIX = ".btj";
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	private final BugTrap bugTrap;
+	private final File directory;
+	private final int groupSize;
+
+	private int segment;			//Number of the journal segment commands are written to.
+	private int compactionThreshold;	//Number of entries in a segment that start a compaction, 0 for none.
+	private Thread compaction;		//Compaction that is writing its snapshot, if any.
+	private volatile IOException failure;	//Failure of a background compaction, thrown by the next awaitCompaction.
+
+	/**
+	 * Constructor.
+	 * @param bugTrap The BugTrap system to keep.
+	 * @param directory The directory holding the snapshots and journal segments.
+	 * @param groupSize The number of commands that are written to disk together.
+	 */
+	public PersistentStore(BugTrap bugTrap, File directory, int groupSize) {
+		this.bugTrap = bugTrap;
+		this.directory = directory;
+		this.groupSize = groupSize;
+	}
+
+	/**
+	 * Restore the state from the directory and start journaling to it.
+	 * If the directory holds no state yet, the current state of the BugTrap system is written as the first snapshot.
+	 * Otherwise the BugTrap system should be empty.
+	 * @return The number of replayed commands.
+	 * @throws IOException if the state can not be read, or the directory can not be written.
+	 */
+	public int open() throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Can not create " + directory);
+
+		// Left behind by a compaction that did not finish.
+		for (File file : listFiles(TEMPORARY_SUFFIX))
+			Files.delete(file.toPath());
+
+		List<Integer> snapshots = listNumbers(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+		List<Integer> segments = listNumbers(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+		if (snapshots.isEmpty() && segments.isEmpty()) {
+			install(0, write(bugTrap, 0));
+		}
+
+		int covered = 0;
+		if (!snapshots.isEmpty()) {
+			SnapshotLoader loader = new SnapshotLoader(bugTrap);
+			loader.load(snapshotFile(snapshots.get(snapshots.size() - 1)));
+			covered = loader.getJournalSegment();
+		}
+		deleteOlderThan(covered);
+
+		List<Integer> tail = new ArrayList<>();
+		for (Integer number : segments)
+			if (number >= covered)
+				tail.add(number);
+
+		int replayed = 0;
+		for (int i = 0; i < tail.size() - 1; i++) {
+			Journal journal = new Journal(bugTrap, segmentFile(tail.get(i)), groupSize);
+			try {
+				replayed += journal.replay();
+			} finally {
+				journal.close();
+			}
+		}
+		segment = tail.isEmpty() ? covered : tail.get(tail.size() - 1);
+		replayed += bugTrap.openJournal(segmentFile(segment), groupSize);
+		return replayed;
+	}
+
+	/**
+	 * Determines if the directory already holds a state, which open restores into an empty BugTrap system.
+	 * @return true if the directory holds a snapshot or a journal segment.
+	 */
+	public boolean hasState() {
+		return !listNumbers(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX).isEmpty() || !listNumbers(SEGMENT_PREFIX, SEGMENT_SUFFIX).isEmpty();
+	}
+
+	/**
+	 * Compact the journal and wait until the snapshot is written.
+	 * @throws IOException if the snapshot can not be written, or an earlier background compaction failed.
+	 */
+	public void compact() throws IOException {
+		awaitCompaction();
+		int next = segment + 1;
+		roll(next);
+		install(next, write(bugTrap, next));
+	}
+
+	/**
+	 * Compact the journal. A new journal segment is started right away, the snapshot is built and written in the background.
+	 * Nothing is done if an earlier compaction is still writing its snapshot.
+	 * A failure of the compaction is thrown by the next awaitCompaction, compact or close.
+	 * @throws IOException if a new journal segment can not be started.
+	 */
+	public void compactInBackground() throws IOException {
+		if (isCompacting())
+			return;
+
+		List<Integer> snapshots = listNumbers(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+		if (snapshots.isEmpty()) throw new IOException("No snapshot to compact from in " + directory);
+
+		final int newest = snapshots.get(snapshots.size() - 1);
+		final int next = segment + 1;
+		roll(next);
+		compaction = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					install(next, rebuild(newest, next));
+				} catch (IOException e) {
+					failed(e);
+				} catch (RuntimeException e) {
+					failed(new IOException("Compaction failed.", e));
+				}
+			}
+		}, "BugTrap compaction");
+		compaction.start();
+	}
+
+	// Keeps the first failure, later ones are added to it.
+	private void failed(IOException e) {
+		if (failure == null)
+			failure = e;
+		else
+			failure.addSuppressed(e);
+	}
+
+	/**
+	 * Called after a command was journaled. Starts a compaction if the current segment holds enough entries.
+	 * @throws IOException if a new journal segment can not be started.
+	 */
+	public void commandJournaled() throws IOException {
+		if (compactionThreshold > 0 && bugTrap.getJournal().getEntryCount() >= compactionThreshold)
+			compactInBackground();
+	}
+
+	/**
+	 * Wait for a running compaction, write all journaled commands to disk and stop journaling.
+	 * @throws IOException if the journal can not be written.
+	 */
+	public void close() throws IOException {
+		try {
+			awaitCompaction();
+		} finally {
+			bugTrap.closeJournal();
+		}
+	}
+
+	/**
+	 * Wait until the running compaction, if any, has written its snapshot.
+	 * @throws IOException if interrupted while waiting, or if a background compaction failed since the last call.
+	 */
+	public void awaitCompaction() throws IOException {
+		if (compaction != null) {
+			try {
+				compaction.join();
+				compaction = null;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for compaction.");
+			}
+		}
+
+		IOException failed = failure;
+		if (failed != null) {
+			failure = null;
+			throw failed;
+		}
+	}
+
+	/**
+	 *
+	 * @return <tt>true</tt> if a compaction is writing its snapshot.
+	 */
+	public boolean isCompacting() {
+		return compaction != null && compaction.isAlive();
+	}
+
+	/**
+	 * Set the number of entries in a journal segment that starts a compaction in the background.
+	 * @param entries The number of entries, 0 to only compact on request.
+	 */
+	public void setCompactionThreshold(int entries) {
+		if (entries < 0) throw new IllegalArgumentException("The compaction threshold can not be negative.");
+
+		this.compactionThreshold = entries;
+	}
+
+	/**
+	 *
+	 * @return The number of entries in a journal segment that starts a compaction, 0 for none.
+	 */
+	public int getCompactionThreshold() {
+		return compactionThreshold;
+	}
+
+	/**
+	 *
+	 * @return The directory holding the snapshots and journal segments.
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 *
+	 * @return The number of the journal segment commands are written to.
+	 */
+	public int getSegment() {
+		return segment;
+	}
+
+	/**
+	 * Called when a compaction reached the given stage. Does nothing, subclasses can use it to follow compactions.
+	 * @param stage The stage that was reached.
+	 * @param file The file the stage is about.
+	 */
+	protected void reached(Stage stage, File file) {
+	}
+
+	// Start the given journal segment.
+	private void roll(int next) throws IOException {
+		bugTrap.closeJournal();
+		bugTrap.openJournal(segmentFile(next), groupSize);
+		segment = next;
+		reached(Stage.JOURNAL_ROLLED, segmentFile(next));
+	}
+
+	private static byte[] write(BugTrap bugTrap, int next) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new SnapshotWriter(bugTrap, next).write(bytes);
+		return bytes.toByteArray();
+	}
+
+	// Runs on the compaction thread. Builds the state at the start of the given segment like open does,
+	// from the given snapshot and the closed segments after it, and takes a snapshot of that.
+	private byte[] rebuild(int snapshot, int next) throws IOException {
+		BugTrap rebuilt = new BugTrap();
+		SnapshotLoader loader = new SnapshotLoader(rebuilt);
+		loader.load(snapshotFile(snapshot));
+		for (int number = loader.getJournalSegment(); number < next; number++) {
+			if (!segmentFile(number).exists())
+				continue;
+			Journal journal = new Journal(rebuilt, segmentFile(number), groupSize);
+			try {
+				journal.replay();
+			} finally {
+				journal.close();
+			}
+		}
+		return write(rebuilt, next);
+	}
+
+	// Only touches the file system, so it can run next to new commands.
+	private void install(int number, byte[] snapshot) throws IOException {
+		File temporary = new File(directory, SNAPSHOT_PREFIX + number + TEMPORARY_SUFFIX);
+		try (FileOutputStream out = new FileOutputStream(temporary)) {
+			out.write(snapshot);
+			out.getFD().sync();
+		}
+		reached(Stage.SNAPSHOT_WRITTEN, temporary);
+
+		File installed = snapshotFile(number);
+		Files.move(temporary.toPath(), installed.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		syncDirectory();
+		reached(Stage.SNAPSHOT_INSTALLED, installed);
+
+		deleteOlderThan(number);
+	}
+
+	// Delete the snapshots and segments that are covered by the snapshot with the given number.
+	private void deleteOlderThan(int number) throws IOException {
+		for (Integer older : listNumbers(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+			if (older < number) {
+				Files.delete(snapshotFile(older).toPath());
+				reached(Stage.FILE_DELETED, snapshotFile(older));
+			}
+		}
+		for (Integer older : listNumbers(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+			if (older < number) {
+				Files.delete(segmentFile(older).toPath());
+				reached(Stage.FILE_DELETED, segmentFile(older));
+			}
+		}
+	}
+
+	// Makes the rename durable. Not every platform can force a directory.
+	private void syncDirectory() {
+		try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch (IOException e) {
+			// The rename is durable once the file system flushes its metadata.
+		}
+	}
+
+	private File snapshotFile(int number) {
+		return new File(directory, SNAPSHOT_PREFIX + number + SNAPSHOT_SUFFIX);
+	}
+
+	private File segmentFile(int number) {
+		return new File(directory, SEGMENT_PREFIX + number + SEGMENT_SUFFIX);
+	}
+
+	private List<File> listFiles(String suffix) {
+		List<File> files = new ArrayList<>();
+		File[] all = directory.listFiles();
+		if (all != null)
+			for (File file : all)
+				if (file.getName().endsWith(suffix))
+					files.add(file);
+		return files;
+	}
+
+	// Sorted numbers of the files named prefix + number + suffix.
+	private List<Integer> listNumbers(String prefix, String suffix) {
+		List<Integer> numbers = new ArrayList<>();
+		for (File file : listFiles(suffix)) {
+			String name = file.getName();
+			if (!name.startsWith(prefix))
+				continue;
+			try {
+				numbers.add(Integer.parseInt(name.substring(prefix.length(), name.length() - suffix.length())));
+			} catch (NumberFormatException e) {
+				// Not one of ours.
+			}
+		}
+		Collections.sort(numbers);
+		return numbers;
+	}
+}
@@ -0,0 +1,503 @@
+package model.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import model.BugTrap;
+import model.bugreports.BugReport;
+import model.bugreports.IBugReport;
+import model.notifications.Observable;
+import model.projects.IProject;
+import model.projects.ISubsystem;
+import model.projects.Project;
+
+/**
+ * Keeps the state of a BugTrap system in a directory as one segment file per project,
+ * next to a core file with everything that is shared between projects.
+ * Saving only rewrites the segments of projects that are dirty, the core is rewritten every time.
+ *
+ * A segment holds a project with its team, subsystem tree and bug reports, and the forks that share
+ * its subsystems. The core holds the users, the order of the projects and of the bug reports in their
+ * managers, dependencies between bug reports of different segments, mailboxes and registrations.
+ * Users are only ever added, so the user references in segments that were not rewritten stay valid.
+ *
+ * Every rewritten segment gets a new file, and the core is installed with an atomic rename after the
+ * segments are on disk. A crash during a save leaves the previous core with the segments it refers to.
+ */
+public class SegmentedSnapshot {
+
+	static final byte[] CORE_MAGIC = { 'B', 'T', 'S', 'C' };
+	static final byte[] SEGMENT_MAGIC = { 'B', 'T', 'S', 'S' };
+	static final int VERSION = 3;	//Version 2 records archived bug reports, version 3 terminal dates.
+
+	private static final String CORE = "core.bts";
+	private static final String SEGMENT_PREFIX = "segment-";
+	private static final String SEGMENT_SUFFIX = ".bts";
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	private final BugTrap bugTrap;
+	private final File directory;
+
+	private final Map<Project, Segment> segments = new IdentityHashMap<>();	//Segments on disk, by the first project of their group.
+	private int nextNumber;	//Number of the next segment file, 0 if the directory was not scanned yet.
+
+	/**
+	 * Constructor.
+	 * @param bugTrap The BugTrap system to keep.
+	 * @param directory The directory holding the core and the segments.
+	 */
+	public SegmentedSnapshot(BugTrap bugTrap, File directory) {
+		this.bugTrap = bugTrap;
+		this.directory = directory;
+	}
+
+	/**
+	 * Save the state to the directory. Only segments of dirty projects are rewritten.
+	 * All projects are clean afterwards.
+	 * @return The number of rewritten segments.
+	 * @throws IOException if the directory can not be written.
+	 */
+	public int save() throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Can not create " + directory);
+		if (nextNumber == 0)
+			nextNumber = highestSegmentNumber() + 1;
+
+		List<Segment> written = new ArrayList<>();
+		int rewritten = 0;
+		for (List<Project> group : groups()) {
+			Segment segment = segments.get(group.get(0));
+			if (segment == null || !segment.holds(group) || isDirty(group)) {
+				segment = writeSegment(group);
+				rewritten++;
+			}
+			written.add(segment);
+		}
+		writeCore(written);
+
+		segments.clear();
+		for (Segment segment : written) {
+			segments.put(segment.members.get(0), segment);
+			for (Project project : segment.members)
+				project.markClean();
+		}
+		deleteUnusedSegments(written);
+		return rewritten;
+	}
+
+	/**
+	 * Restore the state from the directory into the BugTrap system, which should be empty.
+	 * All projects are clean afterwards.
+	 * @throws IOException if the directory does not hold a valid segmented snapshot.
+	 */
+	public void load() throws IOException {
+		File core = new File(directory, CORE);
+		if (!core.isFile()) throw new IOException("No segmented snapshot in " + directory);
+
+		final List<Segment> loaded = new ArrayList<>();
+		final List<SnapshotLoader> loaders = new ArrayList<>();
+		SnapshotLoader coreLoader = new SnapshotLoader(bugTrap) {
+			@Override
+			Observable readObservable(SnapshotInput in) throws IOException {
+				int kind = in.readVarInt();
+				SnapshotLoader loader = readElement(in, loaders);
+				switch (kind) {
+					case SnapshotWriter.OBSERVES_PROJECT:
+						return readElement(in, loader.getProjects());
+					case SnapshotWriter.OBSERVES_SUBSYSTEM:
+						return readElement(in, loader.getSubsystems());
+					case SnapshotWriter.OBSERVES_BUGREPORT:
+						return readElement(in, loader.getBugReports());
+					default:
+						throw new IOException("Malformed snapshot: unknown observable kind " + kind);
+				}
+			}
+		};
+
+		try (InputStream stream = new BufferedInputStream(new FileInputStream(core))) {
+			SnapshotInput in = new SnapshotInput(stream);
+			int version = readHeader(in, CORE_MAGIC);
+			coreLoader.readUsers(in);
+
+			int count = in.readVarInt();
+			for (int i = 0; i < count; i++) {
+				int number = in.readVarInt();
+				SnapshotLoader loader = new SnapshotLoader(bugTrap);
+				loader.useUsers(coreLoader.getUsers());
+				loaded.add(readSegment(number, loader));
+				loaders.add(loader);
+			}
+
+			int projects = in.readVarInt();
+			for (int i = 0; i < projects; i++)
+				bugTrap.getProjectManager().addProject(readElement(in, readElement(in, loaders).getProjects()));
+
+			int managed = in.readVarInt();
+			for (int i = 0; i < managed; i++)
+				bugTrap.getBugReportManager().addBugReport(readElement(in, readElement(in, loaders).getBugReports()));
+
+			int archived = version >= 2 ? in.readVarInt() : 0;
+			for (int i = 0; i < archived; i++)
+				bugTrap.getBugReportManager().addArchivedBugReport(readElement(in, readElement(in, loaders).getBugReports()));
+
+			for (int i = 0; i < loaded.size(); i++)
+				readExternalDependencies(in, loaded.get(i), loaders.get(i), loaders);
+
+			coreLoader.readMailboxes(in);
+			coreLoader.readRegistrations(in);
+		}
+
+		segments.clear();
+		nextNumber = 0;
+		for (Segment segment : loaded) {
+			segments.put(segment.members.get(0), segment);
+			nextNumber = Math.max(nextNumber, segment.number + 1);
+			for (Project project : segment.members)
+				project.markClean();
+		}
+		deleteUnusedSegments(loaded);
+	}
+
+	/**
+	 *
+	 * @return The directory holding the core and the segments.
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	// Projects that share their subsystems form one group, in the order of the ProjectManager.
+	private List<List<Project>> groups() {
+		List<List<Project>> groups = new ArrayList<>();
+		for (IProject project : bugTrap.getProjectManager().getProjects()) {
+			List<Project> group = null;
+			for (List<Project> earlier : groups)
+				if (earlier.get(0).sharesSubsystemsWith((Project) project))
+					group = earlier;
+			if (group == null) {
+				group = new ArrayList<>();
+				groups.add(group);
+			}
+			group.add((Project) project);
+		}
+		return groups;
+	}
+
+	private static boolean isDirty(List<Project> group) {
+		for (Project project : group)
+			if (project.isDirty())
+				return true;
+		return false;
+	}
+
+	private Segment writeSegment(List<Project> group) throws IOException {
+		Segment segment = new Segment(nextNumber++, group);
+		SnapshotWriter writer = new SnapshotWriter(bugTrap);
+		writer.indexUsers();
+
+		try (FileOutputStream stream = new FileOutputStream(segmentFile(segment.number))) {
+			SnapshotOutput out = new SnapshotOutput(new BufferedOutputStream(stream));
+			out.writeBytes(SEGMENT_MAGIC);
+			out.writeVarInt(VERSION);
+			List<IProject> projects = new ArrayList<IProject>(group);
+			writer.writeProjects(out, projects);
+			writer.writeSubsystemTrees(out, projects);
+
+			segment.subsystems.putAll(writer.getSubsystemIndices());
+			List<BugReport> order = writer.getBugReportOrder();
+			for (int i = 0; i < order.size(); i++)
+				segment.bugReports.put(order.get(i), i);
+
+			// Dependencies on bug reports of other segments are left open here, the core fills them in.
+			for (int i = 0; i < order.size(); i++) {
+				List<IBugReport> dependsOn = order.get(i).getDependsOn();
+				List<IBugReport> external = new ArrayList<>();
+				out.writeVarInt(dependsOn.size());
+				for (IBugReport dependency : dependsOn) {
+					Integer index = segment.bugReports.get(dependency);
+					out.writeReference(index);
+					if (index == null)
+						external.add(dependency);
+				}
+				if (!external.isEmpty())
+					segment.external.put(i, external);
+			}
+			out.flush();
+			stream.getFD().sync();
+		}
+		return segment;
+	}
+
+	private Segment readSegment(int number, SnapshotLoader loader) throws IOException {
+		Segment segment;
+		try (InputStream stream = new BufferedInputStream(new FileInputStream(segmentFile(number)))) {
+			SnapshotInput in = new SnapshotInput(stream);
+			// Bug reports in segments of version 1 have no place in the archive, as in snapshots of version 2,
+			// and bug reports in segments of version 2 have no terminal date, as in snapshots of version 3.
+			int version = readHeader(in, SEGMENT_MAGIC);
+			if (version < 2)
+				loader.useVersion(2);
+			else if (version < 3)
+				loader.useVersion(3);
+			loader.readProjects(in);
+			loader.readSubsystemTrees(in);
+			segment = new Segment(number, loader.getProjects());
+
+			// Open dependencies stay null until the core is read.
+			List<BugReport> bugReports = loader.getBugReports();
+			for (int i = 0; i < bugReports.size(); i++) {
+				int count = in.readVarInt();
+				for (int j = 0; j < count; j++)
+					loader.getDependencies().get(i).add(in.readReference(bugReports));
+			}
+		}
+
+		for (int i = 0; i < loader.getSubsystems().size(); i++)
+			segment.subsystems.put(loader.getSubsystems().get(i), i);
+		for (int i = 0; i < loader.getBugReports().size(); i++)
+			segment.bugReports.put(loader.getBugReports().get(i), i);
+		return segment;
+	}
+
+	private void writeCore(final List<Segment> written) throws IOException {
+		final Map<Project, Integer> positions = new IdentityHashMap<>();
+		for (int i = 0; i < written.size(); i++)
+			for (Project project : written.get(i).members)
+				positions.put(project, i);
+
+		// Registrations refer to an observable by its segment and its index in that segment.
+		SnapshotWriter writer = new SnapshotWriter(bugTrap) {
+			@Override
+			boolean isWritten(Observable observable) {
+				Integer position = positionOf(positions, observable);
+				return position != null && written.get(position).indexOf(observable) != null;
+			}
+
+			@Override
+			void writeObservable(SnapshotOutput out, Observable observable) throws IOException {
+				int position = positionOf(positions, observable);
+				out.writeVarInt(SnapshotWriter.observableKind(observable));
+				out.writeVarInt(position);
+				out.writeVarInt(written.get(position).indexOf(observable));
+			}
+		};
+
+		File temporary = new File(directory, CORE + TEMPORARY_SUFFIX);
+		try (FileOutputStream stream = new FileOutputStream(temporary)) {
+			SnapshotOutput out = new SnapshotOutput(new BufferedOutputStream(stream));
+			out.writeBytes(CORE_MAGIC);
+			out.writeVarInt(VERSION);
+			writer.writeUsers(out);
+
+			out.writeVarInt(written.size());
+			for (Segment segment : written)
+				out.writeVarInt(segment.number);
+
+			List<IProject> projects = bugTrap.getProjectManager().getProjects();
+			out.writeVarInt(projects.size());
+			for (IProject project : projects) {
+				int position = positions.get(project);
+				out.writeVarInt(position);
+				out.writeVarInt(written.get(position).indexOf(project));
+			}
+
+			// Managed and archived bug reports that are in no segment are not saved, as with a plain snapshot.
+			writeBugReportReferences(out, written, positions, bugTrap.getBugReportManager().getBugReportList());
+			writeBugReportReferences(out, written, positions, bugTrap.getBugReportManager().getArchivedBugReports());
+
+			// One entry for every open dependency of a segment, in the order the segment left them open.
+			for (Segment segment : written) {
+				out.writeVarInt(segment.external.size());
+				for (Map.Entry<Integer, List<IBugReport>> entry : segment.external.entrySet()) {
+					out.writeVarInt(entry.getKey());
+					out.writeVarInt(entry.getValue().size());
+					for (IBugReport dependency : entry.getValue()) {
+						Integer position = dependency == null ? null : positionOf(positions, dependency);
+						Integer index = position == null ? null : written.get(position).bugReports.get(dependency);
+						out.writeReference(index == null ? null : position);
+						if (index != null)
+							out.writeVarInt(index);
+					}
+				}
+			}
+
+			writer.writeMailboxes(out);
+			writer.writeRegistrations(out);
+			out.flush();
+			stream.getFD().sync();
+		}
+
+		Files.move(temporary.toPath(), new File(directory, CORE).toPath(),
+				StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		syncDirectory();
+	}
+
+	private static void writeBugReportReferences(SnapshotOutput out, List<Segment> written, Map<Project, Integer> positions,
+			List<IBugReport> bugReports) throws IOException {
+		List<int[]> references = new ArrayList<>();
+		for (IBugReport report : bugReports) {
+			Integer position = positionOf(positions, report);
+			Integer index = position == null ? null : written.get(position).bugReports.get(report);
+			if (index != null)
+				references.add(new int[] { position, index });
+		}
+		out.writeVarInt(references.size());
+		for (int[] reference : references) {
+			out.writeVarInt(reference[0]);
+			out.writeVarInt(reference[1]);
+		}
+	}
+
+	private static void readExternalDependencies(SnapshotInput in, Segment segment, SnapshotLoader loader, List<SnapshotLoader> loaders) throws IOException {
+		int count = in.readVarInt();
+		for (int i = 0; i < count; i++) {
+			int local = in.readVarInt();
+			if (local >= loader.getDependencies().size()) throw new IOException("Malformed snapshot: unknown bug report " + local);
+
+			List<IBugReport> dependsOn = loader.getDependencies().get(local);
+			List<IBugReport> external = new ArrayList<>();
+			int open = in.readVarInt();
+			for (int j = 0; j < open; j++) {
+				SnapshotLoader other = in.readReference(loaders);
+				external.add(other == null ? null : readElement(in, other.getBugReports()));
+			}
+
+			// Fill the open places in order. The segment keeps its places for dependencies that were not saved.
+			int next = 0;
+			for (int j = 0; j < dependsOn.size() && next < external.size(); j++)
+				if (dependsOn.get(j) == null)
+					dependsOn.set(j, external.get(next++));
+			segment.external.put(local, external);
+		}
+		for (List<IBugReport> dependsOn : loader.getDependencies())
+			dependsOn.removeAll(Collections.singleton(null));
+	}
+
+	private static int readHeader(SnapshotInput in, byte[] expected) throws IOException {
+		byte[] magic = new byte[expected.length];
+		in.readBytes(magic);
+		if (!Arrays.equals(magic, expected))
+			throw new IOException("Not a BugTrap segmented snapshot.");
+		int version = in.readVarInt();
+		if (version < 1 || version > VERSION)
+			throw new IOException("Unsupported segmented snapshot version " + version + ".");
+		return version;
+	}
+
+	private static <T> T readElement(SnapshotInput in, List<T> elements) throws IOException {
+		int index = in.readVarInt();
+		if (index >= elements.size()) throw new IOException("Malformed snapshot: unknown element " + index);
+
+		return elements.get(index);
+	}
+
+	// Position of the segment that holds the observable, null if it is in none.
+	private static Integer positionOf(Map<Project, Integer> positions, Observable observable) {
+		if (observable instanceof Project)
+			return positions.get(observable);
+		if (observable instanceof ISubsystem)
+			return positions.get(((ISubsystem) observable).getProject());
+		ISubsystem subsystem = ((IBugReport) observable).getSubsystem();
+		return subsystem == null ? null : positions.get(subsystem.getProject());
+	}
+
+	private File segmentFile(int number) {
+		return new File(directory, SEGMENT_PREFIX + number + SEGMENT_SUFFIX);
+	}
+
+	// Number of a segment file, -1 for other files.
+	private static int segmentNumber(String name) {
+		if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX))
+			return -1;
+		try {
+			return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private int highestSegmentNumber() {
+		int highest = 0;
+		String[] names = directory.list();
+		if (names != null)
+			for (String name : names)
+				highest = Math.max(highest, segmentNumber(name));
+		return highest;
+	}
+
+	// Segments that the core does not refer to are left over from earlier saves.
+	private void deleteUnusedSegments(List<Segment> used) {
+		List<Integer> numbers = new ArrayList<>();
+		for (Segment segment : used)
+			numbers.add(segment.number);
+		String[] names = directory.list();
+		if (names == null)
+			return;
+		for (String name : names) {
+			int number = segmentNumber(name);
+			if (number >= 0 && !numbers.contains(number))
+				new File(directory, name).delete();
+		}
+	}
+
+	// Makes the rename of the core durable. Not every platform can open a directory, which is then skipped.
+	private void syncDirectory() {
+		try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch (IOException e) {
+			// The rename is still atomic, only its durability depends on the platform.
+		}
+	}
+
+	// A segment file with the indices of what it holds, so unchanged segments need not be read again.
+	private static class Segment {
+		private final int number;
+		private final List<Project> members;	//The projects of the group, first the one the others share with.
+		private final Map<ISubsystem, Integer> subsystems = new IdentityHashMap<>();
+		private final Map<IBugReport, Integer> bugReports = new IdentityHashMap<>();
+		private final Map<Integer, List<IBugReport>> external = new LinkedHashMap<>();	//Dependencies on other segments, by bug report index.
+
+		private Segment(int number, List<Project> members) {
+			this.number = number;
+			this.members = new ArrayList<>(members);
+		}
+
+		private boolean holds(List<Project> group) {
+			if (group.size() != members.size())
+				return false;
+			for (int i = 0; i < group.size(); i++)
+				if (group.get(i) != members.get(i))
+					return false;
+			return true;
+		}
+
+		private Integer indexOf(Observable observable) {
+			// Forks equal the project they were forked from, so members are compared by identity.
+			if (observable instanceof Project) {
+				for (int i = 0; i < members.size(); i++)
+					if (members.get(i) == observable)
+						return i;
+				return null;
+			}
+			if (observable instanceof ISubsystem)
+				return subsystems.get(observable);
+			return bugReports.get(observable);
+		}
+	}
+}
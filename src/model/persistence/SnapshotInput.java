@@ -0,0 +1,110 @@
+package model.persistence;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Low level decoding of a snapshot written by SnapshotOutput.
+ */
+class SnapshotInput {
+
+	private final DataInputStream in;
+	private final List<String> strings = new ArrayList<>();	//String table, in order of first occurrence.
+
+	SnapshotInput(InputStream in) {
+		this.in = new DataInputStream(in);
+	}
+
+	void readBytes(byte[] bytes) throws IOException {
+		in.readFully(bytes);
+	}
+
+	int readVarInt() throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new IOException("Malformed snapshot: variable length integer too long.");
+	}
+
+	long readVarLong() throws IOException {
+		long zigzag = 0;
+		for (int shift = 0; shift < 70; shift += 7) {
+			int b = in.readUnsignedByte();
+			zigzag |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return (zigzag >>> 1) ^ -(zigzag & 1);
+		}
+		throw new IOException("Malformed snapshot: variable length integer too long.");
+	}
+
+	boolean readBoolean() throws IOException {
+		return in.readBoolean();
+	}
+
+	double readDouble() throws IOException {
+		return in.readDouble();
+	}
+
+	Date readDate() throws IOException {
+		return new Date(readVarLong());
+	}
+
+	String readString() throws IOException {
+		int code = readVarInt();
+		if (code == 0)
+			return null;
+		if (code > 1) {
+			if (code - 2 >= strings.size()) throw new IOException("Malformed snapshot: unknown string " + (code - 2));
+
+			return strings.get(code - 2);
+		}
+
+		byte[] bytes = new byte[readVarInt()];
+		in.readFully(bytes);
+		String string = new String(bytes, StandardCharsets.UTF_8);
+		strings.add(string);
+		return string;
+	}
+
+	<E extends Enum<E>> E readEnum(Class<E> type) throws IOException {
+		String name = readString();
+		if (name == null)
+			return null;
+		try {
+			return Enum.valueOf(type, name);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Malformed snapshot: unknown " + type.getSimpleName() + " " + name);
+		}
+	}
+
+	// Returns null for a null milestone.
+	List<Integer> readMilestoneNumbers() throws IOException {
+		int size = readVarInt();
+		if (size == 0)
+			return null;
+
+		List<Integer> numbers = new ArrayList<>();
+		for (int i = 0; i < size; i++)
+			numbers.add((int) readVarLong());
+		return numbers;
+	}
+
+	// Returns the referred element, null for a null reference.
+	<T> T readReference(List<T> elements) throws IOException {
+		int code = readVarInt();
+		if (code == 0)
+			return null;
+		if (code - 1 >= elements.size()) throw new IOException("Malformed snapshot: unknown reference " + (code - 1));
+
+		return elements.get(code - 1);
+	}
+}
@@ -0,0 +1,443 @@
+package model.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import model.BugTrap;
+import model.bugreports.BugReport;
+import model.bugreports.IBugReport;
+import model.bugreports.PatchSection;
+import model.bugreports.TargetMilestone;
+import model.bugreports.TestSection;
+import model.bugreports.bugtag.BugTag;
+import model.bugreports.builders.BugReportBuilder;
+import model.bugreports.comments.Comment;
+import model.notifications.Mailbox;
+import model.notifications.NotificationType;
+import model.notifications.Observable;
+import model.projects.AchievedMilestone;
+import model.projects.Project;
+import model.projects.ProjectTeam;
+import model.projects.Role;
+import model.projects.Subsystem;
+import model.projects.Version;
+import model.projects.builders.SubsystemBuilder;
+import model.users.IUser;
+import model.users.UserCategory;
+
+/**
+ * Restores the state of a BugTrap system from a binary snapshot written by the SnapshotWriter.
+ * The BugTrap system to restore into should be empty.
+ */
+public class SnapshotLoader {
+
+	private final BugTrap bugTrap;
+	private int journalSegment;
+	private int version = SnapshotWriter.VERSION;	//Version of the snapshot that is read.
+
+	// Restored objects, in the order they appear in the snapshot.
+	private final List<IUser> users = new ArrayList<>();
+	private final List<Project> projects = new ArrayList<>();
+	private final List<Subsystem> subsystems = new ArrayList<>();
+	private final List<BugReport> bugReports = new ArrayList<>();
+	private final List<List<IBugReport>> dependencies = new ArrayList<>();	//DependsOn list of each restored bug report.
+	private final List<BugReport> managedBugReports = new ArrayList<>();	//Bug reports by their index in the BugReportManager.
+	private final List<BugReport> archivedBugReports = new ArrayList<>();	//Bug reports by their index in the archive.
+
+	/**
+	 * Constructor.
+	 * @param bugTrap The empty BugTrap system to restore into.
+	 */
+	public SnapshotLoader(BugTrap bugTrap) {
+		this.bugTrap = bugTrap;
+	}
+
+	/**
+	 * Restore the snapshot in the given file.
+	 * @param file The snapshot file.
+	 * @throws IOException if the file can not be read or is not a valid snapshot.
+	 */
+	public void load(File file) throws IOException {
+		try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+			load(in);
+		}
+	}
+
+	/**
+	 * Restore the snapshot read from the given stream. The stream is not closed.
+	 * @param stream The stream to read from.
+	 * @throws IOException if the stream can not be read or does not hold a valid snapshot.
+	 */
+	public void load(InputStream stream) throws IOException {
+		SnapshotInput in = new SnapshotInput(stream);
+
+		byte[] magic = new byte[SnapshotWriter.MAGIC.length];
+		in.readBytes(magic);
+		if (!Arrays.equals(magic, SnapshotWriter.MAGIC))
+			throw new IOException("Not a BugTrap snapshot.");
+		version = in.readVarInt();
+		if (version < 1 || version > SnapshotWriter.VERSION)
+			throw new IOException("Unsupported snapshot version " + version + ".");
+		journalSegment = version >= 2 ? in.readVarInt() : 0;
+
+		readUsers(in);
+		readProjects(in);
+		for (Project project : projects)
+			bugTrap.getProjectManager().addProject(project);
+		readSubsystemTrees(in);
+		readDependencies(in);
+		for (BugReport report : managedBugReports)
+			if (report != null)
+				bugTrap.getBugReportManager().addBugReport(report);
+		for (BugReport report : archivedBugReports)
+			if (report != null)
+				bugTrap.getBugReportManager().addArchivedBugReport(report);
+		readMailboxes(in);
+		readRegistrations(in);
+	}
+
+	/**
+	 * 
+	 * @return The first journal segment that is not part of the loaded snapshot.
+	 */
+	public int getJournalSegment() {
+		return journalSegment;
+	}
+
+	/**
+	 * 
+	 * @return The restored projects, in the order they appear in the snapshot.
+	 */
+	List<Project> getProjects() {
+		return projects;
+	}
+
+	/**
+	 * 
+	 * @return The restored subsystems, in the order they appear in the snapshot.
+	 */
+	List<Subsystem> getSubsystems() {
+		return subsystems;
+	}
+
+	/**
+	 * 
+	 * @return The restored bug reports, in the order they appear in the snapshot.
+	 */
+	List<BugReport> getBugReports() {
+		return bugReports;
+	}
+
+	/**
+	 * 
+	 * @return The dependsOn list of each restored bug report, filled by readDependencies.
+	 */
+	List<List<IBugReport>> getDependencies() {
+		return dependencies;
+	}
+
+	// Read parts written by an earlier version of the snapshot format.
+	void useVersion(int version) {
+		this.version = version;
+	}
+
+	// Use users restored elsewhere, for parts that refer to users without holding them.
+	void useUsers(List<IUser> restored) {
+		users.addAll(restored);
+	}
+
+	/**
+	 * 
+	 * @return The restored users, in the order they appear in the snapshot.
+	 */
+	List<IUser> getUsers() {
+		return users;
+	}
+
+	void readUsers(SnapshotInput in) throws IOException {
+		int count = in.readVarInt();
+		for (int i = 0; i < count; i++) {
+			UserCategory category = in.readEnum(UserCategory.class);
+			String first = in.readString();
+			String middle = in.readString();
+			String last = in.readString();
+			String username = in.readString();
+
+			switch (category) {
+				case ADMIN:
+					users.add(bugTrap.getUserManager().createAdmin(first, middle, last, username));
+					break;
+				case ISSUER:
+					users.add(bugTrap.getUserManager().createIssuer(first, middle, last, username));
+					break;
+				case DEVELOPER:
+					users.add(bugTrap.getUserManager().createDeveloper(first, middle, last, username));
+					break;
+				default:
+					throw new IOException("Malformed snapshot: unknown user category " + category);
+			}
+		}
+	}
+
+	// The projects are not added to the ProjectManager yet.
+	void readProjects(SnapshotInput in) throws IOException {
+		int count = in.readVarInt();
+		for (int i = 0; i < count; i++) {
+			String name = in.readString();
+			String description = in.readString();
+			Version version = new Version(in.readVarInt(), in.readVarInt(), in.readVarInt());
+			Date creationDate = in.readDate();
+			Date startDate = in.readDate();
+			double budgetEstimate = in.readDouble();
+			AchievedMilestone milestone = new AchievedMilestone(in.readMilestoneNumbers());
+
+			ProjectTeam team = new ProjectTeam();
+			IUser lead = in.readReference(users);
+			if (lead != null)
+				team.addMember(lead, Role.LEAD);
+			for (IUser programmer : readUserReferences(in))
+				team.addMember(programmer, Role.PROGRAMMER);
+			for (IUser tester : readUserReferences(in))
+				team.addMember(tester, Role.TESTER);
+
+			Project sharesWith = in.readReference(projects);
+			Project project;
+			if (sharesWith == null)
+				project = new Project(bugTrap, name, description, null, version, creationDate, startDate, budgetEstimate, team, milestone);
+			else
+				project = sharesWith.copy(name, description, version, creationDate, startDate, budgetEstimate, team, milestone);
+
+			projects.add(project);
+		}
+	}
+
+	void readSubsystemTrees(SnapshotInput in) throws IOException {
+		for (int i = 0; i < projects.size(); i++) {
+			if (sharesWithEarlier(i))
+				continue;
+
+			int count = in.readVarInt();
+			for (int j = 0; j < count; j++) {
+				int parent = in.readVarInt();
+				if (parent >= projects.size()) throw new IOException("Malformed snapshot: unknown project " + parent);
+
+				readSubsystem(in, projects.get(parent));
+			}
+		}
+	}
+
+	private boolean sharesWithEarlier(int index) {
+		for (int i = 0; i < index; i++)
+			if (projects.get(index).sharesSubsystemsWith(projects.get(i)))
+				return true;
+		return false;
+	}
+
+	private void readSubsystem(SnapshotInput in, model.projects.System parent) throws IOException {
+		Subsystem subsystem = new SubsystemBuilder(bugTrap)
+				.setName(in.readString())
+				.setDescription(in.readString())
+				.setMilestone(new AchievedMilestone(in.readMilestoneNumbers()))
+				.setParent(parent)
+				.getSubsystem();
+		subsystems.add(subsystem);
+
+		int reports = in.readVarInt();
+		for (int i = 0; i < reports; i++)
+			readBugReport(in, subsystem);
+
+		int children = in.readVarInt();
+		for (int i = 0; i < children; i++)
+			readSubsystem(in, subsystem);
+	}
+
+	private void readBugReport(SnapshotInput in, Subsystem subsystem) throws IOException {
+		int managedIndex = in.readVarInt() - 1;
+		int archivedIndex = version >= 3 ? in.readVarInt() - 1 : -1;
+		String title = in.readString();
+		String description = in.readString();
+		Date creationDate = in.readDate();
+		IUser issuer = in.readReference(users);
+		BugTag tag = in.readEnum(BugTag.class);
+		// Earlier versions count the age of a closed bug report from its creation date.
+		Date terminalDate = version >= 4 && tag.isTerminal() ? in.readDate() : null;
+		int impactFactor = in.readVarInt();
+		List<Integer> milestone = in.readMilestoneNumbers();
+		String stackTrace = in.readString();
+		String errorMessage = in.readString();
+		String reproduction = in.readString();
+		List<IUser> assignees = readUserReferences(in);
+
+		// Comments and dependencies refer to the bug report, so they are filled in once it exists.
+		List<Comment> comments = new ArrayList<>();
+		List<IBugReport> dependsOn = new ArrayList<>();
+
+		BugReport report = new BugReportBuilder(bugTrap)
+				.setTitle(title)
+				.setDescription(description)
+				.setCreationDate(creationDate)
+				.setSubsystem(subsystem)
+				.setIssuer(issuer)
+				.setBugTag(tag)
+				.setImpactFactor(impactFactor)
+				.setMilestone(milestone == null ? null : new TargetMilestone(milestone))
+				.setStackTrace(stackTrace)
+				.setErrorMessage(errorMessage)
+				.setReproduction(reproduction)
+				.setAssignees(assignees)
+				.setComments(comments)
+				.setDependsOn(dependsOn)
+				.setTestSection(readTests(in))
+				.setPatchSection(readPatches(in))
+				.getBugReport();
+		if (terminalDate != null)
+			report.setTerminalDate(terminalDate);
+		comments.addAll(readComments(in, report));
+
+		bugReports.add(report);
+		dependencies.add(dependsOn);
+		if (managedIndex >= 0) {
+			while (managedBugReports.size() <= managedIndex)
+				managedBugReports.add(null);
+			managedBugReports.set(managedIndex, report);
+		}
+		if (archivedIndex >= 0) {
+			while (archivedBugReports.size() <= archivedIndex)
+				archivedBugReports.add(null);
+			archivedBugReports.set(archivedIndex, report);
+		}
+	}
+
+	private List<Comment> readComments(SnapshotInput in, BugReport report) throws IOException {
+		int count = in.readVarInt();
+		List<Comment> comments = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			String text = in.readString();
+			Date creationDate = in.readDate();
+			comments.add(new Comment(report, text, creationDate, readComments(in, report)));
+		}
+		return comments;
+	}
+
+	private TestSection readTests(SnapshotInput in) throws IOException {
+		TestSection tests = new TestSection();
+		int count = in.readVarInt();
+		for (int i = 0; i < count; i++) {
+			tests.addTest(in.readString());
+			if (in.readBoolean())
+				tests.acceptTest(tests.getTests().get(i));
+		}
+		return tests;
+	}
+
+	private PatchSection readPatches(SnapshotInput in) throws IOException {
+		PatchSection patches = new PatchSection();
+		int count = in.readVarInt();
+		for (int i = 0; i < count; i++)
+			patches.addPatch(in.readString());
+
+		int accepted = in.readVarInt() - 1;
+		int satisfaction = in.readVarInt();
+		if (accepted >= 0) {
+			patches.acceptPatch(patches.getPatches().get(accepted));
+			if (satisfaction > 0)
+				patches.updateSatisfaction(satisfaction);
+		}
+		return patches;
+	}
+
+	void readDependencies(SnapshotInput in) throws IOException {
+		for (List<IBugReport> dependsOn : dependencies) {
+			int count = in.readVarInt();
+			for (int i = 0; i < count; i++) {
+				int index = in.readVarInt();
+				if (index >= bugReports.size()) throw new IOException("Malformed snapshot: unknown bug report " + index);
+
+				dependsOn.add(bugReports.get(index));
+			}
+		}
+	}
+
+	void readMailboxes(SnapshotInput in) throws IOException {
+		int count = in.readVarInt();
+		for (int i = 0; i < count; i++) {
+			Mailbox mailbox = bugTrap.getNotificationManager().getMailboxForUser(in.readReference(users));
+
+			int notifications = in.readVarInt();
+			List<String> texts = new ArrayList<>();
+			List<Boolean> read = new ArrayList<>();
+			for (int j = 0; j < notifications; j++) {
+				texts.add(in.readString());
+				read.add(in.readBoolean());
+			}
+
+			// The mailbox puts new notifications first, so the oldest is added first.
+			Collections.reverse(texts);
+			Collections.reverse(read);
+			for (int j = 0; j < notifications; j++) {
+				mailbox.addNotification(texts.get(j));
+				if (read.get(j))
+					mailbox.getNotifications(1).get(0).markAsRead();
+			}
+		}
+	}
+
+	void readRegistrations(SnapshotInput in) throws IOException {
+		int count = in.readVarInt();
+		for (int i = 0; i < count; i++) {
+			NotificationType type = in.readEnum(NotificationType.class);
+			IUser user = in.readReference(users);
+			Observable observes = readObservable(in);
+			BugTag tag = in.readEnum(BugTag.class);
+			List<Integer> milestone = in.readMilestoneNumbers();
+
+			Mailbox mailbox = bugTrap.getNotificationManager().getMailboxForUser(user);
+			bugTrap.getNotificationManager().addObserver(
+					type.createObserver(mailbox, observes, tag, milestone == null ? null : new AchievedMilestone(milestone)));
+		}
+	}
+
+	/**
+	 * Read a reference to an observable that is part of the snapshot.
+	 * @param in The input to read from.
+	 * @return The observable referred to.
+	 * @throws IOException if the input can not be read or refers to an unknown observable.
+	 */
+	Observable readObservable(SnapshotInput in) throws IOException {
+		int kind = in.readVarInt();
+		int index = in.readVarInt();
+		List<? extends Observable> observables;
+		switch (kind) {
+			case SnapshotWriter.OBSERVES_PROJECT:
+				observables = projects;
+				break;
+			case SnapshotWriter.OBSERVES_SUBSYSTEM:
+				observables = subsystems;
+				break;
+			case SnapshotWriter.OBSERVES_BUGREPORT:
+				observables = bugReports;
+				break;
+			default:
+				throw new IOException("Malformed snapshot: unknown observable kind " + kind);
+		}
+		if (index >= observables.size()) throw new IOException("Malformed snapshot: unknown observable " + index);
+
+		return observables.get(index);
+	}
+
+	private List<IUser> readUserReferences(SnapshotInput in) throws IOException {
+		int count = in.readVarInt();
+		List<IUser> list = new ArrayList<>();
+		for (int i = 0; i < count; i++)
+			list.add(in.readReference(users));
+		return list;
+	}
+}
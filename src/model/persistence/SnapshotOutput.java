@@ -0,0 +1,110 @@
+package model.persistence;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import model.Milestone;
+
+/**
+ * Low level encoding of a snapshot.
+ * Numbers are written as variable length integers and strings are interned:
+ * the first occurrence of a string is written in full, later occurrences only refer to it.
+ */
+class SnapshotOutput {
+
+	private final DataOutputStream out;
+	private final Map<String, Integer> strings = new HashMap<>();	//String table, in order of first occurrence.
+
+	SnapshotOutput(OutputStream out) {
+		this.out = new DataOutputStream(out);
+	}
+
+	void writeBytes(byte[] bytes) throws IOException {
+		out.write(bytes);
+	}
+
+	// Unsigned, 7 bits per byte.
+	void writeVarInt(int value) throws IOException {
+		if (value < 0) throw new IllegalArgumentException("Negative value " + value);
+
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	// Signed, zigzag encoded so small negative values stay small.
+	void writeVarLong(long value) throws IOException {
+		long zigzag = (value << 1) ^ (value >> 63);
+		while ((zigzag & ~0x7FL) != 0) {
+			out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+			zigzag >>>= 7;
+		}
+		out.writeByte((int) zigzag);
+	}
+
+	void writeBoolean(boolean value) throws IOException {
+		out.writeBoolean(value);
+	}
+
+	void writeDouble(double value) throws IOException {
+		out.writeDouble(value);
+	}
+
+	void writeDate(Date date) throws IOException {
+		writeVarLong(date.getTime());
+	}
+
+	// 0 is null, 1 is a new string that follows, n >= 2 refers to string n - 2 in the table.
+	void writeString(String string) throws IOException {
+		if (string == null) {
+			writeVarInt(0);
+			return;
+		}
+
+		Integer index = strings.get(string);
+		if (index != null) {
+			writeVarInt(index + 2);
+			return;
+		}
+
+		strings.put(string, strings.size());
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(1);
+		writeVarInt(bytes.length);
+		out.write(bytes);
+	}
+
+	void writeEnum(Enum<?> constant) throws IOException {
+		writeString(constant == null ? null : constant.name());
+	}
+
+	// 0 is null, otherwise the number of numbers followed by the numbers.
+	void writeMilestone(Milestone milestone) throws IOException {
+		if (milestone == null) {
+			writeVarInt(0);
+			return;
+		}
+
+		List<Integer> numbers = milestone.getNumbers();
+		writeVarInt(numbers.size());
+		for (Integer number : numbers)
+			writeVarLong(number);
+	}
+
+	// 0 is null, otherwise the index + 1.
+	void writeReference(Integer index) throws IOException {
+		writeVarInt(index == null ? 0 : index + 1);
+	}
+
+	void flush() throws IOException {
+		out.flush();
+	}
+}
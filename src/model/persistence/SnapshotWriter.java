@@ -0,0 +1,391 @@
+package model.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import model.BugTrap;
+import model.bugreports.BugReport;
+import model.bugreports.BugReportBody;
+import model.bugreports.IBugReport;
+import model.bugreports.IPatch;
+import model.bugreports.ITest;
+import model.bugreports.PatchSection;
+import model.bugreports.comments.Comment;
+import model.notifications.INotification;
+import model.notifications.IRegistration;
+import model.notifications.Mailbox;
+import model.notifications.Observable;
+import model.notifications.observers.BugReportSpecificTagObserver;
+import model.notifications.observers.SpecificMilestoneObserver;
+import model.projects.IProject;
+import model.projects.ISubsystem;
+import model.projects.Project;
+import model.projects.Subsystem;
+import model.users.IUser;
+import model.users.UserCategory;
+
+/**
+ * Writes the complete state of a BugTrap system as a binary snapshot.
+ * The snapshot holds users, projects with their teams, the subsystem trees,
+ * bug reports with their comments, tests and patches, mailboxes and registrations for notifications.
+ * It is read back by the SnapshotLoader.
+ */
+public class SnapshotWriter {
+
+	static final byte[] MAGIC = { 'B', 'T', 'S', 'N' };
+	static final int VERSION = 4;	//Version 2 records the journal segment the snapshot was taken at, version 3 archived bug reports, version 4 terminal dates.
+
+	// Kinds of observables a registration can refer to.
+	static final int OBSERVES_PROJECT = 0;
+	static final int OBSERVES_SUBSYSTEM = 1;
+	static final int OBSERVES_BUGREPORT = 2;
+
+	private final BugTrap bugTrap;
+	private final int journalSegment;
+
+	// Indices of the written objects, used to refer to them later in the snapshot.
+	private final Map<IUser, Integer> users = new IdentityHashMap<>();
+	private final Map<IProject, Integer> projects = new IdentityHashMap<>();
+	private final Map<ISubsystem, Integer> subsystems = new IdentityHashMap<>();
+	private final Map<IBugReport, Integer> bugReports = new IdentityHashMap<>();
+	private final Map<IBugReport, Integer> managedBugReports = new IdentityHashMap<>();
+	private final Map<IBugReport, Integer> archivedBugReports = new IdentityHashMap<>();
+	private final List<BugReport> bugReportOrder = new ArrayList<>();
+
+	/**
+	 * Constructor.
+	 * @param bugTrap The BugTrap system to write.
+	 */
+	public SnapshotWriter(BugTrap bugTrap) {
+		this(bugTrap, 0);
+	}
+
+	/**
+	 * Constructor.
+	 * @param bugTrap The BugTrap system to write.
+	 * @param journalSegment The first journal segment that is not part of the snapshot.
+	 */
+	public SnapshotWriter(BugTrap bugTrap, int journalSegment) {
+		this.bugTrap = bugTrap;
+		this.journalSegment = journalSegment;
+	}
+
+	/**
+	 * Write a snapshot to the given file.
+	 * @param file The file to write to.
+	 * @throws IOException if the file can not be written.
+	 */
+	public void write(File file) throws IOException {
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+			write(out);
+		}
+	}
+
+	/**
+	 * Write a snapshot to the given stream. The stream is flushed, not closed.
+	 * @param stream The stream to write to.
+	 * @throws IOException if the stream can not be written.
+	 */
+	public void write(OutputStream stream) throws IOException {
+		reset();
+		for (IBugReport report : bugTrap.getBugReportManager().getBugReportList())
+			managedBugReports.put(report, managedBugReports.size());
+		for (IBugReport report : bugTrap.getBugReportManager().getArchive().getBugReports())
+			archivedBugReports.put(report, archivedBugReports.size());
+
+		SnapshotOutput out = new SnapshotOutput(stream);
+		out.writeBytes(MAGIC);
+		out.writeVarInt(VERSION);
+		out.writeVarInt(journalSegment);
+
+		List<IProject> projectList = bugTrap.getProjectManager().getProjects();
+		writeUsers(out);
+		writeProjects(out, projectList);
+		writeSubsystemTrees(out, projectList);
+		writeDependencies(out);
+		writeMailboxes(out);
+		writeRegistrations(out);
+		out.flush();
+	}
+
+	// Forget the indices of an earlier write.
+	void reset() {
+		users.clear();
+		projects.clear();
+		subsystems.clear();
+		bugReports.clear();
+		managedBugReports.clear();
+		archivedBugReports.clear();
+		bugReportOrder.clear();
+	}
+
+	// Index the users without writing them, for parts that refer to users written elsewhere.
+	void indexUsers() {
+		for (IUser user : bugTrap.getUserManager().getUserList())
+			users.put(user, users.size());
+	}
+
+	/**
+	 * 
+	 * @return The written subsystems with their index.
+	 */
+	Map<ISubsystem, Integer> getSubsystemIndices() {
+		return subsystems;
+	}
+
+	/**
+	 * 
+	 * @return The written bug reports, in the order they were written.
+	 */
+	List<BugReport> getBugReportOrder() {
+		return bugReportOrder;
+	}
+
+	void writeUsers(SnapshotOutput out) throws IOException {
+		List<IUser> userList = bugTrap.getUserManager().getUserList();
+		out.writeVarInt(userList.size());
+		for (IUser user : userList) {
+			users.put(user, users.size());
+			out.writeEnum(categoryOf(user));
+			out.writeString(user.getFirstName());
+			out.writeString(user.getMiddleName());
+			out.writeString(user.getLastName());
+			out.writeString(user.getUserName());
+		}
+	}
+
+	private static UserCategory categoryOf(IUser user) {
+		if (user.isAdmin())
+			return UserCategory.ADMIN;
+		if (user.isDeveloper())
+			return UserCategory.DEVELOPER;
+		return UserCategory.ISSUER;
+	}
+
+	// The projects are indexed by their position in the given list.
+	void writeProjects(SnapshotOutput out, List<IProject> projectList) throws IOException {
+		for (IProject project : projectList)
+			projects.put(project, projects.size());
+
+		out.writeVarInt(projectList.size());
+		for (int i = 0; i < projectList.size(); i++) {
+			IProject project = projectList.get(i);
+			out.writeString(project.getName());
+			out.writeString(project.getDescription());
+			out.writeVarInt(project.getVersion().getMajor());
+			out.writeVarInt(project.getVersion().getMinor());
+			out.writeVarInt(project.getVersion().getRevision());
+			out.writeDate(project.getCreationDate());
+			out.writeDate(project.getStartDate());
+			out.writeDouble(project.getBudgetEstimate());
+			out.writeMilestone(project.getAchievedMilestone());
+
+			out.writeReference(users.get(project.getLeadDeveloper()));
+			writeUserReferences(out, project.getProgrammers());
+			writeUserReferences(out, project.getTesters());
+
+			// Forks share their subsystems with the project they were forked from.
+			out.writeReference(sharesSubsystemsWith(projectList, i));
+		}
+	}
+
+	// Index of the first earlier project that shares its subsystems with the project at the given index, if any.
+	private static Integer sharesSubsystemsWith(List<IProject> projectList, int index) {
+		for (int i = 0; i < index; i++)
+			if (((Project) projectList.get(index)).sharesSubsystemsWith((Project) projectList.get(i)))
+				return i;
+		return null;
+	}
+
+	// Shared subsystems are written once, with the first project that has them.
+	void writeSubsystemTrees(SnapshotOutput out, List<IProject> projectList) throws IOException {
+		for (int i = 0; i < projectList.size(); i++) {
+			if (sharesSubsystemsWith(projectList, i) != null)
+				continue;
+
+			IProject project = projectList.get(i);
+			List<ISubsystem> direct = project.getSubsystems();
+			out.writeVarInt(direct.size());
+			for (ISubsystem subsystem : direct) {
+				// A subsystem created in a fork hangs under the fork, even though the original shares it.
+				Integer parent = projects.get(subsystem.getParent());
+				out.writeVarInt(parent == null ? i : parent);
+				writeSubsystem(out, subsystem);
+			}
+		}
+	}
+
+	private void writeSubsystem(SnapshotOutput out, ISubsystem subsystem) throws IOException {
+		subsystems.put(subsystem, subsystems.size());
+		out.writeString(subsystem.getName());
+		out.writeString(subsystem.getDescription());
+		out.writeMilestone(subsystem.getAchievedMilestone());
+
+		// Archived bug reports are no longer in the list of their subsystem, but are written with it.
+		List<IBugReport> reports = ((Subsystem) subsystem).getBugReports();
+		reports.addAll(bugTrap.getBugReportManager().getArchive().getBugReports(subsystem));
+		out.writeVarInt(reports.size());
+		for (IBugReport report : reports)
+			writeBugReport(out, (BugReport) report);
+
+		List<ISubsystem> children = subsystem.getSubsystems();
+		out.writeVarInt(children.size());
+		for (ISubsystem child : children)
+			writeSubsystem(out, child);
+	}
+
+	private void writeBugReport(SnapshotOutput out, BugReport report) throws IOException {
+		// Read the body without keeping it, so saving does not bring mapped bodies back on the heap.
+		BugReportBody body = report.readBody();
+		bugReports.put(report, bugReports.size());
+		bugReportOrder.add(report);
+
+		// Bug reports that are not in the BugReportManager are restored, but not added to it.
+		out.writeReference(managedBugReports.get(report));
+		out.writeReference(archivedBugReports.get(report));
+		out.writeString(report.getTitle());
+		out.writeString(body.getDescription());
+		out.writeDate(report.getCreationDate());
+		out.writeReference(users.get(report.getIssuedBy()));
+		out.writeEnum(report.getBugTag());
+		if (report.getBugTag().isTerminal())
+			out.writeDate(report.getTerminalDate());
+		out.writeVarInt((int) report.getImpactFactor());
+		out.writeMilestone(report.getTargetMilestone());
+		out.writeString(body.getStackTrace());
+		out.writeString(body.getErrorMessage());
+		out.writeString(body.getReproduction());
+		writeUserReferences(out, report.getAssignees());
+
+		List<ITest> tests = body.getTestSection().getTests();
+		out.writeVarInt(tests.size());
+		for (ITest test : tests) {
+			out.writeString(test.getTest());
+			out.writeBoolean(test.isAccepted());
+		}
+
+		PatchSection patchSection = body.getPatchSection();
+		List<IPatch> patches = patchSection.getPatches();
+		out.writeVarInt(patches.size());
+		for (IPatch patch : patches)
+			out.writeString(patch.getPatch());
+		int accepted = patchSection.hasAcceptedPatch() ? patches.indexOf(patchSection.getAcceptedPatch()) : -1;
+		out.writeReference(accepted == -1 ? null : accepted);
+		out.writeVarInt(accepted != -1 && patchSection.hasSatisfaction() ? patchSection.getSatisfaction() : 0);
+
+		writeComments(out, body.getComments());
+	}
+
+	private void writeComments(SnapshotOutput out, List<Comment> comments) throws IOException {
+		out.writeVarInt(comments.size());
+		for (Comment comment : comments) {
+			out.writeString(comment.getText());
+			out.writeDate(comment.getCreationDate());
+			writeComments(out, comment.getComments());
+		}
+	}
+
+	// Dependencies are written after all bug reports, so they can refer to any of them.
+	void writeDependencies(SnapshotOutput out) throws IOException {
+		for (BugReport report : bugReportOrder) {
+			List<Integer> dependsOn = new ArrayList<>();
+			for (IBugReport dependency : report.getDependsOn())
+				if (bugReports.containsKey(dependency))
+					dependsOn.add(bugReports.get(dependency));
+
+			out.writeVarInt(dependsOn.size());
+			for (Integer dependency : dependsOn)
+				out.writeVarInt(dependency);
+		}
+	}
+
+	void writeMailboxes(SnapshotOutput out) throws IOException {
+		List<Mailbox> mailboxes = bugTrap.getNotificationManager().getMailboxes();
+		out.writeVarInt(mailboxes.size());
+		for (Mailbox mailbox : mailboxes) {
+			out.writeReference(users.get(mailbox.getUser()));
+
+			// Newest first, as the mailbox keeps them.
+			List<INotification> notifications = mailbox.getNotifications();
+			out.writeVarInt(notifications.size());
+			for (INotification notification : notifications) {
+				out.writeString(notification.getText());
+				out.writeBoolean(notification.isRead());
+			}
+		}
+	}
+
+	void writeRegistrations(SnapshotOutput out) throws IOException {
+		List<IRegistration> registrations = new ArrayList<>();
+		for (IRegistration registration : bugTrap.getNotificationManager().getRegistrations())
+			if (isWritten(registration.getObserves()))
+				registrations.add(registration);
+
+		out.writeVarInt(registrations.size());
+		for (IRegistration registration : registrations) {
+			out.writeEnum(registration.getNotificationType());
+			out.writeReference(users.get(registration.getUser()));
+			writeObservable(out, registration.getObserves());
+
+			if (registration instanceof BugReportSpecificTagObserver)
+				out.writeEnum(((BugReportSpecificTagObserver) registration).getBugTag());
+			else
+				out.writeEnum(null);
+
+			if (registration instanceof SpecificMilestoneObserver)
+				out.writeMilestone(((SpecificMilestoneObserver) registration).getMilestone());
+			else
+				out.writeMilestone(null);
+		}
+	}
+
+	/**
+	 * 
+	 * @param observable An observable a registration refers to.
+	 * @return true if the observable is part of the snapshot.
+	 */
+	boolean isWritten(Observable observable) {
+		return observableIndex(observable) != null;
+	}
+
+	/**
+	 * Write a reference to an observable that is part of the snapshot.
+	 * @param out The output to write to.
+	 * @param observable The observable to refer to.
+	 * @throws IOException if the output can not be written.
+	 */
+	void writeObservable(SnapshotOutput out, Observable observable) throws IOException {
+		out.writeVarInt(observableKind(observable));
+		out.writeVarInt(observableIndex(observable));
+	}
+
+	static int observableKind(Observable observable) {
+		if (observable instanceof IProject)
+			return OBSERVES_PROJECT;
+		if (observable instanceof ISubsystem)
+			return OBSERVES_SUBSYSTEM;
+		return OBSERVES_BUGREPORT;
+	}
+
+	// Null if the observable is not part of the snapshot.
+	private Integer observableIndex(Observable observable) {
+		if (observable instanceof IProject)
+			return projects.get(observable);
+		if (observable instanceof ISubsystem)
+			return subsystems.get(observable);
+		return bugReports.get(observable);
+	}
+
+	private void writeUserReferences(SnapshotOutput out, List<IUser> userList) throws IOException {
+		out.writeVarInt(userList.size());
+		for (IUser user : userList)
+			out.writeReference(users.get(user));
+	}
+}
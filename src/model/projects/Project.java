@@ -8,6 +8,8 @@ import model.BugTrap;
 import model.bugreports.IBugReport;
 import model.notifications.NotificationType;
 import model.notifications.Signalisation;
+import model.projects.health.HealthCalculator;
+import model.projects.health.HealthIndicator;
 import model.users.IUser;
 
 /**
@@ -21,6 +23,12 @@ public class Project extends System implements IProject {
 	
 	private Date startDate;
 	private double budgetEstimate;
+
+	private boolean dirty = true;	//Changed since it was last saved, a new Project was never saved.
+	private boolean labelled;	//Whether the pre-order labels of the subsystems are up to date.
+	private Changes subsystemChanges = new Changes();	//Changes of the subsystems that make the remembered health outdated.
+	private long rememberedChanges = -1;	//Changes of the subsystems when the health and bug impact were remembered.
+	private long rememberedBugImpact;	//Bug impact of the direct subsystems, in impact units.
 	
 	
 	/**
@@ -46,6 +54,7 @@ public class Project extends System implements IProject {
 			this.projectTeam = new ProjectTeam();
 		else
 			this.projectTeam	= projectTeam;
+		relabel();
 	}
 
 	//Copy constructor.
@@ -53,11 +62,12 @@ public class Project extends System implements IProject {
 		super(other.bugTrap, other.name, other.description, null, other.subsystems, other.milestone);
 		
 		this.version		= other.version;
-		this.creationDate 	= new Date();
+		this.creationDate 	= other.bugTrap.getCurrentDate();
 		this.startDate	  	= new Date(other.getStartDate().getTime());
 		this.projectTeam 	= new ProjectTeam(other.projectTeam);
 		this.budgetEstimate = other.getBudgetEstimate();
 		this.milestone 		= new AchievedMilestone();
+		this.subsystemChanges = other.subsystemChanges;
 	}
 
 	/**
@@ -67,6 +77,26 @@ public class Project extends System implements IProject {
 	public Project copy() {
 		return new Project(this);
 	}
+
+	/**
+	 * Copy that shares the subsystems of this Project, like a fork, but with the given properties.
+	 * Used to restore forks from a snapshot.
+	 * @return A Project sharing the subsystems of this Project.
+	 */
+	public Project copy(String name, String description, Version version, Date creationDate, Date startDate, double budgetEstimate, ProjectTeam projectTeam, AchievedMilestone milestone) {
+		Project project = new Project(bugTrap, name, description, subsystems, version, creationDate, startDate, budgetEstimate, projectTeam, milestone);
+		project.subsystemChanges = subsystemChanges;
+		return project;
+	}
+
+	/**
+	 * Forks share the subsystems of the Project they were forked from.
+	 * @param other The other Project.
+	 * @return true if this Project and the given Project share their subsystems.
+	 */
+	public boolean sharesSubsystemsWith(Project other) {
+		return other != this && other.subsystems == this.subsystems;
+	}
 	
 	/**********************************************
 	 * GETTERS
@@ -107,6 +137,7 @@ public class Project extends System implements IProject {
 	 */
 	public void setVersion(Version version) {
 		this.version = version;
+		markDirty();
 	}
 
 	/**
@@ -115,6 +146,7 @@ public class Project extends System implements IProject {
 	 */
 	public void setBudgetEstimate(double budgetEstimate) {
 		this.budgetEstimate = budgetEstimate;
+		markDirty();
 	}
 
 	/**
@@ -123,6 +155,7 @@ public class Project extends System implements IProject {
 	 */
 	public void setStartDate(Date startDate) {
 		this.startDate = startDate;
+		markDirty();
 	}
 
 	@Override
@@ -143,11 +176,60 @@ public class Project extends System implements IProject {
 		return 0;
 	}
 
+	/**
+	 * Forks share the subsystems of the project they were copied from, and the running sums of those
+	 * subsystems only reach that project. So a project sums its direct subsystems instead,
+	 * and remembers the sum until the subsystems change.
+	 */
+	@Override
+	public double getSubtreeBugImpact() {
+		checkRemembered();
+		return fromImpactUnits(rememberedBugImpact);
+	}
+
+	/**
+	 * Remembered until the subsystems change, also for forks sharing the subsystems.
+	 */
+	@Override
+	public HealthIndicator getHealthIndicator(HealthCalculator calculator) {
+		checkRemembered();
+		return super.getHealthIndicator(calculator);
+	}
+
+	/**
+	 * The subsystems only forget the health of the project they were created in,
+	 * so the forks sharing them count the changes together.
+	 */
+	@Override
+	protected void forgetOwnHealth() {
+		super.forgetOwnHealth();
+		subsystemChanges.count++;
+	}
+
+	// Forget the remembered health and bug impact if the subsystems changed since they were remembered.
+	private void checkRemembered() {
+		if (rememberedChanges == subsystemChanges.count)
+			return;
+
+		super.forgetOwnHealth();
+		long subtreeBugImpact = 0;
+		for (Subsystem s : subsystems)
+			subtreeBugImpact += s.subtreeBugImpact;
+		rememberedBugImpact = subtreeBugImpact;
+		rememberedChanges = subsystemChanges.count;
+	}
+
+	// Number of changes of the subsystems, shared with the forks.
+	private static class Changes {
+		private long count;
+	}
+
 	@Override
 	public void setLeadDeveloper(IUser user) {
 		if (!user.isDeveloper())
 			throw new IllegalArgumentException("Lead developer should be a developer.");
 		projectTeam.setLeadDeveloper(user);
+		markDirty();
 	}
 
 	@Override
@@ -177,6 +259,7 @@ public class Project extends System implements IProject {
 		if (!programmer.isDeveloper())
 			throw new IllegalArgumentException("Programmer should be a developer!");
 		projectTeam.addMember(programmer, Role.PROGRAMMER);
+		markDirty();
 	}
 
 	/**
@@ -187,6 +270,7 @@ public class Project extends System implements IProject {
 		if (!tester.isDeveloper())
 			throw new IllegalArgumentException("Tester should be a developer!");
 		projectTeam.addMember(tester, Role.TESTER);
+		markDirty();
 	}
 	
 	@Override
@@ -253,6 +337,84 @@ public class Project extends System implements IProject {
 			throw new IllegalArgumentException("Arguments should not be null.");
 	
 		getTeam().addMember(dev, role);
+		markDirty();
+	}
+
+	/**********************************************
+	 * SUBTREE LABELS
+	 **********************************************/
+
+	/**
+	 * Number the subsystems of this Project in pre-order again, after the tree of subsystems changed.
+	 * Forks share the subsystems and their labels with the Project they were forked from.
+	 */
+	void relabel() {
+		label(0);
+		labelled = true;
+		subsystemsChanged();
+	}
+
+	/**
+	 * Note that a new subsystem without subsystems of its own was added as the last subsystem of its parent.
+	 * It changes no bug impact, so the labels are only renewed when they are read again.
+	 * Loading many subsystems then labels the tree once instead of once per subsystem.
+	 * @param subsystem The new subsystem.
+	 */
+	void subsystemAdded(Subsystem subsystem) {
+		labelled = false;
+		subsystem.forgetHealth();
+		subsystemsChanged();
+	}
+
+	// Only the subsystems of managed projects are in query results, the ProjectManager tells the cache when a project is added.
+	// So a project that is still being built, e.g. on another thread while loading, does not reach the shared cache.
+	private void subsystemsChanged() {
+		if (bugTrap != null && bugTrap.getProjectManager().isManaged(this))
+			bugTrap.getBugReportManager().getResultCache().subsystemsChanged();
+	}
+
+	/**
+	 * Number the subsystems in pre-order again if subsystems were added since they were last numbered.
+	 */
+	void ensureLabelled() {
+		if (!labelled) {
+			label(0);
+			labelled = true;
+		}
+	}
+
+	/**********************************************
+	 * DIRTINESS
+	 **********************************************/
+
+	@Override
+	public void markDirty() {
+		dirty = true;
+	}
+
+	/**
+	 * 
+	 * @return true if this Project, its team, subsystems or bug reports changed since it was last saved.
+	 */
+	public boolean isDirty() {
+		return dirty;
+	}
+
+	/**
+	 * Mark this Project as saved.
+	 */
+	public void markClean() {
+		dirty = false;
+	}
+
+	// Every change that is signalled somewhere in the project passes here, the cached query results are told about it.
+	// A project that is still being built holds no query results, so like subsystemsChanged it does not reach the shared cache.
+	@Override
+	public void notifyObservers(Signalisation signalisation) {
+		markDirty();
+		if (bugTrap != null && bugTrap.getProjectManager().isManaged(this))
+			bugTrap.getBugReportManager().getResultCache().signal(signalisation);
+		super.notifyObservers(signalisation);
 	}
 
 	@Override
@@ -1,8 +1,13 @@
 package model.projects;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import controllers.exceptions.UnauthorizedAccessException;
 import model.BugTrap;
@@ -17,6 +22,8 @@ import model.users.IUser;
 public class ProjectManager {
 
 	private final ArrayList<Project> projectList;
+	private final Set<Project> managedProjects;	//The projects of the list, by identity.
+	private final Map<String, List<ISubsystem>> subsystemIndex;	//Subsystems of the managed projects by name.
 	private final BugTrap bugTrap;
 
 	/**
@@ -24,6 +31,8 @@ public class ProjectManager {
 	 */
 	public ProjectManager(BugTrap bugTrap) {
 		projectList = new ArrayList<Project>();
+		managedProjects = Collections.newSetFromMap(new IdentityHashMap<Project, Boolean>());
+		subsystemIndex = new HashMap<String, List<ISubsystem>>();
 		this.bugTrap = bugTrap;
 	}
 	
@@ -38,6 +47,24 @@ public class ProjectManager {
 	 * @param version		the version of the project
 	 */
 	public void createProject(String name, String description, Date creationDate, Date startDate, double budgetEstimate, IUser lead, Version version) {
+		Project project = buildProject(name, description, creationDate, startDate, budgetEstimate, lead, version);
+		projectList.add(project);
+		managedProjects.add(project);
+	}
+
+	/**
+	 * Builds a project like createProject, without adding it to this manager.
+	 * The project can be added later with addProject, e.g. after it was filled on another thread.
+	 * @param name 			the name of the project
+	 * @param description	the description of the project
+	 * @param creationDate	the creation date of the project
+	 * @param startDate		the start date of the project
+	 * @param budgetEstimate the budget estimate of the project
+	 * @param lead			the lead developer of the project
+	 * @param version		the version of the project
+	 * @return The built Project.
+	 */
+	public Project buildProject(String name, String description, Date creationDate, Date startDate, double budgetEstimate, IUser lead, Version version) {
 		if (name == null || description == null || creationDate == null || startDate ==  null)
 			throw new IllegalArgumentException("Arguments should not be null.");
 
@@ -48,7 +75,7 @@ public class ProjectManager {
 		if (lead != null)
 			team.addMember(lead, Role.LEAD);
 
-		projectList.add(new ProjectBuilder(bugTrap)
+		return new ProjectBuilder(bugTrap)
 				.setName(name)
 				.setCreationDate(creationDate)
 				.setStartDate(startDate)
@@ -56,7 +83,33 @@ public class ProjectManager {
 				.setTeam(team)
 				.setVersion(version)
 				.setBudgetEstimate(budgetEstimate)
-				.getProject());
+				.getProject();
+	}
+
+	/**
+	 * Adds an already built project, e.g. one restored from a snapshot.
+	 * Subsystems the project already has are indexed by name.
+	 * @param project The Project to add.
+	 */
+	public void addProject(Project project) {
+		if (project == null)
+			throw new IllegalArgumentException("Project should not be null.");
+
+		projectList.add(project);
+		managedProjects.add(project);
+		for (ISubsystem s : project.getAllDirectOrIndirectSubsystems())
+			indexSubsystem(s);
+		if (bugTrap != null)
+			bugTrap.getBugReportManager().getResultCache().subsystemsChanged();
+	}
+
+	/**
+	 * Determines if the given project is one of the projects of this manager.
+	 * @param project The project.
+	 * @return true if the project was created or added and not deleted since.
+	 */
+	boolean isManaged(Project project) {
+		return managedProjects.contains(project);
 	}
 
 	/**
@@ -85,6 +138,7 @@ public class ProjectManager {
 		fork.setStartDate(startDate);
 		
 		projectList.add(fork);
+		managedProjects.add(fork);
 	}
 
 	/**
@@ -101,6 +155,7 @@ public class ProjectManager {
 			if (projectList.get(i) == project) {
 				((Project) project).terminate();
 				projectList.remove(i);
+				managedProjects.remove(project);
 			}
 		}
 	}
@@ -148,18 +203,76 @@ public class ProjectManager {
 
 	/**
 	 * Method to get the subsystem in BugTrap with the given name.
+	 * If several subsystems have the name, the first one is returned in the order of the projects
+	 * and, within a project, in the order of getAllDirectOrIndirectSubsystems.
 	 * @param name The name for which to search.
 	 * @return Subsystem with the given name.
      */
 	public ISubsystem getSubsystemWithName(String name) {
 		if (name == null) throw new IllegalArgumentException("Subsystem name can not be null!");
 
+		List<ISubsystem> named = subsystemIndex.get(name);
+		if (named == null)
+			return null;
+		if (named.size() == 1)
+			return named.get(0);
+
 		for (Project p : projectList) {
-			for (ISubsystem s : p.getAllDirectOrIndirectSubsystems()) {
-				if (s.getName().equals(name))
-					return s;
-			}
+			Subsystem first = null;
+			for (ISubsystem s : named)
+				if (s.getProject() == p && (first == null || ((Subsystem) s).getPreorderNumber() < first.getPreorderNumber()))
+					first = (Subsystem) s;
+			if (first != null)
+				return first;
+		}
+		return named.get(0);
+	}
+
+	/**
+	 * Method to get all subsystems in BugTrap with the given name.
+	 * @param name The name for which to search.
+	 * @return The subsystems with the given name, empty if there are none.
+	 */
+	public List<ISubsystem> getSubsystemsWithName(String name) {
+		if (name == null) throw new IllegalArgumentException("Subsystem name can not be null!");
+
+		List<ISubsystem> named = subsystemIndex.get(name);
+		return named == null ? new ArrayList<ISubsystem>() : new ArrayList<ISubsystem>(named);
+	}
+
+	/**
+	 * Adds the given subsystem to the name index, if it belongs to a project of this manager.
+	 * @param subsystem The subsystem to index.
+	 */
+	public void indexSubsystem(ISubsystem subsystem) {
+		if (!isManaged((Project) subsystem.getProject()))
+			return;
+
+		List<ISubsystem> named = subsystemIndex.get(subsystem.getName());
+		if (named == null) {
+			named = new ArrayList<ISubsystem>(1);
+			subsystemIndex.put(subsystem.getName(), named);
 		}
-		return null;
+		for (ISubsystem s : named)
+			if (s == subsystem)
+				return;
+		named.add(subsystem);
+	}
+
+	/**
+	 * Removes the given subsystem from the name index.
+	 * @param subsystem The subsystem to remove.
+	 */
+	public void unindexSubsystem(ISubsystem subsystem) {
+		List<ISubsystem> named = subsystemIndex.get(subsystem.getName());
+		if (named == null)
+			return;
+		for (int i = 0; i < named.size(); i++)
+			if (named.get(i) == subsystem) {
+				named.remove(i);
+				break;
+			}
+		if (named.isEmpty())
+			subsystemIndex.remove(subsystem.getName());
 	}
 }
\ No newline at end of file
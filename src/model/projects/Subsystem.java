@@ -37,6 +37,13 @@ public class Subsystem extends System implements ISubsystem {
 		this.project = (Project) system;
 		this.bugReports = new ArrayList<>();
 		parent.subsystems.add(this);
+		parent.markDirty();
+		if (this.subsystems.isEmpty())
+			project.subsystemAdded(this);
+		else
+			project.relabel();
+		if (bugTrap != null)
+			bugTrap.getProjectManager().indexSubsystem(this);
 	}
 	
 	/**********************************************
@@ -55,18 +62,44 @@ public class Subsystem extends System implements ISubsystem {
 		return reports;
 	}
 
+	/**
+	 * 
+	 * @return The number of direct bug reports of the subsystem.
+	 */
+	public int getBugReportCount() {
+		return bugReports.size();
+	}
+
 	@Override
 	public double getBugImpact() {
-		double bugImpact = 0;
+		return fromImpactUnits(bugImpact);
+	}
+
+	@Override
+	protected long computeBugImpact() {
+		long bugImpact = 0;
 		
 		for (IBugReport iBugReport : bugReports) {
 			double impactProduct = ((BugReport) iBugReport).getImpactProduct();
-			bugImpact += impactProduct;
+			bugImpact += toImpactUnits(impactProduct);
 		}
 		
 		return bugImpact;
 	}
 
+	@Override
+	public void setName(String name) {
+		if (bugTrap == null) {
+			super.setName(name);
+			return;
+		}
+
+		bugTrap.getProjectManager().unindexSubsystem(this);
+		super.setName(name);
+		bugTrap.getProjectManager().indexSubsystem(this);
+		bugTrap.getBugReportManager().getResultCache().subsystemsChanged();
+	}
+
 	@Override
 	public Version getVersion() {
 		return ((System) getParent()).getVersion();
@@ -90,6 +123,7 @@ public class Subsystem extends System implements ISubsystem {
 	 */
 	public void addBugReport(BugReport report) {
 		this.bugReports.add(report);
+		addBugImpact(report.getImpactProduct());
 		signal(new Signalisation(NotificationType.CREATE_BUGREPORT, report));
 		report.setSubsystem(this);
 	}
@@ -99,7 +133,27 @@ public class Subsystem extends System implements ISubsystem {
 	 * @param report
 	 */
 	public void removeBugReport(BugReport report) {
-		this.bugReports.remove(report);
+		if (this.bugReports.remove(report))
+			addBugImpact(-report.getImpactProduct());
+		markDirty();
+	}
+
+	/**
+	 * adds a bug report that was archived back to the subsystem, without signalling its creation
+	 * @param report
+	 */
+	public void restoreBugReport(BugReport report) {
+		this.bugReports.add(report);
+		addBugImpact(report.getImpactProduct());
+		markDirty();
+	}
+
+	/**
+	 * updates the bug impact after the impact product of one of the bug reports of the subsystem changed
+	 * @param delta the new impact product minus the old one
+	 */
+	public void bugImpactChanged(double delta) {
+		addBugImpact(delta);
 	}
 	
 	/**********************************************
@@ -109,6 +163,9 @@ public class Subsystem extends System implements ISubsystem {
 	@Override
 	public void split(String nameFor1, String nameFor2, String descriptionFor1, String descriptionFor2,
 			List<IBugReport> bugReportsFor1, List<ISubsystem> subsystemsFor1){
+		//archived bug reports are split as well, they go to the second subsystem unless chosen for the first
+		if (bugTrap != null)
+			bugTrap.getBugReportManager().restoreArchivedBugReports(this);
 		Subsystem sub1 = new Subsystem(bugTrap, nameFor1, descriptionFor1, parent, null, getAchievedMilestone());
 		Subsystem sub2 = new Subsystem(bugTrap, nameFor2, descriptionFor2, parent, null, getAchievedMilestone());
 		
@@ -118,9 +175,11 @@ public class Subsystem extends System implements ISubsystem {
 			if(subsystemsFor1.contains(subsystem)){
 				//subsystem for first new subsystem
 				sub1.subsystems.add(subsystem); 
+				subsystem.setParent(sub1);
 			}else{
 				//subsystem for second new subsystem
 				sub2.subsystems.add(subsystem); 
+				subsystem.setParent(sub2);
 			}
 			this.subsystems.remove(subsystem);
 			i--;
@@ -141,8 +200,10 @@ public class Subsystem extends System implements ISubsystem {
 		}
 		
 		//add new subsystems
+		Project owner = project;
 		parent.subsystems.remove(this);
 		this.terminate();
+		owner.relabel();
 	}
 	
 	@Override
@@ -172,6 +233,11 @@ public class Subsystem extends System implements ISubsystem {
 		Subsystem newSubsystem = new Subsystem(bugTrap, name, description, parent, null, achievedMilestone);
 		
 		Subsystem subsystem = ((Subsystem) iSubsystem);
+		//archived bug reports move along with the others
+		if (bugTrap != null) {
+			bugTrap.getBugReportManager().restoreArchivedBugReports(this);
+			bugTrap.getBugReportManager().restoreArchivedBugReports(subsystem);
+		}
 		//Move all subsystems to the new merged subsystem
 		this.moveSubsystemsAndBugReportsTo(newSubsystem, subsystem);
 		subsystem.moveSubsystemsAndBugReportsTo(newSubsystem, this);
@@ -181,8 +247,10 @@ public class Subsystem extends System implements ISubsystem {
 		parent.subsystems.remove(subsystem);
 		subsystem.terminate();
 		//delete this subsystem (=parent or sibling)
+		Project owner = project;
 		this.parent.subsystems.remove(this);
 		this.terminate();
+		owner.relabel();
 	}
 
 	/**
@@ -215,9 +283,35 @@ public class Subsystem extends System implements ISubsystem {
 	private void moveToNewParent(Subsystem parent) {
 		parent.subsystems.add(this);
 		this.parent.subsystems.remove(this);
+		markDirty();
 		setParent(parent);
+		markDirty();
 	}
 	
+	/**
+	 * The project is number 0, so this is one more than the index of the subsystem in getAllDirectOrIndirectSubsystems of its project.
+	 * @return The pre-order number of the subsystem in the tree of its project.
+	 */
+	public int getPreorderNumber() {
+		if (project != null)
+			project.ensureLabelled();
+		return subtreeStart;
+	}
+
+	/**
+	 * Check whether a subsystem lies in the subtree of this subsystem, by comparing their labels.
+	 * The project labels its subsystems again when one is split or merged, and when they are read after subsystems were created.
+	 * @param subsystem A subsystem.
+	 * @return true if the subsystem is this subsystem or one of its direct or indirect subsystems.
+	 */
+	public boolean isInSubtree(ISubsystem subsystem) {
+		Subsystem other = (Subsystem) subsystem;
+		if (other.project != project || project == null)
+			return false;
+		project.ensureLabelled();
+		return subtreeStart <= other.subtreeStart && other.subtreeStart <= subtreeEnd;
+	}
+
 	/**********************************************
 	 * OTHER
 	 **********************************************/
@@ -237,6 +331,7 @@ public class Subsystem extends System implements ISubsystem {
 	public void terminate() {
 		bugTrap.getBugReportManager().deleteBugReportsForSystem(this);
 		bugTrap.getNotificationManager().removeObservable(this);
+		bugTrap.getProjectManager().unindexSubsystem(this);
 	
 		super.terminate();
 		project = null;
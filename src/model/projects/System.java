@@ -1,7 +1,9 @@
 package model.projects;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import model.BugTrap;
 import model.Milestone;
@@ -32,6 +34,11 @@ public abstract class System implements ISystem, Observable, Observer {
 	protected System parent;		//Parent System, if any.
 	protected final List<Subsystem> subsystems;	//Subsystems.
 	protected AchievedMilestone milestone;
+	protected int subtreeStart;	//Pre-order number of this System in the tree of its project.
+	protected int subtreeEnd;	//Highest pre-order number of the System and its direct or indirect subsystems.
+	protected long bugImpact;	//Running sum of the impact products of the direct bug reports, in impact units.
+	protected long subtreeBugImpact;	//Running bug impact of the System and its direct or indirect subsystems, in impact units.
+	private final Map<Class<?>, HealthIndicator> healthIndicators = new HashMap<>();	//Health per kind of HealthCalculator, until the subtree changes.
 
 	protected List<Observer> observers = new ArrayList<Observer>();
 	
@@ -68,6 +75,7 @@ public abstract class System implements ISystem, Observable, Observer {
 	 */
 	public void setName(String name) {
 		this.name = name;
+		markDirty();
 	}
 	
 	@Override
@@ -81,6 +89,7 @@ public abstract class System implements ISystem, Observable, Observer {
 	 */
 	public void setDescription(String description) {
 		this.description = description;
+		markDirty();
 	}
 	
 	@Override
@@ -97,12 +106,16 @@ public abstract class System implements ISystem, Observable, Observer {
 	@Override
 	public List<ISubsystem> getAllDirectOrIndirectSubsystems() {
 		ArrayList<ISubsystem> subs = new ArrayList<ISubsystem>();
-		for (ISubsystem s : subsystems) {
+		collectSubsystems(subs);
+		return subs;
+	}
+
+	// Adds all direct or indirect subsystems to the given list, in the same order as getAllDirectOrIndirectSubsystems.
+	private void collectSubsystems(List<ISubsystem> subs) {
+		for (Subsystem s : subsystems) {
 			subs.add(s);
-			for (ISubsystem ss : s.getAllDirectOrIndirectSubsystems())
-				subs.add(ss);
+			((System) s).collectSubsystems(subs);
 		}
-		return subs;
 	}
 	
 	@Override
@@ -134,6 +147,28 @@ public abstract class System implements ISystem, Observable, Observer {
 		return stones;
 	}
 	
+	/**********************************************
+	 * SUBTREE LABELS
+	 **********************************************/
+
+	/**
+	 * Number this System and its direct or indirect subsystems in pre-order.
+	 * The numbers of a subtree then form the interval of the System at its root.
+	 * @param number The number for this System.
+	 * @return The number after the last one used in the subtree.
+	 */
+	protected int label(int number) {
+		subtreeStart = number++;
+		subtreeBugImpact = bugImpact;
+		forgetOwnHealth();
+		for (Subsystem s : subsystems) {
+			number = s.label(number);
+			subtreeBugImpact += s.subtreeBugImpact;
+		}
+		subtreeEnd = number - 1;
+		return number;
+	}
+
 	/**********************************************
 	 * ACHIEVED MILESTONES
 	 **********************************************/
@@ -276,6 +311,15 @@ public abstract class System implements ISystem, Observable, Observer {
 	public void signal(Signalisation signalisation) {
 		notifyObservers(signalisation);
 	}
+
+	/**
+	 * Mark the project this system belongs to as changed since it was last saved.
+	 * Changes that notify observers reach the project already, other changes call this.
+	 */
+	public void markDirty() {
+		if (this.parent != null)
+			this.parent.markDirty();
+	}
 	
 	/**********************************************
 	 * HEALTH AND BUGIMPACT
@@ -286,14 +330,111 @@ public abstract class System implements ISystem, Observable, Observer {
 	 * @return a double representing the bug impact
 	 */
 	public abstract double getBugImpact();
+
+	/**
+	 * Returns the bug impact of this system and its direct or indirect subsystems.
+	 * The sums are kept up to date as bug reports are added, removed or change tag, so this does not walk the tree.
+	 * @return a double representing the bug impact of the subtree
+	 */
+	public double getSubtreeBugImpact() {
+		return fromImpactUnits(subtreeBugImpact);
+	}
+
+	// The multipliers of the bug tags are multiples of a tenth, so impact products are exact in thousandths.
+	// The running sums count those in a long, adding and taking away impact products then leaves no rounding error behind.
+	private static final double IMPACT_UNITS = 1000;
+
+	/**
+	 * @param impact A bug impact, e.g. an impact product.
+	 * @return The bug impact in impact units.
+	 */
+	protected static long toImpactUnits(double impact) {
+		return Math.round(impact * IMPACT_UNITS);
+	}
+
+	/**
+	 * @param units A bug impact in impact units.
+	 * @return The bug impact.
+	 */
+	protected static double fromImpactUnits(long units) {
+		return units / IMPACT_UNITS;
+	}
+
+	/**
+	 * Add the change of the impact product of a direct bug report to the running sums of this system and its ancestors.
+	 * Moving subsystems changes the sums of whole subtrees, the project labels its subsystems again after that and sums them anew.
+	 * @param delta The change of the bug impact.
+	 */
+	protected void addBugImpact(double delta) {
+		long units = toImpactUnits(delta);
+		if (units == 0)
+			return;
+
+		bugImpact += units;
+		for (System system = this; system != null; system = system.parent)
+			system.subtreeBugImpact += units;
+		forgetHealth();
+	}
+
+	/**
+	 * Forget the remembered health of this system and its ancestors, after the subtree of this system changed.
+	 */
+	protected void forgetHealth() {
+		for (System system = this; system != null; system = system.parent)
+			system.forgetOwnHealth();
+	}
+
+	/**
+	 * Forget the remembered health of this system only.
+	 */
+	protected void forgetOwnHealth() {
+		healthIndicators.clear();
+	}
+
+	/**
+	 * Returns the bug impact of the direct bug reports of this system, summed from the bug reports themselves.
+	 * @return the bug impact in impact units
+	 */
+	protected long computeBugImpact() {
+		return 0;
+	}
+
+	/**
+	 * Check the running bug impact sums of this system and its direct or indirect subsystems against a full recompute.
+	 * @return The systems whose running sums differ from the recomputed ones, empty if all of them are consistent.
+	 */
+	public List<ISystem> findInconsistentBugImpacts() {
+		List<ISystem> inconsistent = new ArrayList<>();
+		recomputeBugImpact(inconsistent);
+		return inconsistent;
+	}
+
+	// Returns the recomputed bug impact of the subtree, adding the inconsistent systems to the list.
+	// Both sums are exact, so they have to be equal.
+	private long recomputeBugImpact(List<ISystem> inconsistent) {
+		long direct = computeBugImpact();
+		long subtree = direct;
+		for (Subsystem s : subsystems)
+			subtree += ((System) s).recomputeBugImpact(inconsistent);
+		if (direct != bugImpact || toImpactUnits(getSubtreeBugImpact()) != subtree)
+			inconsistent.add(this);
+		return subtree;
+	}
 	
 	/**
 	 * Returns a health indicator for this system.
+	 * The health is remembered per kind of calculator until the bug impact of the system or one of its
+	 * direct or indirect subsystems changes, or until the project labels its subsystems again.
 	 * @param calculator
 	 * @return an indicator that indicates the health of the system
 	 */
 	public HealthIndicator getHealthIndicator(HealthCalculator calculator){
-		return calculator.calculateHealth(this);
+		HealthIndicator indicator = healthIndicators.get(calculator.getClass());
+		if (indicator == null) {
+			indicator = calculator.calculateHealth(this);
+			healthIndicators.put(calculator.getClass(), indicator);
+		}
+		return indicator;
 	}
 	
 	@Override
@@ -357,6 +498,7 @@ public abstract class System implements ISystem, Observable, Observer {
 	 * Subclasses should always call the super method
 	 */
 	public void terminate() {
+		markDirty();
 		parent = null;
 		subsystems.clear();
 		observers.clear();
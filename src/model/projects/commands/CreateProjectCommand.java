@@ -1,7 +1,5 @@
 package model.projects.commands;
 
-import java.util.Date;
-
 import controllers.exceptions.UnauthorizedAccessException;
 import model.BugTrap;
 import model.Command;
@@ -25,6 +23,6 @@ public class CreateProjectCommand extends Command {
     @Override
     public void execute() throws UnauthorizedAccessException {
         form.allVarsFilledIn();
-        getBugTrap().getProjectManager().createProject(form.getName(), form.getDescription(), new Date(), form.getStartDate(), form.getBudgetEstimate(), form.getLeadDeveloper(), Version.firstVersion());
+        getBugTrap().getProjectManager().createProject(form.getName(), form.getDescription(), getBugTrap().getCurrentDate(), form.getStartDate(), form.getBudgetEstimate(), form.getLeadDeveloper(), Version.firstVersion());
     }
 }
@@ -0,0 +1,134 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import controllers.exceptions.UnauthorizedAccessException;
+import model.bugreports.IBugReport;
+import model.bugreports.bugtag.BugTag;
+import model.bugreports.filters.FilterType;
+import model.bugreports.forms.ArchiveBugReportsForm;
+import model.bugreports.forms.CommentCreationForm;
+import model.projects.ISubsystem;
+import model.projects.Project;
+import model.projects.Subsystem;
+
+public class ArchiveBugReportsUseCaseTest extends BugTrapTest {
+
+	private IBugReport closedBug;
+	private IBugReport notABug;
+	private IBugReport recentBug;
+
+	@Before
+	public void setUp() throws UnauthorizedAccessException {
+		super.setUp();
+
+		bugTrap.getBugReportManager().addBugReport("Clippy is gone", "Nobody misses him.", new Date(1320), clippy, issuer, new ArrayList<IBugReport>(), new ArrayList<>(), BugTag.CLOSED, null, 2);
+		closedBug = clippy.getBugReports().get(1);
+		bugTrap.getBugReportManager().addBugReport("Excel counts", "It is supposed to.", new Date(1330), excel, issuer, new ArrayList<IBugReport>(), new ArrayList<>(), BugTag.NOTABUG, null, 2);
+		notABug = excel.getBugReports().get(1);
+		bugTrap.getBugReportManager().addBugReport("Excel counts again", "Still supposed to.", new Date(), excel, issuer, new ArrayList<IBugReport>(), new ArrayList<>(), BugTag.DUPLICATE, null, 2);
+		recentBug = excel.getBugReports().get(2);
+	}
+
+	private void archive(int days) throws UnauthorizedAccessException {
+		userController.loginAs(admin);
+		ArchiveBugReportsForm form = bugReportController.getArchiveBugReportsForm();
+		form.setDays(days);
+		bugReportController.archiveBugReports(form);
+	}
+
+	@Test
+	public void archiveBugReportsTest() throws UnauthorizedAccessException {
+		double impact = ((Project) office).getBugImpact();
+		archive(30);
+
+		//Old closed bug reports are archived, recent ones and open ones are not.
+		List<IBugReport> archived = bugReportController.getArchivedBugReports();
+		assertEquals(2, archived.size());
+		assertSame(closedBug, archived.get(0));
+		assertSame(notABug, archived.get(1));
+		assertFalse(bugReportController.getBugReportList().contains(closedBug));
+		assertTrue(bugReportController.getBugReportList().contains(recentBug));
+		assertTrue(bugReportController.getBugReportList().contains(clippyBug));
+
+		//Archived bug reports are no longer walked by subsystems and filters.
+		assertFalse(clippy.getBugReports().contains(closedBug));
+		assertFalse(office.getAllBugReports().contains(notABug));
+		assertEquals(impact, ((Project) office).getBugImpact(), 0);
+		userController.loginAs(issuer);
+		List<IBugReport> found = bugReportController.getOrderedList(new FilterType[] { FilterType.CONTAINS_STRING }, new String[] { "Clippy" });
+		assertEquals(2, found.size());
+		assertFalse(found.contains(closedBug));
+
+		//They are still reachable by archive queries.
+		assertEquals(1, bugTrap.getBugReportManager().getArchivedBugReports(word).size());
+		assertSame(clippy, closedBug.getSubsystem());
+	}
+
+	@Test
+	public void changedBugReportIsRestoredTest() throws UnauthorizedAccessException {
+		archive(30);
+
+		userController.loginAs(issuer);
+		CommentCreationForm form = bugReportController.getCommentCreationForm();
+		form.setCommentable(closedBug);
+		form.setText("He is back!");
+		bugReportController.createComment(form);
+
+		assertFalse(bugTrap.getBugReportManager().isArchived(closedBug));
+		assertTrue(clippy.getBugReports().contains(closedBug));
+		assertTrue(bugReportController.getBugReportList().contains(closedBug));
+		assertEquals(1, bugReportController.getArchivedBugReports().size());
+	}
+
+	@Test
+	public void mergeKeepsArchivedBugReportsTest() throws UnauthorizedAccessException {
+		archive(30);
+
+		((Subsystem) clippy).merge("Assistants", "Clippy and friends", comicSans);
+		ISubsystem merged = bugTrap.getProjectManager().getSubsystemWithName("Assistants");
+
+		assertSame(merged, closedBug.getSubsystem());
+		assertTrue(merged.getBugReports().contains(closedBug));
+		assertFalse(bugTrap.getBugReportManager().isArchived(closedBug));
+	}
+
+	@Test
+	public void deleteProjectDeletesArchivedBugReportsTest() throws UnauthorizedAccessException {
+		archive(30);
+
+		bugTrap.getProjectManager().deleteProject(office);
+
+		assertTrue(bugReportController.getArchivedBugReports().isEmpty());
+		assertTrue(bugReportController.getBugReportList().isEmpty());
+	}
+
+	@Test (expected = UnauthorizedAccessException.class)
+	public void notAuthorizedTest() throws UnauthorizedAccessException {
+		userController.loginAs(issuer);
+		bugReportController.getArchiveBugReportsForm();
+	}
+
+	@Test (expected = NullPointerException.class)
+	public void varsNotFilledTest() throws UnauthorizedAccessException {
+		userController.loginAs(admin);
+		ArchiveBugReportsForm form = bugReportController.getArchiveBugReportsForm();
+		bugReportController.archiveBugReports(form);
+	}
+
+	@Test (expected = IllegalArgumentException.class)
+	public void negativeAgeTest() throws UnauthorizedAccessException {
+		userController.loginAs(admin);
+		bugReportController.getArchiveBugReportsForm().setDays(-1);
+	}
+}
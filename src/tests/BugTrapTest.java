@@ -3,6 +3,7 @@ package tests;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 
 import controllers.exceptions.UnauthorizedAccessException;
 import org.junit.Before;
@@ -15,6 +16,8 @@ import model.BugTrap;
 import model.bugreports.IBugReport;
 import model.bugreports.bugtag.BugTag;
 import model.bugreports.comments.Commentable;
+import model.bugreports.filters.BugReportFilter;
+import model.bugreports.filters.FilterType;
 import model.projects.IProject;
 import model.projects.ISubsystem;
 import model.projects.Project;
@@ -56,6 +59,8 @@ public class BugTrapTest {
     protected IBugReport wordArtBug;
     protected IBugReport excelBug;
 
+    private int excelBugReportsAdded;
+
     @Before
     public void setUp() throws UnauthorizedAccessException {
         //Make System.
@@ -121,4 +126,37 @@ public class BugTrapTest {
         //Log off.
         bugTrap.getUserManager().logOff();
     }
+
+    /**
+     * @param fromEnd The position counted from the end of the bug report list, 1 for the last one.
+     * @return The bug report at that position, e.g. one that a test just added.
+     */
+    protected IBugReport last(int fromEnd) {
+        List<IBugReport> all = bugReportController.getBugReportList();
+        return all.get(all.size() - fromEnd);
+    }
+
+    /**
+     * Adds a bug report to Excel, issued by the issuer a moment after the one added before it.
+     * Tests of the bug report indexes add a few of these in their setUp and find them again with last.
+     * @param stackTrace The stack trace, null if there is none. So are the error message and the reproduction.
+     * @param tag The tag of the bug report.
+     */
+    protected void addExcelBugReport(String title, String description, String stackTrace, String errorMessage, String reproduction, BugTag tag) {
+        bugTrap.getBugReportManager().addBugReport(title, description, stackTrace, errorMessage, reproduction,
+                new Date(1400 + excelBugReportsAdded++), excel, issuer, new ArrayList<IBugReport>(), new ArrayList<IUser>(), tag, null, 1);
+    }
+
+    /**
+     * Applies the filters one after the other, in the given order, to compare the indexed queries against.
+     * @param types The types of the filters.
+     * @param arguments The arguments of the filters.
+     * @return The bug reports that pass all filters, in the order of the bug report list.
+     */
+    protected List<IBugReport> scan(FilterType[] types, String[] arguments) {
+        BugReportFilter filter = new BugReportFilter(bugReportController.getBugReportList());
+        for (int i = 0; i < types.length; i++)
+            filter.filter(types[i], arguments[i]);
+        return filter.getFilteredList();
+    }
 }
@@ -87,6 +87,9 @@ public class CreateBugReportUseCaseTest extends BugTrapTest {
 			assertEquals(project,			bugReport.getSubsystem().getProject());
 			assertEquals(dependencies,		bugReport.getDependsOn());
 			assertEquals(user,				bugReport.getIssuedBy());	
+			assertEquals("Reproduce by calling (...) with parameter (...)", bugReport.getReproduction());
+			assertEquals("Exception in thread \"main\" java.lang.NullPointerException", bugReport.getStackTrace());
+			assertEquals("ERROR! You messed up!", bugReport.getErrorMessage());
 		}
 	}
 
@@ -3,15 +3,20 @@ package tests.bugreporttests;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 import controllers.exceptions.UnauthorizedAccessException;
 import org.junit.Before;
 import org.junit.Test;
 
+import model.bugreports.BugReport;
 import model.bugreports.IBugReport;
+import model.bugreports.bugtag.BugTag;
 import model.bugreports.filters.BugReportFilter;
 import model.bugreports.filters.FilterType;
+import model.bugreports.filters.QueryPlan;
 import model.users.IUser;
 import tests.BugTrapTest;
 
@@ -78,4 +83,80 @@ public class BugReportFilterTest extends BugTrapTest {
 				}
 		assertTrue(contains);
 	}
+
+	private List<IBugReport> indexed(FilterType[] types, String[] params) {
+		return new QueryPlan(bugTrap.getBugReportManager().getBugReportList(), bugTrap.getBugReportManager(), bugTrap.getProjectManager(), types, params).execute();
+	}
+
+	@Test
+	public void indexedByTitleOrDescrTest() {
+		for (String param : new String[] { "Clippy", "Word", "pops up", "ry", "", "Somerandomwords", "Should be more." }) {
+			List<IBugReport> scanned = new BugReportFilter(bugReportController.getBugReportList()).filter(FilterType.CONTAINS_STRING, param);
+			assertEquals(scanned, indexed(new FilterType[] { FilterType.CONTAINS_STRING }, new String[] { param }));
+		}
+
+		List<IBugReport> result = indexed(new FilterType[] { FilterType.FILED_BY_USER, FilterType.CONTAINS_STRING }, new String[] { lead.getUserName(), "Clippy" });
+		assertEquals(2, result.size());
+		assertTrue(result.contains(clippyBug));
+		assertTrue(result.contains(wordBug));
+	}
+
+	@Test
+	public void indexFollowsBugReportListTest() throws UnauthorizedAccessException {
+		bugTrap.getBugReportManager().addBugReport("Clippy is back", "Nobody asked for it.", new Date(1320), clippy, issuer, new ArrayList<IBugReport>(), new ArrayList<IUser>(), BugTag.CLOSED, null, 2);
+		assertEquals(3, indexed(new FilterType[] { FilterType.CONTAINS_STRING }, new String[] { "Clippy" }).size());
+
+		bugTrap.getBugReportManager().archiveClosedBugReports(0);
+		assertEquals(2, indexed(new FilterType[] { FilterType.CONTAINS_STRING }, new String[] { "Clippy" }).size());
+
+		bugTrap.getBugReportManager().restoreArchivedBugReports(clippy);
+		List<IBugReport> result = indexed(new FilterType[] { FilterType.CONTAINS_STRING }, new String[] { "Clippy" });
+		assertEquals(3, result.size());
+		assertEquals(bugTrap.getBugReportManager().getBugReportList().size(), bugTrap.getBugReportManager().getTextIndex().size());
+
+		bugTrap.getProjectManager().deleteProject(office);
+		assertTrue(indexed(new FilterType[] { FilterType.CONTAINS_STRING }, new String[] { "Clippy" }).isEmpty());
+		assertEquals(0, bugTrap.getBugReportManager().getTextIndex().size());
+	}
+
+	@Test
+	public void byTagTest() {
+		List<IBugReport> result = bugReportFilter.filter(FilterType.HAS_TAG, BugTag.NEW.name());
+		assertEquals(1, result.size());
+		assertTrue(result.contains(clippyBug));
+
+		for (BugTag tag : BugTag.values()) {
+			List<IBugReport> scanned = new BugReportFilter(bugReportController.getBugReportList()).filter(FilterType.HAS_TAG, tag.name());
+			assertEquals(scanned, indexed(new FilterType[] { FilterType.HAS_TAG }, new String[] { tag.name() }));
+		}
+		assertTrue(indexed(new FilterType[] { FilterType.HAS_TAG }, new String[] { "Not a tag" }).isEmpty());
+	}
+
+	@Test
+	public void tagIndexFollowsTagChangesTest() throws UnauthorizedAccessException {
+		for (int i = 0; i < 40; i++)
+			bugTrap.getBugReportManager().addBugReport("Clippy " + i, "Again.", new Date(1320 + i), clippy, issuer, new ArrayList<IBugReport>(), new ArrayList<IUser>(), i % 2 == 0 ? BugTag.NEW : BugTag.CLOSED, null, 2);
+		assertEquals(21, bugTrap.getBugReportManager().getTagIndex().count(BugTag.NEW));
+		assertEquals(20, bugTrap.getBugReportManager().getTagIndex().count(BugTag.CLOSED));
+
+		bugTrap.getUserManager().loginAs(lead);
+		((BugReport) clippyBug).updateBugTag(BugTag.UNDERREVIEW);
+		assertEquals(20, bugTrap.getBugReportManager().getTagIndex().count(BugTag.NEW));
+		assertEquals(2, bugTrap.getBugReportManager().getTagIndex().count(BugTag.UNDERREVIEW));
+
+		//Archiving more than half of the bug reports hands out the ids again.
+		assertEquals(20, bugTrap.getBugReportManager().archiveClosedBugReports(0));
+		bugTrap.getBugReportManager().restoreArchivedBugReports(clippy);
+		for (BugTag tag : BugTag.values()) {
+			List<IBugReport> scanned = new BugReportFilter(bugReportController.getBugReportList()).filter(FilterType.HAS_TAG, tag.name());
+			assertEquals(scanned, bugTrap.getBugReportManager().getTagIndex().getBugReports(tag));
+			assertEquals(scanned, indexed(new FilterType[] { FilterType.HAS_TAG, FilterType.CONTAINS_STRING }, new String[] { tag.name(), "" }));
+			assertEquals(scanned.size(), bugTrap.getBugReportManager().getTagIndex().count(tag));
+		}
+		assertEquals(bugTrap.getBugReportManager().getBugReportList().size(), bugTrap.getBugReportManager().getTagIndex().size());
+
+		bugTrap.getProjectManager().deleteProject(office);
+		assertEquals(0, bugTrap.getBugReportManager().getTagIndex().size());
+		assertEquals(0, bugTrap.getBugReportManager().getTagIndex().count(BugTag.NEW));
+	}
 }
@@ -6,15 +6,20 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
 import org.junit.Test;
 
 import controllers.exceptions.UnauthorizedAccessException;
+import model.bugreports.BugReport;
 import model.bugreports.IBugReport;
 import model.bugreports.bugtag.BugTag;
+import model.bugreports.filters.BugReportFilter;
 import model.bugreports.filters.FilterType;
+import model.bugreports.forms.BugReportAssignForm;
+import model.projects.ISubsystem;
 import model.projects.Subsystem;
 import model.users.IUser;
 import tests.BugTrapTest;
@@ -67,4 +72,79 @@ public class BugReportManagerTest extends BugTrapTest {
 		assertTrue(filtered.getTitle().equals("WordArt is not working"));
 		assertTrue(filtered.getDescription().equals("When using Comic Sans, the Word Art does not work."));
 	}
+
+	// The user index holds exactly what scanning the bug report list finds, in the same order.
+	private void assertUserIndexConsistent() {
+		List<IBugReport> bugReports = bugTrap.getBugReportManager().getBugReportList();
+		assertEquals(bugReports.size(), bugTrap.getBugReportManager().getUserIndex().size());
+		for (IUser user : bugTrap.getUserManager().getUserList()) {
+			assertEquals(new BugReportFilter(bugReports).filter(FilterType.FILED_BY_USER, user.getUserName()),
+					bugTrap.getBugReportManager().getUserIndex().getFiledBy(user.getUserName()));
+			assertEquals(new BugReportFilter(bugReports).filter(FilterType.ASSIGNED_TO_USER, user.getUserName()),
+					bugTrap.getBugReportManager().getUserIndex().getAssignedTo(user.getUserName()));
+		}
+	}
+
+	@Test
+	public void userIndexFollowsAssignmentsTest() throws UnauthorizedAccessException {
+		assertUserIndexConsistent();
+
+		bugTrap.getUserManager().loginAs(lead);
+		BugReportAssignForm form = bugReportController.getBugReportAssignForm();
+		form.setBugReport(clippyBug);
+		form.setDeveloper(tester);
+		bugReportController.assignToBugReport(form);
+
+		assertUserIndexConsistent();
+		assertTrue(bugTrap.getBugReportManager().getUserIndex().getAssignedTo(tester.getUserName()).contains(clippyBug));
+	}
+
+	@Test
+	public void userIndexFollowsSplitAndMergeTest() {
+		word.split("Text", "Annoying Tools", "TextInWord", "Tools can annoying", Arrays.asList(new IBugReport[] { wordBug }), Arrays.asList(new ISubsystem[] { wordArt, comicSans }));
+		assertUserIndexConsistent();
+
+		((Subsystem) excel).merge("Sheets", "Excel and tables", excelTable);
+		assertUserIndexConsistent();
+		assertEquals(3, bugTrap.getBugReportManager().getUserIndex().getFiledBy(lead.getUserName()).size());
+	}
+
+	@Test
+	public void userIndexFollowsProjectDeletionTest() throws UnauthorizedAccessException {
+		bugTrap.getProjectManager().deleteProject(office);
+
+		assertUserIndexConsistent();
+		assertTrue(bugTrap.getBugReportManager().getUserIndex().getFiledBy(lead.getUserName()).isEmpty());
+		assertTrue(bugTrap.getBugReportManager().getUserIndex().getAssignedTo(prog.getUserName()).isEmpty());
+	}
+
+	@Test
+	public void indexedOrderedListTest() throws UnauthorizedAccessException {
+		bugTrap.getUserManager().loginAs(issuer);
+		List<IBugReport> ordered = bugTrap.getBugReportManager().getOrderedList(new FilterType[]{FilterType.ASSIGNED_TO_USER, FilterType.FILED_BY_USER}, new String[]{prog.getUserName(), lead.getUserName()});
+
+		assertEquals(2, ordered.size());
+		assertTrue(ordered.get(0) == wordBug);
+		assertTrue(ordered.get(1) == excelBug);
+	}
+
+	@Test
+	public void positionOfTest() throws UnauthorizedAccessException {
+		bugTrap.getUserManager().loginAs(lead);
+		((BugReport) clippyBug).updateBugTag(BugTag.CLOSED);
+		bugTrap.getBugReportManager().archiveClosedBugReports(0);
+		List<IBugReport> bugReports = bugTrap.getBugReportManager().getBugReportList();
+		bugReports.addAll(bugTrap.getBugReportManager().getArchivedBugReports());
+		assertTrue(bugTrap.getBugReportManager().isArchived(clippyBug));
+
+		// Positions run through the bug report list and then through the archive.
+		for (int i = 0; i < bugReports.size(); i++) {
+			assertEquals(i, bugTrap.getBugReportManager().positionOf(bugReports.get(i)));
+			assertEquals(bugReports.get(i), bugTrap.getBugReportManager().getBugReportAt(i));
+		}
+		assertEquals(null, bugTrap.getBugReportManager().getBugReportAt(bugReports.size()));
+
+		bugTrap.getBugReportManager().restoreBugReport(clippyBug);
+		assertEquals(bugTrap.getBugReportManager().getBugReportList().indexOf(clippyBug), bugTrap.getBugReportManager().positionOf(clippyBug));
+	}
 }
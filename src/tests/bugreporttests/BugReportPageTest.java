@@ -0,0 +1,113 @@
+package tests.bugreporttests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import controllers.exceptions.UnauthorizedAccessException;
+import model.bugreports.IBugReport;
+import model.bugreports.bugtag.BugTag;
+import model.bugreports.filters.BugReportPage;
+import model.bugreports.filters.FilterType;
+import model.users.IUser;
+import tests.BugTrapTest;
+
+public class BugReportPageTest extends BugTrapTest {
+
+	@Before
+	public void setUp() throws UnauthorizedAccessException {
+		super.setUp();
+
+		for (int i = 0; i < 10; i++)
+			bugTrap.getBugReportManager().addBugReport("Excel sheet " + i, "Cells are gone.", new Date(1400 + i), excel, i % 2 == 0 ? issuer : lead, new ArrayList<IBugReport>(), new ArrayList<IUser>(), BugTag.NEW, null, 1);
+		bugTrap.getUserManager().loginAs(issuer);
+	}
+
+	// Follows the cursors until the last page.
+	private List<IBugReport> allPages(FilterType[] types, String[] arguments, int pageSize) throws UnauthorizedAccessException {
+		List<IBugReport> all = new ArrayList<>();
+		BugReportPage page = bugReportController.getOrderedPage(types, arguments, null, pageSize);
+		all.addAll(page.getBugReports());
+		while (page.hasNext()) {
+			assertEquals(pageSize, page.getBugReports().size());
+			page = bugReportController.getOrderedPage(types, arguments, page.getNextCursor(), pageSize);
+			all.addAll(page.getBugReports());
+		}
+		return all;
+	}
+
+	@Test
+	public void pagesMakeUpOrderedListTest() throws UnauthorizedAccessException {
+		FilterType[][] types = {
+				{},
+				{ FilterType.CONTAINS_STRING },
+				{ FilterType.FILED_BY_USER },
+				{ FilterType.ASSIGNED_TO_USER },
+				{ FilterType.FILED_BY_USER, FilterType.CONTAINS_STRING },
+				{ FilterType.HAS_TAG },
+				{ FilterType.HAS_TAG, FilterType.FILED_BY_USER } };
+		String[][] arguments = {
+				{},
+				{ "e" },
+				{ lead.getUserName() },
+				{ prog.getUserName() },
+				{ issuer.getUserName(), "sheet" },
+				{ BugTag.NEW.name() },
+				{ BugTag.NEW.name(), lead.getUserName() } };
+
+		for (int i = 0; i < types.length; i++)
+			for (int pageSize = 1; pageSize <= 15; pageSize += 2)
+				assertEquals(bugReportController.getOrderedList(types[i], arguments[i]), allPages(types[i], arguments[i], pageSize));
+	}
+
+	@Test
+	public void lastPageTest() throws UnauthorizedAccessException {
+		BugReportPage page = bugReportController.getOrderedPage(new FilterType[0], new String[0], null, 14);
+		assertEquals(14, page.getBugReports().size());
+		assertFalse(page.hasNext());
+		assertNull(page.getNextCursor());
+
+		page = bugReportController.getOrderedPage(new FilterType[] { FilterType.CONTAINS_STRING }, new String[] { "Nothing like it" }, null, 5);
+		assertTrue(page.getBugReports().isEmpty());
+		assertFalse(page.hasNext());
+	}
+
+	@Test
+	public void newBugReportsComeAtTheEndTest() throws UnauthorizedAccessException {
+		//The cursor points after the last bug report of the page, new bug reports do not shift the next page.
+		FilterType[] types = { FilterType.CONTAINS_STRING };
+		String[] arguments = { "sheet" };
+		BugReportPage first = bugReportController.getOrderedPage(types, arguments, null, 8);
+
+		bugTrap.getBugReportManager().addBugReport("Excel sheet 10", "Cells are back.", new Date(1500), excel, issuer, new ArrayList<IBugReport>(), new ArrayList<IUser>(), BugTag.NEW, null, 1);
+		List<IBugReport> second = bugReportController.getOrderedPage(types, arguments, first.getNextCursor(), 8).getBugReports();
+
+		assertEquals(3, second.size());
+		assertEquals("Excel sheet 8", second.get(0).getTitle());
+		assertEquals("Excel sheet 10", second.get(2).getTitle());
+	}
+
+	@Test (expected = IllegalArgumentException.class)
+	public void invalidCursorTest() throws UnauthorizedAccessException {
+		bugReportController.getOrderedPage(new FilterType[0], new String[0], "not a cursor!", 5);
+	}
+
+	@Test (expected = IllegalArgumentException.class)
+	public void invalidPageSizeTest() throws UnauthorizedAccessException {
+		bugReportController.getOrderedPage(new FilterType[0], new String[0], null, 0);
+	}
+
+	@Test (expected = UnauthorizedAccessException.class)
+	public void notAuthorizedTest() throws UnauthorizedAccessException {
+		bugTrap.getUserManager().logOff();
+		bugReportController.getOrderedPage(new FilterType[0], new String[0], null, 5);
+	}
+}
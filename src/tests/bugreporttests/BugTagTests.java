@@ -2,6 +2,7 @@ package tests.bugreporttests;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -688,4 +689,31 @@ public class BugTagTests extends BugTrapTest {
         bugReport.updateBugTag(BugTag.UNDERREVIEW);
         assertEquals(BugTag.UNDERREVIEW, bugReport.getBugTag());
     }
+
+    @Test
+    public void isTerminalTest() {
+        assertTrue(BugTag.CLOSED.isTerminal());
+        assertTrue(BugTag.DUPLICATE.isTerminal());
+        assertTrue(BugTag.NOTABUG.isTerminal());
+        assertFalse(BugTag.RESOLVED.isTerminal());
+        assertFalse(BugTag.NEW.isTerminal());
+    }
+
+    @Test
+    public void terminalDateTest() throws UnauthorizedAccessException {
+        long day = 24 * 60 * 60 * 1000L;
+        long closed = bugReport.getCreationDate().getTime() + 10 * day;
+        bugTrap.getBugReportManager().addBugReport(bugReport);
+        assertNull(bugReport.getTerminalDate());
+
+        bugTrap.setCurrentDate(new Date(closed));
+        setInitialTag(BugTag.CLOSED);
+        assertEquals(new Date(closed), bugReport.getTerminalDate());
+
+        //The age counts from closing, not from the creation ten days earlier.
+        bugTrap.setCurrentDate(new Date(closed + 1000));
+        assertEquals(0, bugTrap.getBugReportManager().archiveClosedBugReports(day));
+        bugTrap.setCurrentDate(new Date(closed + day));
+        assertEquals(1, bugTrap.getBugReportManager().archiveClosedBugReports(day));
+    }
 }
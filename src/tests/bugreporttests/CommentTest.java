@@ -4,6 +4,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Date;
 
 import controllers.exceptions.UnauthorizedAccessException;
@@ -11,7 +12,14 @@ import org.junit.Before;
 import org.junit.Test;
 
 import model.bugreports.BugReport;
+import model.bugreports.IBugReport;
+import model.bugreports.PatchSection;
+import model.bugreports.TargetMilestone;
+import model.bugreports.TestSection;
+import model.bugreports.bugtag.BugTag;
 import model.bugreports.comments.Comment;
+import model.notifications.observers.Observer;
+import model.users.IUser;
 import tests.BugTrapTest;
 
 public class CommentTest extends BugTrapTest {
@@ -64,4 +72,14 @@ public class CommentTest extends BugTrapTest {
 		assertEquals(0, subsubComment12.getComments().size());
 		assertEquals(0, subComment2.getComments().size());
 	}
+
+	@Test
+	public void detachedBugReportTest() {
+		BugReport detached = new BugReport(null, "Detached", "Not in a BugTrap.", clippy, new ArrayList<IBugReport>(), new ArrayList<IUser>(), new ArrayList<Comment>(),
+				issuer, new Date(1400), new ArrayList<Observer>(), BugTag.NEW, null, null, null, new TargetMilestone(), 1, new TestSection(), new PatchSection());
+		Comment detachedComment = new Comment(detached, text);
+		assertTrue(Math.abs(detachedComment.getCreationDate().getTime() - new Date().getTime()) < 500);
+		detachedComment.addComment("A reply.");
+		assertEquals(1, detachedComment.getComments().size());
+	}
 }
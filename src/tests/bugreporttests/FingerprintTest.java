@@ -0,0 +1,108 @@
+package tests.bugreporttests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import controllers.exceptions.UnauthorizedAccessException;
+import model.bugreports.FingerprintIndex;
+import model.bugreports.IBugReport;
+import model.bugreports.bugtag.BugTag;
+import tests.BugTrapTest;
+
+public class FingerprintTest extends BugTrapTest {
+
+    private static final String CRASH = "java.lang.NullPointerException: cell is null\n"
+            + "\tat excel.Grid.render(Grid.java:120)\n"
+            + "\tat excel.Sheet.scroll(Sheet.java:45)\n"
+            + "\tat excel.Main.main(Main.java:8)";
+
+    // The same crash in another build: other line numbers and another message.
+    private static final String SAME_CRASH = "java.lang.NullPointerException: row is null\n"
+            + "\tat excel.Grid.render(Grid.java:131)\n"
+            + "\tat excel.Sheet.scroll(Sheet.java:47)\n"
+            + "\tat excel.Main.main(Main.java:9)";
+
+    private static final String OTHER_CRASH = "java.lang.IllegalStateException\n"
+            + "\tat excel.Grid.render(Grid.java:120)\n"
+            + "\tat excel.Sheet.scroll(Sheet.java:45)\n"
+            + "\tat excel.Main.main(Main.java:8)";
+
+    @Before
+    public void setUp() throws UnauthorizedAccessException {
+        super.setUp();
+
+        addExcelBugReport("Scrolling crashes", "Excel crashes when scrolling.", CRASH, null, null, BugTag.NEW);
+        addExcelBugReport("Crash on scroll", "Again.", SAME_CRASH, null, null, BugTag.CLOSED);
+        bugTrap.getUserManager().loginAs(issuer);
+    }
+
+    @Test
+    public void normalizeTest() {
+        assertEquals("java.lang.NullPointerException|excel.Grid.render(Grid.java)|excel.Sheet.scroll(Sheet.java)|excel.Main.main(Main.java)", FingerprintIndex.normalize(CRASH));
+        assertEquals(FingerprintIndex.normalize(CRASH), FingerprintIndex.normalize(SAME_CRASH));
+        assertEquals("|excel.Grid.lambda$render$0()|excel.Grid$$Lambda$14.run(Unknown Source)",
+                FingerprintIndex.normalize("at excel.Grid.lambda$render$0() at excel.Grid$$Lambda$14/0x0000000800c02440.run(Unknown Source)"));
+        assertEquals("Segmentation fault at", FingerprintIndex.normalize("Segmentation fault at 0x7ffd3a2b:12"));
+        assertNull(FingerprintIndex.normalize("  "));
+        assertNull(FingerprintIndex.fingerprint(null));
+
+        //Only the top frames count.
+        String deep = "java.lang.StackOverflowError";
+        for (int i = 0; i < 10; i++)
+            deep += "\n\tat excel.Formula.evaluate(Formula.java:" + i + ")";
+        assertEquals(FingerprintIndex.fingerprint(deep), FingerprintIndex.fingerprint(deep + "\n\tat excel.Main.main(Main.java:8)"));
+        assertNotEquals(FingerprintIndex.fingerprint(CRASH), FingerprintIndex.fingerprint(OTHER_CRASH));
+    }
+
+    @Test
+    public void findDuplicatesTest() throws UnauthorizedAccessException {
+        List<IBugReport> duplicates = bugReportController.findDuplicates(CRASH.replace("Grid.java:120", "Grid.java:7"));
+        assertEquals(Arrays.asList(last(2), last(1)), duplicates);
+
+        assertTrue(bugReportController.findDuplicates(OTHER_CRASH).isEmpty());
+        assertTrue(bugReportController.findDuplicates("").isEmpty());
+        assertTrue(bugReportController.findDuplicates((String) null).isEmpty());
+    }
+
+    @Test
+    public void batchTest() throws UnauthorizedAccessException {
+        List<List<IBugReport>> duplicates = bugReportController.findDuplicates(Arrays.asList(SAME_CRASH, OTHER_CRASH, null, CRASH));
+        assertEquals(4, duplicates.size());
+        assertEquals(2, duplicates.get(0).size());
+        assertTrue(duplicates.get(1).isEmpty());
+        assertTrue(duplicates.get(2).isEmpty());
+        assertEquals(duplicates.get(0), duplicates.get(3));
+    }
+
+    @Test
+    public void indexFollowsBugReportListTest() throws UnauthorizedAccessException {
+        assertEquals(2, bugTrap.getBugReportManager().getFingerprintIndex().size());
+
+        IBugReport closed = last(1);
+        bugTrap.getBugReportManager().archiveClosedBugReports(0);
+        assertEquals(Arrays.asList(last(1)), bugReportController.findDuplicates(CRASH));
+
+        bugTrap.getBugReportManager().restoreBugReport(closed);
+        List<IBugReport> duplicates = bugReportController.findDuplicates(CRASH);
+        assertEquals(2, duplicates.size());
+        assertSame(closed, duplicates.get(1));
+
+        bugTrap.getProjectManager().deleteProject(office);
+        assertEquals(0, bugTrap.getBugReportManager().getFingerprintIndex().size());
+    }
+
+    @Test (expected = UnauthorizedAccessException.class)
+    public void notAuthorizedTest() throws UnauthorizedAccessException {
+        bugTrap.getUserManager().logOff();
+        bugReportController.findDuplicates(CRASH);
+    }
+}
@@ -0,0 +1,102 @@
+package tests.bugreporttests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import controllers.exceptions.UnauthorizedAccessException;
+import model.bugreports.BugReport;
+import model.bugreports.FullTextIndex;
+import model.bugreports.IBugReport;
+import model.bugreports.bugtag.BugTag;
+import tests.BugTrapTest;
+
+public class FullTextSearchTest extends BugTrapTest {
+
+    @Before
+    public void setUp() throws UnauthorizedAccessException {
+        super.setUp();
+
+        addExcelBugReport("Sheet freezes", "Scrolling a big sheet freezes Excel.", "at Excel.scroll(Grid.java:12)", "Not responding", "Open a big sheet and scroll down.", BugTag.NEW);
+        addExcelBugReport("Chart colours", "Colours of a chart are wrong after saving the sheet.", null, null, null, BugTag.NEW);
+        bugTrap.getUserManager().loginAs(issuer);
+    }
+
+    @Test
+    public void tokenizeTest() {
+        assertEquals(Arrays.asList("at", "excel", "scroll", "grid", "java", "12"), FullTextIndex.tokenize("at Excel.scroll(Grid.java:12)"));
+        assertTrue(FullTextIndex.tokenize("  ...  ").isEmpty());
+        assertTrue(FullTextIndex.tokenize(null).isEmpty());
+    }
+
+    @Test
+    public void rankedSearchTest() throws UnauthorizedAccessException {
+        //Case does not matter, stack traces and error messages are searched as well.
+        List<IBugReport> result = bugReportController.searchBugReports("GRID responding", 5);
+        assertEquals(1, result.size());
+        assertSame(last(2), result.get(0));
+
+        //The bug report that mentions the sheet most often ranks first.
+        result = bugReportController.searchBugReports("sheet", 5);
+        assertEquals(2, result.size());
+        assertSame(last(2), result.get(0));
+        assertSame(last(1), result.get(1));
+
+        //A rare word counts more than a common one.
+        result = bugReportController.searchBugReports("sheet colours", 5);
+        assertSame(last(1), result.get(0));
+
+        assertEquals(1, bugReportController.searchBugReports("sheet colours", 1).size());
+        assertTrue(bugReportController.searchBugReports("nothing like it", 5).isEmpty());
+    }
+
+    @Test
+    public void commentsAreSearchedTest() throws UnauthorizedAccessException {
+        assertTrue(bugReportController.searchBugReports("paperclip", 5).isEmpty());
+
+        ((BugReport) clippyBug).addComment("The paperclip also dances.");
+        List<IBugReport> result = bugReportController.searchBugReports("paperclip", 5);
+        assertEquals(1, result.size());
+        assertSame(clippyBug, result.get(0));
+
+        clippyBug.getComments().get(0).addComment("It dances the tango.");
+        assertSame(clippyBug, bugReportController.searchBugReports("tango", 5).get(0));
+    }
+
+    @Test
+    public void indexFollowsBugReportListTest() throws UnauthorizedAccessException {
+        bugTrap.getUserManager().loginAs(lead);
+        ((BugReport) clippyBug).updateBugTag(BugTag.CLOSED);
+        bugTrap.getBugReportManager().archiveClosedBugReports(0);
+        bugTrap.getUserManager().loginAs(issuer);
+        assertTrue(bugReportController.searchBugReports("hour", 5).isEmpty());
+
+        //Commenting restores the archived bug report with all its comments, the new one counted once.
+        ((BugReport) clippyBug).addComment("Once an hour is enough.");
+        List<IBugReport> result = bugReportController.searchBugReports("hour", 5);
+        assertEquals(1, result.size());
+        assertSame(clippyBug, result.get(0));
+        assertEquals(bugTrap.getBugReportManager().getBugReportList().size(), bugTrap.getBugReportManager().getFullTextIndex().size());
+
+        bugTrap.getProjectManager().deleteProject(office);
+        assertEquals(0, bugTrap.getBugReportManager().getFullTextIndex().size());
+        assertTrue(bugReportController.searchBugReports("sheet", 5).isEmpty());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void invalidKTest() throws UnauthorizedAccessException {
+        bugReportController.searchBugReports("sheet", 0);
+    }
+
+    @Test (expected = UnauthorizedAccessException.class)
+    public void notAuthorizedTest() throws UnauthorizedAccessException {
+        bugTrap.getUserManager().logOff();
+        bugReportController.searchBugReports("sheet", 5);
+    }
+}
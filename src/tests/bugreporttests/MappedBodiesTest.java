@@ -0,0 +1,220 @@
+package tests.bugreporttests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import controllers.exceptions.UnauthorizedAccessException;
+import model.BugTrap;
+import model.bugreports.BugReport;
+import model.bugreports.bugtag.BugTag;
+import model.bugreports.builders.BugReportBuilder;
+import model.bugreports.forms.CommentCreationForm;
+import model.persistence.SegmentedSnapshot;
+import model.persistence.SnapshotLoader;
+import model.persistence.SnapshotWriter;
+import tests.BugTrapTest;
+import tests.persistencetests.StateAssert;
+
+public class MappedBodiesTest extends BugTrapTest {
+
+	private BugReport excelReport;
+	private File bodyFile;
+
+	@Before
+	public void setUp() throws UnauthorizedAccessException {
+		super.setUp();
+		excelReport = new BugReportBuilder(bugTrap)
+				.setTitle("Excel rounds wrong")
+				.setDescription("1/3*3 is not 1")
+				.setCreationDate(new Date(1400))
+				.setSubsystem(excelTable)
+				.setIssuer(issuer)
+				.setDependsOn(Arrays.asList(excelBug))
+				.setImpactFactor(9)
+				.setStackTrace("at Excel.round(Excel.java:12)\n\tat Excel.main(Excel.java:1)")
+				.setErrorMessage("#DIV/0! \u00e9\u00e8")
+				.setReproduction("Type =1/3*3")
+				.getBugReport();
+		bugTrap.getBugReportManager().addBugReport(excelReport);
+		excelReport.addComment("Also in LibreOffice");
+		excelReport.getComments().get(0).addComment("Not our problem");
+
+		bugTrap.getUserManager().loginAs(tester);
+		((BugReport) wordArtBug).addTest("Word Art renders");
+		bugTrap.getUserManager().logOff();
+		try {
+			bodyFile = File.createTempFile("BugTrapBodies", ".map");
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@After
+	public void tearDown() {
+		bodyFile.delete();
+	}
+
+	private static BugTrap copy(BugTrap bugTrap) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new SnapshotWriter(bugTrap).write(out);
+		BugTrap copy = new BugTrap();
+		new SnapshotLoader(copy).load(new ByteArrayInputStream(out.toByteArray()));
+		return copy;
+	}
+
+	@Test
+	public void textsAreReadFromFileTest() throws IOException {
+		String clippyTrace = clippyBug.getStackTrace();
+		bugTrap.getBugReportManager().mapBodies(bodyFile);
+
+		assertFalse(excelReport.isBodyResident());
+		assertEquals("1/3*3 is not 1", excelReport.getDescription());
+		assertEquals("at Excel.round(Excel.java:12)\n\tat Excel.main(Excel.java:1)", excelReport.getStackTrace());
+		assertEquals("#DIV/0! \u00e9\u00e8", excelReport.getErrorMessage());
+		assertEquals("Type =1/3*3", excelReport.getReproduction());
+		assertEquals(clippyTrace, clippyBug.getStackTrace());
+		// Reading texts does not bring the body back on the heap.
+		assertFalse(excelReport.isBodyResident());
+		assertEquals("Excel rounds wrong", excelReport.getTitle());
+	}
+
+	@Test
+	public void commentsHydrateBodyTest() throws IOException {
+		bugTrap.getBugReportManager().mapBodies(bodyFile);
+
+		assertEquals(1, excelReport.getComments().size());
+		assertTrue(excelReport.isBodyResident());
+		assertEquals("Also in LibreOffice", excelReport.getComments().get(0).getText());
+		assertEquals("Not our problem", excelReport.getComments().get(0).getComments().get(0).getText());
+		assertEquals("1/3*3 is not 1", excelReport.getDescription());
+	}
+
+	@Test
+	public void restoreMappedBodyTest() throws IOException, UnauthorizedAccessException {
+		((BugReport) clippyBug).addComment("Clippy keeps popping up");
+		bugTrap.getUserManager().loginAs(lead);
+		((BugReport) clippyBug).updateBugTag(BugTag.CLOSED);
+		bugTrap.getBugReportManager().archiveClosedBugReports(0);
+		bugTrap.getBugReportManager().mapBodies(bodyFile);
+
+		// Indexing the restored bug report reads the comments from the file.
+		bugTrap.getBugReportManager().restoreBugReport(clippyBug);
+		assertFalse(((BugReport) clippyBug).isBodyResident());
+		assertEquals(Arrays.asList(clippyBug), bugTrap.getBugReportManager().search("popping", 5));
+	}
+
+	@Test
+	public void changesAfterMappingTest() throws IOException, UnauthorizedAccessException {
+		bugTrap.getBugReportManager().mapBodies(bodyFile);
+
+		excelReport.addComment("Fixed in the next version");
+		assertEquals(2, excelReport.getComments().size());
+
+		bugTrap.getUserManager().loginAs(tester);
+		((BugReport) wordArtBug).addTest("Word Art renders fast");
+		assertEquals(2, wordArtBug.getTests().size());
+		assertEquals("Word Art renders", wordArtBug.getTests().get(0).getTest());
+	}
+
+	@Test
+	public void mappingKeepsStateTest() throws IOException {
+		BugTrap expected = copy(bugTrap);
+
+		bugTrap.getBugReportManager().mapBodies(bodyFile);
+		// Some bodies are decoded again, the others are copied from the first file.
+		wordBug.getComments();
+		File secondFile = File.createTempFile("BugTrapBodies", ".map");
+		try {
+			bugTrap.getBugReportManager().mapBodies(secondFile);
+			StateAssert.assertSameState(expected, bugTrap);
+			StateAssert.assertSameState(expected, copy(bugTrap));
+		} finally {
+			secondFile.delete();
+		}
+	}
+
+	@Test
+	public void terminateMappedBodyTest() throws IOException {
+		bugTrap.getBugReportManager().mapBodies(bodyFile);
+
+		String description = wordArtBug.getDescription();
+		((BugReport) wordArtBug).terminate();
+		assertTrue(wordArtBug.getTests().isEmpty());
+		assertTrue(wordArtBug.getComments().isEmpty());
+		assertEquals(description, wordArtBug.getDescription());
+	}
+
+	@Test
+	public void mappingToSameFileTest() throws IOException {
+		BugTrap expected = copy(bugTrap);
+
+		bugTrap.getBugReportManager().mapBodies(bodyFile);
+		wordBug.getComments();
+		// The bodies that are still mapped are copied from the file that is replaced.
+		bugTrap.getBugReportManager().mapBodies(bodyFile);
+		assertFalse(excelReport.isBodyResident());
+		StateAssert.assertSameState(expected, bugTrap);
+		assertFalse(new File(bodyFile.getPath() + ".tmp").exists());
+	}
+
+	@Test
+	public void savingKeepsBodiesMappedTest() throws IOException {
+		bugTrap.getBugReportManager().mapBodies(bodyFile);
+		BugTrap expected = copy(bugTrap);
+		assertFalse(excelReport.isBodyResident());
+		assertFalse(((BugReport) clippyBug).isBodyResident());
+
+		File directory = Files.createTempDirectory("BugTrapSegments").toFile();
+		try {
+			new SegmentedSnapshot(bugTrap, directory).save();
+			assertFalse(excelReport.isBodyResident());
+			BugTrap loaded = new BugTrap();
+			new SegmentedSnapshot(loaded, directory).load();
+			StateAssert.assertSameState(expected, loaded);
+		} finally {
+			delete(directory);
+		}
+	}
+
+	@Test
+	public void compactionKeepsBodiesMappedTest() throws IOException, UnauthorizedAccessException {
+		File directory = Files.createTempDirectory("BugTrapStore").toFile();
+		try {
+			bugTrap.openStore(directory, 1);
+			bugTrap.getBugReportManager().mapBodies(bodyFile);
+			// Adding a comment decodes that body, the others stay mapped while the command is journaled.
+			userController.loginAs(issuer);
+			CommentCreationForm form = bugReportController.getCommentCreationForm();
+			form.setCommentable(wordArtBug);
+			form.setText("Still not rendering");
+			bugReportController.createComment(form);
+			assertTrue(((BugReport) wordArtBug).isBodyResident());
+
+			bugTrap.getStore().compact();
+			assertFalse(excelReport.isBodyResident());
+			assertFalse(((BugReport) clippyBug).isBodyResident());
+			bugTrap.closeStore();
+		} finally {
+			delete(directory);
+		}
+	}
+
+	private static void delete(File directory) {
+		for (File file : directory.listFiles())
+			file.delete();
+		directory.delete();
+	}
+}
@@ -0,0 +1,102 @@
+package tests.bugreporttests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import controllers.exceptions.UnauthorizedAccessException;
+import model.bugreports.IBugReport;
+import model.bugreports.NearDuplicateIndex;
+import model.bugreports.bugtag.BugTag;
+import model.bugreports.forms.BugReportCreationForm;
+import tests.BugTrapTest;
+
+public class NearDuplicateTest extends BugTrapTest {
+
+    private static final String TITLE = "Excel freezes when scrolling a big sheet";
+    private static final String DESCRIPTION = "Scrolling down a sheet with many formulas freezes Excel for a minute, the cells are not drawn until it comes back.";
+
+    @Before
+    public void setUp() throws UnauthorizedAccessException {
+        super.setUp();
+
+        addExcelBugReport(TITLE, DESCRIPTION, null, null, null, BugTag.NEW);
+        addExcelBugReport("Chart colours", "Colours of a chart are wrong after saving the sheet.", null, null, null, BugTag.CLOSED);
+        bugTrap.getUserManager().loginAs(issuer);
+    }
+
+    private BugReportCreationForm form(String title, String description) throws UnauthorizedAccessException {
+        BugReportCreationForm form = bugReportController.getBugReportCreationForm();
+        form.setTitle(title);
+        form.setDescription(description);
+        return form;
+    }
+
+    @Test
+    public void shinglesTest() {
+        Set<Long> a = NearDuplicateIndex.shingles("Excel freezes", "when scrolling");
+        assertEquals(3, a.size());
+        assertEquals(a, NearDuplicateIndex.shingles("EXCEL", "freezes, when scrolling!"));
+        assertEquals(1, NearDuplicateIndex.shingles("Crash", "").size());
+        assertTrue(NearDuplicateIndex.shingles("", "...").isEmpty());
+
+        assertEquals(1.0, NearDuplicateIndex.jaccard(a, a), 0);
+        assertEquals(0.5, NearDuplicateIndex.jaccard(a, NearDuplicateIndex.shingles("Excel freezes", "when zooming")), 1e-9);
+        assertEquals(0.0, NearDuplicateIndex.jaccard(a, NearDuplicateIndex.shingles("", "")), 0);
+    }
+
+    @Test
+    public void findNearDuplicatesTest() throws UnauthorizedAccessException {
+        //Other wording of a few words, a near duplicate.
+        List<IBugReport> found = bugReportController.findNearDuplicates(form("Excel freezes when scrolling a large sheet",
+                "Scrolling down a sheet with many formulas freezes Excel for a minute, the cells are not drawn until it recovers."));
+        assertEquals(1, found.size());
+        assertSame(last(2), found.get(0));
+
+        assertSame(last(1), bugReportController.findNearDuplicates(form("Chart colours", "Colours of a chart are wrong after saving the sheet."), 1).get(0));
+        assertTrue(bugReportController.findNearDuplicates(form("Clippy is annoying", "It keeps popping up.")).isEmpty());
+        assertTrue(bugReportController.findNearDuplicates(form("", "")).isEmpty());
+    }
+
+    @Test
+    public void thresholdTest() throws UnauthorizedAccessException {
+        //About half of the shingles are the same.
+        BugReportCreationForm half = form(TITLE, "Scrolling down a sheet with many formulas freezes Excel.");
+        assertTrue(bugReportController.findNearDuplicates(half, 0.9).isEmpty());
+        assertEquals(1, bugReportController.findNearDuplicates(half, 0.2).size());
+    }
+
+    @Test
+    public void indexFollowsBugReportListTest() throws UnauthorizedAccessException {
+        assertEquals(bugTrap.getBugReportManager().getBugReportList().size(), bugTrap.getBugReportManager().getNearDuplicateIndex().size());
+
+        IBugReport closed = last(1);
+        bugTrap.getBugReportManager().archiveClosedBugReports(0);
+        BugReportCreationForm chart = form("Chart colours", "Colours of a chart are wrong after saving the sheet.");
+        assertTrue(bugReportController.findNearDuplicates(chart).isEmpty());
+
+        bugTrap.getBugReportManager().restoreBugReport(closed);
+        assertSame(closed, bugReportController.findNearDuplicates(chart).get(0));
+
+        bugTrap.getProjectManager().deleteProject(office);
+        assertEquals(0, bugTrap.getBugReportManager().getNearDuplicateIndex().size());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void invalidThresholdTest() throws UnauthorizedAccessException {
+        bugReportController.findNearDuplicates(form(TITLE, DESCRIPTION), 1.5);
+    }
+
+    @Test (expected = UnauthorizedAccessException.class)
+    public void notAuthorizedTest() throws UnauthorizedAccessException {
+        BugReportCreationForm form = form(TITLE, DESCRIPTION);
+        bugTrap.getUserManager().logOff();
+        bugReportController.findNearDuplicates(form);
+    }
+}
@@ -0,0 +1,142 @@
+package tests.bugreporttests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import controllers.exceptions.UnauthorizedAccessException;
+import model.bugreports.IBugReport;
+import model.bugreports.TargetMilestone;
+import model.bugreports.bugtag.BugTag;
+import model.bugreports.filters.BugReportQuery;
+import model.projects.ISubsystem;
+import model.projects.Project;
+import model.projects.Subsystem;
+import model.users.IUser;
+import tests.BugTrapTest;
+
+public class QueryLanguageTest extends BugTrapTest {
+
+	private static final String[] QUERIES = {
+			"tag:ASSIGNED AND assignee:PROGRAMMER AND (text:\"Clippy\" OR subsystem:\"Word Art\")",
+			"tag:NEW OR tag:CLOSED",
+			"NOT tag:NEW",
+			"subsystem:Excel AND NOT (milestone:M2.3..M2.8 OR filedby:LEAD)",
+			"(text:sheet OR text:Clippy) AND NOT subsystem:Word",
+			"created:03/01/2015..05/01/2015 OR tag:UNDERREVIEW",
+			"NOT (NOT tag:CLOSED AND NOT tag:NEW) AND text:\"Excel sheet\"",
+			"subsystem:Word OR subsystem:ExcelTable",
+			"text:sheet AND (NOT text:\"sheet 1\" OR tag:NEW) AND (milestone:..M2.9 OR created:..02/01/2015)",
+			"" };
+
+	@Before
+	public void setUp() throws UnauthorizedAccessException {
+		super.setUp();
+
+		//Target milestones M2.0 to M2.11, created on the 1st to the 12th of January 2015, every third one closed.
+		for (int i = 0; i < 12; i++) {
+			Calendar calendar = Calendar.getInstance();
+			calendar.clear();
+			calendar.set(2015, Calendar.JANUARY, 1 + i, 12, 0);
+			bugTrap.getBugReportManager().addBugReport("Excel sheet " + i, "Cells are gone.", calendar.getTime(), i % 2 == 0 ? excel : excelTable,
+					i % 4 == 0 ? lead : issuer, new ArrayList<IBugReport>(), new ArrayList<IUser>(), i % 3 == 0 ? BugTag.CLOSED : BugTag.NEW,
+					new TargetMilestone(Arrays.asList(2, i)), 1);
+		}
+		bugTrap.getUserManager().loginAs(issuer);
+	}
+
+	// Checks the compiled query on every bug report of the list.
+	private List<IBugReport> scan(String query) {
+		BugReportQuery compiled = BugReportQuery.compile(query);
+		List<IBugReport> kept = new ArrayList<>();
+		for (IBugReport bugReport : bugReportController.getBugReportList())
+			if (compiled.matches(bugReport, bugTrap.getProjectManager()))
+				kept.add(bugReport);
+		return kept;
+	}
+
+	@Test
+	public void sameResultAsScanTest() throws UnauthorizedAccessException {
+		int[] sizes = { 1, 13, 7, 5, 12, 4, 12, 9, 10, 16 };
+		for (int i = 0; i < QUERIES.length; i++) {
+			assertEquals(QUERIES[i], sizes[i], bugReportController.queryBugReports(QUERIES[i]).size());
+			assertEquals(QUERIES[i], scan(QUERIES[i]), bugReportController.queryBugReports(QUERIES[i]));
+		}
+
+		assertEquals(Arrays.asList(wordArtBug), bugReportController.queryBugReports(QUERIES[0]));
+	}
+
+	@Test
+	public void optimizeTest() {
+		//Nested operators are flattened, duplicates dropped and cheap checks go first.
+		assertEquals("(tag:\"NEW\" AND filedby:\"LEAD\" AND text:\"a b\")",
+				BugReportQuery.compile("text:\"a b\" AND (filedby:LEAD AND tag:NEW) AND tag:NEW").toString());
+		assertEquals("(tag:\"NEW\" OR tag:\"CLOSED\")", BugReportQuery.compile("tag:NEW or (TAG:CLOSED or tag:new)").toString());
+
+		//Constants are folded: unknown tags, empty ranges and empty strings.
+		assertEquals("FALSE", BugReportQuery.compile("tag:FIXED AND text:crash").toString());
+		assertEquals("text:\"crash\"", BugReportQuery.compile("tag:FIXED OR text:crash").toString());
+		assertEquals("TRUE", BugReportQuery.compile("milestone:M3..M2 OR NOT milestone:M3..M2").toString());
+		assertEquals("TRUE", BugReportQuery.compile("text:\"\"").toString());
+		assertEquals("tag:\"NEW\"", BugReportQuery.compile("NOT NOT tag:NEW").toString());
+		assertEquals("NOT text:\"say \\\"hi\\\"\"", BugReportQuery.compile("NOT text:\"say \\\"hi\\\"\"").toString());
+	}
+
+	@Test
+	public void compiledQueryCacheTest() throws UnauthorizedAccessException {
+		BugReportQuery compiled = bugTrap.getBugReportManager().compileQuery(QUERIES[0]);
+		assertSame(compiled, bugTrap.getBugReportManager().compileQuery(QUERIES[0]));
+		assertEquals(QUERIES[0], compiled.getText());
+
+		//A compiled query follows the changes of the bug report list.
+		bugTrap.getBugReportManager().archiveClosedBugReports(0);
+		assertEquals(0, bugReportController.queryBugReports("tag:CLOSED").size());
+		assertEquals(scan("NOT tag:NEW"), bugReportController.queryBugReports("NOT tag:NEW"));
+	}
+
+	@Test
+	public void duplicateSubsystemNamesTest() throws UnauthorizedAccessException {
+		bugTrap.getProjectManager().createProject("Second", "Also has a Dup", new Date(), new Date(), 1, null, null);
+		((Project) bugTrap.getProjectManager().getProjects().get(1)).createSubsystem("Dup", "Empty");
+		((Subsystem) word).createSubsystem("Dup", "In Word");
+		((Subsystem) excelTable).createSubsystem("Dup", "In the table");
+		ISubsystem[] dups = { word.getSubsystems().get(word.getSubsystems().size() - 1), excelTable.getSubsystems().get(0) };
+		for (int i = 0; i < 6; i++)
+			bugTrap.getBugReportManager().addBugReport("Dup " + i, "Duplicate name.", new Date(1500 + i), dups[i % 2], issuer,
+					new ArrayList<IBugReport>(), new ArrayList<IUser>(), BugTag.NEW, null, 1);
+
+		//Whether the subsystem filter is checked or looked up, it keeps the bug reports of every subsystem with the name.
+		String[] queries = { "subsystem:Dup", "subsystem:Dup OR tag:CLOSED", "NOT subsystem:Dup", "subsystem:Dup AND text:Dup", "(subsystem:Dup OR text:sheet) AND NOT tag:CLOSED" };
+		for (String query : queries)
+			assertEquals(query, scan(query), bugReportController.queryBugReports(query));
+		assertEquals(6, bugReportController.queryBugReports("subsystem:Dup").size());
+	}
+
+	@Test
+	public void invalidQueryTest() throws UnauthorizedAccessException {
+		String[] invalid = { "tag:NEW AND", "(tag:NEW", "owner:LEAD", "text:\"open", "tag:NEW tag:CLOSED", "milestone:M2", "created:2015..", "tag:", ")" };
+		for (String query : invalid) {
+			try {
+				bugReportController.queryBugReports(query);
+				throw new AssertionError(query);
+			} catch (IllegalArgumentException e) {
+				assertTrue(e.getMessage(), e.getMessage().length() > 0);
+			}
+		}
+	}
+
+	@Test (expected = UnauthorizedAccessException.class)
+	public void notAuthorizedTest() throws UnauthorizedAccessException {
+		bugTrap.getUserManager().logOff();
+		bugReportController.queryBugReports("tag:NEW");
+	}
+}
@@ -0,0 +1,142 @@
+package tests.bugreporttests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import controllers.exceptions.UnauthorizedAccessException;
+import model.bugreports.IBugReport;
+import model.bugreports.bugtag.BugTag;
+import model.bugreports.filters.FilterType;
+import model.projects.ISubsystem;
+import model.projects.Project;
+import model.projects.Subsystem;
+import model.users.IUser;
+import tests.BugTrapTest;
+
+public class QueryPlanTest extends BugTrapTest {
+
+	@Before
+	public void setUp() throws UnauthorizedAccessException {
+		super.setUp();
+
+		//Enough bug reports by the issuer that looking them up costs more than checking a few candidates.
+		for (int i = 0; i < 20; i++)
+			bugTrap.getBugReportManager().addBugReport("Excel sheet " + i, "Cells are gone.", new Date(1400 + i), excel, issuer, new ArrayList<IBugReport>(), new ArrayList<IUser>(), BugTag.NEW, null, 1);
+		bugTrap.getUserManager().loginAs(issuer);
+	}
+
+	@Test
+	public void sameResultAsScanTest() throws UnauthorizedAccessException {
+		FilterType[][] types = {
+				{},
+				{ FilterType.FILED_BY_USER, FilterType.CONTAINS_STRING },
+				{ FilterType.CONTAINS_STRING, FilterType.ASSIGNED_TO_USER, FilterType.FILED_BY_USER },
+				{ FilterType.ASSIGNED_TO_USER, FilterType.CONTAINS_STRING },
+				{ FilterType.CONTAINS_STRING, FilterType.CONTAINS_STRING },
+				{ FilterType.IN_SUBSYSTEM },
+				{ FilterType.IN_SUBSYSTEM, FilterType.HAS_TAG },
+				{ FilterType.CONTAINS_STRING, FilterType.IN_SUBSYSTEM } };
+		String[][] arguments = {
+				{},
+				{ issuer.getUserName(), "sheet 1" },
+				{ "Word", prog.getUserName(), lead.getUserName() },
+				{ prog.getUserName(), "Nobody" },
+				{ "Excel", "1" },
+				{ word.getName() },
+				{ office.getName(), BugTag.NEW.name() },
+				{ "e", excel.getName() } };
+
+		for (int i = 0; i < types.length; i++)
+			assertEquals(scan(types[i], arguments[i]), bugReportController.getOrderedList(types[i], arguments[i]));
+	}
+
+	@Test
+	public void mostSelectiveFilterFirstTest() throws UnauthorizedAccessException {
+		FilterType[] types = { FilterType.FILED_BY_USER, FilterType.CONTAINS_STRING };
+		String[] arguments = { issuer.getUserName(), "WordArt" };
+
+		String plan = bugReportController.explainOrderedList(types, arguments);
+		assertTrue(plan, plan.contains("1. CONTAINS_STRING \"WordArt\": seed by lookup, estimate 1"));
+		assertTrue(plan, plan.contains("2. FILED_BY_USER \"" + issuer.getUserName() + "\": check candidates, estimate 21"));
+
+		List<IBugReport> result = bugReportController.getOrderedList(types, arguments);
+		assertEquals(1, result.size());
+		assertTrue(result.get(0) == wordArtBug);
+	}
+
+	@Test
+	public void lookupAndIntersectTest() throws UnauthorizedAccessException {
+		FilterType[] types = { FilterType.CONTAINS_STRING, FilterType.ASSIGNED_TO_USER };
+		String[] arguments = { "e", prog.getUserName() };
+
+		//A string without trigrams keeps every bug report, the assignees are looked up first.
+		String plan = bugReportController.explainOrderedList(types, arguments);
+		assertTrue(plan, plan.contains("1. ASSIGNED_TO_USER"));
+		assertTrue(plan, plan.contains("2. CONTAINS_STRING \"e\": check candidates"));
+		assertEquals(scan(types, arguments), bugReportController.getOrderedList(types, arguments));
+
+		//Among many other bug reports, a second string is cheaper to look up than to check on every candidate.
+		for (int i = 0; i < 200; i++)
+			bugTrap.getBugReportManager().addBugReport("Word document " + i, "Text is lost.", new Date(1700 + i), word, lead, new ArrayList<IBugReport>(), new ArrayList<IUser>(), BugTag.NEW, null, 1);
+		types = new FilterType[] { FilterType.CONTAINS_STRING, FilterType.CONTAINS_STRING };
+		arguments = new String[] { "Cells", "sheet" };
+		plan = bugReportController.explainOrderedList(types, arguments);
+		assertTrue(plan, plan.contains("2. CONTAINS_STRING \"sheet\": lookup and intersect"));
+		assertEquals(scan(types, arguments), bugReportController.getOrderedList(types, arguments));
+		assertEquals(20, bugReportController.getOrderedList(types, arguments).size());
+	}
+
+	@Test
+	public void subsystemFilterIsCheckedTest() throws UnauthorizedAccessException {
+		FilterType[] types = { FilterType.IN_SUBSYSTEM, FilterType.FILED_BY_USER };
+		String[] arguments = { word.getName(), lead.getUserName() };
+
+		//The subsystem filter is estimated to keep fewer bug reports, but it has no postings to look up.
+		String plan = bugReportController.explainOrderedList(types, arguments);
+		assertTrue(plan, plan.contains("1. FILED_BY_USER"));
+		assertTrue(plan, plan.contains("2. IN_SUBSYSTEM \"" + word.getName() + "\": check candidates, estimate 3"));
+		assertEquals(scan(types, arguments), bugReportController.getOrderedList(types, arguments));
+
+		//On its own it checks every bug report.
+		plan = bugReportController.explainOrderedList(new FilterType[] { FilterType.IN_SUBSYSTEM }, new String[] { excel.getName() });
+		assertTrue(plan, plan.contains("1. IN_SUBSYSTEM \"" + excel.getName() + "\": seed by check, estimate 21"));
+		assertEquals(21, bugReportController.getOrderedList(new FilterType[] { FilterType.IN_SUBSYSTEM }, new String[] { excel.getName() }).size());
+		assertTrue(bugReportController.getOrderedList(new FilterType[] { FilterType.IN_SUBSYSTEM }, new String[] { "Nothing" }).isEmpty());
+	}
+
+	@Test
+	public void duplicateSubsystemNamesTest() throws UnauthorizedAccessException {
+		//Dup in a second project comes first by name, the bug reports are in the Dup subsystems of Office.
+		bugTrap.getProjectManager().createProject("Second", "Also has a Dup", new Date(), new Date(), 1, null, null);
+		((Project) bugTrap.getProjectManager().getProjects().get(1)).createSubsystem("Dup", "Empty");
+		((Subsystem) word).createSubsystem("Dup", "In Word");
+		ISubsystem wordDup = word.getSubsystems().get(word.getSubsystems().size() - 1);
+		((Subsystem) wordDup).createSubsystem("Dup", "In the Dup of Word");
+		((Subsystem) excel).createSubsystem("Dup", "In Excel");
+		bugTrap.getBugReportManager().addBugReport("Dup 1", "In Word.", new Date(1500), wordDup, issuer, new ArrayList<IBugReport>(), new ArrayList<IUser>(), BugTag.NEW, null, 1);
+		bugTrap.getBugReportManager().addBugReport("Dup 2", "Deeper.", new Date(1501), wordDup.getSubsystems().get(0), issuer, new ArrayList<IBugReport>(), new ArrayList<IUser>(), BugTag.NEW, null, 1);
+		bugTrap.getBugReportManager().addBugReport("Dup 3", "In Excel.", new Date(1502), excel.getSubsystems().get(1), issuer, new ArrayList<IBugReport>(), new ArrayList<IUser>(), BugTag.NEW, null, 1);
+
+		FilterType[] types = { FilterType.IN_SUBSYSTEM };
+		String[] arguments = { "Dup" };
+		assertEquals(3, scan(types, arguments).size());
+		assertEquals(scan(types, arguments), bugReportController.getOrderedList(types, arguments));
+		assertTrue(bugReportController.explainOrderedList(types, arguments).contains("estimate 3"));
+		types = new FilterType[] { FilterType.FILED_BY_USER, FilterType.IN_SUBSYSTEM };
+		arguments = new String[] { issuer.getUserName(), "Dup" };
+		assertEquals(scan(types, arguments), bugReportController.getOrderedList(types, arguments));
+	}
+
+	@Test (expected = UnauthorizedAccessException.class)
+	public void notAuthorizedTest() throws UnauthorizedAccessException {
+		bugTrap.getUserManager().logOff();
+		bugReportController.explainOrderedList(new FilterType[0], new String[0]);
+	}
+}
@@ -0,0 +1,178 @@
+package tests.bugreporttests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import controllers.exceptions.UnauthorizedAccessException;
+import model.bugreports.BugReport;
+import model.bugreports.IBugReport;
+import model.bugreports.QueryResultCache;
+import model.bugreports.bugtag.BugTag;
+import model.bugreports.filters.FilterType;
+import model.projects.Project;
+import model.projects.Subsystem;
+import model.projects.builders.SubsystemBuilder;
+import model.users.IUser;
+import tests.BugTrapTest;
+
+public class QueryResultCacheTest extends BugTrapTest {
+
+	private static final FilterType[] BY_LEAD = { FilterType.FILED_BY_USER };
+	private static final String[] LEAD = { "LEAD" };
+	private static final FilterType[] BY_ISSUER = { FilterType.FILED_BY_USER };
+	private static final String[] ISSUER = { "ISSUER" };
+
+	private QueryResultCache cache;
+
+	@Before
+	public void setUp() throws UnauthorizedAccessException {
+		super.setUp();
+		cache = bugTrap.getBugReportManager().getResultCache();
+		bugTrap.getUserManager().loginAs(issuer);
+	}
+
+	// Runs the query, checks that it gives the same result as the plan and tells if the cache was hit.
+	private boolean hit(FilterType[] types, String[] arguments) throws UnauthorizedAccessException {
+		long hits = cache.getHits();
+		List<IBugReport> result = bugReportController.getOrderedList(types, arguments);
+		assertEquals(bugTrap.getBugReportManager().getQueryPlan(types, arguments).execute(), result);
+		return cache.getHits() > hits;
+	}
+
+	@Test
+	public void hitAndMissTest() throws UnauthorizedAccessException {
+		assertEquals(false, hit(BY_LEAD, LEAD));
+		assertEquals(true, hit(BY_LEAD, LEAD));
+		assertEquals(1, cache.getMisses());
+
+		//The order of the filters and duplicate filters do not matter.
+		FilterType[] types = { FilterType.HAS_TAG, FilterType.FILED_BY_USER };
+		assertEquals(false, hit(types, new String[] { "NEW", "LEAD" }));
+		assertEquals(true, hit(new FilterType[] { FilterType.FILED_BY_USER, FilterType.HAS_TAG, FilterType.FILED_BY_USER }, new String[] { "LEAD", "NEW", "LEAD" }));
+		assertEquals(false, hit(types, new String[] { "NEW", "ISSUER" }));
+		assertEquals(3, cache.size());
+
+		//The caller may change the list it gets.
+		bugReportController.getOrderedList(BY_LEAD, LEAD).clear();
+		assertEquals(3, bugReportController.getOrderedList(BY_LEAD, LEAD).size());
+	}
+
+	@Test
+	public void changeInvalidatesAffectedResultsTest() throws UnauthorizedAccessException {
+		FilterType[] assigned = { FilterType.HAS_TAG };
+		String[] tag = { "ASSIGNED" };
+		hit(BY_LEAD, LEAD);
+		hit(BY_ISSUER, ISSUER);
+		hit(assigned, tag);
+
+		//The tag of a bug report of the lead changes: it enters the assigned bug reports, the bug reports filed by someone stay the same.
+		bugTrap.getUserManager().loginAs(lead);
+		((BugReport) clippyBug).assignDeveloper(prog);
+		bugTrap.getUserManager().loginAs(issuer);
+		assertEquals(true, hit(BY_LEAD, LEAD));
+		assertEquals(true, hit(BY_ISSUER, ISSUER));
+		assertEquals(false, hit(assigned, tag));
+		assertEquals(2, bugReportController.getOrderedList(assigned, tag).size());
+
+		//A comment does not change any result.
+		((BugReport) wordBug).addComment("Still crashing.");
+		assertEquals(true, hit(BY_LEAD, LEAD));
+
+		//A new bug report enters the results it matches.
+		bugTrap.getBugReportManager().addBugReport("Excel again", "Still weird.", new Date(1400), excel, issuer,
+				new ArrayList<IBugReport>(), new ArrayList<IUser>(), BugTag.NEW, null, 1);
+		assertEquals(true, hit(BY_LEAD, LEAD));
+		assertEquals(false, hit(BY_ISSUER, ISSUER));
+		assertEquals(2, bugReportController.getOrderedList(BY_ISSUER, ISSUER).size());
+	}
+
+	@Test
+	public void archiveAndTerminationInvalidateTest() throws UnauthorizedAccessException {
+		FilterType[] closed = { FilterType.HAS_TAG };
+		String[] tag = { "CLOSED" };
+		bugTrap.getUserManager().loginAs(lead);
+		((BugReport) clippyBug).updateBugTag(BugTag.CLOSED);
+		bugTrap.getUserManager().loginAs(issuer);
+		hit(closed, tag);
+		hit(BY_ISSUER, ISSUER);
+
+		bugTrap.getBugReportManager().archiveClosedBugReports(0);
+		assertEquals(false, hit(closed, tag));
+		assertEquals(true, hit(BY_ISSUER, ISSUER));
+		bugTrap.getBugReportManager().restoreBugReport(clippyBug);
+		assertEquals(false, hit(closed, tag));
+		assertEquals(1, bugReportController.getOrderedList(closed, tag).size());
+
+		bugTrap.getProjectManager().deleteProject(office);
+		assertEquals(false, hit(closed, tag));
+		assertEquals(false, hit(BY_ISSUER, ISSUER));
+		assertEquals(0, bugReportController.getOrderedList(BY_ISSUER, ISSUER).size());
+	}
+
+	@Test
+	public void subsystemChangesInvalidateTest() throws UnauthorizedAccessException {
+		FilterType[] inWord = { FilterType.IN_SUBSYSTEM };
+		hit(inWord, new String[] { "Word" });
+		hit(BY_LEAD, LEAD);
+
+		((Subsystem) word).setName("Writer");
+		assertEquals(false, hit(inWord, new String[] { "Word" }));
+		assertEquals(0, bugReportController.getOrderedList(inWord, new String[] { "Word" }).size());
+		assertEquals(3, bugReportController.getOrderedList(inWord, new String[] { "Writer" }).size());
+		assertEquals(true, hit(BY_LEAD, LEAD));
+
+		((Subsystem) excel).createSubsystem("ExcelChart", "Charts");
+		assertEquals(false, hit(inWord, new String[] { "Writer" }));
+	}
+
+	@Test
+	public void unmanagedProjectDoesNotReachCacheTest() throws UnauthorizedAccessException {
+		FilterType[] inChart = { FilterType.IN_SUBSYSTEM };
+		String[] chart = { "Chart" };
+		hit(inChart, chart);
+
+		//Building a project, e.g. on another thread while loading, leaves the cache alone.
+		Project project = bugTrap.getProjectManager().buildProject("Calc", "Spreadsheets", new Date(1400), new Date(1400), 1000, null, null);
+		new SubsystemBuilder(bugTrap).setName("Chart").setDescription("Charts").setParent(project).getSubsystem();
+		assertEquals(0, cache.getInvalidations());
+		assertEquals(true, hit(inChart, chart));
+
+		bugTrap.getProjectManager().addProject(project);
+		assertEquals(false, hit(inChart, chart));
+	}
+
+	@Test
+	public void evictionTest() {
+		QueryResultCache small = new QueryResultCache(bugTrap.getBugReportManager(), 2, 3);
+		FilterType[] types = { FilterType.CONTAINS_STRING };
+		small.put(types, new String[] { "a" }, Arrays.asList(clippyBug));
+		small.put(types, new String[] { "b" }, Arrays.asList(wordBug));
+		assertNotNull(small.get(types, new String[] { "a" }));
+
+		//Too many results: the least recently used one goes.
+		small.put(types, new String[] { "c" }, Arrays.asList(excelBug));
+		assertNull(small.get(types, new String[] { "b" }));
+		assertEquals(1, small.getEvictions());
+
+		//Too many bug reports together.
+		small.put(types, new String[] { "d" }, Arrays.asList(clippyBug, wordBug));
+		assertNull(small.get(types, new String[] { "a" }));
+		assertEquals(2, small.size());
+		assertEquals(2, small.getEvictions());
+
+		//A result that is too large on its own is not cached.
+		small.put(types, new String[] { "e" }, Arrays.asList(clippyBug, wordBug, excelBug, wordArtBug));
+		assertNull(small.get(types, new String[] { "e" }));
+		assertEquals(1, small.getHits());
+		assertEquals(3, small.getMisses());
+	}
+}
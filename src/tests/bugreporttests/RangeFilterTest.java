@@ -0,0 +1,148 @@
+package tests.bugreporttests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import controllers.exceptions.UnauthorizedAccessException;
+import model.bugreports.IBugReport;
+import model.bugreports.TargetMilestone;
+import model.bugreports.bugtag.BugTag;
+import model.bugreports.filters.BugReportPage;
+import model.bugreports.filters.FilterType;
+import model.users.IUser;
+import tests.BugTrapTest;
+
+public class RangeFilterTest extends BugTrapTest {
+
+	@Before
+	public void setUp() throws UnauthorizedAccessException {
+		super.setUp();
+
+		//Target milestones M2.0 to M2.11, created on the 1st to the 12th of January 2015, every third one closed.
+		for (int i = 0; i < 12; i++) {
+			Calendar calendar = Calendar.getInstance();
+			calendar.clear();
+			calendar.set(2015, Calendar.JANUARY, 1 + i, 12, 0);
+			bugTrap.getBugReportManager().addBugReport("Excel sheet " + i, "Cells are gone.", calendar.getTime(), excel, issuer, new ArrayList<IBugReport>(), new ArrayList<IUser>(),
+					i % 3 == 0 ? BugTag.CLOSED : BugTag.NEW, new TargetMilestone(Arrays.asList(2, i)), 1);
+		}
+		bugTrap.getUserManager().loginAs(issuer);
+	}
+
+	@Test
+	public void milestoneRangeTest() throws UnauthorizedAccessException {
+		String[] ranges = { "M2.3..M2.7", "..M2.5", "M2.10..", "M3..M2", "2.5..2.5", "M2.5.0..M2.5", ".." };
+		int[] sizes = { 5, 6, 2, 0, 1, 1, 12 };
+
+		for (int i = 0; i < ranges.length; i++) {
+			FilterType[] types = { FilterType.MILESTONE_BETWEEN };
+			String[] arguments = { ranges[i] };
+			assertEquals(ranges[i], sizes[i], bugReportController.getOrderedList(types, arguments).size());
+			assertEquals(scan(types, arguments), bugReportController.getOrderedList(types, arguments));
+		}
+
+		//Open bug reports targeting milestones up to M2.5.
+		FilterType[] types = { FilterType.HAS_TAG, FilterType.MILESTONE_BETWEEN };
+		String[] arguments = { BugTag.NEW.name(), "..M2.5" };
+		assertEquals(4, bugReportController.getOrderedList(types, arguments).size());
+		assertEquals(scan(types, arguments), bugReportController.getOrderedList(types, arguments));
+	}
+
+	@Test
+	public void creationDateRangeTest() throws UnauthorizedAccessException {
+		//The upper date includes the whole day.
+		String[] ranges = { "03/01/2015..05/01/2015", "10/01/2015..", "..01/01/2015", "05/01/2015..03/01/2015", "01/01/2015..31/12/2015" };
+		int[] sizes = { 3, 3, 5, 0, 12 };
+
+		for (int i = 0; i < ranges.length; i++) {
+			FilterType[] types = { FilterType.CREATED_BETWEEN };
+			String[] arguments = { ranges[i] };
+			assertEquals(ranges[i], sizes[i], bugReportController.getOrderedList(types, arguments).size());
+			assertEquals(scan(types, arguments), bugReportController.getOrderedList(types, arguments));
+		}
+
+		FilterType[] types = { FilterType.CREATED_BETWEEN, FilterType.MILESTONE_BETWEEN, FilterType.CONTAINS_STRING };
+		String[] arguments = { "01/01/2015..06/01/2015", "M2.4..", "sheet" };
+		assertEquals(2, bugReportController.getOrderedList(types, arguments).size());
+		assertEquals(scan(types, arguments), bugReportController.getOrderedList(types, arguments));
+	}
+
+	@Test
+	public void rangePagesTest() throws UnauthorizedAccessException {
+		FilterType[] types = { FilterType.MILESTONE_BETWEEN, FilterType.CREATED_BETWEEN };
+		String[] arguments = { "M2.1..", "..09/01/2015" };
+
+		List<IBugReport> all = new ArrayList<>();
+		BugReportPage page = bugReportController.getOrderedPage(types, arguments, null, 3);
+		all.addAll(page.getBugReports());
+		while (page.hasNext()) {
+			page = bugReportController.getOrderedPage(types, arguments, page.getNextCursor(), 3);
+			all.addAll(page.getBugReports());
+		}
+		assertEquals(8, all.size());
+		assertEquals(bugReportController.getOrderedList(types, arguments), all);
+	}
+
+	@Test
+	public void interleavedKeysPagesTest() throws UnauthorizedAccessException {
+		//Later bug reports target earlier milestones, so every page takes bug reports from several milestones.
+		for (int i = 0; i < 12; i++)
+			bugTrap.getBugReportManager().addBugReport("Excel chart " + i, "Bars are gone.", new Date(1400 + i), excel, issuer, new ArrayList<IBugReport>(), new ArrayList<IUser>(),
+					BugTag.NEW, new TargetMilestone(Arrays.asList(2, 11 - i)), 1);
+		FilterType[] types = { FilterType.MILESTONE_BETWEEN };
+		String[] arguments = { "M2.2..M2.9" };
+
+		List<IBugReport> all = new ArrayList<>();
+		BugReportPage page = bugReportController.getOrderedPage(types, arguments, null, 5);
+		all.addAll(page.getBugReports());
+		while (page.hasNext()) {
+			page = bugReportController.getOrderedPage(types, arguments, page.getNextCursor(), 5);
+			all.addAll(page.getBugReports());
+		}
+		assertEquals(16, all.size());
+		assertEquals(scan(types, arguments), all);
+		assertEquals(all, bugReportController.getOrderedList(types, arguments));
+	}
+
+	@Test
+	public void indexesFollowBugReportListTest() throws UnauthorizedAccessException {
+		assertEquals(16, bugTrap.getBugReportManager().getDateIndex().size());
+		assertEquals(12, bugTrap.getBugReportManager().getMilestoneIndex().size());
+
+		bugTrap.getBugReportManager().archiveClosedBugReports(0);
+		assertEquals(8, bugReportController.getOrderedList(new FilterType[] { FilterType.MILESTONE_BETWEEN }, new String[] { ".." }).size());
+		assertEquals(8, bugTrap.getBugReportManager().getMilestoneIndex().size());
+
+		bugTrap.getBugReportManager().restoreArchivedBugReports(excel);
+		List<IBugReport> result = bugReportController.getOrderedList(new FilterType[] { FilterType.MILESTONE_BETWEEN }, new String[] { ".." });
+		assertEquals(12, result.size());
+		assertEquals(scan(new FilterType[] { FilterType.MILESTONE_BETWEEN }, new String[] { ".." }), result);
+
+		bugTrap.getProjectManager().deleteProject(office);
+		assertEquals(0, bugTrap.getBugReportManager().getDateIndex().size());
+		assertEquals(0, bugTrap.getBugReportManager().getMilestoneIndex().size());
+	}
+
+	@Test (expected = IllegalArgumentException.class)
+	public void invalidMilestoneTest() throws UnauthorizedAccessException {
+		bugReportController.getOrderedList(new FilterType[] { FilterType.MILESTONE_BETWEEN }, new String[] { "M2.x.." });
+	}
+
+	@Test (expected = IllegalArgumentException.class)
+	public void invalidDateTest() throws UnauthorizedAccessException {
+		bugReportController.getOrderedList(new FilterType[] { FilterType.CREATED_BETWEEN }, new String[] { "2015-01-01.." });
+	}
+
+	@Test (expected = IllegalArgumentException.class)
+	public void notARangeTest() throws UnauthorizedAccessException {
+		bugReportController.getOrderedList(new FilterType[] { FilterType.CREATED_BETWEEN }, new String[] { "01/01/2015" });
+	}
+}
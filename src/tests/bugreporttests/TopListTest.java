@@ -0,0 +1,106 @@
+package tests.bugreporttests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import controllers.exceptions.UnauthorizedAccessException;
+import model.bugreports.BugReport;
+import model.bugreports.IBugReport;
+import model.bugreports.bugtag.BugTag;
+import model.bugreports.filters.BugReportOrder;
+import model.bugreports.filters.FilterType;
+import model.projects.IProject;
+import model.projects.Project;
+import model.projects.Version;
+import model.users.IUser;
+import tests.BugTrapTest;
+
+public class TopListTest extends BugTrapTest {
+
+	@Before
+	public void setUp() throws UnauthorizedAccessException {
+		super.setUp();
+
+		for (int i = 0; i < 10; i++)
+			bugTrap.getBugReportManager().addBugReport("Excel sheet " + i, "Cells are gone.", new Date(1400 + i), excel, issuer, new ArrayList<IBugReport>(), new ArrayList<IUser>(), i % 3 == 0 ? BugTag.NEW : BugTag.UNDERREVIEW, null, 1 + i % 4);
+		bugTrap.getUserManager().loginAs(issuer);
+	}
+
+	// Sorts the whole filtered list, to compare the top lists with.
+	private List<IBugReport> sorted(FilterType[] types, String[] arguments, BugReportOrder order, int k) throws UnauthorizedAccessException {
+		List<IBugReport> all = bugReportController.getOrderedList(types, arguments);
+		Collections.sort(all, order);
+		return all.subList(0, Math.min(k, all.size()));
+	}
+
+	@Test
+	public void topListTest() throws UnauthorizedAccessException {
+		FilterType[][] types = { {}, { FilterType.CONTAINS_STRING }, { FilterType.FILED_BY_USER, FilterType.CONTAINS_STRING } };
+		String[][] arguments = { {}, { "e" }, { issuer.getUserName(), "sheet" } };
+
+		for (BugReportOrder order : BugReportOrder.values())
+			for (int i = 0; i < types.length; i++)
+				for (int k : new int[] { 1, 3, 20 })
+					assertEquals(sorted(types[i], arguments[i], order, k), bugReportController.getTopList(types[i], arguments[i], order, k));
+	}
+
+	@Test
+	public void mostImpactfulTest() throws UnauthorizedAccessException {
+		List<IBugReport> top = bugReportController.getTopList(new FilterType[0], new String[0], BugReportOrder.IMPACT, 2);
+
+		assertEquals(2, top.size());
+		assertSame(clippyBug, top.get(0));
+		assertEquals("Excel sheet 3", top.get(1).getTitle());
+	}
+
+	@Test
+	public void rankingFollowsTagChangesTest() throws UnauthorizedAccessException {
+		bugTrap.getUserManager().loginAs(lead);
+		((BugReport) clippyBug).updateBugTag(BugTag.CLOSED);
+		bugTrap.getUserManager().loginAs(issuer);
+
+		List<IBugReport> top = bugReportController.getTopList(new FilterType[0], new String[0], BugReportOrder.IMPACT, 20);
+		assertEquals(sorted(new FilterType[0], new String[0], BugReportOrder.IMPACT, 20), top);
+		assertSame(clippyBug, top.get(top.size() - 1));
+
+		bugTrap.getBugReportManager().archiveClosedBugReports(0);
+		assertEquals(13, bugReportController.getTopList(new FilterType[0], new String[0], BugReportOrder.IMPACT, 20).size());
+		bugTrap.getBugReportManager().restoreBugReport(clippyBug);
+		assertEquals(top, bugReportController.getTopList(new FilterType[0], new String[0], BugReportOrder.IMPACT, 20));
+	}
+
+	@Test
+	public void topBugReportsPerProjectTest() throws UnauthorizedAccessException {
+		bugTrap.getProjectManager().createProject("Games", "Time wasters", new Date(100), new Date(200), 300, lead, new Version(1, 0, 0));
+		Project games = (Project) bugTrap.getProjectManager().getProjects().get(1);
+		games.createSubsystem("Solitaire", "Cards");
+		bugTrap.getBugReportManager().addBugReport("Cards stick", "To the mouse.", new Date(1500), games.getSubsystems().get(0), issuer, new ArrayList<IBugReport>(), new ArrayList<IUser>(), BugTag.NEW, null, 10);
+
+		assertEquals(1, bugReportController.getTopBugReports(games, 5).size());
+		List<IBugReport> office = new ArrayList<>(sorted(new FilterType[0], new String[0], BugReportOrder.IMPACT, 20));
+		office.remove(0);
+		assertEquals(office.subList(0, 5), bugReportController.getTopBugReports(this.office, 5));
+
+		//A fork shares the bug reports of the project it was forked from.
+		bugTrap.getProjectManager().createFork(this.office, 500, new Version(2, 0, 0), new Date(5000));
+		IProject fork = bugTrap.getProjectManager().getProjects().get(2);
+		assertEquals(office.subList(0, 5), bugReportController.getTopBugReports(fork, 5));
+
+		bugTrap.getProjectManager().deleteProject(games);
+		assertEquals(Arrays.asList(), bugReportController.getTopBugReports(games, 5));
+	}
+
+	@Test (expected = IllegalArgumentException.class)
+	public void invalidKTest() throws UnauthorizedAccessException {
+		bugReportController.getTopList(new FilterType[0], new String[0], BugReportOrder.IMPACT, 0);
+	}
+}
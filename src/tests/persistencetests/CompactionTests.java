@@ -0,0 +1,262 @@
+package tests.persistencetests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import controllers.exceptions.UnauthorizedAccessException;
+import model.BugTrap;
+import model.bugreports.IBugReport;
+import model.bugreports.forms.CommentCreationForm;
+import model.persistence.PersistentStore;
+import model.persistence.PersistentStore.Stage;
+import tests.BugTrapTest;
+
+public class CompactionTests extends BugTrapTest {
+
+	private File directory;
+
+	@Before
+	public void setUp() throws UnauthorizedAccessException {
+		super.setUp();
+		try {
+			directory = Files.createTempDirectory("BugTrapStore").toFile();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		bugTrap.closeStore();
+		deleteDirectory(directory);
+	}
+
+	private static void deleteDirectory(File directory) {
+		File[] files = directory.listFiles();
+		if (files != null)
+			for (File file : files)
+				file.delete();
+		directory.delete();
+	}
+
+	private void comment(Random random) throws UnauthorizedAccessException {
+		userController.loginAs(issuer);
+		List<IBugReport> bugReports = bugReportController.getBugReportList();
+		CommentCreationForm form = bugReportController.getCommentCreationForm();
+		form.setCommentable(bugReports.get(random.nextInt(bugReports.size())));
+		form.setText("Comment " + random.nextInt(1000));
+		bugReportController.createComment(form);
+	}
+
+	private static BugTrap recover(File directory) throws IOException {
+		BugTrap recovered = new BugTrap();
+		recovered.openStore(directory, 1);
+		recovered.closeStore();
+		return recovered;
+	}
+
+	private int count(String suffix) {
+		int count = 0;
+		for (File file : directory.listFiles())
+			if (file.getName().endsWith(suffix))
+				count++;
+		return count;
+	}
+
+	@Test
+	public void hasStateTest() throws IOException {
+		assertFalse(new PersistentStore(bugTrap, directory, 1).hasState());
+		bugTrap.openStore(directory, 1);
+		bugTrap.closeStore();
+		assertTrue(new PersistentStore(new BugTrap(), directory, 1).hasState());
+	}
+
+	@Test
+	public void compactionDropsOldSegmentsTest() throws UnauthorizedAccessException, IOException {
+		bugTrap.openStore(directory, 1);
+		Random random = new Random(1);
+		for (int i = 0; i < 5; i++)
+			comment(random);
+		bugTrap.getStore().compact();
+		comment(random);
+
+		assertEquals(1, count(".bts"));
+		assertEquals(1, count(".btj"));
+		assertEquals(1, bugTrap.getJournal().getEntryCount());
+
+		bugTrap.closeStore();
+		BugTrap recovered = new BugTrap();
+		// Only the command after the compaction is replayed.
+		assertEquals(1, recovered.openStore(directory, 1));
+		recovered.closeStore();
+		StateAssert.assertSameState(bugTrap, recovered);
+	}
+
+	@Test
+	public void backgroundCompactionTest() throws UnauthorizedAccessException, IOException {
+		bugTrap.openStore(directory, 4);
+		bugTrap.getStore().setCompactionThreshold(10);
+		Random random = new Random(2);
+		for (int i = 0; i < 95; i++)
+			comment(random);
+		bugTrap.getStore().awaitCompaction();
+
+		assertTrue(bugTrap.getStore().getSegment() > 0);
+		assertTrue(bugTrap.getJournal().getEntryCount() < 95);
+		bugTrap.closeStore();
+		StateAssert.assertSameState(bugTrap, recover(directory));
+	}
+
+	@Test
+	public void commandsDuringBackgroundCompactionTest() throws UnauthorizedAccessException, IOException, InterruptedException {
+		final CountDownLatch commanded = new CountDownLatch(1);
+		PersistentStore store = new PersistentStore(bugTrap, directory, 1) {
+			@Override
+			protected void reached(Stage stage, File file) {
+				// The snapshot is built before this, while the commands below change the state.
+				if (stage == Stage.SNAPSHOT_WRITTEN && inCompaction())
+					awaitUninterruptibly(commanded);
+			}
+		};
+		bugTrap.openStore(store);
+		Random random = new Random(4);
+		for (int i = 0; i < 5; i++)
+			comment(random);
+
+		store.compactInBackground();
+		for (int i = 0; i < 5; i++)
+			comment(random);
+		commanded.countDown();
+		store.awaitCompaction();
+
+		bugTrap.closeStore();
+		BugTrap recovered = new BugTrap();
+		// The snapshot holds the state at the start of the new segment, so only the later commands are replayed.
+		assertEquals(5, recovered.openStore(directory, 1));
+		recovered.closeStore();
+		StateAssert.assertSameState(bugTrap, recovered);
+	}
+
+	@Test
+	public void backgroundCompactionFailureIsThrownTest() throws UnauthorizedAccessException, IOException {
+		PersistentStore store = new PersistentStore(bugTrap, directory, 1) {
+			@Override
+			protected void reached(Stage stage, File file) {
+				if (stage == Stage.SNAPSHOT_WRITTEN && inCompaction())
+					throw new IllegalStateException("Disk full");
+			}
+		};
+		bugTrap.openStore(store);
+		comment(new Random(5));
+		store.compactInBackground();
+
+		try {
+			store.awaitCompaction();
+			fail("The failure of the compaction should be thrown.");
+		} catch (IOException e) {
+			assertEquals("Disk full", e.getCause().getMessage());
+		}
+		// It is only thrown once.
+		store.awaitCompaction();
+	}
+
+	// The first snapshot is written by open, on the thread of the test.
+	private static boolean inCompaction() {
+		return Thread.currentThread().getName().equals("BugTrap compaction");
+	}
+
+	private static void awaitUninterruptibly(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Kills compactions at random stages, optionally keeps executing commands as if only the compaction died,
+	 * and checks that recovering from the directory gives the same state.
+	 */
+	@Test
+	public void crashDuringCompactionTest() throws UnauthorizedAccessException, IOException {
+		Random random = new Random(3);
+		for (int run = 0; run < 40; run++) {
+			File runDirectory = Files.createTempDirectory("BugTrapStore").toFile();
+			Stage crashAt = Stage.values()[random.nextInt(Stage.values().length)];
+			CrashingStore store = new CrashingStore(bugTrap, runDirectory, crashAt, random);
+			bugTrap.openStore(store);
+
+			int compactions = random.nextInt(3);
+			for (int i = 0; i <= compactions; i++) {
+				int commands = random.nextInt(6);
+				for (int j = 0; j < commands; j++)
+					comment(random);
+				store.armed = i == compactions;
+				try {
+					store.compact();
+				} catch (Crash e) {
+					// The compaction was killed.
+				}
+			}
+			if (random.nextBoolean())
+				comment(random);
+
+			StateAssert.assertSameState(bugTrap, recover(runDirectory));
+			assertFalse(new File(runDirectory, "snapshot-" + store.getSegment() + ".tmp").exists());
+
+			bugTrap.closeStore();
+			deleteDirectory(runDirectory);
+		}
+	}
+
+	private static class Crash extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+	}
+
+	// Store that is killed when it reaches the given stage of an armed compaction.
+	private static class CrashingStore extends PersistentStore {
+
+		private final Stage crashAt;
+		private final Random random;
+		private boolean armed;
+
+		private CrashingStore(BugTrap bugTrap, File directory, Stage crashAt, Random random) {
+			super(bugTrap, directory, 1);
+			this.crashAt = crashAt;
+			this.random = random;
+		}
+
+		@Override
+		protected void reached(Stage stage, File file) {
+			if (!armed || stage != crashAt)
+				return;
+			if (stage == Stage.FILE_DELETED && random.nextBoolean())
+				return;
+
+			armed = false;
+			// Killed while writing the snapshot, only part of it made it to disk.
+			if (stage == Stage.SNAPSHOT_WRITTEN) {
+				try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+					out.setLength(random.nextInt((int) out.length()));
+				} catch (IOException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+			throw new Crash();
+		}
+	}
+}
@@ -0,0 +1,343 @@
+package tests.persistencetests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import controllers.BugReportController;
+import controllers.exceptions.UnauthorizedAccessException;
+import model.BugTrap;
+import model.LoadingMode;
+import model.bugreports.IBugReport;
+import model.bugreports.bugtag.BugTag;
+import model.bugreports.forms.ArchiveBugReportsForm;
+import model.bugreports.forms.BugReportAssignForm;
+import model.bugreports.forms.BugReportCreationForm;
+import model.bugreports.forms.BugReportUpdateForm;
+import model.bugreports.forms.CommentCreationForm;
+import model.bugreports.forms.ProposePatchForm;
+import model.bugreports.forms.ProposeTestForm;
+import model.notifications.NotificationType;
+import model.notifications.forms.RegisterNotificationForm;
+import model.notifications.forms.UnregisterNotificationForm;
+import model.projects.IProject;
+import model.projects.Role;
+import model.projects.Version;
+import model.projects.forms.DeclareAchievedMilestoneForm;
+import model.projects.forms.MergeSubsystemForm;
+import model.projects.forms.ProjectAssignForm;
+import model.projects.forms.ProjectCreationForm;
+import model.projects.forms.ProjectDeleteForm;
+import model.projects.forms.ProjectForkForm;
+import model.projects.forms.ProjectUpdateForm;
+import model.projects.forms.SplitSubsystemForm;
+import model.projects.forms.SubsystemCreationForm;
+import tests.BugTrapTest;
+
+public class JournalTests extends BugTrapTest {
+
+	private File snapshotFile;
+	private File journalFile;
+
+	@Before
+	public void setUp() throws UnauthorizedAccessException {
+		super.setUp();
+		try {
+			snapshotFile = File.createTempFile("BugTrapState", ".snapshot");
+			journalFile = File.createTempFile("BugTrapState", ".journal");
+			journalFile.delete();
+			bugTrap.save(snapshotFile);
+			bugTrap.openJournal(journalFile, 1);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		bugTrap.closeJournal();
+		snapshotFile.delete();
+		journalFile.delete();
+	}
+
+	// Restores the snapshot the journal was started on and replays the journal on top of it.
+	private BugTrap recover() throws IOException {
+		BugTrap recovered = new BugTrap();
+		recovered.initialize(snapshotFile, LoadingMode.SNAPSHOT);
+		recovered.openJournal(journalFile, 1);
+		recovered.closeJournal();
+		return recovered;
+	}
+
+	private void comment(String text) throws UnauthorizedAccessException {
+		userController.loginAs(issuer);
+		CommentCreationForm form = bugReportController.getCommentCreationForm();
+		form.setCommentable(wordBug);
+		form.setText(text);
+		bugReportController.createComment(form);
+	}
+
+	@Test
+	public void replayRestoresStateTest() throws UnauthorizedAccessException, IOException {
+		userController.loginAs(issuer);
+		RegisterNotificationForm register = notificationController.getRegisterNotificationForm();
+		register.setObservable(office);
+		register.setNotificationType(NotificationType.CREATE_COMMENT);
+		notificationController.registerNotification(register);
+		register = notificationController.getRegisterNotificationForm();
+		register.setObservable(clippyBug);
+		register.setNotificationType(NotificationType.BUGREPORT_CHANGE);
+		notificationController.registerNotification(register);
+
+		BugReportCreationForm create = bugReportController.getBugReportCreationForm();
+		create.setIssuer(issuer);
+		create.setTitle("Excel hangs");
+		create.setDescription("On large sheets");
+		create.setSubsystem(excelTable);
+		create.setDependsOn(Arrays.asList(excelBug));
+		create.setImpactFactor(6);
+		bugReportController.createBugReport(create);
+
+		CommentCreationForm reply = bugReportController.getCommentCreationForm();
+		reply.setCommentable(clippyBug.getComments().get(0));
+		reply.setText("Once every minute!");
+		bugReportController.createComment(reply);
+
+		UnregisterNotificationForm unregister = notificationController.getUnregisterNotificationForm();
+		unregister.setRegistration(notificationController.getRegistrations().get(1));
+		notificationController.unregisterNotification(unregister);
+
+		userController.loginAs(tester);
+		BugReportAssignForm assign = bugReportController.getBugReportAssignForm();
+		assign.setBugReport(clippyBug);
+		assign.setDeveloper(prog);
+		bugReportController.assignToBugReport(assign);
+		ProposeTestForm test = bugReportController.getProposeTestForm();
+		test.setBugReport(clippyBug);
+		test.setTest("Clippy appears within a minute");
+		bugReportController.proposeTest(test);
+
+		userController.loginAs(prog);
+		ProposePatchForm patch = bugReportController.getProposePatchForm();
+		patch.setBugReport(clippyBug);
+		patch.setPatch("interval = 60");
+		bugReportController.proposePatch(patch);
+
+		userController.loginAs(admin);
+		ProjectCreationForm project = projectController.getProjectCreationForm();
+		project.setName("Paint");
+		project.setDescription("Drawing");
+		project.setBudgetEstimate(100);
+		project.setStartDate(new Date(2000));
+		project.setLeadDeveloper(prog);
+		projectController.createProject(project);
+		IProject paint = bugTrap.getProjectManager().getProjects().get(1);
+
+		SubsystemCreationForm subsystem = projectController.getSubsystemCreationForm();
+		subsystem.setName("Brushes");
+		subsystem.setDescription("Round and square");
+		subsystem.setParent(paint);
+		projectController.createSubsystem(subsystem);
+
+		ProjectForkForm fork = projectController.getProjectForkForm();
+		fork.setProject(office);
+		fork.setBudgetEstimate(500);
+		fork.setStartDate(new Date(3000));
+		fork.setVersion(new Version(2, 0, 0));
+		fork.setLeadDeveloper(lead);
+		projectController.forkProject(fork);
+
+		ProjectUpdateForm update = projectController.getProjectUpdateForm();
+		update.setProject(paint);
+		update.setName("Paint 2");
+		update.setDescription("More drawing");
+		update.setBudgetEstimate(200);
+		update.setStartDate(new Date(4000));
+		update.setVersion(new Version(1, 1, 0));
+		projectController.updateProject(update);
+
+		SplitSubsystemForm split = projectController.getSplitSubsystemForm();
+		split.setSubsystem(word);
+		split.setName1("Editor");
+		split.setDescription1("The actual word processor.");
+		split.setName2("Extras");
+		split.setDescription2("Gimmicks.");
+		split.setBugReports1(Arrays.asList(wordBug));
+		split.setSubsystems1(Arrays.asList(comicSans));
+		projectController.splitSubsystem(split);
+
+		MergeSubsystemForm merge = projectController.getMergeSubsystemForm();
+		merge.setSubsystem1(excel);
+		merge.setSubsystem2(powerpoint);
+		merge.setName("ExcelPoint");
+		merge.setDescription("Sheets on slides.");
+		projectController.mergeSubsystem(merge);
+
+		userController.loginAs(prog);
+		ProjectAssignForm assignProject = projectController.getProjectAssignForm();
+		assignProject.setProject(paint);
+		assignProject.setDeveloper(tester);
+		assignProject.setRole(Role.TESTER);
+		projectController.assignToProject(assignProject);
+
+		DeclareAchievedMilestoneForm milestone = projectController.getDeclareAchievedMilestoneForm();
+		milestone.setSystem(paint.getSubsystems().get(0));
+		milestone.setNumbers(Arrays.asList(1, 2));
+		projectController.declareAchievedMilestone(milestone);
+
+		userController.loginAs(admin);
+		ProjectDeleteForm delete = projectController.getProjectDeleteForm();
+		delete.setProject(paint);
+		projectController.deleteProject(delete);
+		userController.logOff();
+
+		assertEquals(17, bugTrap.getJournal().getEntryCount());
+		bugTrap.closeJournal();
+
+		StateAssert.assertSameState(bugTrap, recover());
+	}
+
+	@Test
+	public void replayKeepsArchiveTest() throws UnauthorizedAccessException, IOException {
+		userController.loginAs(lead);
+		BugReportUpdateForm update = bugReportController.getBugReportUpdateForm();
+		update.setBugReport(clippyBug);
+		update.setBugTag(BugTag.NOTABUG);
+		bugReportController.updateBugReport(update);
+		userController.loginAs(admin);
+		ArchiveBugReportsForm archive = bugReportController.getArchiveBugReportsForm();
+		archive.setDays(0);
+		bugReportController.archiveBugReports(archive);
+
+		// Commands refer to bug reports after the archive changed, and to archived bug reports.
+		comment("Still crashing.");
+		CommentCreationForm form = bugReportController.getCommentCreationForm();
+		form.setCommentable(clippyBug);
+		form.setText("Is it a bug after all?");
+		bugReportController.createComment(form);
+		assertFalse(bugTrap.getBugReportManager().isArchived(clippyBug));
+		userController.loginAs(admin);
+		archive = bugReportController.getArchiveBugReportsForm();
+		archive.setDays(0);
+		bugReportController.archiveBugReports(archive);
+		bugTrap.closeJournal();
+
+		BugTrap recovered = recover();
+		StateAssert.assertSameState(bugTrap, recovered);
+		assertEquals(1, recovered.getBugReportManager().getArchivedBugReports().size());
+	}
+
+	@Test
+	public void replayKeepsDatesAndUsersTest() throws UnauthorizedAccessException, IOException, InterruptedException {
+		comment("Still crashing.");
+		Date commented = wordBug.getComments().get(0).getCreationDate();
+		bugTrap.closeJournal();
+
+		Thread.sleep(5);
+		BugTrap recovered = recover();
+
+		IBugReport recoveredWordBug = recovered.getProjectManager().getSubsystemWithName("Word").getBugReports().get(0);
+		assertEquals(commented, recoveredWordBug.getComments().get(0).getCreationDate());
+		// Replaying does not leave anyone logged in.
+		assertNull(recovered.getLoggedInUser());
+	}
+
+	@Test
+	public void tornEntryIsDroppedTest() throws UnauthorizedAccessException, IOException {
+		comment("First");
+		comment("Second");
+		bugTrap.closeJournal();
+		long length = journalFile.length();
+
+		// A crash in the middle of writing the third entry.
+		try (FileOutputStream out = new FileOutputStream(journalFile, true)) {
+			out.write(new byte[] { 0, 0, 0, 40, 1, 2, 3 });
+		}
+
+		BugTrap recovered = new BugTrap();
+		recovered.initialize(snapshotFile, LoadingMode.SNAPSHOT);
+		assertEquals(2, recovered.openJournal(journalFile, 1));
+		assertEquals(length, journalFile.length());
+		StateAssert.assertSameState(bugTrap, recovered);
+
+		// Journaling goes on after the last complete entry.
+		recovered.getUserManager().loginAs(recovered.getUserManager().getUser("ISSUER"));
+		BugReportController recoveredController = new BugReportController(recovered);
+		CommentCreationForm form = recoveredController.getCommentCreationForm();
+		form.setCommentable(recovered.getBugReportManager().getBugReportList().get(1));
+		form.setText("Third");
+		recoveredController.createComment(form);
+		recovered.closeJournal();
+
+		StateAssert.assertSameState(recovered, recover());
+	}
+
+	@Test
+	public void corruptEntryIsDroppedTest() throws UnauthorizedAccessException, IOException {
+		comment("First");
+		long length = journalFile.length();
+		comment("Second");
+		bugTrap.closeJournal();
+
+		// Flip the last byte of the second entry, so its checksum no longer matches.
+		byte[] bytes = Files.readAllBytes(journalFile.toPath());
+		bytes[bytes.length - 1] ^= 1;
+		Files.write(journalFile.toPath(), bytes);
+
+		BugTrap recovered = new BugTrap();
+		recovered.initialize(snapshotFile, LoadingMode.SNAPSHOT);
+		assertEquals(1, recovered.openJournal(journalFile, 1));
+		assertEquals(length, journalFile.length());
+		recovered.closeJournal();
+	}
+
+	@Test
+	public void groupCommitTest() throws UnauthorizedAccessException, IOException {
+		bugTrap.closeJournal();
+		journalFile.delete();
+		bugTrap.openJournal(journalFile, 3);
+		long header = journalFile.length();
+
+		comment("First");
+		comment("Second");
+		assertEquals(header, journalFile.length());
+		comment("Third");
+		long group = journalFile.length();
+		assertEquals(3, bugTrap.getJournal().getEntryCount());
+		assertTrue(group > header);
+
+		comment("Fourth");
+		assertEquals(group, journalFile.length());
+		bugTrap.getJournal().sync();
+		assertTrue(journalFile.length() > group);
+	}
+
+	@Test
+	public void failedCommandIsNotJournaledTest() throws UnauthorizedAccessException, IOException {
+		userController.loginAs(prog);
+		ProposePatchForm form = new ProposePatchForm();
+		form.setBugReport(clippyBug);
+		form.setPatch("This is a fix");
+		try {
+			bugReportController.proposePatch(form);
+		} catch (IllegalArgumentException e) {
+			// Expected, there are no tests for the bug report yet.
+		}
+
+		assertEquals(0, bugTrap.getJournal().getEntryCount());
+		bugTrap.closeJournal();
+		StateAssert.assertSameState(bugTrap, recover());
+	}
+}
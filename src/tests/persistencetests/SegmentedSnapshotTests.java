@@ -0,0 +1,204 @@
+package tests.persistencetests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import benchmarks.StateGenerator;
+import controllers.exceptions.UnauthorizedAccessException;
+import model.BugTrap;
+import model.LoadingMode;
+import model.bugreports.BugReport;
+import model.bugreports.IBugReport;
+import model.bugreports.bugtag.BugTag;
+import model.bugreports.builders.BugReportBuilder;
+import model.bugreports.forms.CommentCreationForm;
+import model.notifications.NotificationType;
+import model.notifications.forms.RegisterNotificationForm;
+import model.persistence.SegmentedSnapshot;
+import model.projects.IProject;
+import model.projects.ISubsystem;
+import model.projects.Project;
+import model.projects.Version;
+import tests.BugTrapTest;
+
+public class SegmentedSnapshotTests extends BugTrapTest {
+
+	private File directory;
+	private Project games;
+	private ISubsystem solitaire;
+	private IBugReport solitaireBug;
+
+	@Before
+	public void setUp() throws UnauthorizedAccessException {
+		super.setUp();
+		try {
+			directory = Files.createTempDirectory("BugTrapSegments").toFile();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+
+		//A second project with a bug report that depends on a bug report of the first.
+		bugTrap.getProjectManager().createProject("Games", "Time wasters", new Date(100), new Date(200), 300, lead, new Version(1, 0, 0));
+		games = (Project) bugTrap.getProjectManager().getProjects().get(1);
+		games.createSubsystem("Solitaire", "Cards");
+		solitaire = games.getSubsystems().get(0);
+		solitaireBug = new BugReportBuilder(bugTrap)
+				.setTitle("Cards stick")
+				.setDescription("Cards stick to the mouse after Word crashed")
+				.setCreationDate(new Date(300))
+				.setSubsystem(solitaire)
+				.setIssuer(issuer)
+				.setDependsOn(Arrays.asList(wordBug))
+				.setImpactFactor(3)
+				.getBugReport();
+		bugTrap.getBugReportManager().addBugReport((BugReport) solitaireBug);
+
+		//A fork shares its segment with the original.
+		bugTrap.getProjectManager().createFork(office, 500, new Version(2, 0, 0), new Date(5000));
+
+		bugTrap.getUserManager().loginAs(issuer);
+		RegisterNotificationForm form = notificationController.getRegisterNotificationForm();
+		form.setObservable(solitaireBug);
+		form.setNotificationType(NotificationType.CREATE_COMMENT);
+		notificationController.registerNotification(form);
+		bugTrap.getUserManager().logOff();
+	}
+
+	@After
+	public void tearDown() {
+		for (File file : directory.listFiles())
+			file.delete();
+		directory.delete();
+	}
+
+	private BugTrap load() {
+		BugTrap loaded = new BugTrap();
+		loaded.initialize(directory, LoadingMode.SEGMENTED);
+		return loaded;
+	}
+
+	private void comment(IBugReport bugReport, String text) throws UnauthorizedAccessException {
+		bugTrap.getUserManager().loginAs(issuer);
+		CommentCreationForm form = bugReportController.getCommentCreationForm();
+		form.setCommentable(bugReport);
+		form.setText(text);
+		bugReportController.createComment(form);
+		bugTrap.getUserManager().logOff();
+	}
+
+	private int segmentFiles() {
+		return directory.list().length - 1;
+	}
+
+	@Test
+	public void roundTripTest() throws IOException {
+		assertEquals(2, bugTrap.saveSegments(directory));
+		assertEquals(2, segmentFiles());
+
+		BugTrap loaded = load();
+
+		StateAssert.assertSameState(bugTrap, loaded);
+		IBugReport loadedSolitaireBug = loaded.getProjectManager().getSubsystemWithName("Solitaire").getBugReports().get(0);
+		assertSame(loaded.getProjectManager().getSubsystemWithName("Word").getBugReports().get(0), loadedSolitaireBug.getDependsOn().get(0));
+		assertTrue(((Project) loaded.getProjectManager().getProjects().get(2)).sharesSubsystemsWith((Project) loaded.getProjectManager().getProjects().get(0)));
+	}
+
+	@Test
+	public void savedAndLoadedProjectsAreCleanTest() throws IOException {
+		assertTrue(games.isDirty());
+		bugTrap.saveSegments(directory);
+
+		for (IProject project : bugTrap.getProjectManager().getProjects())
+			assertFalse(((Project) project).isDirty());
+		for (IProject project : load().getProjectManager().getProjects())
+			assertFalse(((Project) project).isDirty());
+	}
+
+	@Test
+	public void changesMarkTheirProjectDirtyTest() throws IOException, UnauthorizedAccessException {
+		bugTrap.saveSegments(directory);
+
+		comment(solitaireBug, "Only on Mondays.");
+		assertTrue(games.isDirty());
+		assertFalse(((Project) office).isDirty());
+		bugTrap.saveSegments(directory);
+
+		games.addProgrammer(prog);
+		assertTrue(games.isDirty());
+		bugTrap.saveSegments(directory);
+
+		((Project) office).createSubsystem("Access", "Databases");
+		assertTrue(((Project) office).isDirty());
+		assertFalse(games.isDirty());
+	}
+
+	@Test
+	public void saveRewritesOnlyDirtySegmentsTest() throws IOException, UnauthorizedAccessException {
+		bugTrap.saveSegments(directory);
+		assertEquals(0, bugTrap.saveSegments(directory));
+
+		comment(solitaireBug, "Only on Mondays.");
+		assertEquals(1, bugTrap.saveSegments(directory));
+		assertEquals(2, segmentFiles());
+
+		// The office segment was not rewritten, the dependency of the games segment on it still holds.
+		BugTrap loaded = load();
+		StateAssert.assertSameState(bugTrap, loaded);
+		assertEquals(1, loaded.getProjectManager().getSubsystemWithName("Solitaire").getBugReports().get(0).getDependsOn().size());
+	}
+
+	@Test
+	public void saveAfterLoadRewritesOnlyDirtySegmentsTest() throws IOException, UnauthorizedAccessException {
+		bugTrap.saveSegments(directory);
+		BugTrap loaded = load();
+
+		((BugReport) loaded.getProjectManager().getSubsystemWithName("Word").getBugReports().get(0)).addComment("Again.");
+		assertEquals(1, loaded.saveSegments(directory));
+
+		StateAssert.assertSameState(loaded, load());
+	}
+
+	@Test
+	public void archiveRoundTripTest() throws IOException {
+		bugTrap.getBugReportManager().addBugReport(new BugReportBuilder(bugTrap)
+				.setTitle("Cards are shuffled")
+				.setDescription("That is the point")
+				.setCreationDate(new Date(400))
+				.setSubsystem(solitaire)
+				.setIssuer(issuer)
+				.setDependsOn(Arrays.asList(wordBug))
+				.setImpactFactor(1)
+				.setBugTag(BugTag.NOTABUG)
+				.getBugReport());
+		bugTrap.getBugReportManager().archiveClosedBugReports(0);
+		bugTrap.saveSegments(directory);
+
+		StateAssert.assertSameState(bugTrap, load());
+		assertEquals(1, load().getBugReportManager().getArchivedBugReports().size());
+	}
+
+	@Test
+	public void generatedStateRoundTripTest() throws IOException {
+		BugTrap generated = new StateGenerator(5).setProjects(4).setSubsystemsPerProject(20).setBugReports(1000).setRegistrations(100).generate();
+		assertEquals(4, generated.saveSegments(directory));
+
+		StateAssert.assertSameState(generated, load());
+	}
+
+	@Test(expected = IOException.class)
+	public void loadRejectsEmptyDirectoryTest() throws IOException {
+		new SegmentedSnapshot(new BugTrap(), directory).load();
+	}
+}
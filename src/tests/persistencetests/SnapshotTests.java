@@ -0,0 +1,269 @@
+package tests.persistencetests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import benchmarks.StateFileGenerator;
+import benchmarks.StateGenerator;
+import controllers.exceptions.UnauthorizedAccessException;
+import model.BugTrap;
+import model.LoadingMode;
+import model.bugreports.BugReport;
+import model.bugreports.IBugReport;
+import model.bugreports.bugtag.BugTag;
+import model.bugreports.builders.BugReportBuilder;
+import model.notifications.Mailbox;
+import model.notifications.NotificationType;
+import model.notifications.Observable;
+import model.notifications.forms.RegisterNotificationForm;
+import model.persistence.SnapshotLoader;
+import model.persistence.SnapshotWriter;
+import model.projects.AchievedMilestone;
+import model.projects.IProject;
+import model.projects.ISubsystem;
+import model.projects.Project;
+import model.projects.Version;
+import model.users.IUser;
+import tests.BugTrapTest;
+
+public class SnapshotTests extends BugTrapTest {
+
+	private IProject fork;
+
+	@Before
+	public void setUp() throws UnauthorizedAccessException {
+		super.setUp();
+
+		register(issuer, NotificationType.BUGREPORT_SPECIFIC_TAG, office, BugTag.CLOSED, null);
+		register(issuer, NotificationType.CREATE_COMMENT, clippyBug, null, null);
+		register(lead, NotificationType.ACHIEVED_SPECIFIC_MILESTONE, word, null, new AchievedMilestone(Arrays.asList(1, 5)));
+		register(prog, NotificationType.CREATE_COMMENT, excel, null, null);
+		register(tester, NotificationType.PROJECT_FORK, office, null, null);
+
+		//Comments with replies.
+		((BugReport) clippyBug).addComment("Once every minute!");
+		((BugReport) clippyBug).getComments().get(0).addComment("Too much.");
+		((BugReport) clippyBug).getComments().get(0).getComments().get(0).addComment("Not enough.");
+		((BugReport) wordBug).addComment("Still crashing.");
+
+		//Clippy bug goes through tests and patches until it is resolved and rated.
+		BugReport clippyReport = (BugReport) clippyBug;
+		bugTrap.getUserManager().loginAs(lead);
+		clippyReport.assignDeveloper(prog);
+		bugTrap.getUserManager().loginAs(tester);
+		clippyReport.addTest("Clippy appears within an hour");
+		clippyReport.addTest("Clippy appears within a minute");
+		bugTrap.getUserManager().loginAs(lead);
+		clippyReport.acceptTest(clippyReport.getTests().get(1));
+		bugTrap.getUserManager().loginAs(prog);
+		clippyReport.proposePatch("interval = 3600");
+		clippyReport.proposePatch("interval = 60");
+		bugTrap.getUserManager().loginAs(lead);
+		clippyReport.acceptPatch(clippyReport.getPatches().get(1));
+		clippyReport.getPatchSection().updateSatisfaction(4);
+
+		//Word Art bug has tests, but no patches yet.
+		bugTrap.getUserManager().loginAs(tester);
+		((BugReport) wordArtBug).addTest("Word Art renders in Comic Sans");
+
+		//Bug report with all optional fields.
+		bugTrap.getBugReportManager().addBugReport(new BugReportBuilder(bugTrap)
+				.setTitle("Excel rounds wrong")
+				.setDescription("1/3*3 is not 1")
+				.setCreationDate(new Date(1400))
+				.setSubsystem(excelTable)
+				.setIssuer(issuer)
+				.setDependsOn(Arrays.asList(excelBug, wordBug))
+				.setImpactFactor(9)
+				.setMilestone(Arrays.asList(2, 1))
+				.setStackTrace("at Excel.round(Excel.java:12)")
+				.setErrorMessage("#DIV/0!")
+				.setReproduction("Type =1/3*3")
+				.getBugReport());
+
+		//Fork with a subsystem of its own, the fork shares the subsystems of the original.
+		bugTrap.getProjectManager().createFork(office, 500, new Version(2, 0, 0), new Date(5000));
+		fork = bugTrap.getProjectManager().getProjects().get(1);
+		((Project) fork).createSubsystem("Fork only", "Created after forking");
+
+		bugTrap.getNotificationManager().getMailboxForUser(issuer).getNotifications().get(0).markAsRead();
+		bugTrap.getUserManager().logOff();
+	}
+
+	private void register(IUser user, NotificationType type, Observable observable, BugTag tag, AchievedMilestone milestone) throws UnauthorizedAccessException {
+		bugTrap.getUserManager().loginAs(user);
+		RegisterNotificationForm form = notificationController.getRegisterNotificationForm();
+		form.setObservable(observable);
+		form.setNotificationType(type);
+		if (tag != null)
+			form.setTag(tag);
+		if (milestone != null)
+			form.setMilestone(milestone);
+		notificationController.registerNotification(form);
+	}
+
+	private static byte[] save(BugTrap bugTrap) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new SnapshotWriter(bugTrap).write(out);
+		return out.toByteArray();
+	}
+
+	private static BugTrap load(byte[] snapshot) throws IOException {
+		BugTrap bugTrap = new BugTrap();
+		new SnapshotLoader(bugTrap).load(new ByteArrayInputStream(snapshot));
+		return bugTrap;
+	}
+
+	@Test
+	public void roundTripTest() throws IOException {
+		assertEquals(5, bugTrap.getNotificationManager().getRegistrations().size());
+		assertFalse(bugTrap.getNotificationManager().getMailboxForUser(issuer).getNotifications().isEmpty());
+
+		BugTrap loaded = load(save(bugTrap));
+
+		StateAssert.assertSameState(bugTrap, loaded);
+		assertEquals(BugTag.RESOLVED, loaded.getBugReportManager().getBugReportList().get(0).getBugTag());
+		assertEquals(4, ((BugReport) loaded.getBugReportManager().getBugReportList().get(0)).getPatchSection().getSatisfaction());
+		assertEquals("interval = 60", loaded.getBugReportManager().getBugReportList().get(0).getAcceptedPatch().getPatch());
+		assertEquals(2, loaded.getBugReportManager().getBugReportList().get(4).getDependsOn().size());
+	}
+
+	@Test
+	public void roundTripKeepsForksTest() throws IOException {
+		BugTrap loaded = load(save(bugTrap));
+
+		Project loadedOffice = (Project) loaded.getProjectManager().getProjects().get(0);
+		Project loadedFork = (Project) loaded.getProjectManager().getProjects().get(1);
+		assertTrue(loadedFork.sharesSubsystemsWith(loadedOffice));
+		assertEquals(new Version(2, 0, 0), loadedFork.getVersion());
+		assertEquals(fork.getCreationDate(), loadedFork.getCreationDate());
+
+		ISubsystem forkOnly = loaded.getProjectManager().getSubsystemWithName("Fork only");
+		assertSame(loadedFork, forkOnly.getParent());
+		assertSame(loadedOffice, loaded.getProjectManager().getSubsystemWithName("Word").getProject());
+	}
+
+	@Test
+	public void restoredRegistrationsNotifyTest() throws IOException {
+		BugTrap loaded = load(save(bugTrap));
+		IUser loadedProg = loaded.getUserManager().getUser("PROGRAMMER");
+		Mailbox box = loaded.getNotificationManager().getMailboxForUser(loadedProg);
+		int before = box.getNotifications().size();
+
+		IBugReport excelReport = loaded.getProjectManager().getSubsystemWithName("Excel").getBugReports().get(0);
+		((BugReport) excelReport).addComment("Seen it again.");
+
+		assertEquals(before + 1, box.getNotifications().size());
+	}
+
+	@Test
+	public void snapshotIsStableTest() throws IOException {
+		byte[] snapshot = save(bugTrap);
+
+		assertArrayEquals(snapshot, save(load(snapshot)));
+	}
+
+	@Test
+	public void generatedStateRoundTripTest() throws IOException {
+		File stateFile = File.createTempFile("BugTrapState", ".xml");
+		File snapshotFile = File.createTempFile("BugTrapState", ".snapshot");
+		try {
+			new StateFileGenerator(3).setProjects(3).setSubsystemsPerProject(20).setBugReports(1000).write(stateFile);
+			BugTrap streamed = new BugTrap();
+			streamed.initialize(stateFile, LoadingMode.STREAMING);
+
+			streamed.save(snapshotFile);
+			BugTrap restored = new BugTrap();
+			restored.initialize(snapshotFile, LoadingMode.SNAPSHOT);
+
+			StateAssert.assertSameState(streamed, restored);
+			// Repeated user names, subsystem names and tags are only written once.
+			assertTrue(snapshotFile.length() * 3 < stateFile.length());
+		} finally {
+			stateFile.delete();
+			snapshotFile.delete();
+		}
+	}
+
+	@Test
+	public void fullGeneratedStateRoundTripTest() throws IOException {
+		BugTrap generated = new StateGenerator(4).setProjects(4).setSubsystemsPerProject(25).setBugReports(1500).setRegistrations(200).generate();
+		byte[] snapshot = save(generated);
+
+		StateAssert.assertSameState(generated, load(snapshot));
+		assertArrayEquals(snapshot, save(load(snapshot)));
+	}
+
+	@Test
+	public void roundTripKeepsArchiveTest() throws IOException {
+		bugTrap.getBugReportManager().addBugReport(new BugReportBuilder(bugTrap)
+				.setTitle("Excel is too green")
+				.setDescription("It is supposed to be")
+				.setCreationDate(new Date(1500))
+				.setSubsystem(excelTable)
+				.setIssuer(issuer)
+				.setDependsOn(Arrays.asList(excelBug))
+				.setImpactFactor(1)
+				.setBugTag(BugTag.NOTABUG)
+				.getBugReport());
+		assertEquals(1, bugTrap.getBugReportManager().archiveClosedBugReports(0));
+		byte[] snapshot = save(bugTrap);
+
+		BugTrap loaded = load(snapshot);
+
+		StateAssert.assertSameState(bugTrap, loaded);
+		assertTrue(loaded.getProjectManager().getSubsystemWithName("ExcelTable").getBugReports().size() == 1);
+		assertEquals(1, loaded.getBugReportManager().getArchivedBugReports(loaded.getProjectManager().getSubsystemWithName("Excel")).size());
+		assertArrayEquals(snapshot, save(loaded));
+	}
+
+	@Test
+	public void roundTripKeepsRestoredBugReportLastTest() throws IOException, UnauthorizedAccessException {
+		bugTrap.getUserManager().loginAs(lead);
+		((BugReport) wordArtBug).updateBugTag(BugTag.NOTABUG);
+		assertEquals(1, bugTrap.getBugReportManager().archiveClosedBugReports(0));
+
+		//A restored bug report is numbered again and comes last, not at its old place.
+		assertTrue(bugTrap.getBugReportManager().restoreBugReport(wordArtBug));
+		assertSame(wordArtBug, last(1));
+		assertEquals(bugTrap.getBugReportManager().getBugReportList().size() - 1, bugTrap.getBugReportManager().positionOf(wordArtBug));
+		assertTrue(((BugReport) wordArtBug).getListNumber() > ((BugReport) last(2)).getListNumber());
+		assertEquals(Arrays.asList(wordArtBug), bugTrap.getBugReportManager().getTagIndex().getBugReports(BugTag.NOTABUG));
+
+		BugTrap loaded = load(save(bugTrap));
+		StateAssert.assertSameState(bugTrap, loaded);
+		List<IBugReport> reports = loaded.getBugReportManager().getBugReportList();
+		assertEquals("WordArt is not working", reports.get(reports.size() - 1).getTitle());
+	}
+
+	@Test
+	public void roundTripKeepsTerminalDateTest() throws IOException, UnauthorizedAccessException {
+		bugTrap.getUserManager().loginAs(lead);
+		bugTrap.setCurrentDate(new Date(9000));
+		((BugReport) wordArtBug).updateBugTag(BugTag.NOTABUG);
+		bugTrap.setCurrentDate(null);
+
+		BugTrap loaded = load(save(bugTrap));
+		assertEquals(new Date(9000), ((BugReport) loaded.getProjectManager().getSubsystemWithName("Word Art").getBugReports().get(0)).getTerminalDate());
+		StateAssert.assertSameState(bugTrap, loaded);
+	}
+
+	@Test(expected = IOException.class)
+	public void loadRejectsOtherFilesTest() throws IOException {
+		new SnapshotLoader(new BugTrap()).load(new File("BugTrapState.xml"));
+	}
+}
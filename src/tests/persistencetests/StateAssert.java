@@ -0,0 +1,194 @@
+package tests.persistencetests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import model.BugTrap;
+import model.bugreports.BugReport;
+import model.bugreports.IBugReport;
+import model.bugreports.IPatch;
+import model.bugreports.ITest;
+import model.bugreports.PatchSection;
+import model.bugreports.comments.Comment;
+import model.notifications.INotification;
+import model.notifications.IRegistration;
+import model.notifications.Mailbox;
+import model.projects.IProject;
+import model.projects.ISubsystem;
+import model.projects.ISystem;
+import model.users.IUser;
+
+/**
+ * Assertions that compare the complete state of two BugTrap systems.
+ */
+public class StateAssert {
+
+	/**
+	 * Assert that both BugTrap systems hold the same users, projects, subsystems, bug reports,
+	 * archived bug reports, mailboxes and registrations.
+	 */
+	public static void assertSameState(BugTrap expected, BugTrap actual) {
+		List<IUser> expectedUsers = expected.getUserManager().getUserList();
+		List<IUser> actualUsers = actual.getUserManager().getUserList();
+		assertEquals(expectedUsers.size(), actualUsers.size());
+		for (int i = 0; i < expectedUsers.size(); i++)
+			assertSameUser(expectedUsers.get(i), actualUsers.get(i));
+
+		List<IProject> expectedProjects = expected.getProjectManager().getProjects();
+		List<IProject> actualProjects = actual.getProjectManager().getProjects();
+		assertEquals(expectedProjects.size(), actualProjects.size());
+		for (int i = 0; i < expectedProjects.size(); i++)
+			assertSameProject(expectedProjects.get(i), actualProjects.get(i));
+
+		List<IBugReport> expectedReports = expected.getBugReportManager().getBugReportList();
+		List<IBugReport> actualReports = actual.getBugReportManager().getBugReportList();
+		assertEquals(expectedReports.size(), actualReports.size());
+		for (int i = 0; i < expectedReports.size(); i++)
+			assertSameBugReport(expectedReports.get(i), actualReports.get(i));
+
+		List<IBugReport> expectedArchived = expected.getBugReportManager().getArchivedBugReports();
+		List<IBugReport> actualArchived = actual.getBugReportManager().getArchivedBugReports();
+		assertEquals(expectedArchived.size(), actualArchived.size());
+		for (int i = 0; i < expectedArchived.size(); i++)
+			assertSameBugReport(expectedArchived.get(i), actualArchived.get(i));
+
+		List<Mailbox> expectedMailboxes = expected.getNotificationManager().getMailboxes();
+		List<Mailbox> actualMailboxes = actual.getNotificationManager().getMailboxes();
+		assertEquals(expectedMailboxes.size(), actualMailboxes.size());
+		for (int i = 0; i < expectedMailboxes.size(); i++)
+			assertSameMailbox(expectedMailboxes.get(i), actualMailboxes.get(i));
+
+		List<IRegistration> expectedRegistrations = expected.getNotificationManager().getRegistrations();
+		List<IRegistration> actualRegistrations = actual.getNotificationManager().getRegistrations();
+		assertEquals(expectedRegistrations.size(), actualRegistrations.size());
+		for (int i = 0; i < expectedRegistrations.size(); i++)
+			assertSameRegistration(expectedRegistrations.get(i), actualRegistrations.get(i));
+	}
+
+	public static void assertSameUser(IUser expected, IUser actual) {
+		assertEquals(expected.getClass(), actual.getClass());
+		assertEquals(expected.getUserName(), actual.getUserName());
+		assertEquals(expected.getFirstName(), actual.getFirstName());
+		assertEquals(expected.getMiddleName(), actual.getMiddleName());
+		assertEquals(expected.getLastName(), actual.getLastName());
+	}
+
+	public static void assertSameProject(IProject expected, IProject actual) {
+		assertSameSystem(expected, actual);
+		assertEquals(expected.getVersion(), actual.getVersion());
+		assertEquals(expected.getCreationDate(), actual.getCreationDate());
+		assertEquals(expected.getStartDate(), actual.getStartDate());
+		assertEquals(expected.getBudgetEstimate(), actual.getBudgetEstimate(), 0.0000001);
+		assertSameUserNames(expected.getProgrammers(), actual.getProgrammers());
+		assertSameUserNames(expected.getTesters(), actual.getTesters());
+		assertEquals(expected.getLeadDeveloper() == null, actual.getLeadDeveloper() == null);
+		if (expected.getLeadDeveloper() != null)
+			assertEquals(expected.getLeadDeveloper().getUserName(), actual.getLeadDeveloper().getUserName());
+	}
+
+	public static void assertSameSystem(ISystem expected, ISystem actual) {
+		assertEquals(expected.getName(), actual.getName());
+		assertEquals(expected.getDescription(), actual.getDescription());
+		assertEquals(expected.getAchievedMilestone(), actual.getAchievedMilestone());
+
+		List<ISubsystem> expectedSubs = expected.getSubsystems();
+		List<ISubsystem> actualSubs = actual.getSubsystems();
+		assertEquals(expectedSubs.size(), actualSubs.size());
+		for (int i = 0; i < expectedSubs.size(); i++)
+			assertSameSystem(expectedSubs.get(i), actualSubs.get(i));
+
+		List<IBugReport> expectedReports = expected.getBugReports();
+		List<IBugReport> actualReports = actual.getBugReports();
+		assertEquals(expectedReports.size(), actualReports.size());
+		for (int i = 0; i < expectedReports.size(); i++)
+			assertEquals(expectedReports.get(i).getTitle(), actualReports.get(i).getTitle());
+	}
+
+	public static void assertSameBugReport(IBugReport expected, IBugReport actual) {
+		assertEquals(expected.getTitle(), actual.getTitle());
+		assertEquals(expected.getDescription(), actual.getDescription());
+		assertEquals(expected.getCreationDate(), actual.getCreationDate());
+		assertEquals(expected.getSubsystem().getName(), actual.getSubsystem().getName());
+		assertEquals(expected.getBugTag(), actual.getBugTag());
+		assertEquals(((BugReport) expected).getTerminalDate(), ((BugReport) actual).getTerminalDate());
+		assertEquals(expected.getIssuedBy().getUserName(), actual.getIssuedBy().getUserName());
+		assertSameUserNames(expected.getAssignees(), actual.getAssignees());
+		assertEquals(expected.getTargetMilestone(), actual.getTargetMilestone());
+		assertEquals(expected.getStackTrace(), actual.getStackTrace());
+		assertEquals(expected.getErrorMessage(), actual.getErrorMessage());
+		assertEquals(expected.getReproduction(), actual.getReproduction());
+		assertEquals(((BugReport) expected).getImpactFactor(), ((BugReport) actual).getImpactFactor(), 0.0000001);
+
+		List<IBugReport> expectedDependencies = expected.getDependsOn();
+		List<IBugReport> actualDependencies = actual.getDependsOn();
+		assertEquals(expectedDependencies.size(), actualDependencies.size());
+		for (int i = 0; i < expectedDependencies.size(); i++)
+			assertEquals(expectedDependencies.get(i).getTitle(), actualDependencies.get(i).getTitle());
+
+		assertSameComments(expected.getComments(), actual.getComments());
+
+		List<ITest> expectedTests = expected.getTests();
+		List<ITest> actualTests = actual.getTests();
+		assertEquals(expectedTests.size(), actualTests.size());
+		for (int i = 0; i < expectedTests.size(); i++) {
+			assertEquals(expectedTests.get(i).getTest(), actualTests.get(i).getTest());
+			assertEquals(expectedTests.get(i).isAccepted(), actualTests.get(i).isAccepted());
+		}
+
+		List<IPatch> expectedPatches = expected.getPatches();
+		List<IPatch> actualPatches = actual.getPatches();
+		assertEquals(expectedPatches.size(), actualPatches.size());
+		for (int i = 0; i < expectedPatches.size(); i++)
+			assertEquals(expectedPatches.get(i).getPatch(), actualPatches.get(i).getPatch());
+
+		PatchSection expectedSection = ((BugReport) expected).getPatchSection();
+		PatchSection actualSection = ((BugReport) actual).getPatchSection();
+		assertEquals(expectedSection.hasAcceptedPatch(), actualSection.hasAcceptedPatch());
+		if (expectedSection.hasAcceptedPatch())
+			assertEquals(expectedSection.getAcceptedPatch().getPatch(), actualSection.getAcceptedPatch().getPatch());
+		assertEquals(expectedSection.hasSatisfaction(), actualSection.hasSatisfaction());
+		if (expectedSection.hasSatisfaction())
+			assertEquals(expectedSection.getSatisfaction(), actualSection.getSatisfaction());
+	}
+
+	public static void assertSameComments(List<Comment> expected, List<Comment> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).getText(), actual.get(i).getText());
+			assertEquals(expected.get(i).getCreationDate(), actual.get(i).getCreationDate());
+			assertSameComments(expected.get(i).getComments(), actual.get(i).getComments());
+		}
+	}
+
+	public static void assertSameMailbox(Mailbox expected, Mailbox actual) {
+		assertEquals(expected.getUser() == null, actual.getUser() == null);
+		if (expected.getUser() != null)
+			assertEquals(expected.getUser().getUserName(), actual.getUser().getUserName());
+
+		List<INotification> expectedNotifications = expected.getNotifications();
+		List<INotification> actualNotifications = actual.getNotifications();
+		assertEquals(expectedNotifications.size(), actualNotifications.size());
+		for (int i = 0; i < expectedNotifications.size(); i++) {
+			assertEquals(expectedNotifications.get(i).getText(), actualNotifications.get(i).getText());
+			assertEquals(expectedNotifications.get(i).isRead(), actualNotifications.get(i).isRead());
+		}
+	}
+
+	public static void assertSameRegistration(IRegistration expected, IRegistration actual) {
+		assertEquals(expected.getClass(), actual.getClass());
+		assertEquals(expected.getNotificationType(), actual.getNotificationType());
+		assertEquals(expected.getUser().getUserName(), actual.getUser().getUserName());
+		assertEquals(expected.getObserves().getClass(), actual.getObserves().getClass());
+		if (expected.getObserves() instanceof IBugReport)
+			assertEquals(((IBugReport) expected.getObserves()).getTitle(), ((IBugReport) actual.getObserves()).getTitle());
+		else
+			assertEquals(((ISystem) expected.getObserves()).getName(), ((ISystem) actual.getObserves()).getName());
+	}
+
+	private static void assertSameUserNames(List<IUser> expected, List<IUser> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++)
+			assertEquals(expected.get(i).getUserName(), actual.get(i).getUserName());
+	}
+}
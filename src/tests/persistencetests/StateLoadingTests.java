@@ -0,0 +1,134 @@
+package tests.persistencetests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import benchmarks.StateFileGenerator;
+import benchmarks.StateGenerator;
+import model.BugTrap;
+import model.LoadingMode;
+
+public class StateLoadingTests {
+
+	private static BugTrap load(File stateFile, LoadingMode mode) {
+		BugTrap bugTrap = new BugTrap();
+		bugTrap.initialize(stateFile, mode);
+		return bugTrap;
+	}
+
+	@Test
+	public void streamingLoadsStateFileTest() {
+		BugTrap streamed = load(new File("BugTrapState.xml"), LoadingMode.STREAMING);
+
+		assertEquals(5, streamed.getUserManager().getUserList().size());
+		assertEquals(2, streamed.getProjectManager().getProjects().size());
+		assertEquals(3, streamed.getBugReportManager().getBugReportList().size());
+		assertEquals("SubsystemA3.1", streamed.getBugReportManager().getBugReportList().get(1).getSubsystem().getName());
+		assertEquals(2, streamed.getBugReportManager().getBugReportList().get(1).getAssignees().size());
+		assertEquals("major", streamed.getProjectManager().getProjects().get(0).getLeadDeveloper().getUserName());
+	}
+
+	@Test
+	public void streamingMatchesDomOnStateFileTest() {
+		File stateFile = new File("BugTrapState.xml");
+		StateAssert.assertSameState(load(stateFile, LoadingMode.DOM), load(stateFile, LoadingMode.STREAMING));
+	}
+
+	@Test
+	public void streamingMatchesDomOnGeneratedStateTest() throws IOException {
+		File stateFile = File.createTempFile("BugTrapState", ".xml");
+		try {
+			new StateFileGenerator(7).setProjects(4).setSubsystemsPerProject(30).setBugReports(2000).write(stateFile);
+
+			BugTrap dom = load(stateFile, LoadingMode.DOM);
+			BugTrap streamed = load(stateFile, LoadingMode.STREAMING);
+
+			assertEquals(2000, streamed.getBugReportManager().getBugReportList().size());
+			assertFalse(streamed.getProjectManager().getProjects().get(0).getAllDirectOrIndirectSubsystems().isEmpty());
+			StateAssert.assertSameState(dom, streamed);
+		} finally {
+			stateFile.delete();
+		}
+	}
+
+	@Test
+	public void parallelMatchesDomOnStateFileTest() {
+		File stateFile = new File("BugTrapState.xml");
+		StateAssert.assertSameState(load(stateFile, LoadingMode.DOM), load(stateFile, LoadingMode.PARALLEL));
+	}
+
+	@Test
+	public void parallelMatchesStreamingOnGeneratedStateTest() throws IOException {
+		File stateFile = File.createTempFile("BugTrapState", ".xml");
+		try {
+			new StateFileGenerator(13).setProjects(12).setSubsystemsPerProject(40).setBugReports(5000).write(stateFile);
+
+			BugTrap streamed = load(stateFile, LoadingMode.STREAMING);
+			// Projects are built in a different order each time, the merged state should not show it.
+			for (int i = 0; i < 3; i++) {
+				BugTrap parallel = load(stateFile, LoadingMode.PARALLEL);
+				assertEquals(5000, parallel.getBugReportManager().getBugReportList().size());
+				assertEquals("Subsystem11.0", parallel.getProjectManager().getSubsystemWithName("Subsystem11.0").getName());
+				StateAssert.assertSameState(streamed, parallel);
+			}
+		} finally {
+			stateFile.delete();
+		}
+	}
+
+	@Test
+	public void parallelSkipsMarkupInCommentsTest() throws IOException {
+		File stateFile = File.createTempFile("BugTrapState", ".xml");
+		try {
+			String state = new String(Files.readAllBytes(new File("BugTrapState.xml").toPath()), StandardCharsets.UTF_8);
+			// The scan for tags should not see the tags in a comment or a CDATA section.
+			state = state.replace("<projects>", "<projects>\n<!-- <project name=\"Old\"> </project> -->")
+					.replace("<test>", "<test><![CDATA[ <bugreport> ]]>");
+			Files.write(stateFile.toPath(), state.getBytes(StandardCharsets.UTF_8));
+
+			BugTrap parallel = load(stateFile, LoadingMode.PARALLEL);
+			assertEquals(2, parallel.getProjectManager().getProjects().size());
+			assertEquals(3, parallel.getBugReportManager().getBugReportList().size());
+			StateAssert.assertSameState(load(stateFile, LoadingMode.DOM), parallel);
+		} finally {
+			stateFile.delete();
+		}
+	}
+
+	@Test
+	public void generatedStateIsReproducibleTest() {
+		StateGenerator generator = new StateGenerator(5).setProjects(3).setSubsystemsPerProject(20).setBugReports(300).setRegistrations(50);
+		BugTrap generated = generator.generate();
+
+		assertEquals(300, generated.getBugReportManager().getBugReportList().size());
+		assertEquals(50, generated.getNotificationManager().getRegistrations().size());
+		StateAssert.assertSameState(generated,
+				new StateGenerator(5).setProjects(3).setSubsystemsPerProject(20).setBugReports(300).setRegistrations(50).generate());
+	}
+
+	@Test
+	public void generatedStateFileLoadsTest() throws IOException {
+		File stateFile = File.createTempFile("BugTrapState", ".xml");
+		try {
+			BugTrap generated = new StateGenerator(6).setProjects(3).setSubsystemDepth(12).setBugReports(500).generate();
+			StateGenerator.writeStateFile(generated, stateFile);
+
+			BugTrap loaded = load(stateFile, LoadingMode.STREAMING);
+			assertEquals(500, loaded.getBugReportManager().getBugReportList().size());
+			assertEquals(generated.getProjectManager().getProjects().get(2).getAllDirectOrIndirectSubsystems().size(),
+					loaded.getProjectManager().getProjects().get(2).getAllDirectOrIndirectSubsystems().size());
+			assertEquals(generated.getBugReportManager().getBugReportList().get(499).getTitle(),
+					loaded.getBugReportManager().getBugReportList().get(499).getTitle());
+			StateAssert.assertSameState(load(stateFile, LoadingMode.DOM), loaded);
+		} finally {
+			stateFile.delete();
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package tests.projecttests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Test;
+
+import controllers.exceptions.UnauthorizedAccessException;
+import model.bugreports.BugReport;
+import model.bugreports.IBugReport;
+import model.bugreports.bugtag.BugTag;
+import model.projects.ISubsystem;
+import model.projects.Project;
+import model.projects.Subsystem;
+import model.users.IUser;
+import tests.BugTrapTest;
+
+public class BugImpactTests extends BugTrapTest {
+
+	private static final double DELTA = 1e-9;
+
+	// Checks the running sums of the whole project against a full recompute.
+	private void assertConsistent() {
+		assertTrue(((Project) office).findInconsistentBugImpacts().isEmpty());
+	}
+
+	@Test
+	public void runningSumsTest() {
+		//clippy: NEW 3 * 5, word: UNDERREVIEW 1 * 7, word art: ASSIGNED 2 * 3, excel: RESOLVED 0.1 * 3.
+		assertEquals(7, ((Subsystem) word).getBugImpact(), DELTA);
+		assertEquals(28, ((Subsystem) word).getSubtreeBugImpact(), DELTA);
+		assertEquals(0.3, ((Subsystem) excel).getSubtreeBugImpact(), DELTA);
+		assertEquals(0, ((Project) office).getBugImpact(), DELTA);
+		assertEquals(28.3, ((Project) office).getSubtreeBugImpact(), DELTA);
+		assertConsistent();
+
+		bugTrap.getBugReportManager().addBugReport("Clippy again", "It is back.", new Date(1400), clippy, issuer,
+				new ArrayList<IBugReport>(), new ArrayList<IUser>(), BugTag.NEW, null, 2);
+		assertEquals(21, ((Subsystem) clippy).getSubtreeBugImpact(), DELTA);
+		assertEquals(34, ((Subsystem) word).getSubtreeBugImpact(), DELTA);
+		assertEquals(34.3, ((Project) office).getSubtreeBugImpact(), DELTA);
+		assertConsistent();
+	}
+
+	@Test
+	public void tagChangeTest() throws UnauthorizedAccessException {
+		bugTrap.getUserManager().loginAs(lead);
+		((BugReport) clippyBug).assignDeveloper(prog);
+		assertEquals(10, ((Subsystem) clippy).getBugImpact(), DELTA);
+		assertEquals(23.3, ((Project) office).getSubtreeBugImpact(), DELTA);
+		assertConsistent();
+
+		((BugReport) clippyBug).updateBugTag(BugTag.CLOSED);
+		assertEquals(0, ((Subsystem) clippy).getBugImpact(), DELTA);
+		assertEquals(13, ((Subsystem) word).getSubtreeBugImpact(), DELTA);
+		assertConsistent();
+	}
+
+	@Test
+	public void archiveAndDeleteTest() throws UnauthorizedAccessException {
+		bugTrap.getUserManager().loginAs(lead);
+		((BugReport) clippyBug).updateBugTag(BugTag.CLOSED);
+		bugTrap.getBugReportManager().archiveClosedBugReports(0);
+		assertEquals(13.3, ((Project) office).getSubtreeBugImpact(), DELTA);
+		assertConsistent();
+
+		//A closed bug report counts for nothing, archived or not.
+		bugTrap.getBugReportManager().restoreBugReport(clippyBug);
+		assertEquals(13.3, ((Project) office).getSubtreeBugImpact(), DELTA);
+		assertConsistent();
+
+		((Subsystem) excel).terminate();
+		assertEquals(13, ((Project) office).getSubtreeBugImpact(), DELTA);
+	}
+
+	@Test
+	public void splitAndMergeTest() {
+		word.split("Text", "Annoying Tools", "TextInWord", "Tools can annoying", Arrays.asList(new IBugReport[] { wordBug }), Arrays.asList(new ISubsystem[] { wordArt, comicSans }));
+		Subsystem text = (Subsystem) office.getSubsystems().get(2);
+		Subsystem tools = (Subsystem) office.getSubsystems().get(3);
+		assertEquals(13, text.getSubtreeBugImpact(), DELTA);
+		assertEquals(15, tools.getSubtreeBugImpact(), DELTA);
+		assertEquals(28.3, ((Project) office).getSubtreeBugImpact(), DELTA);
+		assertConsistent();
+
+		text.merge("Office", "Everything", excel);
+		Subsystem merged = (Subsystem) office.getSubsystems().get(2);
+		assertEquals(7.3, merged.getBugImpact(), DELTA);
+		assertEquals(13.3, merged.getSubtreeBugImpact(), DELTA);
+		assertEquals(28.3, ((Project) office).getSubtreeBugImpact(), DELTA);
+		assertConsistent();
+	}
+
+	@Test
+	public void tagChurnTest() throws UnauthorizedAccessException {
+		bugTrap.getUserManager().loginAs(lead);
+		LinkedList<IBugReport> resolved = new LinkedList<>();
+		for (int i = 0; i < 200; i++) {
+			bugTrap.getBugReportManager().addBugReport("Excel again " + i, "Resolved once more.", new Date(1400 + i), excel, issuer,
+					new ArrayList<IBugReport>(), new ArrayList<IUser>(), BugTag.RESOLVED, null, 1 + i % 7);
+			resolved.add(last(1));
+			bugTrap.getBugReportManager().addBugReport("Clippy again " + i, "It is back.", new Date(1400 + i), clippy, issuer,
+					new ArrayList<IBugReport>(), new ArrayList<IUser>(), BugTag.NEW, null, 1 + i % 5);
+			BugReport churned = (BugReport) last(1);
+			churned.assignDeveloper(prog);
+			churned.updateBugTag(i % 2 == 0 ? BugTag.CLOSED : BugTag.NOTABUG);
+			//Taking them away in another order than they were added leaves rounding errors in floating-point sums.
+			if (resolved.size() > 3)
+				((BugReport) resolved.removeFirst()).terminate();
+		}
+
+		//Summed in tenths from scratch, the running sums have to match it exactly.
+		for (ISubsystem subsystem : office.getSubsystems())
+			assertEquals(tenths(Arrays.asList(subsystem)) / 10.0, ((Subsystem) subsystem).getSubtreeBugImpact(), 0);
+		assertEquals(tenths(office.getSubsystems()) / 10.0, ((Project) office).getSubtreeBugImpact(), 0);
+		assertConsistent();
+	}
+
+	// Sums the impact products of the bug reports of the subsystems and their subsystems, in tenths.
+	private long tenths(List<ISubsystem> subsystems) {
+		long tenths = 0;
+		for (ISubsystem subsystem : subsystems) {
+			for (IBugReport report : ((Subsystem) subsystem).getBugReports())
+				tenths += Math.round(((BugReport) report).getImpactProduct() * 10);
+			tenths += tenths(subsystem.getSubsystems());
+		}
+		return tenths;
+	}
+}
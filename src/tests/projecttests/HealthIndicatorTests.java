@@ -8,10 +8,15 @@ import java.util.List;
 
 import org.junit.Test;
 
+import controllers.exceptions.UnauthorizedAccessException;
+import model.bugreports.BugReport;
+import model.bugreports.IBugReport;
 import model.bugreports.bugtag.BugTag;
 import model.projects.IProject;
 import model.projects.ISubsystem;
+import model.projects.Project;
 import model.projects.System;
+import model.projects.Version;
 import model.projects.health.HealthIndicator;
 import tests.BugTrapTest;
 
@@ -105,4 +110,50 @@ public class HealthIndicatorTests extends BugTrapTest{
 		assertEquals(HealthIndicator.STABLE,indicators.get(1));
 		assertEquals(HealthIndicator.SERIOUS,indicators.get(2));
 	}
+
+	@Test
+	public void HealthIndicatorChangesTest() throws UnauthorizedAccessException {
+		IProject project = bugTrap.getProjectManager().getProjects().get(0);
+		assertEquals(HealthIndicator.HEALTHY, project.getHealthIndicators().get(0));
+		assertEquals(HealthIndicator.HEALTHY, clippy.getHealthIndicators().get(0));
+
+		//A new bug report changes the health of its subsystem and every system above it.
+		bugTrap.getBugReportManager().addBugReport("Bug1", "...", new Date(1303), clippy, lead, new ArrayList<>(), new ArrayList<>(), BugTag.NEW, null, 30);
+		assertEquals(HealthIndicator.STABLE, clippy.getHealthIndicators().get(0));
+		assertEquals(HealthIndicator.STABLE, word.getHealthIndicators().get(0));
+		assertEquals(HealthIndicator.STABLE, project.getHealthIndicators().get(0));
+		assertEquals(HealthIndicator.HEALTHY, excel.getHealthIndicators().get(0));
+
+		//So does a new tag.
+		bugTrap.getUserManager().loginAs(lead);
+		IBugReport bug1 = clippy.getBugReports().get(1);
+		((BugReport) bug1).updateBugTag(BugTag.CLOSED);
+		assertEquals(HealthIndicator.HEALTHY, clippy.getHealthIndicators().get(0));
+		assertEquals(HealthIndicator.HEALTHY, project.getHealthIndicators().get(0));
+
+		//And merging subsystems.
+		bugTrap.getBugReportManager().addBugReport("Bug2", "...", new Date(1305), excelTable, lead, new ArrayList<>(), new ArrayList<>(), BugTag.NEW, null, 60);
+		assertEquals(HealthIndicator.STABLE, excel.getHealthIndicators().get(0));
+		assertEquals(HealthIndicator.HEALTHY, word.getHealthIndicators().get(0));
+		word.merge("OfficeParty", "A combination of word and excel", excel);
+		assertEquals("OfficeParty", project.getSubsystems().get(1).getName());
+		assertEquals(HealthIndicator.STABLE, project.getSubsystems().get(1).getHealthIndicators().get(0));
+		assertEquals(HealthIndicator.STABLE, project.getHealthIndicators().get(0));
+	}
+
+	@Test
+	public void ForkHealthIndicatorChangesTest() {
+		bugTrap.getProjectManager().createFork(office, 123592929, new Version(2, 1, 1), new Date(2016, 1, 1));
+		List<IProject> projects = bugTrap.getProjectManager().getProjects();
+		Project fork = (Project) projects.get(projects.size() - 1);
+		assertEquals(HealthIndicator.HEALTHY, fork.getHealthIndicators().get(0));
+		assertEquals(28.3, fork.getSubtreeBugImpact(), 0);
+
+		//The fork shares the subsystems, so it does not keep its remembered health after they change.
+		bugTrap.getBugReportManager().addBugReport("Bug1", "...", new Date(1303), clippy, lead, new ArrayList<>(), new ArrayList<>(), BugTag.NEW, null, 30);
+		assertEquals(HealthIndicator.STABLE, fork.getHealthIndicators().get(0));
+		assertEquals(HealthIndicator.STABLE, office.getHealthIndicators().get(0));
+		assertEquals(118.3, fork.getSubtreeBugImpact(), 0);
+		assertEquals(118.3, ((Project) office).getSubtreeBugImpact(), 0);
+	}
 }
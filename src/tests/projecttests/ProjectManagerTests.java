@@ -3,12 +3,14 @@ package tests.projecttests;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
 import java.util.Date;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import controllers.exceptions.UnauthorizedAccessException;
+import model.bugreports.IBugReport;
 import model.projects.IProject;
 import model.projects.ISubsystem;
 import model.projects.Project;
@@ -165,4 +167,52 @@ public class ProjectManagerTests extends BugTrapTest {
         assertEquals(bugTrap.getProjectManager().getSubsystemWithName("name").getName(), "name");
         assertEquals(bugTrap.getProjectManager().getSubsystemWithName("name"), sub);
     }
+
+    @Test
+    public void testGetSubsystemWithNameAfterChanges() throws UnauthorizedAccessException {
+        ((Subsystem) powerpoint).setName("Keynote");
+        assertEquals(null, bugTrap.getProjectManager().getSubsystemWithName("PowerPoint"));
+        assertEquals(powerpoint, bugTrap.getProjectManager().getSubsystemWithName("Keynote"));
+
+        word.split("Text", "Word", "TextInWord", "Word again", new ArrayList<IBugReport>(), new ArrayList<ISubsystem>());
+        ISubsystem newWord = office.getSubsystems().get(office.getSubsystems().size() - 1);
+        assertEquals("Word", newWord.getName());
+        assertEquals(newWord, bugTrap.getProjectManager().getSubsystemWithName("Word"));
+        assertEquals(office.getSubsystems().get(office.getSubsystems().size() - 2), bugTrap.getProjectManager().getSubsystemWithName("Text"));
+
+        excel.merge("Spreadsheets", "Excel and its table", excelTable);
+        assertEquals(null, bugTrap.getProjectManager().getSubsystemWithName("Excel"));
+        assertEquals(null, bugTrap.getProjectManager().getSubsystemWithName("ExcelTable"));
+        assertEquals("Spreadsheets", bugTrap.getProjectManager().getSubsystemWithName("Spreadsheets").getName());
+
+        bugTrap.getProjectManager().deleteProject(office);
+        assertEquals(null, bugTrap.getProjectManager().getSubsystemWithName("Spreadsheets"));
+        assertEquals(null, bugTrap.getProjectManager().getSubsystemWithName("Clippy"));
+    }
+
+    @Test
+    public void testGetSubsystemWithNameIgnoresUnmanagedProjects() {
+        Project loose = new Project(bugTrap, "Loose", "Not in BugTrap", new ArrayList<Subsystem>(), Version.firstVersion(), new Date(), new Date(), 1, null, null);
+        loose.createSubsystem("Loose subsystem", "Not in BugTrap either");
+        assertEquals(null, bugTrap.getProjectManager().getSubsystemWithName("Loose subsystem"));
+    }
+
+    @Test
+    public void testGetSubsystemWithDuplicateName() throws UnauthorizedAccessException {
+        bugTrap.getProjectManager().createProject("Second", "Also has a Dup", new Date(), new Date(), 1, null, null);
+        Project second = (Project) bugTrap.getProjectManager().getProjects().get(1);
+        second.createSubsystem("Dup", "Created first");
+        ISubsystem secondDup = second.getSubsystems().get(0);
+        ((Subsystem) powerpoint).createSubsystem("Dup", "Created second");
+        ISubsystem powerpointDup = powerpoint.getSubsystems().get(0);
+        ((Subsystem) word).createSubsystem("Dup", "Created last");
+        ISubsystem wordDup = word.getSubsystems().get(word.getSubsystems().size() - 1);
+
+        //The first in the order of the projects and of their subsystems, like a scan of all projects.
+        assertEquals(wordDup, bugTrap.getProjectManager().getSubsystemWithName("Dup"));
+        ((Subsystem) wordDup).setName("Word Dup");
+        assertEquals(powerpointDup, bugTrap.getProjectManager().getSubsystemWithName("Dup"));
+        bugTrap.getProjectManager().deleteProject(office);
+        assertEquals(secondDup, bugTrap.getProjectManager().getSubsystemWithName("Dup"));
+    }
 }
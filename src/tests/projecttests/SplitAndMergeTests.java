@@ -142,4 +142,30 @@ public class SplitAndMergeTests extends BugTrapTest{
 		assertTrue(clippyMergesWith.contains(comicSans));
 		assertTrue(clippyMergesWith.contains(wordArt));
 	}
+
+	// Compares the subtree labels with the subsystems found by walking the tree.
+	private void assertLabelsFollowTree() {
+		List<ISubsystem> all = office.getAllDirectOrIndirectSubsystems();
+		for (ISubsystem root : all) {
+			List<ISubsystem> below = root.getAllDirectOrIndirectSubsystems();
+			for (ISubsystem subsystem : all)
+				assertEquals(subsystem == root || below.contains(subsystem), ((Subsystem) root).isInSubtree(subsystem));
+		}
+	}
+
+	@Test
+	public void subtreeLabelsFollowSplitAndMergeTest() {
+		assertLabelsFollowTree();
+		assertTrue(((Subsystem) word).isInSubtree(clippy));
+		assertFalse(((Subsystem) excel).isInSubtree(clippy));
+
+		word.split("Text", "Annoying Tools", "TextInWord", "Tools can annoying", Arrays.asList(new IBugReport[] { wordBug }), Arrays.asList(new ISubsystem[] { wordArt, comicSans }));
+		assertLabelsFollowTree();
+		assertEquals("Annoying Tools", clippy.getParent().getName());
+
+		excel.merge("Spreadsheets", "Excel and its table", excelTable);
+		((Subsystem) clippy).createSubsystem("Paperclip", "Still annoying");
+		assertLabelsFollowTree();
+		assertFalse(((Subsystem) word).isInSubtree(clippy));
+	}
 }
@@ -1,5 +1,7 @@
 package ui;
 
+import java.io.File;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.List;
@@ -16,6 +18,7 @@ import model.bugreports.TargetMilestone;
 import model.bugreports.bugtag.BugTag;
 import model.bugreports.comments.Comment;
 import model.bugreports.comments.Commentable;
+import model.bugreports.filters.BugReportPage;
 import model.bugreports.filters.FilterType;
 import model.bugreports.forms.BugReportAssignForm;
 import model.bugreports.forms.BugReportCreationForm;
@@ -30,6 +33,7 @@ import model.notifications.Observable;
 import model.notifications.forms.RegisterNotificationForm;
 import model.notifications.forms.ShowChronologicalNotificationForm;
 import model.notifications.forms.UnregisterNotificationForm;
+import model.persistence.PersistentStore;
 import model.projects.IProject;
 import model.projects.ISubsystem;
 import model.projects.ISystem;
@@ -41,16 +45,28 @@ import model.users.Issuer;
 
 public class Main {
 
+	private static final int PAGE_SIZE = 20;	//Bug reports shown at once when selecting one.
+	private static final int JOURNAL_GROUP_SIZE = 1;	//Every command is on disk before the next one is typed.
 	private static boolean quit;
+	private static BugTrap bugTrap;
 	private static UserController userController;
 	private static ProjectController projectController;
 	private static BugReportController bugReportController;
 	private static NotificationController notificationController;
 	private static Scanner input;
 	
+	/**
+	 * Starts the command line interface.
+	 * @param args Optionally the directory of a store, its state is restored on startup and every command is journaled to it.
+	 */
 	public static void main(String[] args) {
 		// Initialize BugTrap
-		init();
+		try {
+			init(args.length > 0 ? new File(args[0]) : null);
+		} catch (IOException e) {
+			System.out.println("Could not open the store: " + e.getMessage());
+			return;
+		}
 		
 		// Initialize CLI
 		quit = false;
@@ -69,17 +85,45 @@ public class Main {
 		}
 		
 		input.close();
+		try {
+			bugTrap.closeStore();
+		} catch (IOException e) {
+			System.out.println("Could not close the store: " + e.getMessage());
+		}
 		System.out.println("Goodbye.");
 	}
 	
 	public static void init() {
-		BugTrap bugTrap = new BugTrap();
+		createBugTrap();
+		bugTrap.initialize();
+	}
+	
+	/**
+	 * Initializes BugTrap from a store: its state is restored and its journal replayed.
+	 * A store without a state starts from the initial state.
+	 * @param storeDirectory The directory of the store, or null to start from the initial state without a store.
+	 * @throws IOException if the store can not be read or written.
+	 */
+	public static void init(File storeDirectory) throws IOException {
+		if (storeDirectory == null) {
+			init();
+			return;
+		}
+		
+		createBugTrap();
+		PersistentStore store = new PersistentStore(bugTrap, storeDirectory, JOURNAL_GROUP_SIZE);
+		if (!store.hasState())
+			bugTrap.initialize();
+		int replayed = bugTrap.openStore(store);
+		System.out.println("Restored the state in " + storeDirectory + ", replayed " + replayed + " commands.");
+	}
+	
+	private static void createBugTrap() {
+		bugTrap = new BugTrap();
 		userController = new UserController(bugTrap);
 		projectController = new ProjectController(bugTrap);
 		bugReportController = new BugReportController(bugTrap);
 		notificationController = new NotificationController(bugTrap);
-		
-		bugTrap.initialize();
 	}
 
 	public static void processCommand(String command) {
@@ -449,11 +493,23 @@ public class Main {
 			form.setTitle(input.nextLine());
 			System.out.println("Enter a description:");
 			form.setDescription(input.nextLine());
+			List<IBugReport> similar = bugReportController.findNearDuplicates(form);
+			if (!similar.isEmpty()) {
+				System.out.println("Bug reports with a similar title and description:");
+				for (IBugReport duplicate : similar)
+					System.out.println(" - " + duplicate.getTitle());
+			}
 			System.out.println("Enter the impact factor (1 to 10):");
 			form.setImpactFactor(selectImpactFactor());
 
 			System.out.println("Enter a stack trace: (optional, press enter to skip)");
 			form.setStackTrace(input.nextLine());
+			List<IBugReport> duplicates = bugReportController.findDuplicates(form.getStackTrace());
+			if (!duplicates.isEmpty()) {
+				System.out.println("Bug reports with the same stack trace:");
+				for (IBugReport duplicate : duplicates)
+					System.out.println(" - " + duplicate.getTitle());
+			}
 			System.out.println("Enter an error message: (optional, press enter to skip)");
 			form.setErrorMessage(input.nextLine());
 			System.out.println("Enter a procedure to reproduce the bug: (optional, press enter to skip");
@@ -932,21 +988,31 @@ public class Main {
 		FilterType type = selectFilterType();
 		System.out.println("Enter the search parameter: ");
 		String parameter = input.nextLine();
-		List<IBugReport> filtered;
 		try {
-			filtered = bugReportController.getOrderedList(new FilterType[]{type}, new String[]{parameter});
+			//Pages through the results, the first page is shown again after the last.
+			BugReportPage page = bugReportController.getOrderedPage(new FilterType[]{type}, new String[]{parameter}, null, PAGE_SIZE);
 			while (true) {
-				System.out.println("Select a bugreport by entering its number: ");
+				List<IBugReport> filtered = page.getBugReports();
+				System.out.println("Select a bugreport by entering its number, or press enter for the next page: ");
 				int number = 1;
 				for (IBugReport bugReport : filtered) {
 					System.out.println(number + ". " + bugReport.getTitle());
 					number++;
 				}
 				
-				int selected = input.nextInt();
-				input.nextLine();
-				if (selected <= filtered.size())
-					return filtered.get(selected - 1);
+				String line = input.nextLine().trim();
+				if (line.length() == 0) {
+					page = bugReportController.getOrderedPage(new FilterType[]{type}, new String[]{parameter}, page.getNextCursor(), PAGE_SIZE);
+					continue;
+				}
+				try {
+					int selected = Integer.parseInt(line);
+					if (selected >= 1 && selected <= filtered.size())
+						return filtered.get(selected - 1);
+					System.out.println("Invalid selection.");
+				} catch (NumberFormatException e) {
+					System.out.println("Invalid selection.");
+				}
 			}
 		} catch (UnauthorizedAccessException e) {
 			System.out.println(e.getMessage());